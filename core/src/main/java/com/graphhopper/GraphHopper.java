@@ -29,15 +29,18 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.reader.dem.*;
 import com.graphhopper.reader.osm.OSMReader;
+import com.graphhopper.reader.osm.OSMWayIndex;
 import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ch.ShortcutUnpackCache;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.querygraph.ReusableQueryGraphs;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks.PrepareJob;
 import com.graphhopper.routing.util.*;
@@ -46,13 +49,18 @@ import com.graphhopper.routing.util.parsers.OSMBikeNetworkTagParser;
 import com.graphhopper.routing.util.parsers.OSMFootNetworkTagParser;
 import com.graphhopper.routing.util.parsers.OSMMtbNetworkTagParser;
 import com.graphhopper.routing.util.parsers.TagParser;
+import com.graphhopper.routing.weighting.CachedWeighting;
+import com.graphhopper.routing.weighting.EdgeWeightCache;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.AreaEdgeIndex;
+import com.graphhopper.routing.weighting.custom.CustomModelClassStore;
 import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.routing.weighting.custom.NameValidator;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.SnapCache;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
@@ -68,6 +76,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -95,6 +107,7 @@ public class GraphHopper {
     private CountryRuleFactory countryRuleFactory = null;
     // for custom areas:
     private String customAreasDirectory = "";
+    private double areaIndexCellSize = 0;
     // for graph:
     private BaseGraph baseGraph;
     private StorableProperties properties;
@@ -105,6 +118,8 @@ public class GraphHopper {
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
     private boolean sortGraph = true;
+    private boolean importMetricsEnabled = false;
+    private ImportMetrics importMetrics = ImportMetrics.NOOP;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -116,21 +131,41 @@ public class GraphHopper {
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private int indexThreads = 1;
+    private List<String> indexProfiles = Collections.emptyList();
+    private Map<String, LocationIndex> profileLocationIndexes = Collections.emptyMap();
+    private int snapCacheSize = 0;
+    private SnapCache snapCache;
+    private OSMWayIndex osmWayIndex;
+    private final ReusableQueryGraphs reusableQueryGraphs = new ReusableQueryGraphs();
+    private int areaEdgesCacheMB = 0;
+    private AreaEdgeIndex areaEdgeIndex;
+    private String customModelClassDirectory = "";
+    private int customModelClassMaxFiles = 1000;
+    private int customModelCompileThreads = 0;
+    private ExecutorService customModelCompileExecutor;
     // subnetworks
     private int minNetworkSize = 200;
     private int subnetworksThreads = 1;
+    private boolean subnetworksShareComponents = true;
     // residential areas
     private double residentialAreaRadius = 400;
     private double residentialAreaSensitivity = 6000;
     private double cityAreaRadius = 1500;
     private double cityAreaSensitivity = 1000;
     private int urbanDensityCalculationThreads = 0;
+    private int edgeAttributeThreads = 1;
 
     // preparation handlers
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private long chShortcutCacheSize = 0;
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
+    // edge weight caches
+    private List<String> weightCacheProfiles = Collections.emptyList();
+    private int weightCacheThreads = 1;
+    private Map<String, EdgeWeightCache> weightCaches = Collections.emptyMap();
 
     // for data reader
     private String osmFile;
@@ -195,6 +230,85 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * The edge weights and times of the specified profiles are calculated once after the graph was loaded and then
+     * read from memory for every request that does not use a custom model (16 bytes per edge and profile).
+     */
+    public GraphHopper setWeightCacheProfiles(List<String> weightCacheProfiles) {
+        ensureNotLoaded();
+        this.weightCacheProfiles = weightCacheProfiles;
+        return this;
+    }
+
+    /**
+     * For each of the specified profiles an additional location index is created that only contains the edges
+     * accessible for this profile. It is used to snap the points of routing requests for this profile, which is
+     * faster if most edges close to the points are not accessible.
+     */
+    public GraphHopper setIndexProfiles(List<String> indexProfiles) {
+        ensureNotLoaded();
+        this.indexProfiles = indexProfiles;
+        return this;
+    }
+
+    /**
+     * The Snaps of routing requests without a custom model are cached for up to this many coordinates, which is useful
+     * if the same coordinates are queried again and again. 0 disables the cache.
+     */
+    public GraphHopper setSnapCacheSize(int snapCacheSize) {
+        ensureNotLoaded();
+        this.snapCacheSize = snapCacheSize;
+        return this;
+    }
+
+    /**
+     * @return the cache for the Snaps of routing requests or null if it is disabled, see {@link #setSnapCacheSize(int)}
+     */
+    public SnapCache getSnapCache() {
+        return snapCache;
+    }
+
+    /**
+     * The edges in the areas of custom models are looked up via the location index and kept in bit sets of up to this
+     * many megabytes, so that in_area expressions only need a bit lookup. A large area needs one bit per edge of the
+     * graph. 0 disables this and the edge geometries are tested instead.
+     */
+    public GraphHopper setAreaEdgesCacheMB(int areaEdgesCacheMB) {
+        ensureNotLoaded();
+        this.areaEdgesCacheMB = areaEdgesCacheMB;
+        return this;
+    }
+
+    /**
+     * The classes that are compiled for custom models are stored in this directory and loaded from it after a restart,
+     * so that they do not need to be compiled again. An empty string disables this.
+     */
+    public GraphHopper setCustomModelClassDirectory(String customModelClassDirectory) {
+        ensureNotLoaded();
+        this.customModelClassDirectory = customModelClassDirectory;
+        return this;
+    }
+
+    /**
+     * At most this many classes are kept in the directory of {@link #setCustomModelClassDirectory(String)}, the least
+     * recently used ones are deleted at startup.
+     */
+    public GraphHopper setCustomModelClassMaxFiles(int customModelClassMaxFiles) {
+        ensureNotLoaded();
+        this.customModelClassMaxFiles = customModelClassMaxFiles;
+        return this;
+    }
+
+    /**
+     * The classes for new custom models of requests are compiled with this many threads in the background, until then
+     * the custom models are interpreted. 0 means that the classes are compiled in the requests.
+     */
+    public GraphHopper setCustomModelCompileThreads(int customModelCompileThreads) {
+        ensureNotLoaded();
+        this.customModelCompileThreads = customModelCompileThreads;
+        return this;
+    }
+
     public GraphHopper setMinNetworkSize(int minNetworkSize) {
         ensureNotLoaded();
         this.minNetworkSize = minNetworkSize;
@@ -366,6 +480,23 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Enables collecting timings and memory usage of the import stages, tag parsers etc. The result is written to
+     * import_metrics.json in the graph directory, see {@link ImportMetrics}.
+     */
+    public GraphHopper setImportMetricsEnabled(boolean importMetricsEnabled) {
+        ensureNotLoaded();
+        this.importMetricsEnabled = importMetricsEnabled;
+        return this;
+    }
+
+    /**
+     * @return the metrics of the last import or {@link ImportMetrics#NOOP} if they were not enabled
+     */
+    public ImportMetrics getImportMetrics() {
+        return importMetrics;
+    }
+
     /**
      * The underlying graph used in algorithms.
      *
@@ -415,6 +546,14 @@ public class GraphHopper {
         return locationIndex;
     }
 
+    /**
+     * @return the location index that only contains the edges accessible for the specified profile or the default
+     * location index if no such index was created, see {@link #setIndexProfiles(List)}
+     */
+    public LocationIndex getLocationIndex(String profile) {
+        return profileLocationIndexes.getOrDefault(profile, getLocationIndex());
+    }
+
     protected void setLocationIndex(LocationIndex locationIndex) {
         this.locationIndex = locationIndex;
     }
@@ -454,6 +593,16 @@ public class GraphHopper {
         return this.customAreasDirectory;
     }
 
+    /**
+     * Enables a raster with the given cell size in degrees for the lookup of countries and custom areas during the
+     * import, see {@link AreaIndex#setRasterCellSize}. The default is 0, which disables the raster.
+     */
+    public GraphHopper setAreaIndexCellSize(double areaIndexCellSize) {
+        ensureNotLoaded();
+        this.areaIndexCellSize = areaIndexCellSize;
+        return this;
+    }
+
     /**
      * Sets the factory used to create country rules. Use `null` to disable country rules
      */
@@ -502,6 +651,7 @@ public class GraphHopper {
 
         countryRuleFactory = ghConfig.getBool("country_rules.enabled", false) ? new CountryRuleFactory() : null;
         customAreasDirectory = ghConfig.getString("custom_areas.directory", customAreasDirectory);
+        areaIndexCellSize = ghConfig.getDouble("custom_areas.raster_cell_size", areaIndexCellSize);
 
         defaultSegmentSize = ghConfig.getInt("graph.dataaccess.segment_size", defaultSegmentSize);
 
@@ -515,6 +665,7 @@ public class GraphHopper {
         }
 
         sortGraph = ghConfig.getBool("graph.sort", sortGraph);
+        importMetricsEnabled = ghConfig.getBool("import.metrics", importMetricsEnabled);
         if (ghConfig.getBool("max_speed_calculator.enabled", false))
             maxSpeedCalculator = new MaxSpeedCalculator(MaxSpeedCalculator.createLegalDefaultSpeeds());
 
@@ -555,6 +706,7 @@ public class GraphHopper {
         osmReaderConfig.setLongEdgeSamplingDistance(ghConfig.getDouble("graph.elevation.long_edge_sampling_distance", osmReaderConfig.getLongEdgeSamplingDistance()));
         osmReaderConfig.setElevationMaxWayPointDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", osmReaderConfig.getElevationMaxWayPointDistance()));
         routerConfig.setElevationWayPointMaxDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", routerConfig.getElevationWayPointMaxDistance()));
+        osmReaderConfig.setElevationThreads(ghConfig.getInt("graph.elevation.threads", osmReaderConfig.getElevationThreads()));
         ElevationProvider elevationProvider = createElevationProvider(ghConfig);
         setElevationProvider(elevationProvider);
 
@@ -564,6 +716,14 @@ public class GraphHopper {
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
         subnetworksThreads = ghConfig.getInt("prepare.subnetworks.threads", subnetworksThreads);
+        subnetworksShareComponents = ghConfig.getBool("prepare.subnetworks.share_components", subnetworksShareComponents);
+
+        chShortcutCacheSize = ghConfig.getLong("routing.ch.shortcut_cache_size", chShortcutCacheSize);
+
+        // edge weight caches
+        weightCacheProfiles = Arrays.stream(ghConfig.getString("routing.weight_cache.profiles", String.join(",", weightCacheProfiles)).split(","))
+                .map(String::trim).filter(p -> !p.isEmpty()).collect(Collectors.toList());
+        weightCacheThreads = ghConfig.getInt("routing.weight_cache.threads", weightCacheThreads);
 
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
@@ -586,10 +746,21 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setTagParsingThreads(ghConfig.getInt("datareader.tag_parsing_threads", osmReaderConfig.getTagParsingThreads()));
+        osmReaderConfig.setSinglePass(ghConfig.getBool("datareader.single_pass", osmReaderConfig.isSinglePass()));
+        osmReaderConfig.setMemoryMappedPbf(ghConfig.getBool("datareader.pbf_mmap", osmReaderConfig.isMemoryMappedPbf()));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        indexThreads = ghConfig.getInt("index.threads", indexThreads);
+        indexProfiles = Arrays.stream(ghConfig.getString("index.profiles", String.join(",", indexProfiles)).split(","))
+                .map(String::trim).filter(p -> !p.isEmpty()).collect(Collectors.toList());
+        snapCacheSize = ghConfig.getInt("index.snap_cache_size", snapCacheSize);
+        areaEdgesCacheMB = ghConfig.getInt("custom_models.area_edges_cache_mb", areaEdgesCacheMB);
+        customModelClassDirectory = ghConfig.getString("custom_models.class_cache_directory", customModelClassDirectory);
+        customModelClassMaxFiles = ghConfig.getInt("custom_models.class_cache_max_files", customModelClassMaxFiles);
+        customModelCompileThreads = ghConfig.getInt("custom_models.background_compile_threads", customModelCompileThreads);
 
         // urban density calculation
         residentialAreaRadius = ghConfig.getDouble("graph.urban_density.residential_radius", residentialAreaRadius);
@@ -597,6 +768,7 @@ public class GraphHopper {
         cityAreaRadius = ghConfig.getDouble("graph.urban_density.city_radius", cityAreaRadius);
         cityAreaSensitivity = ghConfig.getDouble("graph.urban_density.city_sensitivity", cityAreaSensitivity);
         urbanDensityCalculationThreads = ghConfig.getInt("graph.urban_density.threads", urbanDensityCalculationThreads);
+        edgeAttributeThreads = ghConfig.getInt("graph.edge_attributes.threads", edgeAttributeThreads);
 
         // routing
         routerConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes()));
@@ -604,6 +776,7 @@ public class GraphHopper {
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setReuseQueryGraphs(ghConfig.getBool("routing.reuse_query_graphs", routerConfig.isReuseQueryGraphs()));
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
@@ -751,10 +924,17 @@ public class GraphHopper {
             boolean removeTempElevationFiles = ghConfig.getBool("graph.elevation.cgiar.clear", true);
             removeTempElevationFiles = ghConfig.getBool("graph.elevation.clear", removeTempElevationFiles);
 
+            boolean rawTiles = ghConfig.getBool("graph.elevation.raw_tiles", false);
+            int maxCachedTiles = ghConfig.getInt("graph.elevation.cache_size", 0);
+            if (maxCachedTiles > 0 && !rawTiles)
+                throw new IllegalArgumentException("graph.elevation.cache_size requires graph.elevation.raw_tiles: true");
+
             provider
                     .setAutoRemoveTemporaryFiles(removeTempElevationFiles)
                     .setInterpolate(interpolate)
-                    .setDAType(elevationDAType);
+                    .setDAType(elevationDAType)
+                    .setRawTiles(rawTiles)
+                    .setMaxCachedTiles(maxCachedTiles);
             if (!baseURL.isEmpty())
                 provider.setBaseURL(baseURL);
         }
@@ -818,6 +998,8 @@ public class GraphHopper {
      * Creates the graph from OSM data.
      */
     protected void process(boolean closeEarly) {
+        if (importMetricsEnabled)
+            importMetrics = new ImportMetrics();
         prepareImport();
         if (encodingManager == null)
             throw new IllegalStateException("The EncodingManager must be created in `prepareImport()`");
@@ -842,15 +1024,16 @@ public class GraphHopper {
             }
             ensureWriteAccess();
 
-            importOSM();
-            postImportOSM();
-            cleanUp();
+            importMetrics.runStage("import_osm", this::importOSM);
+            importMetrics.runStage("post_import_osm", this::postImportOSM);
+            importMetrics.runStage("subnetworks", this::cleanUp);
 
             properties.put("profiles", getProfilesString());
             writeEncodingManagerToProperties();
 
             postProcessing(closeEarly);
             flush();
+            writeImportMetrics();
         } finally {
             if (lock != null)
                 lock.release();
@@ -858,6 +1041,26 @@ public class GraphHopper {
     }
 
     protected void prepareImport() {
+        prepareImport(false);
+    }
+
+    private void writeImportMetrics() {
+        if (!importMetrics.isEnabled() || ghLocation.isEmpty())
+            return;
+        File file = new File(ghLocation, "import_metrics.json");
+        try {
+            importMetrics.write(file);
+            logger.info("wrote import metrics to " + file.getAbsolutePath());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write import metrics to " + file.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * @param keepLoadedEncodingManager if true the encoding manager of the loaded graph is kept and used for the tag
+     *                                  parsers, which requires that the configuration results in the same layout
+     */
+    private void prepareImport(boolean keepLoadedEncodingManager) {
         Map<String, PMap> encodedValuesWithProps = parseEncodedValueString(encodedValuesString);
         NameValidator nameValidator = s -> importRegistry.createImportUnit(s) != null;
         Set<String> missing = new LinkedHashSet<>();
@@ -905,7 +1108,11 @@ public class GraphHopper {
             if (activeImportUnits.put(ev, importUnit) == null)
                 deque.addAll(importUnit.getRequiredImportUnits());
         }
-        encodingManager = buildEncodingManager(encodedValuesWithProps, activeImportUnits, restrictionVehicleTypesByProfile);
+        EncodingManager newEncodingManager = buildEncodingManager(encodedValuesWithProps, activeImportUnits, restrictionVehicleTypesByProfile);
+        if (!keepLoadedEncodingManager)
+            encodingManager = newEncodingManager;
+        else if (!encodingManager.toEncodedValuesLayoutAsString().equals(newEncodingManager.toEncodedValuesLayoutAsString()))
+            throw new IllegalStateException("The encoded values of the configuration do not match the ones of the graph");
         osmParsers = buildOSMParsers(encodedValuesWithProps, activeImportUnits, restrictionVehicleTypesByProfile, osmReaderConfig.getIgnoredHighways());
     }
 
@@ -916,16 +1123,30 @@ public class GraphHopper {
         // must also be applied to the corresponding artificial edge.
         calculateUrbanDensity();
 
-        if (maxSpeedCalculator != null) {
-            maxSpeedCalculator.fillMaxSpeed(getBaseGraph(), encodingManager);
+        EdgeAttributePass edgeAttributePass = new EdgeAttributePass(baseGraph.getBaseGraph()).setThreads(edgeAttributeThreads);
+        addEdgeAttributeCalculators(edgeAttributePass);
+        edgeAttributePass.run();
+        if (maxSpeedCalculator != null)
             maxSpeedCalculator.close();
-        }
 
         if (hasElevation())
             interpolateBridgesTunnelsAndFerries();
 
-        if (sortGraph)
-            sortGraphAlongHilbertCurve(baseGraph);
+        IntArrayList newNodesByOldNodes = sortGraph ? sortGraphAlongHilbertCurve(baseGraph) : null;
+        // the node and edge IDs are final only now
+        if (osmWayIndex != null)
+            osmWayIndex.build(baseGraph.getBaseGraph(), encodingManager.getIntEncodedValue(OSMWayID.KEY), newNodesByOldNodes);
+    }
+
+    /**
+     * Registers the calculators that are run over all edges after the import, see {@link EdgeAttributePass}. They run
+     * after the urban density calculation. Override this method to add your own calculators.
+     */
+    protected void addEdgeAttributeCalculators(EdgeAttributePass edgeAttributePass) {
+        if (encodingManager.hasEncodedValue(Curvature.KEY))
+            edgeAttributePass.add(new CurvatureCalculator(encodingManager.getDecimalEncodedValue(Curvature.KEY)));
+        if (maxSpeedCalculator != null)
+            edgeAttributePass.add(maxSpeedCalculator.createEdgeAttributeCalculator(encodingManager));
     }
 
     protected void importOSM() {
@@ -933,6 +1154,34 @@ public class GraphHopper {
             throw new IllegalStateException("Couldn't load from existing folder: " + ghLocation
                     + " but also cannot use file for DataReader as it wasn't specified!");
 
+        AreaIndex<CustomArea> areaIndex = createAreaIndex();
+        logger.info("start creating graph from " + osmFile);
+        OSMReader reader = new OSMReader(baseGraph.getBaseGraph(), osmParsers, osmReaderConfig).setFile(_getOSMFile()).
+                setAreaIndex(areaIndex).
+                setElevationProvider(eleProvider).
+                setCountryRuleFactory(countryRuleFactory).
+                setImportMetrics(importMetrics);
+        logger.info("using " + getBaseGraphString() + ", memory:" + getMemInfo());
+
+        createBaseGraphAndProperties();
+        // the OSM way IDs are only stored to apply OSM changes later, which requires the index of the ways
+        if (encodingManager.hasEncodedValue(OSMWayID.KEY)) {
+            osmWayIndex = new OSMWayIndex(baseGraph.getDirectory());
+            reader.setWayIndex(osmWayIndex);
+        }
+
+        try {
+            reader.readGraph();
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot read file " + getOSMFile(), ex);
+        }
+        DateFormat f = createFormatter();
+        properties.put("datareader.import.date", f.format(new Date()));
+        if (reader.getDataDate() != null)
+            properties.put("datareader.data.date", f.format(reader.getDataDate()));
+    }
+
+    private AreaIndex<CustomArea> createAreaIndex() {
         List<CustomArea> customAreas = readCountries();
         if (isEmpty(customAreasDirectory)) {
             logger.info("No custom areas are used, custom_areas.directory not given");
@@ -942,30 +1191,85 @@ public class GraphHopper {
         }
 
         AreaIndex<CustomArea> areaIndex = new AreaIndex<>(customAreas);
+        if (areaIndexCellSize > 0)
+            areaIndex.setRasterCellSize(areaIndexCellSize);
         if (countryRuleFactory == null || countryRuleFactory.getCountryToRuleMap().isEmpty()) {
             logger.info("No country rules available");
         } else {
             logger.info("Applying rules for the following countries: {}", countryRuleFactory.getCountryToRuleMap().keySet());
         }
+        return areaIndex;
+    }
 
-        logger.info("start creating graph from " + osmFile);
-        OSMReader reader = new OSMReader(baseGraph.getBaseGraph(), osmParsers, osmReaderConfig).setFile(_getOSMFile()).
-                setAreaIndex(areaIndex).
+    /**
+     * Applies the changes of an OSM change file (.osc or .osc.gz) to the loaded graph and stores the result. This
+     * requires the osm_way_id encoded value during the import. Changes that cannot be applied are skipped and logged,
+     * see {@link OSMReader#applyChanges} for the limitations. The location index, the subnetworks and the edge
+     * attributes are only updated for the changed edges. CH and LM preparations would become invalid, so this is not
+     * possible if they are enabled.
+     */
+    public void applyOSMChanges(String changeFile) {
+        if (!fullyLoaded)
+            throw new IllegalStateException("Import or load the graph before applying OSM changes");
+        ensureWriteAccess();
+        if (chPreparationHandler.isEnabled() || lmPreparationHandler.isEnabled())
+            throw new IllegalStateException("OSM changes cannot be applied if CH or LM is enabled, because the preparations would become invalid");
+        if (maxSpeedCalculator != null)
+            throw new IllegalStateException("OSM changes cannot be applied if the max_speed_calculator is enabled");
+        if (!encodingManager.hasEncodedValue(OSMWayID.KEY))
+            throw new IllegalStateException("Applying OSM changes requires '" + OSMWayID.KEY + "' in graph.encoded_values");
+        if (!(locationIndex instanceof LocationIndexTree))
+            throw new IllegalStateException("Applying OSM changes requires a LocationIndexTree, but was: " + locationIndex.getClass().getName());
+
+        if (osmWayIndex == null) {
+            osmWayIndex = new OSMWayIndex(baseGraph.getDirectory());
+            if (!osmWayIndex.loadExisting())
+                throw new IllegalStateException("Applying OSM changes requires the index of the OSM ways, which is only created by imports with '" + OSMWayID.KEY + "'. Import the graph again");
+        }
+
+        prepareImport(true);
+        // these values are not created by the tag parsers, the subnetworks are updated below. new edges get the
+        // default urban density
+        List<IntEncodedValue> keptEncodedValues = new ArrayList<>();
+        if (encodingManager.hasEncodedValue(UrbanDensity.KEY))
+            keptEncodedValues.add(encodingManager.getEnumEncodedValue(UrbanDensity.KEY, UrbanDensity.class));
+        // the curvature is calculated again below for the edges whose geometry changed
+        if (encodingManager.hasEncodedValue(Curvature.KEY))
+            keptEncodedValues.add(encodingManager.getEncodedValue(Curvature.KEY, IntEncodedValue.class));
+        // the crossings are derived from node tags, which we do not have when applying changes
+        if (encodingManager.hasEncodedValue(Crossing.KEY))
+            keptEncodedValues.add(encodingManager.getEnumEncodedValue(Crossing.KEY, Crossing.class));
+
+        OSMReader reader = new OSMReader(baseGraph.getBaseGraph(), osmParsers, osmReaderConfig).
+                setAreaIndex(createAreaIndex()).
                 setElevationProvider(eleProvider).
                 setCountryRuleFactory(countryRuleFactory);
-        logger.info("using " + getBaseGraphString() + ", memory:" + getMemInfo());
-
-        createBaseGraphAndProperties();
-
+        OSMReader.AppliedChanges changes;
         try {
-            reader.readGraph();
+            changes = reader.applyChanges(new File(changeFile), osmWayIndex, keptEncodedValues);
         } catch (IOException ex) {
-            throw new RuntimeException("Cannot read file " + getOSMFile(), ex);
+            throw new RuntimeException("Cannot read file " + changeFile, ex);
         }
-        DateFormat f = createFormatter();
-        properties.put("datareader.import.date", f.format(new Date()));
-        if (reader.getDataDate() != null)
-            properties.put("datareader.data.date", f.format(reader.getDataDate()));
+        EdgeAttributePass edgeAttributePass = new EdgeAttributePass(baseGraph.getBaseGraph());
+        addEdgeAttributeCalculators(edgeAttributePass);
+        edgeAttributePass.run(changes.getChangedGeometries());
+        PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(baseGraph.getBaseGraph(), buildSubnetworkRemovalJobs());
+        preparation.setMinNetworkSize(minNetworkSize);
+        preparation.updateSubnetworks(changes.getChangedEdges());
+        LocationIndexTree locationIndexTree = (LocationIndexTree) locationIndex;
+        locationIndexTree.addEdges(changes.getChangedGeometries());
+        locationIndexTree.flush();
+        // the profile location indexes depend on the access and subnetwork values, so we create them again
+        if (!profileLocationIndexes.isEmpty()) {
+            profileLocationIndexes.keySet().forEach(profile -> baseGraph.getDirectory().remove(getProfileLocationIndexName(profile)));
+            profileLocationIndexes = createProfileLocationIndexes(baseGraph.getDirectory());
+        }
+        if (snapCache != null)
+            snapCache.clear();
+        properties.put("datareader.changes.date", createFormatter().format(new Date()));
+        if (!weightCacheProfiles.isEmpty())
+            createWeightCaches();
+        flush();
     }
 
     protected void createBaseGraphAndProperties() {
@@ -976,7 +1280,10 @@ public class GraphHopper {
             maxSpeedCalculator.createDataAccessForParser(baseGraph.getDirectory());
     }
 
-    public static void sortGraphAlongHilbertCurve(BaseGraph graph) {
+    /**
+     * @return the new node IDs by the old node IDs
+     */
+    public static IntArrayList sortGraphAlongHilbertCurve(BaseGraph graph) {
         logger.info("sorting graph along Hilbert curve...");
         StopWatch sw = StopWatch.started();
         NodeAccess na = graph.getNodeAccess();
@@ -1002,6 +1309,7 @@ public class GraphHopper {
         IntArrayList newNodesByOldNodes = IntArrayList.from(ArrayUtil.invert(nodeOrder));
         logger.info("calculating sort order took: " + sw.stop().getTimeString());
         sortGraphForGivenOrdering(graph, newNodesByOldNodes, newEdgesByOldEdges);
+        return newNodesByOldNodes;
     }
 
     public static void sortGraphForGivenOrdering(BaseGraph baseGraph, IntArrayList newNodesByOldNodes, IntArrayList newEdgesByOldEdges) {
@@ -1276,7 +1584,8 @@ public class GraphHopper {
      */
     protected void postProcessing(boolean closeEarly) {
         calcChecksums();
-        initLocationIndex();
+        initCustomModelParser();
+        importMetrics.runStage("location_index", this::initLocationIndex);
         importPublicTransit();
 
         if (closeEarly) {
@@ -1288,14 +1597,36 @@ public class GraphHopper {
         }
 
         if (lmPreparationHandler.isEnabled())
-            loadOrPrepareLM(closeEarly);
+            importMetrics.runStage("lm", () -> loadOrPrepareLM(closeEarly));
 
-        if (closeEarly)
+        if (closeEarly) {
             // we needed the location index for the LM preparation, but we don't need it for CH
             locationIndex.close();
+            profileLocationIndexes.values().forEach(LocationIndex::close);
+            areaEdgeIndex = null;
+        }
 
         if (chPreparationHandler.isEnabled())
-            loadOrPrepareCH(closeEarly);
+            importMetrics.runStage("ch", () -> loadOrPrepareCH(closeEarly));
+
+        if (!closeEarly)
+            importMetrics.runStage("weight_caches", this::createWeightCaches);
+    }
+
+    protected void createWeightCaches() {
+        Map<String, EdgeWeightCache> caches = new LinkedHashMap<>();
+        for (String profileName : weightCacheProfiles) {
+            Profile profile = profilesByName.get(profileName);
+            if (profile == null)
+                throw new IllegalArgumentException("Cannot find profile '" + profileName + "' for routing.weight_cache.profiles, available: " + profilesByName.keySet());
+            StopWatch sw = new StopWatch().start();
+            // the turn costs are not cached, so we do not need them here
+            EdgeWeightCache cache = EdgeWeightCache.create(baseGraph.getBaseGraph(), createWeighting(profile, new PMap(), true), weightCacheThreads);
+            caches.put(profileName, cache);
+            logger.info("created edge weight cache for profile '" + profileName + "', took: " + sw.stop().getSeconds() + "s, "
+                    + Helper.nf(cache.getCapacity() / Helper.MB) + "MB, " + getMemInfo());
+        }
+        weightCaches = caches;
     }
 
     protected void importPublicTransit() {
@@ -1327,7 +1658,7 @@ public class GraphHopper {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager());
+        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager(), areaEdgeIndex);
     }
 
     public GHResponse route(GHRequest request) {
@@ -1342,14 +1673,29 @@ public class GraphHopper {
         if (locationIndex == null)
             throw new IllegalStateException("Location index not initialized");
 
+        WeightingFactory weightingFactory = createWeightingFactory();
+        if (!weightCaches.isEmpty())
+            weightingFactory = createCachedWeightingFactory(weightingFactory);
         return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, weightingFactory, chGraphs, landmarks).setSnapCache(snapCache)
+                .setReusableQueryGraphs(reusableQueryGraphs);
+    }
+
+    private WeightingFactory createCachedWeightingFactory(WeightingFactory weightingFactory) {
+        return (profile, hints, disableTurnCosts) -> {
+            Weighting weighting = weightingFactory.createWeighting(profile, hints, disableTurnCosts);
+            EdgeWeightCache cache = weightCaches.get(profile.getName());
+            // a custom model in the request changes the edge weights, so we cannot use the cache
+            if (cache == null || hints.has(CustomModel.KEY) || hints.has("cm_version"))
+                return weighting;
+            return new CachedWeighting(weighting, cache);
+        };
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
                                     PathDetailsBuilderFactory pathBuilderFactory, TranslationMap trMap, RouterConfig routerConfig,
                                     WeightingFactory weightingFactory, Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
-        return new Router(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
+        return new Router(baseGraph, encodingManager, locationIndex, profileLocationIndexes, profilesByName, pathBuilderFactory,
                 trMap, routerConfig, weightingFactory, chGraphs, landmarks
         );
     }
@@ -1358,6 +1704,7 @@ public class GraphHopper {
         LocationIndexTree tmpIndex = new LocationIndexTree(baseGraph, dir);
         tmpIndex.setResolution(preciseIndexResolution);
         tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        tmpIndex.setPrepareThreads(indexThreads);
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1366,6 +1713,32 @@ public class GraphHopper {
         return tmpIndex;
     }
 
+    protected Map<String, LocationIndex> createProfileLocationIndexes(Directory dir) {
+        Map<String, LocationIndex> indexes = new LinkedHashMap<>();
+        for (String profileName : indexProfiles) {
+            Profile profile = profilesByName.get(profileName);
+            if (profile == null)
+                throw new IllegalArgumentException("Cannot find profile '" + profileName + "' for index.profiles, available: " + profilesByName.keySet());
+            LocationIndexTree tmpIndex = new LocationIndexTree(baseGraph, dir, getProfileLocationIndexName(profileName));
+            tmpIndex.setResolution(preciseIndexResolution);
+            tmpIndex.setMaxRegionSearch(maxRegionSearch);
+            tmpIndex.setPrepareThreads(indexThreads);
+            if (!tmpIndex.loadExisting()) {
+                ensureWriteAccess();
+                // requests for this profile can only restrict the access further, so this index contains all
+                // edges they can snap to
+                tmpIndex.prepareIndex(new DefaultSnapFilter(createWeighting(profile, new PMap()),
+                        encodingManager.getBooleanEncodedValue(Subnetwork.key(profileName))));
+            }
+            indexes.put(profileName, tmpIndex);
+        }
+        return indexes;
+    }
+
+    private static String getProfileLocationIndexName(String profile) {
+        return "location_index_" + profile;
+    }
+
     private void calcChecksums() {
         if (!calcChecksums) return;
         logger.info("Calculating checksums for {} profiles", profilesByName.size());
@@ -1397,6 +1770,33 @@ public class GraphHopper {
         logger.info("Calculating checksums took: " + sw.stop().getTimeString());
     }
 
+    /**
+     * Loads the stored classes of custom models and starts the background compilation. The stored classes must be
+     * loaded before the preparations, because they create weightings too.
+     */
+    protected void initCustomModelParser() {
+        if (customModelClassDirectory.isEmpty()) {
+            // the store is static, so it must not be kept from another GraphHopper instance
+            CustomModelParser.setClassStore(null);
+        } else {
+            StopWatch sw = new StopWatch().start();
+            CustomModelParser.setClassStore(new CustomModelClassStore(new File(customModelClassDirectory), encodingManager, customModelClassMaxFiles));
+            int count = CustomModelParser.loadStoredClasses(encodingManager);
+            logger.info("Loaded " + count + " custom model classes from " + customModelClassDirectory + ", took: " + sw.stop().getSeconds() + "s");
+        }
+        if (customModelCompileThreads > 0) {
+            // the queue is bounded, because many new custom models could otherwise pile up faster than they are
+            // compiled. The executor rejects them when it is full and they are just interpreted until a later request.
+            customModelCompileExecutor = new ThreadPoolExecutor(customModelCompileThreads, customModelCompileThreads,
+                    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100), runnable -> {
+                Thread thread = new Thread(runnable, "custom-model-compiler");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+            CustomModelParser.setCompileExecutor(customModelCompileExecutor);
+        }
+    }
+
     /**
      * Initializes the location index after the import is done.
      */
@@ -1405,6 +1805,11 @@ public class GraphHopper {
             throw new IllegalStateException("Cannot initialize locationIndex twice!");
 
         locationIndex = createLocationIndex(baseGraph.getDirectory());
+        profileLocationIndexes = createProfileLocationIndexes(baseGraph.getDirectory());
+        if (snapCacheSize > 0)
+            snapCache = new SnapCache(baseGraph, snapCacheSize);
+        if (areaEdgesCacheMB > 0)
+            areaEdgeIndex = new AreaEdgeIndex(baseGraph, locationIndex, areaEdgesCacheMB * Helper.MB);
     }
 
     private String getCHProfileVersion(String profile) {
@@ -1449,6 +1854,10 @@ public class GraphHopper {
             } else
                 throw new IllegalStateException("CH graph should be either loaded or prepared: " + profile.getProfile());
         }
+        if (chShortcutCacheSize > 0)
+            for (RoutingCHGraph chGraph : chGraphs.values())
+                if (chGraph instanceof RoutingCHGraphImpl)
+                    ((RoutingCHGraphImpl) chGraph).setShortcutUnpackCache(new ShortcutUnpackCache(chShortcutCacheSize));
     }
 
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
@@ -1507,6 +1916,8 @@ public class GraphHopper {
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(baseGraph.getBaseGraph(), buildSubnetworkRemovalJobs());
         preparation.setMinNetworkSize(minNetworkSize);
         preparation.setThreads(subnetworksThreads);
+        // the weightings use u-turn costs of zero, so only turn restrictions can block turns
+        preparation.setShareComponents(subnetworksShareComponents);
         preparation.doWork();
         logger.info("nodes: " + Helper.nf(baseGraph.getNodes()) + ", edges: " + Helper.nf(baseGraph.getEdges()));
     }
@@ -1526,6 +1937,8 @@ public class GraphHopper {
                 + getMemInfo() + ")");
         baseGraph.flush();
         properties.flush();
+        if (osmWayIndex != null)
+            osmWayIndex.flush();
         logger.info("flushed graph " + getMemInfo() + ")");
         setFullyLoaded();
     }
@@ -1545,6 +1958,18 @@ public class GraphHopper {
 
         if (locationIndex != null)
             locationIndex.close();
+        if (osmWayIndex != null)
+            osmWayIndex.close();
+        profileLocationIndexes.values().forEach(LocationIndex::close);
+        if (snapCache != null)
+            logger.debug("snap cache " + snapCache);
+        reusableQueryGraphs.clear();
+        if (!customModelClassDirectory.isEmpty())
+            CustomModelParser.setClassStore(null);
+        if (customModelCompileExecutor != null) {
+            CustomModelParser.setCompileExecutor(null);
+            customModelCompileExecutor.shutdownNow();
+        }
 
         try {
             lockFactory.forceRemove(fileLockName, true);
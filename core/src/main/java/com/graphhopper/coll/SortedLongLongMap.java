@@ -0,0 +1,242 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+/**
+ * A {@link LongLongMap} for keys that are mostly added in ascending order, like the OSM node IDs of a sorted OSM file.
+ * The entries are appended to a DataAccess (use a memory-mapped one via graph.dataaccess.type to keep them off-heap)
+ * and are grouped into blocks. For every block we keep the smallest key on-heap and in the DataAccess we only store the
+ * difference to this key with four bytes. A lookup is a binary search for the block followed by a binary search
+ * within the block. Values of existing keys can be updated in place. The keys that are not added in ascending
+ * order (e.g. for unsorted files) are stored in a {@link GHLongLongBTree} instead, and {@link #optimize()} merges them
+ * into the DataAccess. So the map can also be filled with unsorted keys if they are merged once before the lookups.
+ */
+public class SortedLongLongMap implements LongLongMap {
+    private static final int BLOCK_SIZE = 128;
+    private final Directory dir;
+    private final String name;
+    private DataAccess da;
+    private int merges;
+    private final int bytesPerValue;
+    private final int bytesPerEntry;
+    private final long emptyValue;
+    private final long maxValue;
+    // the smallest key and the index of the first entry of every block
+    private LongArrayList blockKeys = new LongArrayList();
+    private LongArrayList blockStarts = new LongArrayList();
+    private long size;
+    private long lastKey;
+    private GHLongLongBTree unsortedEntries;
+
+    /**
+     * @param bytesPerValue either 4 or 8
+     */
+    public SortedLongLongMap(Directory dir, String name, int bytesPerValue, long emptyValue) {
+        if (bytesPerValue != 4 && bytesPerValue != 8)
+            throw new IllegalArgumentException("bytesPerValue must be 4 or 8, but was " + bytesPerValue);
+        this.dir = dir;
+        this.name = name;
+        this.da = dir.create(name).create(100);
+        this.bytesPerValue = bytesPerValue;
+        this.bytesPerEntry = 4 + bytesPerValue;
+        this.emptyValue = emptyValue;
+        this.maxValue = bytesPerValue == 4 ? Integer.MAX_VALUE : Long.MAX_VALUE;
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value > maxValue || value < -maxValue - 1)
+            throw new IllegalArgumentException("Value " + value + " does not fit into " + bytesPerValue + " bytes");
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+        if (size == 0 || key > lastKey) {
+            append(key, value);
+            return emptyValue;
+        }
+        long index = findIndex(key);
+        if (index >= 0) {
+            long oldValue = getValue(index);
+            setValue(index, value);
+            return oldValue;
+        }
+        if (unsortedEntries == null)
+            unsortedEntries = new GHLongLongBTree(200, bytesPerValue, emptyValue);
+        return unsortedEntries.put(key, value);
+    }
+
+    private void append(long key, long value) {
+        int block = blockKeys.size() - 1;
+        if (block < 0 || size - blockStarts.get(block) >= BLOCK_SIZE
+                // the difference of the keys might exceed the range of a long, so we compare it as unsigned value
+                || Long.compareUnsigned(key - blockKeys.get(block), 0xFFFF_FFFFL) > 0) {
+            blockKeys.add(key);
+            blockStarts.add(size);
+            block++;
+        }
+        long pointer = size * bytesPerEntry;
+        da.ensureCapacity(pointer + bytesPerEntry);
+        da.setInt(pointer, (int) (key - blockKeys.get(block)));
+        size++;
+        lastKey = key;
+        setValue(size - 1, value);
+    }
+
+    @Override
+    public long get(long key) {
+        long index = size > 0 && key <= lastKey ? findIndex(key) : -1;
+        if (index >= 0)
+            return getValue(index);
+        return unsortedEntries == null ? emptyValue : unsortedEntries.get(key);
+    }
+
+    /**
+     * @return the index of the entry with the given key or -1 if there is no such entry
+     */
+    private long findIndex(long key) {
+        // find the last block whose smallest key is not larger than the given key
+        int low = 0, high = blockKeys.size() - 1;
+        if (high < 0 || key < blockKeys.get(0))
+            return -1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockKeys.get(mid) <= key)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        long delta = key - blockKeys.get(low);
+        if (Long.compareUnsigned(delta, 0xFFFF_FFFFL) > 0)
+            return -1;
+        long from = blockStarts.get(low);
+        long to = low + 1 < blockStarts.size() ? blockStarts.get(low + 1) - 1 : size - 1;
+        while (from <= to) {
+            long mid = (from + to) >>> 1;
+            long midDelta = da.getInt(mid * bytesPerEntry) & 0xFFFF_FFFFL;
+            if (midDelta < delta)
+                from = mid + 1;
+            else if (midDelta > delta)
+                to = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private long getValue(long index) {
+        return getValue(da, index);
+    }
+
+    private long getValue(DataAccess da, long index) {
+        long pointer = index * bytesPerEntry + 4;
+        if (bytesPerValue == 4)
+            return da.getInt(pointer);
+        return ((long) da.getInt(pointer + 4) << 32) | (da.getInt(pointer) & 0xFFFF_FFFFL);
+    }
+
+    private void setValue(long index, long value) {
+        long pointer = index * bytesPerEntry + 4;
+        da.setInt(pointer, (int) value);
+        if (bytesPerValue == 8)
+            da.setInt(pointer + 4, (int) (value >>> 32));
+    }
+
+    @Override
+    public long getSize() {
+        return size + (unsortedEntries == null ? 0 : unsortedEntries.getSize());
+    }
+
+    @Override
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Merges the entries that were not added in ascending order into the DataAccess and releases their B-tree. This
+     * temporarily needs a second DataAccess for all entries.
+     */
+    @Override
+    public void optimize() {
+        if (unsortedEntries == null)
+            return;
+        SortedEntries sorted = new SortedEntries();
+        da = dir.create(name + "_" + ++merges).create(100);
+        blockKeys = new LongArrayList();
+        blockStarts = new LongArrayList();
+        size = 0;
+        // the keys of the B-tree are never contained in the DataAccess, so we only need to interleave them
+        unsortedEntries.forEach((long key, long value) -> {
+            while (sorted.hasNext() && sorted.nextKey() < key)
+                sorted.appendNext();
+            append(key, value);
+        });
+        while (sorted.hasNext())
+            sorted.appendNext();
+        dir.remove(sorted.da.getName());
+        unsortedEntries = null;
+    }
+
+    /**
+     * Iterates the entries of the DataAccess that is replaced by {@link #optimize()}
+     */
+    private class SortedEntries {
+        final DataAccess da = SortedLongLongMap.this.da;
+        final LongArrayList blockKeys = SortedLongLongMap.this.blockKeys;
+        final LongArrayList blockStarts = SortedLongLongMap.this.blockStarts;
+        final long size = SortedLongLongMap.this.size;
+        long index;
+        int block;
+
+        boolean hasNext() {
+            return index < size;
+        }
+
+        long nextKey() {
+            while (block + 1 < blockStarts.size() && blockStarts.get(block + 1) <= index)
+                block++;
+            return blockKeys.get(block) + (da.getInt(index * bytesPerEntry) & 0xFFFF_FFFFL);
+        }
+
+        void appendNext() {
+            append(nextKey(), getValue(da, index));
+            index++;
+        }
+    }
+
+    /**
+     * @return memory usage in MB, including the DataAccess even if it is memory-mapped
+     */
+    @Override
+    public int getMemoryUsage() {
+        long bytes = da.getCapacity() + 16L * blockKeys.size();
+        return Math.round(bytes / Helper.MB) + (unsortedEntries == null ? 0 : unsortedEntries.getMemoryUsage());
+    }
+
+    @Override
+    public void clear() {
+        dir.remove(da.getName());
+        blockKeys.release();
+        blockStarts.release();
+        size = 0;
+        unsortedEntries = null;
+    }
+}
@@ -17,8 +17,8 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.Downloader;
 import com.graphhopper.util.Helper;
 
@@ -26,6 +26,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.nio.ShortBuffer;
 
 /**
  * Common functionality used when working with SRTM hgt data.
@@ -39,7 +40,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
     // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
+    private final HeightTileCache<Integer> cacheData = new HeightTileCache<>(this);
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -84,58 +85,94 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
         if (lat >= MAX_LAT || lat <= MIN_LAT)
             return 0;
 
-        lat = (int) (lat * precision) / precision;
-        lon = (int) (lon * precision) / precision;
-        int intKey = calcIntKey(lat, lon);
-        HeightTile demProvider = cacheData.get(intKey);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
+        double roundedLat = (int) (lat * precision) / precision;
+        double roundedLon = (int) (lon * precision) / precision;
+        int intKey = calcIntKey(roundedLat, roundedLon);
+        HeightTile demProvider = cacheData.get(intKey, key -> loadTile(key, roundedLat, roundedLon));
+        if (demProvider == null || demProvider.isSeaLevel())
+            return 0;
 
-            int minLat = down(lat);
-            int minLon = down(lon);
+        return demProvider.getHeight(roundedLat, roundedLon);
+    }
 
-            String fileName = getFileName(lat, lon);
-            if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
-                return 0;
+    /**
+     * @return the tile for the given coordinates or null if there is no file for it
+     */
+    private HeightTile loadTile(int intKey, double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
+
+        int minLat = down(lat);
+        int minLon = down(lon);
+
+        String fileName = getFileName(lat, lon);
+        if (fileName == null)
+            return null;
+        if (rawTiles)
+            return loadRawTile(intKey, lat, lon, fileName);
+        if (Helper.isEmpty(baseUrl) && !new File(fileName).exists())
+            return null;
+
+        DataAccess heights = createTileDataAccess("dem" + intKey);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
+        }
 
-            DataAccess heights = getDirectory().create("dem" + intKey);
-            boolean loadExisting = false;
+        if (!loadExisting) {
             try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
+                updateHeightsFromFile(lat, lon, heights);
+            } catch (FileNotFoundException ex) {
+                HeightTile demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
+                demProvider.setHeights(heights);
+                demProvider.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.create(10)
+                        .flush();
+                return demProvider;
             }
+        }
 
-            if (!loadExisting) {
-                try {
-                    updateHeightsFromFile(lat, lon, heights);
-                } catch (FileNotFoundException ex) {
-                    demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
-                    demProvider.setHeights(heights);
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.create(10)
-                            .flush();
-                    return 0;
-                }
-            }
+        int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
+
+        HeightTile demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
+        demProvider.setInterpolate(interpolate);
+        demProvider.setHeights(heights);
+        return demProvider;
+    }
 
-            int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
-            if (width == 0)
-                width = DEFAULT_WIDTH;
+    private HeightTile loadRawTile(int intKey, double lat, double lon, String fileName) {
+        String name = "dem" + intKey;
+        ShortBuffer rawHeights = mapRawTile(name);
+        if (rawHeights == null) {
+            if (Helper.isEmpty(baseUrl) && !new File(fileName).exists())
+                return null;
 
-            demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
-            demProvider.setInterpolate(interpolate);
-            demProvider.setHeights(heights);
+            // convert the tile once, afterwards it is only read from the raw file
+            DataAccess heights = new RAMDirectory().create(name);
+            try {
+                updateHeightsFromFile(lat, lon, heights);
+                writeRawTile(name, heights, heights.getHeader(WIDTH_BYTE_INDEX));
+            } catch (FileNotFoundException ex) {
+                writeRawTile(name, heights, 0);
+            } finally {
+                heights.close();
+            }
+            rawHeights = mapRawTile(name);
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        int width = (int) (Math.sqrt(rawHeights.capacity()) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
 
-        return demProvider.getHeight(lat, lon);
+        HeightTile demProvider = new HeightTile(down(lat), down(lon), width, width, precision, DEGREE, DEGREE);
+        demProvider.setInterpolate(interpolate);
+        demProvider.setHeights(rawHeights);
+        return demProvider;
     }
 
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
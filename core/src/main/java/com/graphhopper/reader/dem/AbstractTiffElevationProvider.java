@@ -18,6 +18,7 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.Downloader;
 
 import javax.net.ssl.SSLException;
@@ -25,8 +26,7 @@ import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ShortBuffer;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider that reads tiff files.
@@ -34,7 +34,7 @@ import java.util.Map;
  * @author Robin Boldt
  */
 public abstract class AbstractTiffElevationProvider extends TileBasedElevationProvider {
-    private final Map<String, HeightTile> cacheData = new HashMap<>();
+    private final HeightTileCache<String> cacheData = new HeightTileCache<>(this);
     final double precision = 1e7;
 
     private final int WIDTH;
@@ -103,58 +103,82 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
         if (isOutsideSupportedArea(lat, lon))
             return 0;
 
-        lat = (int) (lat * precision) / precision;
-        lon = (int) (lon * precision) / precision;
-        String name = getFileName(lat, lon);
-        HeightTile demProvider = cacheData.get(name);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
-
-            int minLat = getMinLatForTile(lat);
-            int minLon = getMinLonForTile(lon);
-            // less restrictive against boundary checking
-            demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
-            demProvider.setInterpolate(interpolate);
-
-            cacheData.put(name, demProvider);
-            DataAccess heights = getDirectory().create(name + ".gh");
-            demProvider.setHeights(heights);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load " + name + ", error: " + ex.getMessage());
-            }
+        double roundedLat = (int) (lat * precision) / precision;
+        double roundedLon = (int) (lon * precision) / precision;
+        String name = getFileName(roundedLat, roundedLon);
+        HeightTile demProvider = cacheData.get(name, key -> loadTile(key, roundedLat, roundedLon));
+        if (demProvider.isSeaLevel())
+            return 0;
 
-            if (!loadExisting) {
-                File zipFile = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
-                if (!zipFile.exists())
-                    try {
-                        String zippedURL = getDownloadURL(lat, lon);
-                        downloadToFile(zipFile, zippedURL);
-                    } catch (SSLException ex) {
-                        throw new IllegalStateException("SSL problem with elevation provider " + getClass().getSimpleName(), ex);
-                    } catch (IOException ex) {
-                        demProvider.setSeaLevel(true);
-                        // use small size on disc and in-memory
-                        heights.create(10).flush();
-                        return 0;
-                    }
+        return demProvider.getHeight(roundedLat, roundedLon);
+    }
 
-                // short == 2 bytes
-                heights.create(2L * WIDTH * HEIGHT);
+    private HeightTile loadTile(String name, double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
+
+        int minLat = getMinLatForTile(lat);
+        int minLon = getMinLonForTile(lon);
+        // less restrictive against boundary checking
+        HeightTile demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
+        demProvider.setInterpolate(interpolate);
+
+        if (rawTiles) {
+            ShortBuffer rawHeights = mapRawTile(name);
+            if (rawHeights == null) {
+                // convert the tile once, afterwards it is only read from the raw file
+                DataAccess heights = new RAMDirectory().create(name + ".gh");
+                try {
+                    writeRawTile(name, heights, fillHeights(name, lat, lon, heights) ? (long) WIDTH * HEIGHT : 0);
+                } finally {
+                    heights.close();
+                }
+                rawHeights = mapRawTile(name);
+            }
+            demProvider.setHeights(rawHeights);
+            return demProvider;
+        }
 
-                Raster raster = readFile(zipFile, name + ".tif");
-                fillDataAccessWithElevationData(raster, heights, WIDTH);
+        DataAccess heights = createTileDataAccess(name + ".gh");
+        demProvider.setHeights(heights);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load " + name + ", error: " + ex.getMessage());
+        }
 
-            } // loadExisting
+        if (!loadExisting && !fillHeights(name, lat, lon, heights)) {
+            demProvider.setSeaLevel(true);
+            // use small size on disc and in-memory
+            heights.create(10).flush();
         }
+        return demProvider;
+    }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+    /**
+     * Downloads the tile if necessary and fills the given DataAccess with its heights.
+     *
+     * @return false if the tile could not be downloaded, i.e. there is no elevation data for it
+     */
+    private boolean fillHeights(String name, double lat, double lon, DataAccess heights) {
+        File zipFile = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
+        if (!zipFile.exists())
+            try {
+                String zippedURL = getDownloadURL(lat, lon);
+                downloadToFile(zipFile, zippedURL);
+            } catch (SSLException ex) {
+                throw new IllegalStateException("SSL problem with elevation provider " + getClass().getSimpleName(), ex);
+            } catch (IOException ex) {
+                return false;
+            }
+
+        // short == 2 bytes
+        heights.create(2L * WIDTH * HEIGHT);
 
-        return demProvider.getHeight(lat, lon);
+        Raster raster = readFile(zipFile, name + ".tif");
+        fillDataAccessWithElevationData(raster, heights, WIDTH);
+        return true;
     }
 
     abstract Raster readFile(File file, String tifName);
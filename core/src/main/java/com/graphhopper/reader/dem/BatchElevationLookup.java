@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.util.GHUtility;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Looks up the elevation of many points at once. The points are processed in chunks. Within every chunk the points
+ * are sorted by 1x1 degree cells and finer sub-cells, such that consecutive lookups hit the same elevation tile and
+ * nearby rows of it. The sorted chunk is then split into contiguous parts that are looked up in parallel, so the
+ * elevation provider must be thread-safe.
+ */
+public class BatchElevationLookup {
+    private static final int SUB_CELLS = 64;
+    private final DoubleBinaryOperator elevation;
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * @param elevation returns the elevation for the given latitude and longitude
+     */
+    public BatchElevationLookup(DoubleBinaryOperator elevation, int threads) {
+        this(elevation, threads, 1 << 20);
+    }
+
+    public BatchElevationLookup(DoubleBinaryOperator elevation, int threads, int chunkSize) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be at least 1: " + chunkSize);
+        this.elevation = elevation;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the elevation of the points with the indices 0 to count - 1.
+     */
+    public void fill(Points points, long count) {
+        int size = (int) Math.min(chunkSize, count);
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        double[] eles = new double[size];
+        long[] keys = new long[size];
+        for (long start = 0; start < count; start += chunkSize) {
+            int n = (int) Math.min(chunkSize, count - start);
+            for (int i = 0; i < n; i++) {
+                lats[i] = points.getLat(start + i);
+                lons[i] = points.getLon(start + i);
+                keys[i] = ((long) calcCell(lats[i], lons[i]) << 32) | i;
+            }
+            Arrays.sort(keys, 0, n);
+
+            // more parts than threads, because the time to load a tile can vary a lot
+            int parts = Math.min(n, threads == 1 ? 1 : threads * 4);
+            GHUtility.runConcurrently(IntStream.range(0, parts).mapToObj(part -> () -> {
+                int from = (int) ((long) n * part / parts);
+                int to = (int) ((long) n * (part + 1) / parts);
+                for (int i = from; i < to; i++) {
+                    int index = (int) keys[i];
+                    eles[index] = elevation.applyAsDouble(lats[index], lons[index]);
+                }
+            }), threads);
+
+            for (int i = 0; i < n; i++) {
+                points.setEle(start + i, eles[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the 1x1 degree cell of the given point, followed by the index of the sub-cell within it
+     */
+    static int calcCell(double lat, double lon) {
+        double latCells = Math.max(0, Math.min(180 * SUB_CELLS - 1, (lat + 90) * SUB_CELLS));
+        double lonCells = Math.max(0, Math.min(360 * SUB_CELLS - 1, (lon + 180) * SUB_CELLS));
+        int latIndex = (int) latCells;
+        int lonIndex = (int) lonCells;
+        int tile = (latIndex / SUB_CELLS) * 360 + lonIndex / SUB_CELLS;
+        int subCell = (latIndex % SUB_CELLS) * SUB_CELLS + lonIndex % SUB_CELLS;
+        return tile * SUB_CELLS * SUB_CELLS + subCell;
+    }
+
+    public interface Points {
+        double getLat(long index);
+
+        double getLon(long index);
+
+        void setEle(long index, double ele);
+    }
+}
@@ -24,6 +24,7 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ShortBuffer;
 
 /**
  * One rectangle of height data from Shuttle Radar Topography Mission.
@@ -42,6 +43,8 @@ public class HeightTile {
     private final double lonHigherBound;
     private final double latHigherBound;
     private DataAccess heights;
+    // alternatively the heights are read from a memory-mapped raw tile, see TileBasedElevationProvider.setRawTiles
+    private ShortBuffer rawHeights;
     private boolean interpolate;
     private final double MIN_ELEVATION_METERS = -12_000;
     private final double MAX_ELEVATION_METERS = 9_000;
@@ -66,6 +69,9 @@ public class HeightTile {
     }
 
     public boolean isSeaLevel() {
+        if (rawHeights != null)
+            // an empty raw tile marks a tile without elevation data
+            return rawHeights.capacity() == 0;
         return heights.getHeader(0) == 1;
     }
 
@@ -78,9 +84,19 @@ public class HeightTile {
         this.heights = da;
     }
 
+    void setHeights(ShortBuffer rawHeights) {
+        this.rawHeights = rawHeights;
+    }
+
     private short getHeightSample(int x, int y) {
+        return getSample((long) y * width + x);
+    }
+
+    private short getSample(long index) {
+        if (rawHeights != null)
+            return rawHeights.get((int) index);
         // always keep in mind factor 2 because of short value
-        return heights.getShort(2L * ((long) y * width + x));
+        return heights.getShort(2L * index);
     }
 
     private boolean isValidElevation(double elevation) {
@@ -145,7 +161,7 @@ public class HeightTile {
             int lonSimilar = i % width;
             // no need for width - y as coordinate system for Graphics is already this way
             int latSimilar = i / height;
-            int green = Math.abs(heights.getShort(i * 2));
+            int green = Math.abs(getSample(i));
             if (green == 0) {
                 g.setColor(new Color(255, 0, 0, 255));
             } else {
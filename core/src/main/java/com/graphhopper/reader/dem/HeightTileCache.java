@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The loaded tiles of a {@link TileBasedElevationProvider}. Different tiles can be loaded in parallel. A tile is loaded
+ * outside the lock of the map, so a slow download or read of one tile does not block the lookup of other tiles, and
+ * threads that need the same tile wait for the one thread that loads it. Missing tiles are cached as well, so that
+ * their file is not searched again for every lookup. If the provider limits the number of cached tiles the least
+ * recently used tile is evicted when a new tile is loaded. The data of an evicted tile is not closed, because other
+ * threads might still read it. Instead, it is freed by the garbage collector, which is why the limit requires raw tiles.
+ */
+class HeightTileCache<K> {
+    private final TileBasedElevationProvider provider;
+    private final Map<K, Entry> tiles = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    HeightTileCache(TileBasedElevationProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * @param loader creates the tile for the given key, it may return null if there is no tile for this key
+     */
+    HeightTile get(K key, Function<K, HeightTile> loader) {
+        int maxTiles = provider.maxCachedTiles;
+        Entry entry = tiles.get(key);
+        if (entry == null) {
+            if (maxTiles > 0 && !provider.rawTiles)
+                throw new IllegalStateException("Limiting the number of cached elevation tiles requires raw tiles");
+            Entry newEntry = new Entry(new FutureTask<>(() -> loader.apply(key)));
+            entry = tiles.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+                entry.task.run();
+                if (maxTiles > 0) {
+                    entry.lastAccess = clock.incrementAndGet();
+                    if (tiles.size() > maxTiles)
+                        evict(maxTiles);
+                }
+                return getTile(key, entry);
+            }
+        }
+        if (maxTiles > 0)
+            entry.lastAccess = clock.incrementAndGet();
+        return getTile(key, entry);
+    }
+
+    private HeightTile getTile(K key, Entry entry) {
+        try {
+            return entry.task.get();
+        } catch (ExecutionException ex) {
+            // do not cache the failure, the next lookup tries to load the tile again
+            tiles.remove(key, entry);
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new IllegalStateException("Cannot load elevation tile " + key, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the elevation tile " + key, ex);
+        }
+    }
+
+    private synchronized void evict(int maxTiles) {
+        while (tiles.size() > maxTiles) {
+            Map.Entry<K, Entry> oldest = null;
+            for (Map.Entry<K, Entry> entry : tiles.entrySet()) {
+                if (oldest == null || entry.getValue().lastAccess < oldest.getValue().lastAccess)
+                    oldest = entry;
+            }
+            if (oldest == null)
+                return;
+            tiles.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    int size() {
+        return tiles.size();
+    }
+
+    void clear() {
+        tiles.clear();
+    }
+
+    private static class Entry {
+        // the result is null if there is no tile for the key
+        final FutureTask<HeightTile> task;
+        volatile long lastAccess;
+
+        Entry(FutureTask<HeightTile> task) {
+            this.task = task;
+        }
+    }
+}
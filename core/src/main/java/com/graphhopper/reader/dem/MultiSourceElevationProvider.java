@@ -84,6 +84,20 @@ public class MultiSourceElevationProvider extends TileBasedElevationProvider {
         return this;
     }
 
+    @Override
+    public MultiSourceElevationProvider setRawTiles(boolean rawTiles) {
+        srtmProvider.setRawTiles(rawTiles);
+        globalProvider.setRawTiles(rawTiles);
+        return this;
+    }
+
+    @Override
+    public MultiSourceElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+        srtmProvider.setMaxCachedTiles(maxCachedTiles);
+        globalProvider.setMaxCachedTiles(maxCachedTiles);
+        return this;
+    }
+
     @Override
     public boolean canInterpolate() {
         return srtmProvider.canInterpolate() && globalProvider.canInterpolate();
@@ -18,14 +18,20 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider using tiles from files.
@@ -41,6 +47,8 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
     DAType daType = DAType.MMAP;
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
+    boolean rawTiles = false;
+    int maxCachedTiles = 0;
     long sleep = 2000;
 
     protected TileBasedElevationProvider(String cacheDirString) {
@@ -108,11 +116,31 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return this;
     }
 
+    /**
+     * Converts every tile once into a raw file of little-endian shorts in the cache directory and reads the heights via
+     * memory mapping from this file. The raw files are kept for later imports, even if temporary files are removed.
+     */
+    public TileBasedElevationProvider setRawTiles(boolean rawTiles) {
+        this.rawTiles = rawTiles;
+        return this;
+    }
+
+    /**
+     * Limits the number of tiles kept in memory, the least recently used tiles are evicted. This requires raw tiles.
+     * Default is 0, which means no limit.
+     */
+    public TileBasedElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+        if (maxCachedTiles < 0)
+            throw new IllegalArgumentException("maxCachedTiles must not be negative: " + maxCachedTiles);
+        this.maxCachedTiles = maxCachedTiles;
+        return this;
+    }
+
     protected File getCacheDir() {
         return cacheDir;
     }
 
-    protected Directory getDirectory() {
+    protected synchronized Directory getDirectory() {
         if (dir != null)
             return dir;
 
@@ -121,4 +149,51 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return dir = new GHDirectory(cacheDir.getAbsolutePath(), daType);
     }
 
+    /**
+     * Creates the DataAccess for a tile. The Directory is not thread-safe, so this method is synchronized to allow
+     * loading tiles from multiple threads.
+     */
+    protected synchronized DataAccess createTileDataAccess(String name) {
+        return getDirectory().create(name);
+    }
+
+    File getRawTileFile(String name) {
+        return new File(cacheDir, name + ".raw");
+    }
+
+    /**
+     * @return the memory-mapped heights of the raw tile with the given name or null if the tile was not converted yet
+     */
+    ShortBuffer mapRawTile(String name) {
+        File file = getRawTileFile(name);
+        if (!file.exists())
+            return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot map raw elevation tile " + file, ex);
+        }
+    }
+
+    /**
+     * Writes the first count heights of the given DataAccess into the raw tile with the given name. An empty raw tile
+     * marks a tile without elevation data. The file is written to a temporary file first, so an interrupted import
+     * does not leave an incomplete tile.
+     */
+    void writeRawTile(String name, DataAccess heights, long count) {
+        File file = getRawTileFile(name);
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16)) {
+                for (long i = 0; i < count; i++) {
+                    short height = heights.getShort(2 * i);
+                    out.write(height & 0xFF);
+                    out.write((height >> 8) & 0xFF);
+                }
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write raw elevation tile " + file, ex);
+        }
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+/**
+ * This class stores the coordinates of all OSM nodes in the order they were read. The OSM node IDs are stored as
+ * (zigzag and variable length encoded) differences to the previous ID. For sorted OSM files this difference is
+ * usually small, so we need only a little more than 8 bytes per node. Use a memory-mapped DataAccess
+ * (graph.dataaccess.type) to keep the data off-heap.
+ */
+public class NodeCoordinateCache {
+    private final Directory dir;
+    private final DataAccess da;
+    private long size;
+    private long prevOsmNodeId;
+    private long nodeCount;
+
+    public NodeCoordinateCache(Directory dir) {
+        this.dir = dir;
+        this.da = dir.create("tmp_node_coordinates").create(100);
+    }
+
+    public void addNode(long osmNodeId, double lat, double lon) {
+        // 10 bytes for the ID difference and 8 bytes for the coordinates at most
+        da.ensureCapacity(size + 18);
+        long delta = osmNodeId - prevOsmNodeId;
+        long zigzag = (delta << 1) ^ (delta >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            da.setByte(size++, (byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        da.setByte(size++, (byte) zigzag);
+        da.setInt(size, Helper.degreeToInt(lat));
+        da.setInt(size + 4, Helper.degreeToInt(lon));
+        size += 8;
+        prevOsmNodeId = osmNodeId;
+        nodeCount++;
+    }
+
+    /**
+     * Calls the visitor for all stored nodes in the order they were added.
+     */
+    public void forEach(NodeVisitor visitor) {
+        long osmNodeId = 0;
+        long pointer = 0;
+        while (pointer < size) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = da.getByte(pointer++);
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            osmNodeId += (zigzag >>> 1) ^ -(zigzag & 1);
+            visitor.visit(osmNodeId, Helper.intToDegree(da.getInt(pointer)), Helper.intToDegree(da.getInt(pointer + 4)));
+            pointer += 8;
+        }
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+
+    public void clear() {
+        dir.remove(da.getName());
+    }
+
+    public interface NodeVisitor {
+        void visit(long osmNodeId, double lat, double lon);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads an OSM change file (.osc or .osc.gz) as it is published for the minutely, hourly and daily OSM diffs. See
+ * https://wiki.openstreetmap.org/wiki/OsmChange
+ */
+public class OSMChangeFile {
+    public enum Action {CREATE, MODIFY, DELETE}
+
+    public interface ChangeHandler {
+        void handleChange(Action action, ReaderElement element);
+    }
+
+    public static void read(File file, ChangeHandler handler) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file), 50000);
+        if (file.getName().endsWith(".gz"))
+            is = new GZIPInputStream(is, 50000);
+        XMLStreamReader parser = null;
+        try (InputStream input = is) {
+            parser = XMLInputFactory.newInstance().createXMLStreamReader(input, "UTF-8");
+            int event = parser.next();
+            if (event != XMLStreamConstants.START_ELEMENT || !parser.getLocalName().equalsIgnoreCase("osmChange"))
+                throw new IllegalArgumentException("File is not a valid OSM change file: " + file);
+
+            Action action = null;
+            while (event != XMLStreamConstants.END_DOCUMENT) {
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = parser.getLocalName();
+                    switch (name) {
+                        case "create":
+                            action = Action.CREATE;
+                            break;
+                        case "modify":
+                            action = Action.MODIFY;
+                            break;
+                        case "delete":
+                            action = Action.DELETE;
+                            break;
+                        case "node":
+                        case "way":
+                        case "relation":
+                            if (action == null)
+                                throw new IllegalArgumentException("OSM " + name + " outside of create, modify or delete in " + file);
+                            handler.handleChange(action, readElement(name, parser));
+                            break;
+                    }
+                }
+                event = parser.next();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read OSM change file: " + file, e);
+        } finally {
+            if (parser != null)
+                try {
+                    parser.close();
+                } catch (XMLStreamException e) {
+                    // ignore
+                }
+        }
+    }
+
+    private static ReaderElement readElement(String name, XMLStreamReader parser) throws XMLStreamException {
+        long id = Long.parseLong(parser.getAttributeValue(null, "id"));
+        switch (name) {
+            case "node":
+                // deleted nodes do not necessarily include their coordinates
+                if (parser.getAttributeValue(null, "lat") == null) {
+                    parser.nextTag();
+                    return new ReaderNode(id, Double.NaN, Double.NaN);
+                }
+                return OSMXMLHelper.createNode(id, parser);
+            case "way":
+                return OSMXMLHelper.createWay(id, parser);
+            default:
+                return OSMXMLHelper.createRelation(id, parser);
+        }
+    }
+}
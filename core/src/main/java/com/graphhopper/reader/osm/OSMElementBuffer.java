@@ -0,0 +1,168 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.cursors.LongCursor;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * This class temporarily stores OSM elements in a serialized form, so they can be read again without reading the OSM
+ * file a second time. All tag values must be strings.
+ */
+public class OSMElementBuffer {
+    private final Directory dir;
+    private final DataAccess da;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private long size;
+    private long elements;
+
+    public OSMElementBuffer(Directory dir) {
+        this.dir = dir;
+        this.da = dir.create("tmp_osm_elements").create(100);
+    }
+
+    /**
+     * @return the pointer that can be used to retrieve the given element with {@link #get(long)}
+     */
+    public long add(ReaderElement element) {
+        bytes.reset();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(element.getType().ordinal());
+            out.writeLong(element.getId());
+            switch (element.getType()) {
+                case NODE:
+                    out.writeDouble(((ReaderNode) element).getLat());
+                    out.writeDouble(((ReaderNode) element).getLon());
+                    break;
+                case WAY:
+                    ReaderWay way = (ReaderWay) element;
+                    out.writeInt(way.getNodes().size());
+                    for (LongCursor node : way.getNodes())
+                        out.writeLong(node.value);
+                    break;
+                case RELATION:
+                    ReaderRelation relation = (ReaderRelation) element;
+                    out.writeInt(relation.getMembers().size());
+                    for (ReaderRelation.Member member : relation.getMembers()) {
+                        out.writeByte(member.getType().ordinal());
+                        out.writeLong(member.getRef());
+                        out.writeUTF(member.getRole());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Cannot store element of type " + element.getType());
+            }
+            out.writeInt(element.getTags().size());
+            for (Map.Entry<String, Object> tag : element.getTags().entrySet()) {
+                if (!(tag.getValue() instanceof String))
+                    throw new IllegalArgumentException("Only string tags can be stored, but " + element.getType() + " "
+                            + element.getId() + " has tag " + tag.getKey() + "=" + tag.getValue());
+                out.writeUTF(tag.getKey());
+                out.writeUTF((String) tag.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long pointer = size;
+        byte[] array = bytes.toByteArray();
+        da.ensureCapacity(pointer + 4 + array.length);
+        da.setInt(pointer, array.length);
+        // the byte array can be larger than a segment
+        for (int offset = 0; offset < array.length; offset += da.getSegmentSize()) {
+            int length = Math.min(da.getSegmentSize(), array.length - offset);
+            byte[] chunk = offset == 0 && length == array.length ? array : Arrays.copyOfRange(array, offset, offset + length);
+            da.setBytes(pointer + 4 + offset, chunk, length);
+        }
+        size = pointer + 4 + array.length;
+        elements++;
+        return pointer;
+    }
+
+    public ReaderElement get(long pointer) {
+        byte[] array = new byte[da.getInt(pointer)];
+        for (int offset = 0; offset < array.length; offset += da.getSegmentSize()) {
+            int length = Math.min(da.getSegmentSize(), array.length - offset);
+            byte[] chunk = new byte[length];
+            da.getBytes(pointer + 4 + offset, chunk, length);
+            System.arraycopy(chunk, 0, array, offset, length);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(array))) {
+            ReaderElement.Type type = ReaderElement.Type.values()[in.readByte()];
+            long id = in.readLong();
+            ReaderElement element;
+            switch (type) {
+                case NODE:
+                    element = new ReaderNode(id, in.readDouble(), in.readDouble());
+                    break;
+                case WAY:
+                    ReaderWay way = new ReaderWay(id);
+                    int nodes = in.readInt();
+                    for (int i = 0; i < nodes; i++)
+                        way.getNodes().add(in.readLong());
+                    element = way;
+                    break;
+                case RELATION:
+                    ReaderRelation relation = new ReaderRelation(id);
+                    int members = in.readInt();
+                    for (int i = 0; i < members; i++)
+                        relation.add(new ReaderRelation.Member(ReaderElement.Type.values()[in.readByte()], in.readLong(), in.readUTF()));
+                    element = relation;
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected element type " + type);
+            }
+            int tags = in.readInt();
+            for (int i = 0; i < tags; i++)
+                element.setTag(in.readUTF(), in.readUTF());
+            return element;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Calls the consumer for all stored elements in the order they were added.
+     */
+    public void forEach(Consumer<ReaderElement> consumer) {
+        for (long pointer = 0; pointer < size; pointer += 4 + da.getInt(pointer))
+            consumer.accept(get(pointer));
+    }
+
+    public long getElements() {
+        return elements;
+    }
+
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+
+    public void clear() {
+        dir.remove(da.getName());
+    }
+}
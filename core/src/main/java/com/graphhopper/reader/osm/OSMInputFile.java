@@ -20,6 +20,7 @@ package com.graphhopper.reader.osm;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.osm.pbf.PbfReader;
 import com.graphhopper.reader.osm.pbf.Sink;
+import com.graphhopper.util.ImportMetrics;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -43,6 +44,7 @@ import java.util.zip.ZipInputStream;
  */
 public class OSMInputFile implements Sink, OSMInput {
     private static final int MAX_BATCH_SIZE = 1_000;
+    private final File file;
     private final InputStream bis;
     private final BlockingQueue<ReaderElement> itemQueue;
     private final Queue<ReaderElement> itemBatch;
@@ -55,10 +57,16 @@ public class OSMInputFile implements Sink, OSMInput {
     private Thread pbfReaderThread;
     private boolean hasIncomingData;
     private int workerThreads = -1;
+    private boolean memoryMapped = false;
     private SkipOptions skipOptions = SkipOptions.none();
     private OSMFileHeader fileheader;
+    private ImportMetrics importMetrics = ImportMetrics.NOOP;
+    // the time the PBF reader waits because the queue is full and the time we wait for the PBF reader
+    private ImportMetrics.Counter queueFullCounter;
+    private ImportMetrics.Counter queueEmptyCounter;
 
     public OSMInputFile(File file) throws IOException {
+        this.file = file;
         bis = decode(file);
         itemQueue = new LinkedBlockingQueue<>(50_000);
         itemBatch = new ArrayDeque<>(MAX_BATCH_SIZE);
@@ -81,6 +89,15 @@ public class OSMInputFile implements Sink, OSMInput {
         return this;
     }
 
+    /**
+     * Only for pbf format. If true the file is memory-mapped and the worker threads read the blobs directly from the
+     * mapping, see {@link com.graphhopper.reader.osm.pbf.PbfMappedSplitter}. Otherwise a single thread reads the file.
+     */
+    public OSMInputFile setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+        return this;
+    }
+
     /**
      * Use this to prevent the creation of OSM nodes, ways and/or relations to speed up the file reading process.
      * This will only affect the reading of pbf files.
@@ -90,6 +107,18 @@ public class OSMInputFile implements Sink, OSMInput {
         return this;
     }
 
+    /**
+     * Only for pbf format. Collects the time spent for decoding the blobs and waiting for the queue.
+     */
+    public OSMInputFile setImportMetrics(ImportMetrics importMetrics) {
+        this.importMetrics = importMetrics;
+        if (importMetrics.isEnabled()) {
+            queueFullCounter = importMetrics.getCounter("osm_input.queue_full");
+            queueEmptyCounter = importMetrics.getCounter("osm_input.queue_empty");
+        }
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     private InputStream decode(File file) throws IOException {
         final String name = file.getName();
@@ -257,7 +286,10 @@ public class OSMInputFile implements Sink, OSMInput {
         if (workerThreads <= 0)
             workerThreads = 1;
 
-        pbfReader = new PbfReader(stream, this, workerThreads, skipOptions);
+        pbfReader = memoryMapped
+                ? new PbfReader(file, this, workerThreads, skipOptions)
+                : new PbfReader(stream, this, workerThreads, skipOptions);
+        pbfReader.setImportMetrics(importMetrics);
         pbfReaderThread = new Thread(pbfReader, "PBF Reader");
         pbfReaderThread.start();
     }
@@ -265,8 +297,14 @@ public class OSMInputFile implements Sink, OSMInput {
     @Override
     public void process(ReaderElement item) {
         try {
-            // blocks if full
-            itemQueue.put(item);
+            if (queueFullCounter == null) {
+                // blocks if full
+                itemQueue.put(item);
+            } else if (!itemQueue.offer(item)) {
+                long start = System.nanoTime();
+                itemQueue.put(item);
+                queueFullCounter.add(System.nanoTime() - start);
+            }
         } catch (InterruptedException ex) {
             throw new RuntimeException(ex);
         }
@@ -289,7 +327,10 @@ public class OSMInputFile implements Sink, OSMInput {
 
             if (itemQueue.drainTo(itemBatch, MAX_BATCH_SIZE) == 0) {
                 try {
+                    long start = System.nanoTime();
                     ReaderElement element = itemQueue.poll(100, TimeUnit.MILLISECONDS);
+                    if (queueEmptyCounter != null)
+                        queueEmptyCounter.add(System.nanoTime() - start);
                     if (element != null) {
                         return element; // short circuit
                     }
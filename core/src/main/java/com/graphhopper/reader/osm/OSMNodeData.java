@@ -20,9 +20,10 @@ package com.graphhopper.reader.osm;
 
 import com.carrotsearch.hppc.LongScatterSet;
 import com.carrotsearch.hppc.LongSet;
-import com.graphhopper.coll.GHLongLongBTree;
 import com.graphhopper.coll.LongLongMap;
+import com.graphhopper.coll.SortedLongLongMap;
 import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.dem.BatchElevationLookup;
 import com.graphhopper.search.KVStorage;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.PointAccess;
@@ -80,14 +81,15 @@ class OSMNodeData {
     private long nextArtificialOSMNodeId = -Long.MAX_VALUE;
 
     public OSMNodeData(PointAccess nodeAccess, Directory directory) {
-        // We use a b-tree that can store as many entries as there are longs. A tree is also more
-        // memory efficient, because there is no waste for empty entries, and it also avoids
-        // allocating big arrays when growing the size.
-        idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        // The node ids are first added in the order of the ways, i.e. unsorted, so they are kept in a b-tree until
+        // they are merged into the sorted DataAccess at the end of pass1, see optimize. Afterwards the ids are only
+        // updated, which is done in place, and the map can be kept off-heap.
+        idsByOsmNodeIds = new SortedLongLongMap(directory, "tmp_node_ids", 8, EMPTY_NODE);
         towerNodes = nodeAccess;
         pillarNodes = new PillarInfo(towerNodes.is3D(), directory);
 
-        nodeTagIndicesByOsmNodeIds = new GHLongLongBTree(200, 4, -1);
+        // the node tags are added in the order of the OSM file, which is usually sorted by the OSM node ID
+        nodeTagIndicesByOsmNodeIds = new SortedLongLongMap(directory, "tmp_node_tag_indices", 4, -1);
         nodesToBeSplit = new LongScatterSet();
         nodeKVStorage = new KVStorage(directory, false).create(100);
     }
@@ -126,6 +128,14 @@ class OSMNodeData {
             idsByOsmNodeIds.put(osmNodeId, nodeTypeUpdate.applyAsLong(curr));
     }
 
+    /**
+     * Sorts the node types that were set via {@link #setOrUpdateNodeType}, which makes the lookups faster and moves
+     * them off-heap. Should be called once all ways have been read.
+     */
+    void optimize() {
+        idsByOsmNodeIds.optimize();
+    }
+
     /**
      * @return the number of mapped nodes (tower + pillar, but also including pillar nodes that were converted to tower)
      */
@@ -270,6 +280,45 @@ class OSMNodeData {
         return nodeKVStorage.getMap(tagIndex);
     }
 
+    /**
+     * Sets the elevation of all tower and pillar nodes that were added so far. This must be called before the nodes are
+     * copied or converted.
+     */
+    public void setElevations(BatchElevationLookup lookup) {
+        lookup.fill(new BatchElevationLookup.Points() {
+            @Override
+            public double getLat(long index) {
+                return towerNodes.getLat((int) index);
+            }
+
+            @Override
+            public double getLon(long index) {
+                return towerNodes.getLon((int) index);
+            }
+
+            @Override
+            public void setEle(long index, double ele) {
+                towerNodes.setNode((int) index, towerNodes.getLat((int) index), towerNodes.getLon((int) index), ele);
+            }
+        }, nextTowerId);
+        lookup.fill(new BatchElevationLookup.Points() {
+            @Override
+            public double getLat(long index) {
+                return pillarNodes.getLat(index);
+            }
+
+            @Override
+            public double getLon(long index) {
+                return pillarNodes.getLon(index);
+            }
+
+            @Override
+            public void setEle(long index, double ele) {
+                pillarNodes.setNode(index, pillarNodes.getLat(index), pillarNodes.getLon(index), ele);
+            }
+        }, nextPillarId);
+    }
+
     public void release() {
         idsByOsmNodeIds.clear();
         pillarNodes.clear();
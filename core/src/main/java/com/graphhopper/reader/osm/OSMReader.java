@@ -18,19 +18,29 @@
 package com.graphhopper.reader.osm;
 
 import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.LongCursor;
 import com.graphhopper.coll.GHLongLongHashMap;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.dem.BatchElevationLookup;
 import com.graphhopper.reader.dem.EdgeElevationSmoothingMovingAverage;
 import com.graphhopper.reader.dem.EdgeElevationSmoothingRamer;
 import com.graphhopper.reader.dem.EdgeSampling;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.routing.OSMReaderConfig;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Country;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
 import com.graphhopper.routing.ev.State;
 import com.graphhopper.routing.util.AreaIndex;
 import com.graphhopper.routing.util.CustomArea;
@@ -39,6 +49,7 @@ import com.graphhopper.routing.util.OSMParsers;
 import com.graphhopper.routing.util.countryrules.CountryRule;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.RestrictionSetter;
+import com.graphhopper.routing.util.parsers.TagParser;
 import com.graphhopper.search.KVStorage;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.IntsRef;
@@ -53,6 +64,11 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleSupplier;
 import java.util.function.LongToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -98,6 +114,13 @@ public class OSMReader {
     private GHLongLongHashMap osmWayIdToRelationFlagsMap = new GHLongLongHashMap(200, .5f);
     private WayToEdgesMap restrictedWaysToEdgesMap = new WayToEdgesMap();
     private List<ReaderRelation> restrictionRelations = new ArrayList<>();
+    // edges whose tags are parsed in parallel, see OSMReaderConfig#setTagParsingThreads
+    private ExecutorService tagParsingExecutor;
+    private final ArrayDeque<Future<ParsedEdge>> parsedEdges = new ArrayDeque<>();
+    private ImportMetrics importMetrics = ImportMetrics.NOOP;
+    private ImportMetrics.Counter elevationCounter;
+    private OSMWayIndex wayIndex;
+    private long lastIndexedWayId = -1;
 
     public OSMReader(BaseGraph baseGraph, OSMParsers osmParsers, OSMReaderConfig config) {
         this.baseGraph = baseGraph;
@@ -149,6 +172,25 @@ public class OSMReader {
         return this;
     }
 
+    /**
+     * Enables collecting the time spent in the tag parsers, the elevation provider, the PBF decoding etc.
+     */
+    public OSMReader setImportMetrics(ImportMetrics importMetrics) {
+        this.importMetrics = importMetrics;
+        this.elevationCounter = importMetrics.isEnabled() ? importMetrics.getCounter("elevation_provider") : null;
+        osmParsers.setImportMetrics(importMetrics);
+        return this;
+    }
+
+    /**
+     * The node IDs of the OSM ways and the relevant relations are added to this index during the import, so that OSM
+     * changes can be applied later, see {@link #applyChanges}. {@link OSMWayIndex#build} must be called afterwards.
+     */
+    public OSMReader setWayIndex(OSMWayIndex wayIndex) {
+        this.wayIndex = wayIndex;
+        return this;
+    }
+
     public void readGraph() throws IOException {
         if (osmParsers == null)
             throw new IllegalStateException("Tag parsers were not set.");
@@ -164,15 +206,36 @@ public class OSMReader {
 
         WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory())
                 .setElevationProvider(this::getElevation)
+                .setBatchElevationLookup(config.getElevationThreads() > 0 && eleProvider != ElevationProvider.NOOP
+                        ? new BatchElevationLookup(this::getElevation, config.getElevationThreads()) : null)
                 .setWayFilter(this::acceptWay)
                 .setSplitNodeFilter(this::isBarrierNode)
                 .setWayPreprocessor(this::preprocessWay)
                 .setRelationPreprocessor(this::preprocessRelations)
                 .setRelationProcessor(this::processRelation)
                 .setEdgeHandler(this::addEdge)
+                .setSegmentNodeHandler(this::addSegmentNode)
                 .setWorkerThreads(config.getWorkerThreads())
+                .setSinglePass(config.isSinglePass())
+                .setMemoryMappedPbf(config.isMemoryMappedPbf())
+                .setImportMetrics(importMetrics)
                 .build();
-        waySegmentParser.readOSM(osmFile);
+        if (config.getTagParsingThreads() > 1) {
+            List<TagParser> nonThreadSafeParsers = osmParsers.getNonThreadSafeTagParsers();
+            if (nonThreadSafeParsers.isEmpty())
+                tagParsingExecutor = Executors.newFixedThreadPool(config.getTagParsingThreads());
+            else
+                LOGGER.warn("The tags of the OSM ways are parsed with a single thread instead of {}, because these tag parsers are not thread-safe: {}",
+                        config.getTagParsingThreads(), nonThreadSafeParsers.stream().map(p -> p.getClass().getName()).collect(Collectors.joining(", ")));
+        }
+        try {
+            waySegmentParser.readOSM(osmFile);
+            addParsedEdges(0);
+        } finally {
+            if (tagParsingExecutor != null)
+                tagParsingExecutor.shutdownNow();
+            tagParsingExecutor = null;
+        }
         osmDataDate = waySegmentParser.getTimestamp();
         if (baseGraph.getNodes() == 0)
             throw new RuntimeException("Graph after reading OSM must not be empty");
@@ -190,8 +253,453 @@ public class OSMReader {
         return osmDataDate;
     }
 
+    /**
+     * Applies the changes of the given OSM change file (.osc or .osc.gz) to the existing graph. The edges of the
+     * modified OSM ways are found via the given way index and their tags are parsed again. The edges of deleted OSM
+     * ways are kept, but their flags are cleared such that they are no longer accessible.
+     * <p>
+     * Moved tower nodes are moved in the graph and the distances of their edges are calculated again. New ways, ways
+     * with changed nodes and ways with moved nodes are split into segments again: A way is split at its ends, at the
+     * existing tower nodes and at the nodes that are used more than once by these ways. If the segments connect the
+     * same tower nodes as the existing edges of the way, only the geometry of these edges is replaced. Otherwise, the
+     * existing edges are cleared like the ones of deleted ways and new edges and tower nodes are added. Barrier nodes
+     * do not create barrier edges here.
+     * <p>
+     * Changes that cannot be applied without a new import are skipped and logged, while the rest of the file is
+     * applied: ways with unknown nodes or nodes outside the bounds of the graph, ways that would connect to the inner
+     * nodes of other ways, ways whose edges would have to be replaced although they have barrier edges or turn
+     * restrictions, moved inner nodes of ways that are not part of the change file, moved barrier nodes and changed
+     * relations that were used for the relation flags or turn restrictions.
+     * <p>
+     * The node tags are not stored in the graph, so the values that are derived from them are kept: Barrier edges keep
+     * all their values, because the access, road_access and road_environment values of barrier and ford nodes are only
+     * set on them. For the other edges the tag parsers only get the tags of the nodes in the change file, so the
+     * encoded values that depend on node tags, like crossing, must be part of the kept encoded values. The name of a
+     * motorway junction is restored from the existing edge, and so are the relation flags.
+     *
+     * @param keptEncodedValues encoded values that are not created by the tag parsers or that depend on node tags and
+     *                          shall keep their values
+     * @return the changed edges, for which the location index and the subnetworks need to be updated
+     */
+    public AppliedChanges applyChanges(File changeFile, OSMWayIndex wayIndex, List<IntEncodedValue> keptEncodedValues) throws IOException {
+        Map<Long, ReaderNode> changedNodes = new HashMap<>();
+        Map<Long, ReaderWay> modifiedWays = new LinkedHashMap<>();
+        Set<Long> deletedWays = new HashSet<>();
+        Map<String, LongArrayList> skippedChanges = new LinkedHashMap<>();
+        OSMChangeFile.read(changeFile, (action, element) -> {
+            if (element.getType() == ReaderElement.Type.NODE) {
+                // deleted nodes only matter for the ways that used them, and these ways are changed as well
+                if (action == OSMChangeFile.Action.DELETE)
+                    changedNodes.remove(element.getId());
+                else
+                    changedNodes.put(element.getId(), (ReaderNode) element);
+            } else if (element.getType() == ReaderElement.Type.WAY) {
+                if (action == OSMChangeFile.Action.DELETE) {
+                    modifiedWays.remove(element.getId());
+                    deletedWays.add(element.getId());
+                } else {
+                    deletedWays.remove(element.getId());
+                    modifiedWays.put(element.getId(), (ReaderWay) element);
+                }
+            } else if (wayIndex.containsRelation(element.getId())
+                    || action != OSMChangeFile.Action.DELETE && isRelevantRelation((ReaderRelation) element)) {
+                skippedChanges.computeIfAbsent("changed relations", k -> new LongArrayList()).add(element.getId());
+            }
+        });
+
+        AppliedChanges changes = new AppliedChanges();
+        LongHashSet movedNodes = new LongHashSet();
+        EdgeExplorer explorer = baseGraph.createEdgeExplorer();
+        for (ReaderNode node : changedNodes.values()) {
+            OSMWayIndex.Node indexedNode = wayIndex.getNode(node.getId());
+            // new nodes only matter for the ways that use them
+            if (indexedNode == null || indexedNode.isAt(node.getLat(), node.getLon()))
+                continue;
+            if (!indexedNode.isTowerNode()) {
+                // the geometry is updated if the way is part of the change file, which it usually is
+                movedNodes.add(node.getId());
+                if (!modifiedWays.containsKey(indexedNode.getPillarWayId()))
+                    skippedChanges.computeIfAbsent("moved inner nodes of ways that are not part of the change file", k -> new LongArrayList()).add(node.getId());
+                continue;
+            }
+            int towerNode = indexedNode.getTowerNode();
+            if (!baseGraph.getBounds().contains(node.getLat(), node.getLon())) {
+                skippedChanges.computeIfAbsent("nodes moved outside the graph bounds", k -> new LongArrayList()).add(node.getId());
+                continue;
+            }
+            if (hasBarrierEdge(explorer.setBaseNode(towerNode))) {
+                skippedChanges.computeIfAbsent("moved barrier nodes", k -> new LongArrayList()).add(node.getId());
+                continue;
+            }
+            movedNodes.add(node.getId());
+            setTowerNode(towerNode, node.getLat(), node.getLon());
+            wayIndex.putTowerNode(node.getId(), node.getLat(), node.getLon(), towerNode);
+            EdgeIterator iter = explorer.setBaseNode(towerNode);
+            while (iter.next()) {
+                iter.setDistance(Math.max(0.001, distCalc.calcDistance(iter.fetchWayGeometry(FetchMode.ALL))));
+                changes.changedEdges.add(iter.getEdge());
+                changes.changedGeometries.add(iter.getEdge());
+            }
+        }
+
+        for (long osmWayId : deletedWays)
+            if (wayIndex.containsWay(osmWayId))
+                clearEdges(wayIndex.getEdges(osmWayId), keptEncodedValues, changes);
+
+        long unknownWays = 0;
+        List<ReaderWay> rebuiltWays = new ArrayList<>();
+        for (ReaderWay way : modifiedWays.values()) {
+            boolean known = wayIndex.containsWay(way.getId());
+            if (!acceptWay(way)) {
+                if (known)
+                    clearEdges(wayIndex.getEdges(way.getId()), keptEncodedValues, changes);
+                else
+                    unknownWays++;
+            } else if (!known || OSMWayIndex.hashNodes(way.getNodes()) != wayIndex.getNodesHash(way.getId())
+                    || containsAny(way.getNodes(), movedNodes)) {
+                rebuiltWays.add(way);
+            } else {
+                updateTags(way, wayIndex.getEdges(way.getId()), keptEncodedValues, changes);
+            }
+        }
+
+        // nodes that are used more than once by the rebuilt ways become tower nodes
+        LongIntHashMap nodeUsages = new LongIntHashMap();
+        LongHashSet rebuiltWayIds = new LongHashSet();
+        for (ReaderWay way : rebuiltWays) {
+            rebuiltWayIds.add(way.getId());
+            for (LongCursor node : way.getNodes())
+                nodeUsages.addTo(node.value, 1);
+        }
+        for (ReaderWay way : rebuiltWays) {
+            String skipReason = rebuildWay(way, wayIndex, changedNodes, nodeUsages, rebuiltWayIds, keptEncodedValues, changes);
+            if (skipReason != null)
+                skippedChanges.computeIfAbsent(skipReason, k -> new LongArrayList()).add(way.getId());
+        }
+        wayIndex.storeChanges();
+
+        if (!skippedChanges.isEmpty())
+            LOGGER.warn("Skipped OSM changes from {} that cannot be applied without a new import: {}", changeFile.getAbsolutePath(),
+                    skippedChanges.entrySet().stream().map(e -> e.getKey() + ": " + e.getValue().size() + " (e.g. "
+                            + Arrays.stream(e.getValue().toArray()).limit(5).mapToObj(Long::toString).collect(Collectors.joining(", ")) + ")")
+                            .collect(Collectors.joining(", ")));
+        LOGGER.info("Applied OSM changes from {}, modified ways: {}, deleted ways: {}, rebuilt ways: {}, moved nodes: {}, " +
+                        "changed edges: {}, changed geometries: {}, ignored ways that are not in the graph: {}", changeFile.getAbsolutePath(),
+                nf(modifiedWays.size()), nf(deletedWays.size()), nf(rebuiltWays.size()), nf(movedNodes.size()),
+                nf(changes.changedEdges.size()), nf(changes.changedGeometries.size()), nf(unknownWays));
+        return changes;
+    }
+
+    private static boolean containsAny(LongArrayList nodes, LongHashSet set) {
+        for (LongCursor node : nodes)
+            if (set.contains(node.value))
+                return true;
+        return false;
+    }
+
+    private void setTowerNode(int node, double lat, double lon) {
+        if (nodeAccess.is3D())
+            nodeAccess.setNode(node, lat, lon, getElevation(lat, lon));
+        else
+            nodeAccess.setNode(node, lat, lon);
+    }
+
+    private boolean hasBarrierEdge(EdgeIterator iter) {
+        while (iter.next())
+            if (isBarrierEdge(iter.fetchWayGeometry(FetchMode.ALL)))
+                return true;
+        return false;
+    }
+
+    private void clearEdges(IntArrayList edges, List<IntEncodedValue> keptEncodedValues, AppliedChanges changes) {
+        for (IntCursor edge : edges) {
+            updateFlags(baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE), baseGraph.createEdgeFlags(), keptEncodedValues);
+            changes.changedEdges.add(edge.value);
+        }
+    }
+
+    private void updateTags(ReaderWay way, IntArrayList edges, List<IntEncodedValue> keptEncodedValues, AppliedChanges changes) {
+        // the relations of the way did not change, otherwise we would have skipped them
+        IntsRef relationFlags = osmParsers.restoreRelationFlags(edges.get(0), edgeIntAccess, osmParsers.createRelationFlags());
+        double wayDistance = 0;
+        for (IntCursor edge : edges)
+            wayDistance += baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE).getDistance();
+        final double distance = wayDistance;
+        preprocessWay(way, createNodeTagSupplier(way, edges, Collections.emptyMap()), () -> distance);
+        for (IntCursor cursor : edges) {
+            EdgeIteratorState edge = baseGraph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+            PointList pointList = edge.fetchWayGeometry(FetchMode.ALL);
+            if (isBarrierEdge(pointList))
+                continue;
+            updateEdgeTags(edge, pointList, way, new ArrayList<>(Collections.nCopies(pointList.size(), Collections.emptyMap())),
+                    relationFlags, keptEncodedValues);
+            changes.changedEdges.add(edge.getEdge());
+        }
+    }
+
+    /**
+     * The node tags are not stored, so we restore the name of a motorway junction from the existing edges. This is the
+     * only node tag that preprocessWay reads.
+     */
+    private WaySegmentParser.NodeTagSupplier createNodeTagSupplier(ReaderWay way, IntArrayList edges, Map<Long, ReaderNode> changedNodes) {
+        Object junctionName = edges.isEmpty() ? null : baseGraph.getEdgeIteratorState(edges.get(0), Integer.MIN_VALUE).getValue(MOTORWAY_JUNCTION);
+        Map<String, Object> junctionTags = junctionName == null ? Collections.emptyMap() : Map.of("highway", "motorway_junction", "name", junctionName);
+        long firstNode = way.getNodes().isEmpty() ? -1 : way.getNodes().get(0);
+        return osmNodeId -> {
+            ReaderNode node = changedNodes.get(osmNodeId);
+            if (node != null)
+                return node.getTags();
+            return osmNodeId == firstNode ? junctionTags : Collections.emptyMap();
+        };
+    }
+
+    private void updateEdgeTags(EdgeIteratorState edge, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags,
+                                IntsRef relationFlags, List<IntEncodedValue> keptEncodedValues) {
+        setArtificialWayTags(pointList, way, edge.getDistance(), nodeTags);
+        IntsRef edgeFlags = baseGraph.createEdgeFlags();
+        osmParsers.handleWayTags(edge.getEdge(), new IntsRefEdgeIntAccess(edgeFlags), way, relationFlags);
+        updateFlags(edge, edgeFlags, keptEncodedValues);
+        Map<String, KValue> keyValues = way.getTag("key_values", Collections.emptyMap());
+        if (!keyValues.equals(edge.getKeyValues()))
+            edge.setKeyValues(keyValues);
+    }
+
+    /**
+     * Splits the given way into segments again and replaces the geometry of its edges or its edges, see
+     * {@link #applyChanges}.
+     *
+     * @return the reason why the way cannot be rebuilt or null if it was rebuilt
+     */
+    private String rebuildWay(ReaderWay way, OSMWayIndex wayIndex, Map<Long, ReaderNode> changedNodes, LongIntHashMap nodeUsages,
+                              LongHashSet rebuiltWayIds, List<IntEncodedValue> keptEncodedValues, AppliedChanges changes) {
+        if (way.getId() > Integer.MAX_VALUE)
+            return "ways with too large IDs";
+        LongArrayList nodes = way.getNodes();
+        PointList points = new PointList(nodes.size(), nodeAccess.is3D());
+        int[] towerNodes = new int[nodes.size()];
+        boolean[] splitNodes = new boolean[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            ReaderNode changedNode = changedNodes.get(nodes.get(i));
+            OSMWayIndex.Node indexedNode = wayIndex.getNode(nodes.get(i));
+            if (changedNode == null && indexedNode == null)
+                return "ways with unknown nodes";
+            double lat = changedNode != null ? changedNode.getLat() : indexedNode.getLat();
+            double lon = changedNode != null ? changedNode.getLon() : indexedNode.getLon();
+            if (!baseGraph.getBounds().contains(lat, lon))
+                return "ways with nodes outside the graph bounds";
+            towerNodes[i] = indexedNode != null && indexedNode.isTowerNode() ? indexedNode.getTowerNode() : -1;
+            if (indexedNode != null && towerNodes[i] < 0 && indexedNode.getPillarWayId() != way.getId()
+                    && !rebuiltWayIds.contains(indexedNode.getPillarWayId()))
+                return "ways that connect to inner nodes of other ways";
+            splitNodes[i] = i == 0 || i == nodes.size() - 1 || towerNodes[i] >= 0 || nodeUsages.get(nodes.get(i)) > 1;
+            if (!points.is3D())
+                points.add(lat, lon);
+            else
+                points.add(lat, lon, towerNodes[i] >= 0 ? nodeAccess.getEle(towerNodes[i]) : getElevation(lat, lon));
+        }
+        // like WaySegmentParser we split segments that start and end at the same node once more and ignore the ones
+        // without inner nodes
+        IntArrayList segmentStarts = new IntArrayList();
+        int prevSplit = 0;
+        for (int i = 1; i < nodes.size(); i++) {
+            if (!splitNodes[i])
+                continue;
+            if (nodes.get(prevSplit) == nodes.get(i) && i - prevSplit > 1) {
+                splitNodes[i - 1] = true;
+                segmentStarts.add(prevSplit);
+                prevSplit = i - 1;
+            }
+            if (nodes.get(prevSplit) != nodes.get(i))
+                segmentStarts.add(prevSplit);
+            prevSplit = i;
+        }
+        IntArrayList segmentEnds = new IntArrayList(segmentStarts.size());
+        for (IntCursor start : segmentStarts) {
+            int end = start.value + 1;
+            while (!splitNodes[end])
+                end++;
+            segmentEnds.add(end);
+        }
+
+        IntArrayList oldEdges = wayIndex.containsWay(way.getId()) ? wayIndex.getEdges(way.getId()) : new IntArrayList();
+        if (hasTurnRestrictions(oldEdges))
+            return "ways with turn restrictions";
+        IntsRef relationFlags = oldEdges.isEmpty() ? osmParsers.createRelationFlags()
+                : osmParsers.restoreRelationFlags(oldEdges.get(0), edgeIntAccess, osmParsers.createRelationFlags());
+        WaySegmentParser.NodeTagSupplier nodeTagSupplier = createNodeTagSupplier(way, oldEdges, changedNodes);
+        IntArrayList matchingEdges = findMatchingEdges(oldEdges, segmentStarts, segmentEnds, towerNodes, points);
+        IntArrayList edges;
+        if (matchingEdges != null) {
+            preprocessWay(way, nodeTagSupplier, () -> distCalc.calcDistance(points));
+            edges = matchingEdges;
+            for (int s = 0; s < segmentStarts.size(); s++) {
+                EdgeIteratorState edge = baseGraph.getEdgeIteratorState(edges.get(s), Integer.MIN_VALUE);
+                PointList pointList = processPointList(points.copy(segmentStarts.get(s), segmentEnds.get(s) + 1));
+                edge.setWayGeometry(pointList.shallowCopy(1, pointList.size() - 1, false));
+                edge.setDistance(calcEdgeDistance(pointList, way.getId()));
+                updateEdgeTags(edge, pointList, way, getNodeTags(nodes, segmentStarts.get(s), segmentEnds.get(s), nodeTagSupplier),
+                        relationFlags, keptEncodedValues);
+            }
+        } else {
+            for (IntCursor edge : oldEdges)
+                if (isBarrierEdge(baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE).fetchWayGeometry(FetchMode.ALL)))
+                    return "ways with barrier edges";
+            clearEdges(oldEdges, keptEncodedValues, changes);
+            for (int i = 0; i < nodes.size(); i++) {
+                if (!splitNodes[i] || towerNodes[i] >= 0)
+                    continue;
+                int towerNode = baseGraph.getNodes();
+                setTowerNode(towerNode, points.getLat(i), points.getLon(i));
+                // a node that is used more than once by this way gets a single tower node
+                for (int j = i; j < nodes.size(); j++)
+                    if (nodes.get(j) == nodes.get(i))
+                        towerNodes[j] = towerNode;
+            }
+            preprocessWay(way, nodeTagSupplier, () -> distCalc.calcDistance(points));
+            putRelFlagsMap(way.getId(), relationFlags);
+            edges = new IntArrayList(segmentStarts.size());
+            for (int s = 0; s < segmentStarts.size(); s++) {
+                int start = segmentStarts.get(s), end = segmentEnds.get(s);
+                addEdge(towerNodes[start], towerNodes[end], points.copy(start, end + 1), way, getNodeTags(nodes, start, end, nodeTagSupplier));
+                edges.add(baseGraph.getEdges() - 1);
+            }
+        }
+        for (IntCursor edge : edges) {
+            changes.changedEdges.add(edge.value);
+            changes.changedGeometries.add(edge.value);
+        }
+        wayIndex.putWay(way.getId(), OSMWayIndex.hashNodes(nodes), edges);
+        for (int i = 0; i < nodes.size(); i++) {
+            if (splitNodes[i])
+                wayIndex.putTowerNode(nodes.get(i), points.getLat(i), points.getLon(i), towerNodes[i]);
+            else
+                wayIndex.putPillarNode(nodes.get(i), points.getLat(i), points.getLon(i), way.getId());
+        }
+        return null;
+    }
+
+    private static List<Map<String, Object>> getNodeTags(LongArrayList nodes, int start, int end, WaySegmentParser.NodeTagSupplier nodeTagSupplier) {
+        List<Map<String, Object>> nodeTags = new ArrayList<>(end - start + 1);
+        for (int i = start; i <= end; i++)
+            nodeTags.add(nodeTagSupplier.getTags(nodes.get(i)));
+        return nodeTags;
+    }
+
+    /**
+     * @return the existing edges in the order of the given segments, or null if the segments do not connect the same
+     * tower nodes in the same direction or if the geometry of an edge cannot be replaced, because it would get more
+     * pillar nodes than it has
+     */
+    private IntArrayList findMatchingEdges(IntArrayList oldEdges, IntArrayList segmentStarts, IntArrayList segmentEnds,
+                                           int[] towerNodes, PointList points) {
+        if (oldEdges.size() != segmentStarts.size())
+            return null;
+        IntArrayList edges = new IntArrayList(oldEdges.size());
+        for (int s = 0; s < segmentStarts.size(); s++) {
+            int from = towerNodes[segmentStarts.get(s)], to = towerNodes[segmentEnds.get(s)];
+            if (from < 0 || to < 0)
+                return null;
+            int match = -1;
+            for (IntCursor cursor : oldEdges) {
+                EdgeIteratorState edge = baseGraph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+                if (edge.getBaseNode() == from && edge.getAdjNode() == to && !edges.contains(cursor.value)) {
+                    match = cursor.value;
+                    break;
+                }
+            }
+            if (match < 0)
+                return null;
+            int pillarNodes = baseGraph.getEdgeIteratorState(match, Integer.MIN_VALUE).fetchWayGeometry(FetchMode.PILLAR_ONLY).size();
+            int newPillarNodes = processPointList(points.copy(segmentStarts.get(s), segmentEnds.get(s) + 1)).size() - 2;
+            // a bigger geometry cannot be stored at the existing position, see BaseGraph
+            if (pillarNodes > 0 && newPillarNodes > pillarNodes)
+                return null;
+            edges.add(match);
+        }
+        return edges;
+    }
+
+    private boolean hasTurnRestrictions(IntArrayList edges) {
+        if (turnCostStorage == null)
+            return false;
+        List<BooleanEncodedValue> turnRestrictionEncs = osmParsers.getRestrictionTagParsers().stream().map(RestrictionTagParser::getTurnRestrictionEnc).toList();
+        EdgeExplorer explorer = baseGraph.createEdgeExplorer();
+        for (IntCursor cursor : edges) {
+            EdgeIteratorState edge = baseGraph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+            for (int node : new int[]{edge.getBaseNode(), edge.getAdjNode()}) {
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next())
+                    for (BooleanEncodedValue turnRestrictionEnc : turnRestrictionEncs)
+                        if (turnCostStorage.get(turnRestrictionEnc, cursor.value, node, iter.getEdge())
+                                || turnCostStorage.get(turnRestrictionEnc, iter.getEdge(), node, cursor.value))
+                            return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The edges that were changed by {@link #applyChanges}.
+     */
+    public static class AppliedChanges {
+        private final IntHashSet changedEdges = new IntHashSet();
+        private final IntHashSet changedGeometries = new IntHashSet();
+
+        /**
+         * @return the edges whose flags or geometry changed, including the new edges
+         */
+        public IntHashSet getChangedEdges() {
+            return changedEdges;
+        }
+
+        /**
+         * @return the edges whose geometry or distance changed, including the new edges
+         */
+        public IntHashSet getChangedGeometries() {
+            return changedGeometries;
+        }
+    }
+
+    private void updateFlags(EdgeIteratorState edge, IntsRef edgeFlags, List<IntEncodedValue> keptEncodedValues) {
+        int[] fwd = new int[keptEncodedValues.size()];
+        int[] bwd = new int[keptEncodedValues.size()];
+        for (int i = 0; i < keptEncodedValues.size(); i++) {
+            fwd[i] = edge.get(keptEncodedValues.get(i));
+            if (keptEncodedValues.get(i).isStoreTwoDirections())
+                bwd[i] = edge.getReverse(keptEncodedValues.get(i));
+        }
+        edge.setFlags(edgeFlags);
+        for (int i = 0; i < keptEncodedValues.size(); i++) {
+            if (keptEncodedValues.get(i).isStoreTwoDirections())
+                edge.set(keptEncodedValues.get(i), fwd[i], bwd[i]);
+            else
+                edge.set(keptEncodedValues.get(i), fwd[i]);
+        }
+    }
+
+    /**
+     * Barrier edges are artificial edges between a barrier node and its copy, see {@link WaySegmentParser}
+     */
+    private boolean isBarrierEdge(PointList pointList) {
+        return pointList.size() == 2 && pointList.getLat(0) == pointList.getLat(1) && pointList.getLon(0) == pointList.getLon(1);
+    }
+
     protected double getElevation(ReaderNode node) {
+        long start = elevationCounter == null ? 0 : System.nanoTime();
         double ele = eleProvider.getEle(node);
+        if (elevationCounter != null)
+            elevationCounter.add(System.nanoTime() - start);
+        return Double.isNaN(ele) ? config.getDefaultElevation() : ele;
+    }
+
+    /**
+     * Used instead of {@link #getElevation(ReaderNode)} if graph.elevation.threads is set. Must be thread-safe.
+     */
+    protected double getElevation(double lat, double lon) {
+        long start = elevationCounter == null ? 0 : System.nanoTime();
+        double ele = eleProvider.getEle(lat, lon);
+        if (elevationCounter != null)
+            elevationCounter.add(System.nanoTime() - start);
         return Double.isNaN(ele) ? config.getDefaultElevation() : ele;
     }
 
@@ -232,7 +740,8 @@ public class OSMReader {
 
     /**
      * This method is called during the second pass of {@link WaySegmentParser} and provides an entry point to enrich
-     * the given OSM way with additional tags before it is passed on to the tag parsers.
+     * the given OSM way with additional tags before it is passed on to the tag parsers. With more than one tag parsing
+     * thread it is called by these threads, see {@link OSMReaderConfig#setTagParsingThreads(int)}.
      */
     protected void setArtificialWayTags(PointList pointList, ReaderWay way, double distance, List<Map<String, Object>> nodeTags) {
         way.setTag("node_tags", nodeTags);
@@ -306,6 +815,11 @@ public class OSMReader {
         way.setTag("custom_areas", customAreas);
     }
 
+    private void addSegmentNode(long osmNodeId, double lat, double lon, int towerNode, ReaderWay way) {
+        if (wayIndex != null)
+            wayIndex.addNode(osmNodeId, lat, lon, towerNode, way.getId());
+    }
+
     /**
      * This method is called for each segment an OSM way is split into during the second pass of {@link WaySegmentParser}.
      *
@@ -323,7 +837,28 @@ public class OSMReader {
             throw new AssertionError("Dimension does not match for pointList vs. nodeAccess " + pointList.getDimension() + " <-> " + nodeAccess.getDimension());
         if (pointList.size() != nodeTags.size())
             throw new AssertionError("there should be as many maps of node tags as there are points. node tags: " + nodeTags.size() + ", points: " + pointList.size());
+        // all edges of a way are added one after the other
+        if (wayIndex != null && way.getId() != lastIndexedWayId) {
+            wayIndex.addWay(way.getId(), way.getNodes());
+            lastIndexedWayId = way.getId();
+        }
+
+        pointList = processPointList(pointList);
+        double distance = calcEdgeDistance(pointList, way.getId());
+
+        if (tagParsingExecutor != null) {
+            addEdgeWithParallelTagParsing(fromIndex, toIndex, pointList, distance, way, nodeTags);
+            return;
+        }
 
+        setArtificialWayTags(pointList, way, distance, nodeTags);
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
+        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+        finishEdge(edge, fromIndex, toIndex, pointList, way.getId(), way.getTag("key_values", Collections.emptyMap()));
+    }
+
+    private PointList processPointList(PointList pointList) {
         // todo: in principle it should be possible to delay elevation calculation so we do not need to store
         // elevations during import (saves memory in pillar info during import). also note that we already need to
         // to do some kind of elevation processing (bridge+tunnel interpolation in GraphHopper class, maybe this can
@@ -345,7 +880,10 @@ public class OSMReader {
 
         if (config.getMaxWayPointDistance() > 0 && pointList.size() > 2)
             simplifyAlgo.simplify(pointList);
+        return pointList;
+    }
 
+    private double calcEdgeDistance(PointList pointList, long osmWayId) {
         double distance = distCalc.calcDistance(pointList);
 
         if (distance < 0.001) {
@@ -357,7 +895,7 @@ public class OSMReader {
 
         double maxDistance = (Integer.MAX_VALUE - 1) / 1000d;
         if (Double.isNaN(distance)) {
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + osmWayId);
             distance = 1;
         }
 
@@ -365,18 +903,58 @@ public class OSMReader {
             // Too large is very rare and often the wrong tagging. See #435
             // so we can avoid the complexity of splitting the way for now (new towernodes would be required, splitting up geometry etc)
             // For example this happens here: https://www.openstreetmap.org/way/672506453 (Cape Town - Tristan da Cunha ferry)
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Too big tower node distance " + distance + " reset to large value, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Too big tower node distance " + distance + " reset to large value, osm way " + osmWayId);
             distance = maxDistance;
         }
 
         if (bugCounter > 30)
             throw new IllegalStateException("Too many bugs in OSM or GraphHopper encountered " + bugCounter);
+        return distance;
+    }
 
-        setArtificialWayTags(pointList, way, distance, nodeTags);
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
-        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
-        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
-        Map<String, KValue> map = way.getTag("key_values", Collections.emptyMap());
+    /**
+     * The tags of the edge are parsed by the tag parsing executor, but the edge is added to the graph later in the same
+     * order as the edges are passed to this method. Therefore, we already know the edge ID and can pass it to the
+     * tag parsers.
+     */
+    private void addEdgeWithParallelTagParsing(int fromIndex, int toIndex, PointList pointList, double distance,
+                                               ReaderWay way, List<Map<String, Object>> nodeTags) {
+        // the way is modified for the following segments of the same way, so the tag parsers need their own copy
+        ReaderWay wayCopy = new ReaderWay(way.getId());
+        wayCopy.getNodes().addAll(way.getNodes());
+        wayCopy.setTags(way.getTags());
+        IntsRef relationFlags = new IntsRef(2);
+        System.arraycopy(getRelFlagsMap(way.getId()).ints, 0, relationFlags.ints, 0, 2);
+        int edgeId = baseGraph.getEdges() + parsedEdges.size();
+        parsedEdges.add(tagParsingExecutor.submit(() -> {
+            setArtificialWayTags(pointList, wayCopy, distance, nodeTags);
+            IntsRef edgeFlags = baseGraph.createEdgeFlags();
+            osmParsers.handleWayTags(edgeId, new IntsRefEdgeIntAccess(edgeFlags), wayCopy, relationFlags);
+            return new ParsedEdge(fromIndex, toIndex, pointList, distance, wayCopy.getId(), edgeFlags,
+                    wayCopy.getTag("key_values", Collections.emptyMap()));
+        }));
+        // limit the memory used by the queued edges
+        addParsedEdges(1000 * config.getTagParsingThreads());
+    }
+
+    private void addParsedEdges(int maxQueuedEdges) {
+        while (parsedEdges.size() > maxQueuedEdges) {
+            ParsedEdge parsedEdge;
+            try {
+                parsedEdge = parsedEdges.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Could not parse tags of OSM way", e.getCause());
+            }
+            EdgeIteratorState edge = baseGraph.edge(parsedEdge.from, parsedEdge.to).setDistance(parsedEdge.distance);
+            edge.setFlags(parsedEdge.edgeFlags);
+            finishEdge(edge, parsedEdge.from, parsedEdge.to, parsedEdge.pointList, parsedEdge.osmWayId, parsedEdge.keyValues);
+        }
+    }
+
+    private void finishEdge(EdgeIteratorState edge, int fromIndex, int toIndex, PointList pointList, long osmWayId, Map<String, KValue> map) {
         if (!map.isEmpty())
             edge.setKeyValues(map);
 
@@ -390,7 +968,26 @@ public class OSMReader {
         }
 
         checkDistance(edge);
-        restrictedWaysToEdgesMap.putIfReserved(way.getId(), edge.getEdge());
+        restrictedWaysToEdgesMap.putIfReserved(osmWayId, edge.getEdge());
+    }
+
+    private static class ParsedEdge {
+        final int from, to;
+        final PointList pointList;
+        final double distance;
+        final long osmWayId;
+        final IntsRef edgeFlags;
+        final Map<String, KValue> keyValues;
+
+        ParsedEdge(int from, int to, PointList pointList, double distance, long osmWayId, IntsRef edgeFlags, Map<String, KValue> keyValues) {
+            this.from = from;
+            this.to = to;
+            this.pointList = pointList;
+            this.distance = distance;
+            this.osmWayId = osmWayId;
+            this.edgeFlags = edgeFlags;
+            this.keyValues = keyValues;
+        }
     }
 
     private void checkCoordinates(int nodeIndex, GHPoint point) {
@@ -420,6 +1017,10 @@ public class OSMReader {
      */
     protected void preprocessWay(ReaderWay way, WaySegmentParser.CoordinateSupplier coordinateSupplier,
                                  WaySegmentParser.NodeTagSupplier nodeTagSupplier) {
+        preprocessWay(way, nodeTagSupplier, () -> calcDistance(way, coordinateSupplier));
+    }
+
+    private void preprocessWay(ReaderWay way, WaySegmentParser.NodeTagSupplier nodeTagSupplier, DoubleSupplier wayDistance) {
         Map<String, KValue> map = new LinkedHashMap<>();
         if (config.isParseWayNames()) {
             // http://wiki.openstreetmap.org/wiki/Key:name
@@ -489,7 +1090,7 @@ public class OSMReader {
         if (!isCalculateWayDistance(way))
             return;
 
-        double distance = calcDistance(way, coordinateSupplier);
+        double distance = wayDistance.getAsDouble();
         if (Double.isNaN(distance)) {
             // Some nodes were missing, and we cannot determine the distance. This can happen when ways are only
             // included partially in an OSM extract. In this case we cannot calculate the speed either, so we return.
@@ -580,6 +1181,19 @@ public class OSMReader {
 
         Arrays.stream(OSMRestrictionConverter.getRestrictedWayIds(relation))
                 .forEach(restrictedWaysToEdgesMap::reserve);
+        if (wayIndex != null && isRelevantRelation(relation))
+            wayIndex.addRelation(relation.getId());
+    }
+
+    /**
+     * @return true if the relation is used for the relation flags or the turn restrictions, i.e. the graph would need
+     * to be changed if the relation changes
+     */
+    private boolean isRelevantRelation(ReaderRelation relation) {
+        if (!relation.isMetaRelation() && relation.hasTag("type", "route")
+                && !osmParsers.handleRelationTags(relation, osmParsers.createRelationFlags()).isEmpty())
+            return true;
+        return turnCostStorage != null && OSMRestrictionConverter.isTurnRestriction(relation);
     }
 
     /**
@@ -650,8 +1264,9 @@ public class OSMReader {
             }
         }
         restrictionSetter.setRestrictions(restrictions, encBits);
+        importMetrics.getCounter("osm_reader.restrictions").add(sw.stop().getNanos(), restrictions.size());
         LOGGER.info("Finished adding turn restrictions. total turn cost entries: {}, took: {}",
-                Helper.nf(baseGraph.getTurnCostStorage().getTurnCostsCount()), sw.stop().getTimeString());
+                Helper.nf(baseGraph.getTurnCostStorage().getTurnCostsCount()), sw.getTimeString());
     }
 
     private static void warnOfRestriction(ReaderRelation restrictionRelation, OSMRestrictionException e) {
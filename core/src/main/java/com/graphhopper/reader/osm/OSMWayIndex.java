@@ -0,0 +1,563 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * Stores the edges of every OSM way, so that OSM change files can be applied without iterating over all edges, see
+ * {@link OSMReader#applyChanges}. Additionally, it stores a hash of the node IDs of every way, the IDs of the relations
+ * that were used for the relation flags or the turn restrictions and the coordinates and graph nodes of the OSM nodes,
+ * so that the geometry of changed ways can be created again. The hashes, relations and nodes are collected during the
+ * import, but they are only stored by {@link #build}, because the node and edge IDs change when the graph is sorted
+ * after the import.
+ * <p>
+ * The ways and nodes that are changed later are kept separately, see {@link #storeChanges()}, so applying a change
+ * file does not rewrite the index of the whole import.
+ */
+public class OSMWayIndex {
+    // every way is stored as OSM way ID, hash of the node IDs and the position of its first edge
+    private static final int WAY_BYTES = 12;
+    // every node is stored as OSM node ID, latitude, longitude and reference, see Node
+    private static final int NODE_BYTES = 20;
+    private final Directory dir;
+    private final Sections imported;
+    private final Sections updated;
+    // the nodes of the imported ways in the order they were added, only used during the import
+    private DataAccess importedNodes;
+    private long importedNodeCount;
+    private final LongArrayList importedWays = new LongArrayList();
+    private final LongArrayList importedRelations = new LongArrayList();
+    // the changes that were not stored yet
+    private final LongObjectHashMap<IntArrayList> changedEdges = new LongObjectHashMap<>();
+    private final LongIntHashMap changedHashes = new LongIntHashMap();
+    private final LongObjectHashMap<Node> changedNodes = new LongObjectHashMap<>();
+
+    public OSMWayIndex(Directory dir) {
+        this.dir = dir;
+        imported = new Sections(dir.create("osm_way_index"));
+        updated = new Sections(dir.create("osm_way_index_updates"));
+    }
+
+    static int hashNodes(LongArrayList nodes) {
+        // this hash is stored, so it must not depend on the implementation of LongArrayList.hashCode
+        long hash = nodes.size();
+        for (int i = 0; i < nodes.size(); i++)
+            hash = 31 * hash + nodes.get(i);
+        return Long.hashCode(hash);
+    }
+
+    void addWay(long osmWayId, LongArrayList nodes) {
+        if (osmWayId > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cannot store OSM way ID: " + osmWayId + " as it is too large");
+        importedWays.add((osmWayId << 32) | (hashNodes(nodes) & 0xFFFFFFFFL));
+    }
+
+    void addRelation(long osmRelationId) {
+        importedRelations.add(osmRelationId);
+    }
+
+    /**
+     * Adds a node of an imported way. Tower nodes are added once for every edge they are part of, so the duplicates
+     * are removed by {@link #build}.
+     *
+     * @param towerNode the graph node or -1 if the node is a pillar node of the given way
+     */
+    void addNode(long osmNodeId, double lat, double lon, int towerNode, long osmWayId) {
+        // artificial nodes (like the ones created for barriers) cannot be referenced by changed ways
+        if (osmNodeId <= 0)
+            return;
+        if (importedNodes == null) {
+            importedNodes = dir.create("tmp_osm_way_index_nodes");
+            importedNodes.create(1 << 20);
+        }
+        long pointer = importedNodeCount * NODE_BYTES;
+        importedNodes.ensureCapacity(pointer + NODE_BYTES);
+        setNode(importedNodes, pointer, osmNodeId, Helper.degreeToInt(lat), Helper.degreeToInt(lon), toRef(towerNode, osmWayId));
+        importedNodeCount++;
+    }
+
+    private static int toRef(int towerNode, long osmWayId) {
+        if (towerNode >= 0)
+            return towerNode;
+        if (osmWayId > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cannot store OSM way ID: " + osmWayId + " as it is too large");
+        return (int) -osmWayId;
+    }
+
+    /**
+     * Stores the edges of the OSM ways and the nodes that were added during the import. This needs to be called once
+     * the edge IDs are final and temporarily requires 8 bytes per edge and 8 bytes per added node.
+     *
+     * @param newNodesByOldNodes the new node IDs if the graph was sorted after the nodes were added, or null
+     */
+    public void build(BaseGraph graph, IntEncodedValue osmWayIdEnc, IntArrayList newNodesByOldNodes) {
+        long[] edgesByWay = new long[graph.getEdges()];
+        int edges = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int osmWayId = iter.get(osmWayIdEnc);
+            if (osmWayId > 0)
+                edgesByWay[edges++] = ((long) osmWayId << 32) | iter.getEdge();
+        }
+        Arrays.sort(edgesByWay, 0, edges);
+        long[] hashesByWay = importedWays.toArray();
+        Arrays.sort(hashesByWay);
+        long[] relations = Arrays.stream(importedRelations.toArray()).sorted().distinct().toArray();
+        if (importedNodeCount > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many nodes for the OSM way index: " + importedNodeCount);
+        int[] nodeOrder = importedNodeCount == 0 ? new int[0] : IndirectSort.mergesort(0, (int) importedNodeCount,
+                (nodeA, nodeB) -> Long.compare(getOsmNodeId(nodeA), getOsmNodeId(nodeB)));
+
+        int ways = 0;
+        for (int i = 0; i < edges; i++)
+            if (i == 0 || edgesByWay[i] >>> 32 != edgesByWay[i - 1] >>> 32)
+                ways++;
+        int nodes = 0;
+        for (int i = 0; i < nodeOrder.length; i++)
+            if (i == 0 || getOsmNodeId(nodeOrder[i]) != getOsmNodeId(nodeOrder[i - 1]))
+                nodes++;
+        imported.create(ways, edges, relations.length, nodes);
+
+        int way = -1;
+        int hashIndex = 0;
+        for (int i = 0; i < edges; i++) {
+            int osmWayId = (int) (edgesByWay[i] >>> 32);
+            if (i == 0 || osmWayId != (int) (edgesByWay[i - 1] >>> 32)) {
+                way++;
+                while (hashIndex < hashesByWay.length && hashesByWay[hashIndex] >>> 32 < osmWayId)
+                    hashIndex++;
+                // a way without a hash cannot happen, but it would just make every modification of the way fail
+                int hash = hashIndex < hashesByWay.length && hashesByWay[hashIndex] >>> 32 == osmWayId ? (int) hashesByWay[hashIndex] : 0;
+                imported.setWay(way, osmWayId, hash, i);
+            }
+            imported.setEdge(i, (int) edgesByWay[i]);
+        }
+        for (int i = 0; i < relations.length; i++)
+            imported.setRelation(i, relations[i]);
+        int node = -1;
+        for (int i = 0; i < nodeOrder.length; i++) {
+            long pointer = (long) nodeOrder[i] * NODE_BYTES;
+            int ref = importedNodes.getInt(pointer + 16);
+            if (ref >= 0 && newNodesByOldNodes != null)
+                ref = newNodesByOldNodes.get(ref);
+            if (i == 0 || getOsmNodeId(nodeOrder[i]) != getOsmNodeId(nodeOrder[i - 1]))
+                node++;
+            // a pillar node that became a tower node at the end of a later segment is stored as tower node
+            else if (ref < 0)
+                continue;
+            setNode(imported.da, imported.getNodePointer(node), getOsmNodeId(nodeOrder[i]),
+                    importedNodes.getInt(pointer + 8), importedNodes.getInt(pointer + 12), ref);
+        }
+        importedWays.release();
+        importedRelations.release();
+        if (importedNodes != null) {
+            dir.remove(importedNodes.getName());
+            importedNodes = null;
+        }
+    }
+
+    private long getOsmNodeId(int importedNode) {
+        return getLong(importedNodes, (long) importedNode * NODE_BYTES);
+    }
+
+    private static long getLong(DataAccess da, long pointer) {
+        return ((long) da.getInt(pointer + 4) << 32) | (da.getInt(pointer) & 0xFFFFFFFFL);
+    }
+
+    private static void setNode(DataAccess da, long pointer, long osmNodeId, int lat, int lon, int ref) {
+        da.setInt(pointer, (int) osmNodeId);
+        da.setInt(pointer + 4, (int) (osmNodeId >>> 32));
+        da.setInt(pointer + 8, lat);
+        da.setInt(pointer + 12, lon);
+        da.setInt(pointer + 16, ref);
+    }
+
+    /**
+     * @return true if the specified OSM way has edges in the graph
+     */
+    public boolean containsWay(long osmWayId) {
+        return changedEdges.containsKey(osmWayId) || updated.findWay(osmWayId) >= 0 || imported.findWay(osmWayId) >= 0;
+    }
+
+    /**
+     * @return the hash of the node IDs that the way had when its edges were created, see {@link #containsWay}
+     */
+    public int getNodesHash(long osmWayId) {
+        if (changedHashes.containsKey(osmWayId))
+            return changedHashes.get(osmWayId);
+        int way = updated.findWay(osmWayId);
+        if (way >= 0)
+            return updated.getNodesHash(way);
+        way = imported.findWay(osmWayId);
+        if (way < 0)
+            throw new IllegalArgumentException("Unknown OSM way: " + osmWayId);
+        return imported.getNodesHash(way);
+    }
+
+    public IntArrayList getEdges(long osmWayId) {
+        if (changedEdges.containsKey(osmWayId))
+            return new IntArrayList(changedEdges.get(osmWayId));
+        int way = updated.findWay(osmWayId);
+        if (way >= 0)
+            return updated.getEdges(way);
+        way = imported.findWay(osmWayId);
+        if (way < 0)
+            throw new IllegalArgumentException("Unknown OSM way: " + osmWayId);
+        return imported.getEdges(way);
+    }
+
+    /**
+     * @return true if the specified OSM relation was used for the relation flags or the turn restrictions
+     */
+    public boolean containsRelation(long osmRelationId) {
+        return imported.containsRelation(osmRelationId);
+    }
+
+    /**
+     * @return the node with the specified OSM node ID or null if it is not part of a way with edges
+     */
+    public Node getNode(long osmNodeId) {
+        Node node = changedNodes.get(osmNodeId);
+        if (node != null)
+            return node;
+        int index = updated.findNode(osmNodeId);
+        if (index >= 0)
+            return updated.getNode(index);
+        index = imported.findNode(osmNodeId);
+        return index >= 0 ? imported.getNode(index) : null;
+    }
+
+    /**
+     * Replaces the edges of the specified OSM way. The change is only stored by {@link #storeChanges()}.
+     */
+    public void putWay(long osmWayId, int nodesHash, IntArrayList edges) {
+        if (osmWayId <= 0 || osmWayId > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cannot store OSM way ID: " + osmWayId);
+        changedEdges.put(osmWayId, new IntArrayList(edges));
+        changedHashes.put(osmWayId, nodesHash);
+    }
+
+    /**
+     * Sets the coordinates and the graph node of the specified OSM node. The change is only stored by
+     * {@link #storeChanges()}.
+     */
+    public void putTowerNode(long osmNodeId, double lat, double lon, int towerNode) {
+        if (towerNode < 0)
+            throw new IllegalArgumentException("Invalid tower node: " + towerNode);
+        putNode(osmNodeId, lat, lon, towerNode, -1);
+    }
+
+    /**
+     * Sets the coordinates of the specified OSM node, which is an inner node of the given OSM way. The change is only
+     * stored by {@link #storeChanges()}.
+     */
+    public void putPillarNode(long osmNodeId, double lat, double lon, long osmWayId) {
+        putNode(osmNodeId, lat, lon, -1, osmWayId);
+    }
+
+    private void putNode(long osmNodeId, double lat, double lon, int towerNode, long osmWayId) {
+        if (osmNodeId <= 0)
+            throw new IllegalArgumentException("Cannot store OSM node ID: " + osmNodeId);
+        changedNodes.put(osmNodeId, new Node(Helper.degreeToInt(lat), Helper.degreeToInt(lon), toRef(towerNode, osmWayId)));
+    }
+
+    /**
+     * Stores the ways and nodes that were changed by {@link #putWay}, {@link #putTowerNode} and {@link #putPillarNode}. Only the changes since the
+     * import are written again, the index of the imported ways and nodes is not modified.
+     */
+    public void storeChanges() {
+        if (changedEdges.isEmpty() && changedNodes.isEmpty())
+            return;
+        // we merge the previous and the new changes and write them again, the new changes take precedence
+        LongObjectHashMap<IntArrayList> edgesByWay = new LongObjectHashMap<>();
+        LongIntHashMap hashesByWay = new LongIntHashMap();
+        for (int way = 0; way < updated.wayCount; way++) {
+            long osmWayId = updated.getWayId(way);
+            edgesByWay.put(osmWayId, updated.getEdges(way));
+            hashesByWay.put(osmWayId, updated.getNodesHash(way));
+        }
+        edgesByWay.putAll(changedEdges);
+        hashesByWay.putAll(changedHashes);
+        LongObjectHashMap<Node> nodesById = new LongObjectHashMap<>();
+        for (int node = 0; node < updated.nodeCount; node++)
+            nodesById.put(updated.getNodeId(node), updated.getNode(node));
+        nodesById.putAll(changedNodes);
+
+        long[] wayIds = edgesByWay.keys().toArray();
+        Arrays.sort(wayIds);
+        long[] nodeIds = nodesById.keys().toArray();
+        Arrays.sort(nodeIds);
+        int edges = 0;
+        for (ObjectCursor<IntArrayList> cursor : edgesByWay.values())
+            edges += cursor.value.size();
+        updated.create(wayIds.length, edges, 0, nodeIds.length);
+        int edge = 0;
+        for (int way = 0; way < wayIds.length; way++) {
+            updated.setWay(way, (int) wayIds[way], hashesByWay.get(wayIds[way]), edge);
+            for (IntCursor cursor : edgesByWay.get(wayIds[way]))
+                updated.setEdge(edge++, cursor.value);
+        }
+        for (int node = 0; node < nodeIds.length; node++) {
+            Node n = nodesById.get(nodeIds[node]);
+            setNode(updated.da, updated.getNodePointer(node), nodeIds[node], n.lat, n.lon, n.ref);
+        }
+        changedEdges.clear();
+        changedHashes.clear();
+        changedNodes.clear();
+    }
+
+    public boolean loadExisting() {
+        if (!imported.loadExisting())
+            return false;
+        // the updates do not exist before the first changes were stored
+        updated.loadExisting();
+        return true;
+    }
+
+    public void flush() {
+        imported.flush();
+        updated.flush();
+    }
+
+    public void close() {
+        imported.close();
+        updated.close();
+    }
+
+    /**
+     * An OSM node of a way with edges. It is either a tower node of the graph or a pillar node of a single OSM way.
+     */
+    public static class Node {
+        private final int lat;
+        private final int lon;
+        // the graph node for tower nodes and the negated OSM way ID for pillar nodes
+        private final int ref;
+
+        Node(int lat, int lon, int ref) {
+            this.lat = lat;
+            this.lon = lon;
+            this.ref = ref;
+        }
+
+        public double getLat() {
+            return Helper.intToDegree(lat);
+        }
+
+        public double getLon() {
+            return Helper.intToDegree(lon);
+        }
+
+        /**
+         * @return true if the given coordinates are equal to the stored ones, which have a precision of 1e-7 degrees
+         */
+        public boolean isAt(double lat, double lon) {
+            return Helper.degreeToInt(lat) == this.lat && Helper.degreeToInt(lon) == this.lon;
+        }
+
+        public boolean isTowerNode() {
+            return ref >= 0;
+        }
+
+        public int getTowerNode() {
+            if (ref < 0)
+                throw new IllegalStateException("Not a tower node");
+            return ref;
+        }
+
+        /**
+         * @return the OSM way that this pillar node belongs to
+         */
+        public long getPillarWayId() {
+            if (ref >= 0)
+                throw new IllegalStateException("Not a pillar node");
+            return -(long) ref;
+        }
+    }
+
+    /**
+     * The ways, edges, relations and nodes sorted by their OSM IDs and stored one after another.
+     */
+    private static class Sections {
+        private final DataAccess da;
+        private boolean exists;
+        private int wayCount;
+        private int edgeCount;
+        private int relationCount;
+        private int nodeCount;
+
+        Sections(DataAccess da) {
+            this.da = da;
+        }
+
+        void create(int wayCount, int edgeCount, int relationCount, int nodeCount) {
+            this.wayCount = wayCount;
+            this.edgeCount = edgeCount;
+            this.relationCount = relationCount;
+            this.nodeCount = nodeCount;
+            long bytes = Math.max(getNodePointer(nodeCount), 4);
+            if (exists) {
+                da.ensureCapacity(bytes);
+            } else {
+                da.create(bytes);
+                exists = true;
+            }
+        }
+
+        void setWay(int way, int osmWayId, int hash, int firstEdge) {
+            long pointer = (long) way * WAY_BYTES;
+            da.setInt(pointer, osmWayId);
+            da.setInt(pointer + 4, hash);
+            da.setInt(pointer + 8, firstEdge);
+        }
+
+        void setEdge(int index, int edge) {
+            da.setInt(getEdgePointer(index), edge);
+        }
+
+        void setRelation(int index, long osmRelationId) {
+            long pointer = getRelationPointer(index);
+            da.setInt(pointer, (int) osmRelationId);
+            da.setInt(pointer + 4, (int) (osmRelationId >>> 32));
+        }
+
+        int findWay(long osmWayId) {
+            if (osmWayId <= 0 || osmWayId > Integer.MAX_VALUE)
+                return -1;
+            int low = 0, high = wayCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midWayId = getWayId(mid);
+                if (midWayId < osmWayId)
+                    low = mid + 1;
+                else if (midWayId > osmWayId)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
+        }
+
+        int getWayId(int way) {
+            return da.getInt((long) way * WAY_BYTES);
+        }
+
+        int getNodesHash(int way) {
+            return da.getInt((long) way * WAY_BYTES + 4);
+        }
+
+        IntArrayList getEdges(int way) {
+            int from = da.getInt((long) way * WAY_BYTES + 8);
+            int to = way + 1 < wayCount ? da.getInt((long) (way + 1) * WAY_BYTES + 8) : edgeCount;
+            IntArrayList edges = new IntArrayList(to - from);
+            for (int i = from; i < to; i++)
+                edges.add(da.getInt(getEdgePointer(i)));
+            return edges;
+        }
+
+        boolean containsRelation(long osmRelationId) {
+            int low = 0, high = relationCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midRelationId = getLong(da, getRelationPointer(mid));
+                if (midRelationId < osmRelationId)
+                    low = mid + 1;
+                else if (midRelationId > osmRelationId)
+                    high = mid - 1;
+                else
+                    return true;
+            }
+            return false;
+        }
+
+        int findNode(long osmNodeId) {
+            int low = 0, high = nodeCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midNodeId = getNodeId(mid);
+                if (midNodeId < osmNodeId)
+                    low = mid + 1;
+                else if (midNodeId > osmNodeId)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
+        }
+
+        long getNodeId(int node) {
+            return getLong(da, getNodePointer(node));
+        }
+
+        Node getNode(int node) {
+            long pointer = getNodePointer(node);
+            return new Node(da.getInt(pointer + 8), da.getInt(pointer + 12), da.getInt(pointer + 16));
+        }
+
+        private long getEdgePointer(int index) {
+            return (long) wayCount * WAY_BYTES + 4L * index;
+        }
+
+        private long getRelationPointer(int index) {
+            return (long) wayCount * WAY_BYTES + 4L * edgeCount + 8L * index;
+        }
+
+        long getNodePointer(int index) {
+            return (long) wayCount * WAY_BYTES + 4L * edgeCount + 8L * relationCount + (long) NODE_BYTES * index;
+        }
+
+        boolean loadExisting() {
+            if (!da.loadExisting())
+                return false;
+            exists = true;
+            wayCount = da.getHeader(0);
+            edgeCount = da.getHeader(4);
+            relationCount = da.getHeader(8);
+            nodeCount = da.getHeader(12);
+            return true;
+        }
+
+        void flush() {
+            if (!exists)
+                return;
+            da.setHeader(0, wayCount);
+            da.setHeader(4, edgeCount);
+            da.setHeader(8, relationCount);
+            da.setHeader(12, nodeCount);
+            da.flush();
+        }
+
+        void close() {
+            da.close();
+        }
+    }
+}
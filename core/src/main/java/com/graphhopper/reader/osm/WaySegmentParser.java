@@ -19,12 +19,16 @@
 package com.graphhopper.reader.osm;
 
 import com.carrotsearch.hppc.cursors.LongCursor;
+import com.graphhopper.coll.LongLongMap;
+import com.graphhopper.coll.SortedLongLongMap;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.dem.BatchElevationLookup;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.ImportMetrics;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.StopWatch;
@@ -52,6 +56,10 @@ import static com.graphhopper.util.Helper.nf;
  * ways are intersecting. During the second pass we split the OSM ways at intersections, introduce the artificial
  * segments and pass the way information along with the corresponding nodes to a given callback.
  * <p>
+ * Alternatively, the OSM file can be read only once (see {@link Builder#setSinglePass}). In this case the coordinates
+ * of all OSM nodes are stored in a {@link NodeCoordinateCache} and the accepted ways and all relations are stored in an
+ * {@link OSMElementBuffer} while reading the file. Afterwards we replay the stored elements like in the second pass.
+ * <p>
  * We assume a strict order of the OSM file: nodes, ways, then relations.
  * <p>
  * The main difficulty is that the OSM ID range is very large (64bit integers) and to be able to provide the full
@@ -63,6 +71,7 @@ public class WaySegmentParser {
     private static final Set<String> INCLUDE_IF_NODE_TAGS = new HashSet<>(Arrays.asList("barrier", "highway", "railway", "crossing", "ford"));
 
     private ToDoubleFunction<ReaderNode> elevationProvider = node -> 0d;
+    private BatchElevationLookup batchElevationLookup;
     private Predicate<ReaderWay> wayFilter = way -> true;
     private Predicate<ReaderNode> splitNodeFilter = node -> false;
     private WayPreprocessor wayPreprocessor = (way, coordinateSupplier, nodeTagSupplier) -> {
@@ -73,13 +82,20 @@ public class WaySegmentParser {
     };
     private EdgeHandler edgeHandler = (from, to, pointList, way, nodeTags) ->
             System.out.println("edge " + from + "->" + to + " (" + pointList.size() + " points)");
+    private SegmentNodeHandler segmentNodeHandler = (osmNodeId, lat, lon, towerNode, way) -> {
+    };
     private int workerThreads = 2;
+    private boolean singlePass = false;
+    private boolean memoryMappedPbf = false;
+    private ImportMetrics importMetrics = ImportMetrics.NOOP;
 
     private final OSMNodeData nodeData;
+    private final Directory directory;
     private Date timestamp;
 
-    private WaySegmentParser(OSMNodeData nodeData) {
+    private WaySegmentParser(OSMNodeData nodeData, Directory directory) {
         this.nodeData = nodeData;
+        this.directory = directory;
     }
 
     /**
@@ -90,10 +106,15 @@ public class WaySegmentParser {
             throw new IllegalStateException("You can only run way segment parser once");
 
         LOGGER.info("Start reading OSM file: '" + osmFile + "'");
+        if (singlePass) {
+            readOSMSinglePass(osmFile);
+            return;
+        }
         LOGGER.info("pass1 - start");
         StopWatch sw1 = StopWatch.started();
         readOSM(osmFile, new Pass1Handler(), new SkipOptions(true, false, false));
         LOGGER.info("pass1 - finished, took: {}", sw1.stop().getTimeString());
+        importMetrics.getCounter("way_segment_parser.pass1").add(sw1.getNanos());
 
         long nodes = nodeData.getNodeCount();
 
@@ -103,6 +124,7 @@ public class WaySegmentParser {
         StopWatch sw2 = new StopWatch().start();
         readOSM(osmFile, new Pass2Handler(), SkipOptions.none());
         LOGGER.info("pass2 - finished, took: {}", sw2.stop().getTimeString());
+        importMetrics.getCounter("way_segment_parser.pass2").add(sw2.getNanos());
 
         nodeData.release();
 
@@ -112,6 +134,48 @@ public class WaySegmentParser {
                 " total: " + (int) (sw1.getSeconds() + sw2.getSeconds()) + "s");
     }
 
+    private void readOSMSinglePass(File osmFile) {
+        NodeCoordinateCache coordinates = new NodeCoordinateCache(directory);
+        OSMElementBuffer elements = new OSMElementBuffer(directory);
+        // this map stores the pointers of the buffered nodes, we only keep the nodes that have relevant tags
+        LongLongMap nodePointersByOsmNodeIds = new SortedLongLongMap(directory, "tmp_node_pointers", 8, -1);
+        try {
+            LOGGER.info("single pass - start");
+            StopWatch sw1 = StopWatch.started();
+            readOSM(osmFile, new SinglePassHandler(coordinates, elements, nodePointersByOsmNodeIds), SkipOptions.none());
+            LOGGER.info("single pass - finished, took: {}, nodes: {}, node coordinates capacity: {}, buffered elements: {}, " +
+                            "element buffer capacity: {}", sw1.stop().getTimeString(), nf(coordinates.getNodeCount()),
+                    nf(coordinates.getCapacity()), nf(elements.getElements()), nf(elements.getCapacity()));
+            importMetrics.getCounter("way_segment_parser.single_pass").add(sw1.getNanos());
+
+            LOGGER.info("Creating graph. Node count (pillar+tower): " + nodeData.getNodeCount() + ", " + Helper.getMemInfo());
+            StopWatch sw2 = StopWatch.started();
+            Pass2Handler pass2Handler = new Pass2Handler();
+            // we visit the nodes in the same order as they appear in the OSM file
+            coordinates.forEach((osmNodeId, lat, lon) -> {
+                if (nodeData.getId(osmNodeId) == EMPTY_NODE)
+                    return;
+                long pointer = nodePointersByOsmNodeIds.get(osmNodeId);
+                pass2Handler.handleNode(pointer < 0 ? new ReaderNode(osmNodeId, lat, lon) : (ReaderNode) elements.get(pointer));
+            });
+            elements.forEach(element -> {
+                if (element.getType() == ReaderElement.Type.WAY)
+                    pass2Handler.handleWay((ReaderWay) element);
+                else if (element.getType() == ReaderElement.Type.RELATION)
+                    pass2Handler.handleRelation((ReaderRelation) element);
+            });
+            pass2Handler.onFinish();
+            LOGGER.info("Finished reading OSM file. single pass: " + (int) sw1.getSeconds() + "s, " +
+                    " splitting ways: " + (int) sw2.stop().getSeconds() + "s");
+            importMetrics.getCounter("way_segment_parser.split_ways").add(sw2.getNanos());
+        } finally {
+            coordinates.clear();
+            elements.clear();
+            nodePointersByOsmNodeIds.clear();
+            nodeData.release();
+        }
+    }
+
     /**
      * @return the timestamp read from the OSM file, or null if nothing was read yet
      */
@@ -142,6 +206,7 @@ public class WaySegmentParser {
             if (!wayFilter.test(way))
                 return;
             acceptedWays++;
+            handleAcceptedWay(way);
 
             for (LongCursor node : way.getNodes()) {
                 final boolean isEnd = node.index == 0 || node.index == way.getNodes().size() - 1;
@@ -153,6 +218,9 @@ public class WaySegmentParser {
             }
         }
 
+        void handleAcceptedWay(ReaderWay way) {
+        }
+
         @Override
         public void handleRelation(ReaderRelation relation) {
             if (!handledRelations) {
@@ -173,12 +241,51 @@ public class WaySegmentParser {
 
         @Override
         public void onFinish() {
+            // the node ids of the ways are not sorted, so we sort the node types once all ways are read
+            nodeData.optimize();
             LOGGER.info("pass1 - finished, processed ways: " + nf(wayCounter) + ", accepted ways: " +
                     nf(acceptedWays) + ", way nodes: " + nf(nodeData.getNodeCount()) + ", relations: " +
                     nf(relationsCounter) + ", " + Helper.getMemInfo());
         }
     }
 
+    private class SinglePassHandler extends Pass1Handler {
+        private final NodeCoordinateCache coordinates;
+        private final OSMElementBuffer elements;
+        private final LongLongMap nodePointersByOsmNodeIds;
+        private long nodeCounter = 0;
+
+        SinglePassHandler(NodeCoordinateCache coordinates, OSMElementBuffer elements, LongLongMap nodePointersByOsmNodeIds) {
+            this.coordinates = coordinates;
+            this.elements = elements;
+            this.nodePointersByOsmNodeIds = nodePointersByOsmNodeIds;
+        }
+
+        @Override
+        public void handleNode(ReaderNode node) {
+            if (++nodeCounter % 10_000_000 == 0)
+                LOGGER.info("single pass - processed nodes: " + nf(nodeCounter) + ", buffered nodes: " +
+                        nf(nodePointersByOsmNodeIds.getSize()) + ", " + Helper.getMemInfo());
+
+            coordinates.addNode(node.getId(), node.getLat(), node.getLon());
+            // we do not know yet which nodes belong to the accepted ways, so we keep all nodes that might be split
+            // or whose tags might be needed
+            if (splitNodeFilter.test(node) || node.getTags().keySet().stream().anyMatch(INCLUDE_IF_NODE_TAGS::contains))
+                nodePointersByOsmNodeIds.put(node.getId(), elements.add(node));
+        }
+
+        @Override
+        void handleAcceptedWay(ReaderWay way) {
+            elements.add(way);
+        }
+
+        @Override
+        public void handleRelation(ReaderRelation relation) {
+            super.handleRelation(relation);
+            elements.add(relation);
+        }
+    }
+
     private class Pass2Handler implements ReaderElementHandler {
         private boolean handledNodes;
         private boolean handledWays;
@@ -187,6 +294,7 @@ public class WaySegmentParser {
         private long acceptedNodes = 0;
         private long ignoredSplitNodes = 0;
         private long wayCounter = 0;
+        private boolean elevationsSet;
 
         @Override
         public void handleNode(ReaderNode node) {
@@ -203,7 +311,10 @@ public class WaySegmentParser {
                 LOGGER.info("pass2 - processed nodes: " + nf(nodeCounter) + ", accepted nodes: " + nf(acceptedNodes) +
                         ", " + Helper.getMemInfo());
 
-            long nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), () -> elevationProvider.applyAsDouble(node));
+            // with the batch lookup the elevations are set after all nodes were read, see setElevations
+            long nodeType = batchElevationLookup == null
+                    ? nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), () -> elevationProvider.applyAsDouble(node))
+                    : nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), () -> 0);
             if (nodeType == EMPTY_NODE)
                 return;
 
@@ -237,6 +348,7 @@ public class WaySegmentParser {
             if (!handledWays) {
                 LOGGER.info("pass2 - start reading OSM ways");
                 handledWays = true;
+                setElevations();
             }
             if (handledRelations)
                 throw new IllegalStateException("OSM way elements must be located before relation elements in OSM file");
@@ -364,6 +476,10 @@ public class WaySegmentParser {
             }
             if (from < 0 || to < 0)
                 throw new IllegalStateException("The first and last nodes of a segment must be tower nodes, way: " + way.getId());
+            for (int i = 0; i < segment.size(); i++) {
+                int towerNode = i == 0 ? from : i == segment.size() - 1 ? to : -1;
+                segmentNodeHandler.handleSegmentNode(segment.get(i).osmNodeId, pointList.getLat(i), pointList.getLon(i), towerNode, way);
+            }
             edgeHandler.handleEdge(from, to, pointList, way, nodeTags);
         }
 
@@ -379,10 +495,21 @@ public class WaySegmentParser {
 
         @Override
         public void onFinish() {
+            setElevations();
             LOGGER.info("pass2 - finished, processed ways: {}, way nodes: {}, nodes with tags: {}, node tag capacity: {}, ignored barriers at junctions: {}",
                     nf(wayCounter), nf(acceptedNodes), nf(nodeData.getTaggedNodeCount()), nf(nodeData.getNodeTagCapacity()), nf(ignoredSplitNodes));
         }
 
+        private void setElevations() {
+            if (batchElevationLookup == null || elevationsSet)
+                return;
+            elevationsSet = true;
+            StopWatch sw = StopWatch.started();
+            nodeData.setElevations(batchElevationLookup);
+            LOGGER.info("pass2 - set elevations of {} nodes, took: {}", nf(nodeData.getNodeCount()), sw.stop().getTimeString());
+            importMetrics.getCounter("way_segment_parser.elevations").add(sw.getNanos());
+        }
+
         public int getInternalNodeIdOfOSMNode(long nodeOsmId) {
             long id = nodeData.getId(nodeOsmId);
             if (isTowerNode(id))
@@ -405,7 +532,8 @@ public class WaySegmentParser {
     }
 
     protected OSMInput openOsmInputFile(File osmFile, SkipOptions skipOptions) throws XMLStreamException, IOException {
-        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setSkipOptions(skipOptions).open();
+        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setMemoryMapped(memoryMappedPbf)
+                .setSkipOptions(skipOptions).setImportMetrics(importMetrics).open();
     }
 
     public static class Builder {
@@ -416,7 +544,7 @@ public class WaySegmentParser {
          * @param directory   the directory to be used to store temporary data
          */
         public Builder(PointAccess pointAccess, Directory directory) {
-            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory));
+            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory), directory);
         }
 
         /**
@@ -427,6 +555,15 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param batchElevationLookup if set, the elevations of all nodes are looked up at once after the nodes were
+         *                             read instead of calling the elevation provider for every node
+         */
+        public Builder setBatchElevationLookup(BatchElevationLookup batchElevationLookup) {
+            waySegmentParser.batchElevationLookup = batchElevationLookup;
+            return this;
+        }
+
         /**
          * @param wayFilter return true for OSM ways that should be considered and false otherwise
          */
@@ -475,6 +612,15 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param segmentNodeHandler callback function that is called for each node of an edge (way segment) before
+         *                           the edge itself is handled
+         */
+        public Builder setSegmentNodeHandler(SegmentNodeHandler segmentNodeHandler) {
+            waySegmentParser.segmentNodeHandler = segmentNodeHandler;
+            return this;
+        }
+
         /**
          * @param workerThreads the number of threads used for the low level reading of the OSM file
          */
@@ -483,6 +629,32 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param singlePass true if the OSM file should be read only once. This requires a sorted OSM file and
+         *                   temporary storage for the coordinates of all OSM nodes and the accepted ways
+         */
+        public Builder setSinglePass(boolean singlePass) {
+            waySegmentParser.singlePass = singlePass;
+            return this;
+        }
+
+        /**
+         * @param memoryMappedPbf true if a PBF file should be memory-mapped, such that the worker threads read the
+         *                        blobs in parallel instead of a single thread reading the file
+         */
+        public Builder setMemoryMappedPbf(boolean memoryMappedPbf) {
+            waySegmentParser.memoryMappedPbf = memoryMappedPbf;
+            return this;
+        }
+
+        /**
+         * @param importMetrics collects the time spent for reading the OSM file
+         */
+        public Builder setImportMetrics(ImportMetrics importMetrics) {
+            waySegmentParser.importMetrics = importMetrics;
+            return this;
+        }
+
         public WaySegmentParser build() {
             return waySegmentParser;
         }
@@ -528,6 +700,14 @@ public class WaySegmentParser {
         void handleEdge(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags);
     }
 
+    public interface SegmentNodeHandler {
+        /**
+         * @param osmNodeId the OSM node ID, which is negative for artificial nodes like the copies of barrier nodes
+         * @param towerNode the graph node for the first and last node of the segment and -1 for the pillar nodes
+         */
+        void handleSegmentNode(long osmNodeId, double lat, double lon, int towerNode, ReaderWay way);
+    }
+
     public interface RelationProcessor {
         void processRelation(ReaderRelation relation, LongToIntFunction getNodeIdForOSMNodeId);
     }
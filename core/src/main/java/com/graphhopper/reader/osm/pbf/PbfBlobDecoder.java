@@ -16,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
@@ -31,7 +32,7 @@ public class PbfBlobDecoder implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(PbfBlobDecoder.class);
     private final boolean checkData = false;
     private final String blobType;
-    private final byte[] rawBlob;
+    private final ByteBuffer rawBlob;
     private final PbfBlobDecoderListener listener;
     private List<ReaderElement> decodedEntities;
     private final SkipOptions skipOptions;
@@ -45,6 +46,14 @@ public class PbfBlobDecoder implements Runnable {
      * @param listener The listener for receiving decoding results.
      */
     public PbfBlobDecoder(String blobType, byte[] rawBlob, PbfBlobDecoderListener listener, SkipOptions skipOptions) {
+        this(blobType, ByteBuffer.wrap(rawBlob), listener, skipOptions);
+    }
+
+    /**
+     * Creates a new instance that reads the raw data of the blob from the given buffer, which can also be a view of a
+     * memory-mapped file.
+     */
+    public PbfBlobDecoder(String blobType, ByteBuffer rawBlob, PbfBlobDecoderListener listener, SkipOptions skipOptions) {
         this.blobType = blobType;
         this.rawBlob = rawBlob;
         this.listener = listener;
@@ -59,7 +68,7 @@ public class PbfBlobDecoder implements Runnable {
             blobData = blob.getRaw().toByteArray();
         } else if (blob.hasZlibData()) {
             Inflater inflater = new Inflater();
-            inflater.setInput(blob.getZlibData().toByteArray());
+            inflater.setInput(blob.getZlibData().asReadOnlyByteBuffer());
             blobData = new byte[blob.getRawSize()];
             try {
                 inflater.inflate(blobData);
@@ -3,6 +3,7 @@ package com.graphhopper.reader.osm.pbf;
 
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.osm.SkipOptions;
+import com.graphhopper.util.ImportMetrics;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -20,7 +21,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author Brett Henderson
  */
 public class PbfDecoder {
-    private final PbfStreamSplitter streamSplitter;
+    private final PbfBlobSplitter streamSplitter;
     private final ExecutorService executorService;
     private final int maxPendingBlobs;
     private final Sink sink;
@@ -28,17 +29,19 @@ public class PbfDecoder {
     private final Condition dataWaitCondition;
     private final Queue<PbfBlobResult> blobResults;
     private final SkipOptions skipOptions;
+    private ImportMetrics.Counter decodeCounter;
+    private ImportMetrics.Counter waitCounter;
 
     /**
      * Creates a new instance.
      * <p>
      *
-     * @param streamSplitter  The PBF stream splitter providing the source of blobs to be decoded.
+     * @param streamSplitter  The PBF splitter providing the source of blobs to be decoded.
      * @param executorService The executor service managing the thread pool.
      * @param maxPendingBlobs The maximum number of blobs to have in progress at any point in time.
      * @param sink            The sink to send all decoded entities to.
      */
-    public PbfDecoder(PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
+    public PbfDecoder(PbfBlobSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
                       Sink sink, SkipOptions skipOptions) {
         this.streamSplitter = streamSplitter;
         this.executorService = executorService;
@@ -54,6 +57,17 @@ public class PbfDecoder {
         blobResults = new LinkedList<>();
     }
 
+    /**
+     * Collects the number of decoded blobs, their size and the decoding time as well as the time we wait for the
+     * worker threads.
+     */
+    public void setImportMetrics(ImportMetrics importMetrics) {
+        if (importMetrics.isEnabled()) {
+            decodeCounter = importMetrics.getCounter("pbf.blob_decode");
+            waitCounter = importMetrics.getCounter("pbf.wait_for_decoder");
+        }
+    }
+
     /**
      * Any thread can call this method when they wish to wait until an update has been performed by
      * another thread.
@@ -78,10 +92,15 @@ public class PbfDecoder {
         while (blobResults.size() > targetQueueSize) {
             // Get the next result from the queue and wait for it to complete.
             PbfBlobResult blobResult = blobResults.remove();
-            while (!blobResult.isComplete()) {
-                // The thread hasn't finished processing yet so wait for an
-                // update from another thread before checking again.
-                waitForUpdate();
+            if (!blobResult.isComplete()) {
+                long start = System.nanoTime();
+                while (!blobResult.isComplete()) {
+                    // The thread hasn't finished processing yet so wait for an
+                    // update from another thread before checking again.
+                    waitForUpdate();
+                }
+                if (waitCounter != null)
+                    waitCounter.add(System.nanoTime() - start);
             }
 
             if (!blobResult.isSuccess()) {
@@ -144,7 +163,16 @@ public class PbfDecoder {
 
             // Create the blob decoder itself and execute it on a worker thread.
             PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob.getType(), rawBlob.getData(), decoderListener, skipOptions);
-            executorService.execute(blobDecoder);
+            if (decodeCounter == null) {
+                executorService.execute(blobDecoder);
+            } else {
+                int blobSize = rawBlob.getData().remaining();
+                executorService.execute(() -> {
+                    long start = System.nanoTime();
+                    blobDecoder.run();
+                    decodeCounter.add(System.nanoTime() - start, blobSize);
+                });
+            }
 
             // If the number of pending blobs has reached capacity we must begin
             // sending results to the sink. This method will block until blob
@@ -0,0 +1,123 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm.pbf;
+
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits a PBF file into its blobs using a memory-mapped file. In contrast to {@link PbfStreamSplitter} this does not
+ * copy the blob data: only the blob headers are read here and the returned blobs are views of the mapping. Therefore
+ * the worker threads of the {@link PbfDecoder} read the (compressed) blob data from the file themselves and the
+ * thread that splits the file does not limit the number of useful workers.
+ * <p>
+ * A single mapping is limited to 2GB, so bigger files are mapped in segments. A new segment starts at the first blob
+ * that does not fit into the current one. The segments are unmapped by the garbage collector once all of their blobs
+ * are decoded.
+ */
+public class PbfMappedSplitter implements PbfBlobSplitter {
+    // the PBF format limits the size of a header to 64KB and the size of a blob to 32MB
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int segmentSize;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long position;
+    private PbfRawBlob nextBlob;
+
+    public PbfMappedSplitter(File file) throws IOException {
+        this(file, 1 << 30);
+    }
+
+    PbfMappedSplitter(File file, int segmentSize) throws IOException {
+        if (segmentSize < 4 + MAX_HEADER_SIZE + MAX_BLOB_SIZE)
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.segmentSize = segmentSize;
+    }
+
+    private void ensureMapped(long start, long length) throws IOException {
+        length = Math.min(length, fileSize - start);
+        if (segment != null && start >= segmentStart && start + length <= segmentStart + segment.capacity())
+            return;
+        segmentStart = start;
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileSize - start));
+        segment.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private void readNextBlob() {
+        if (position >= fileSize)
+            return;
+        try {
+            if (position + 4 > fileSize)
+                throw new IllegalStateException("PBF file is truncated at " + position);
+            ensureMapped(position, 4 + MAX_HEADER_SIZE);
+            int headerLength = segment.getInt((int) (position - segmentStart));
+            if (headerLength < 0 || headerLength > MAX_HEADER_SIZE)
+                throw new IllegalStateException("Invalid PBF blob header length " + headerLength + " at " + position);
+            int headerOffset = (int) (position - segmentStart) + 4;
+            Fileformat.BlobHeader blobHeader = Fileformat.BlobHeader.parseFrom(segment.slice(headerOffset, headerLength));
+
+            long dataStart = position + 4 + headerLength;
+            int dataSize = blobHeader.getDatasize();
+            if (dataSize < 0 || dataSize > MAX_BLOB_SIZE || dataStart + dataSize > fileSize)
+                throw new IllegalStateException("Invalid PBF blob size " + dataSize + " at " + position);
+            ensureMapped(dataStart, dataSize);
+            nextBlob = new PbfRawBlob(blobHeader.getType(), segment.slice((int) (dataStart - segmentStart), dataSize));
+            position = dataStart + dataSize;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to get next blob from PBF file.", e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextBlob == null)
+            readNextBlob();
+        return nextBlob != null;
+    }
+
+    @Override
+    public PbfRawBlob next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        PbfRawBlob result = nextBlob;
+        nextBlob = null;
+        return result;
+    }
+
+    @Override
+    public void release() {
+        segment = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
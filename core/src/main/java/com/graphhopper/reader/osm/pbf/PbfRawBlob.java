@@ -1,6 +1,8 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
+import java.nio.ByteBuffer;
+
 /**
  * Represents a single piece of raw blob data extracted from the PBF stream. It has not yet been
  * decoded into a PBF blob object.
@@ -10,7 +12,7 @@ package com.graphhopper.reader.osm.pbf;
  */
 public class PbfRawBlob {
     private String type;
-    private byte[] data;
+    private ByteBuffer data;
 
     /**
      * Creates a new instance.
@@ -20,7 +22,7 @@ public class PbfRawBlob {
      *             the blob header.
      * @param data The raw contents of the blob in binary undecoded form.
      */
-    public PbfRawBlob(String type, byte[] data) {
+    public PbfRawBlob(String type, ByteBuffer data) {
         this.type = type;
         this.data = data;
     }
@@ -42,7 +44,7 @@ public class PbfRawBlob {
      *
      * @return The raw blob data.
      */
-    public byte[] getData() {
+    public ByteBuffer getData() {
         return data;
     }
 }
@@ -2,8 +2,10 @@
 package com.graphhopper.reader.osm.pbf;
 
 import com.graphhopper.reader.osm.SkipOptions;
+import com.graphhopper.util.ImportMetrics;
 
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -17,9 +19,11 @@ import java.util.concurrent.Executors;
 public class PbfReader implements Runnable {
     private Throwable throwable;
     private final InputStream inputStream;
+    private final File mappedFile;
     private final Sink sink;
     private final int workers;
     private final SkipOptions skipOptions;
+    private ImportMetrics importMetrics = ImportMetrics.NOOP;
 
     /**
      * Creates a new instance.
@@ -29,19 +33,41 @@ public class PbfReader implements Runnable {
      * @param workers The number of worker threads for decoding PBF blocks.
      */
     public PbfReader(InputStream in, Sink sink, int workers, SkipOptions skipOptions) {
+        this(in, null, sink, workers, skipOptions);
+    }
+
+    /**
+     * Creates a new instance that memory-maps the given file instead of reading it from a stream, see
+     * {@link PbfMappedSplitter}.
+     */
+    public PbfReader(File file, Sink sink, int workers, SkipOptions skipOptions) {
+        this(null, file, sink, workers, skipOptions);
+    }
+
+    private PbfReader(InputStream in, File mappedFile, Sink sink, int workers, SkipOptions skipOptions) {
         this.inputStream = in;
+        this.mappedFile = mappedFile;
         this.sink = sink;
         this.workers = workers;
         this.skipOptions = skipOptions;
     }
 
+    public PbfReader setImportMetrics(ImportMetrics importMetrics) {
+        this.importMetrics = importMetrics;
+        return this;
+    }
+
     @Override
     public void run() {
         ExecutorService executorService = Executors.newFixedThreadPool(workers);
-        // Create a stream splitter to break the PBF stream into blobs.
-        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+        PbfBlobSplitter streamSplitter = null;
 
         try {
+            // Create a splitter to break the PBF file into blobs.
+            streamSplitter = mappedFile == null
+                    ? new PbfStreamSplitter(new DataInputStream(inputStream))
+                    : new PbfMappedSplitter(mappedFile);
+
             // Process all blobs of data in the stream using threads from the
             // executor service. We allow the decoder to issue an extra blob
             // than there are workers to ensure there is another blob
@@ -49,6 +75,7 @@ public class PbfReader implements Runnable {
             // The main thread is responsible for splitting blobs from the
             // request stream, and sending decoded entities to the sink.
             PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink, skipOptions);
+            pbfDecoder.setImportMetrics(importMetrics);
             pbfDecoder.run();
 
         } catch (Throwable t) {
@@ -57,7 +84,8 @@ public class PbfReader implements Runnable {
         } finally {
             sink.complete();
             executorService.shutdownNow();
-            streamSplitter.release();
+            if (streamSplitter != null)
+                streamSplitter.release();
         }
     }
 
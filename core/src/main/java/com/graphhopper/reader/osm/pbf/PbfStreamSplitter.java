@@ -6,7 +6,7 @@ import org.openstreetmap.osmosis.osmbinary.Fileformat;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,7 +17,7 @@ import java.util.logging.Logger;
  *
  * @author Brett Henderson
  */
-public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
+public class PbfStreamSplitter implements PbfBlobSplitter {
     private static Logger log = Logger.getLogger(PbfStreamSplitter.class.getName());
     private DataInputStream dis;
     private int dataBlockCount;
@@ -76,7 +76,7 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
             }
             byte[] blobData = readRawBlob(blobHeader);
 
-            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
+            nextBlob = new PbfRawBlob(blobHeader.getType(), ByteBuffer.wrap(blobData));
 
         } catch (IOException e) {
             throw new RuntimeException("Unable to get next blob from PBF stream.", e);
@@ -105,6 +105,7 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
     public void release() {
         if (dis != null) {
             try {
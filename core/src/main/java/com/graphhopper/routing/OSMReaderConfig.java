@@ -33,7 +33,11 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int tagParsingThreads = 1;
+    private boolean singlePass = false;
+    private boolean memoryMappedPbf = false;
     private double defaultElevation = 0;
+    private int elevationThreads = 0;
 
     public List<String> getIgnoredHighways() {
         return ignoredHighways;
@@ -157,6 +161,52 @@ public class OSMReaderConfig {
         return this;
     }
 
+    public int getTagParsingThreads() {
+        return tagParsingThreads;
+    }
+
+    /**
+     * Sets the number of threads used to evaluate the tags of the OSM ways during the second pass. With more than one
+     * thread the tag parsers run in parallel, which is only done if all of them declare to be thread-safe via
+     * {@link com.graphhopper.routing.util.parsers.TagParser#isThreadSafe()}. Otherwise the tags are parsed with a single
+     * thread. The edges are still created in the same order, so the resulting graph does not depend on this setting.
+     */
+    public OSMReaderConfig setTagParsingThreads(int tagParsingThreads) {
+        if (tagParsingThreads < 1)
+            throw new IllegalArgumentException("tag parsing threads must be positive: " + tagParsingThreads);
+        this.tagParsingThreads = tagParsingThreads;
+        return this;
+    }
+
+    public boolean isSinglePass() {
+        return singlePass;
+    }
+
+    /**
+     * Enables reading the OSM file only once. The coordinates of all OSM nodes and the accepted ways are stored in
+     * temporary DataAccess objects instead. Only the nodes and ways that are actually read are stored, so the required
+     * disk space (or memory) grows with the number of nodes in the file (a little more than 8 bytes per node for
+     * sorted files) and not with the range of their OSM IDs.
+     * This only works if the file is sorted: nodes, then ways, then relations.
+     */
+    public OSMReaderConfig setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+        return this;
+    }
+
+    public boolean isMemoryMappedPbf() {
+        return memoryMappedPbf;
+    }
+
+    /**
+     * Enables memory-mapping of PBF files. The blobs are then read and decompressed by the worker threads directly
+     * from the mapping instead of being read by a single thread, which limits the import speed for many worker threads.
+     */
+    public OSMReaderConfig setMemoryMappedPbf(boolean memoryMappedPbf) {
+        this.memoryMappedPbf = memoryMappedPbf;
+        return this;
+    }
+
     public double getDefaultElevation() {
         return defaultElevation;
     }
@@ -168,4 +218,19 @@ public class OSMReaderConfig {
         this.defaultElevation = defaultElevation;
         return this;
     }
+
+    public int getElevationThreads() {
+        return elevationThreads;
+    }
+
+    /**
+     * Looks up the elevations of all OSM nodes with this number of threads after the nodes were read. The nodes are
+     * sorted by elevation tile before the lookup. 0 means that the elevation is looked up for every node while reading.
+     */
+    public OSMReaderConfig setElevationThreads(int elevationThreads) {
+        if (elevationThreads < 0)
+            throw new IllegalArgumentException("elevation threads must not be negative: " + elevationThreads);
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
 }
@@ -30,6 +30,7 @@ import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.ReusableQueryGraphs;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
@@ -39,6 +40,7 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.storage.index.SnapCache;
 import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
@@ -59,6 +61,7 @@ public class Router {
     protected final BaseGraph graph;
     protected final EncodingManager encodingManager;
     protected final LocationIndex locationIndex;
+    protected final Map<String, LocationIndex> profileLocationIndexes;
     protected final Map<String, Profile> profilesByName;
     protected final PathDetailsBuilderFactory pathDetailsBuilderFactory;
     protected final TranslationMap translationMap;
@@ -68,14 +71,30 @@ public class Router {
     protected final Map<String, LandmarkStorage> landmarks;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
+    protected SnapCache snapCache;
+    protected ReusableQueryGraphs reusableQueryGraphs;
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
                   Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+        this(graph, encodingManager, locationIndex, Collections.emptyMap(), profilesByName, pathDetailsBuilderFactory,
+                translationMap, routerConfig, weightingFactory, chGraphs, landmarks);
+    }
+
+    /**
+     * @param profileLocationIndexes location indexes that only contain the edges accessible for a profile. They are
+     *                               used instead of locationIndex to snap the points of requests for this profile.
+     */
+    public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
+                  Map<String, LocationIndex> profileLocationIndexes,
+                  Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
+                  TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                  Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
         this.graph = graph;
         this.encodingManager = encodingManager;
         this.locationIndex = locationIndex;
+        this.profileLocationIndexes = profileLocationIndexes;
         this.profilesByName = profilesByName;
         this.pathDetailsBuilderFactory = pathDetailsBuilderFactory;
         this.translationMap = translationMap;
@@ -94,6 +113,22 @@ public class Router {
         }
     }
 
+    /**
+     * @param snapCache caches the Snaps of requests without a custom model, can be null
+     */
+    public Router setSnapCache(SnapCache snapCache) {
+        this.snapCache = snapCache;
+        return this;
+    }
+
+    /**
+     * Sets the QueryGraphs that are reused if {@link RouterConfig#isReuseQueryGraphs()} is enabled
+     */
+    public Router setReusableQueryGraphs(ReusableQueryGraphs reusableQueryGraphs) {
+        this.reusableQueryGraphs = reusableQueryGraphs;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
         try {
             checkNoLegacyParameters(request);
@@ -216,15 +251,34 @@ public class Router {
         return new FlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, baseGraph, locationIndex);
     }
 
+    /**
+     * The snap filter of the solver only accepts edges accessible for its profile, so we can use the location index
+     * that only contains these edges if there is one.
+     */
+    protected LocationIndex getSnapLocationIndex(Solver solver, EdgeFilter snapFilter) {
+        LocationIndex index = profileLocationIndexes.getOrDefault(solver.profile.getName(), locationIndex);
+        // a custom model in the request can change the accessible edges, so the profile does not identify the snap filter
+        if (snapCache == null || solver.request.getCustomModel() != null)
+            return index;
+        return snapCache.wrap(index, solver.profile.getName(), snapFilter);
+    }
+
+    protected QueryGraph createQueryGraph(List<Snap> snaps) {
+        // the QueryGraph is not used anymore once the response is created, so we can reuse it for the next request
+        return routerConfig.isReuseQueryGraphs() && reusableQueryGraphs != null
+                ? reusableQueryGraphs.create(graph, snaps) : QueryGraph.create(graph, snaps);
+    }
+
     protected GHResponse routeRoundTrip(GHRequest request, FlexSolver solver) {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         double startHeading = request.getHeadings().isEmpty() ? Double.NaN : request.getHeadings().get(0);
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
-        List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), locationIndex, params);
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), snapFilter, getSnapLocationIndex(solver, snapFilter), params);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
 
-        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        QueryGraph queryGraph = createQueryGraph(snaps);
         FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
 
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
@@ -244,10 +298,11 @@ public class Router {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), snapFilter, getSnapLocationIndex(solver, snapFilter),
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
-        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        QueryGraph queryGraph = createQueryGraph(snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
@@ -277,12 +332,13 @@ public class Router {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), snapFilter, getSnapLocationIndex(solver, snapFilter),
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
-        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        QueryGraph queryGraph = createQueryGraph(snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
@@ -31,6 +31,7 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private boolean reuseQueryGraphs = false;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -112,6 +113,18 @@ public class RouterConfig {
         this.activeLandmarkCount = activeLandmarkCount;
     }
 
+    public boolean isReuseQueryGraphs() {
+        return reuseQueryGraphs;
+    }
+
+    /**
+     * If enabled every thread reuses the data structures of the QueryGraph of its previous request instead of
+     * allocating new ones.
+     */
+    public void setReuseQueryGraphs(boolean reuseQueryGraphs) {
+        this.reuseQueryGraphs = reuseQueryGraphs;
+    }
+
     public double getElevationWayPointMaxDistance() {
         return elevationWayPointMaxDistance;
     }
@@ -45,6 +45,6 @@ public class NodeBasedCHBidirPathExtractor extends DefaultBidirPathExtractor {
             path.addDistance(edge.getDistance());
             path.addTime(routingGraph.getWeighting().calcEdgeMillis(edge, reverse));
             path.addEdge(edge.getEdge());
-        }, false);
+        }, false, routingGraph.getShortcutUnpackCache());
     }
 }
@@ -0,0 +1,124 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache for the original edges of unpacked shortcuts. Long routes mostly consist of a few high-level
+ * shortcuts (e.g. along motorways) and every query has to unpack them recursively again. This cache stores the
+ * flattened result so it can be shared between queries. This class is thread-safe and reads do not lock, because
+ * every query reads many shortcuts. Therefore the eviction is only approximately LRU: every entry remembers the
+ * value of a clock that only advances when entries are added, and once the total number of cached original edges
+ * exceeds the specified capacity the least recently used entries are removed until 10% of the capacity are free.
+ *
+ * @see ShortcutUnpacker
+ */
+public class ShortcutUnpackCache {
+    private final long maxEdges;
+    private final AtomicLong edges = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    /**
+     * @param maxEdges the maximum number of original edges that will be stored for all shortcuts together. Every
+     *                 original edge uses roughly 12 bytes.
+     */
+    public ShortcutUnpackCache(long maxEdges) {
+        if (maxEdges <= 0)
+            throw new IllegalArgumentException("maxEdges must be positive: " + maxEdges);
+        this.maxEdges = maxEdges;
+    }
+
+    static long createKey(int chEdge, int adjNode, boolean reverse) {
+        return ((long) chEdge << 33) ^ ((long) adjNode << 1) ^ (reverse ? 1 : 0);
+    }
+
+    /**
+     * @return the entries of the original edges as (edge, adjNode, prevOrNextEdgeId) triples or null
+     */
+    int[] get(long key) {
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return null;
+        // the clock rarely changes once the cache is warm, so we usually do not need to write to shared entries
+        long now = clock.get();
+        if (entry.lastUsed != now)
+            entry.lastUsed = now;
+        return entry.edges;
+    }
+
+    void put(long key, int[] entry) {
+        int entryEdges = entry.length / 3;
+        if (entryEdges > maxEdges)
+            return;
+        Entry prev = entries.put(key, new Entry(entry, clock.getAndIncrement()));
+        if (edges.addAndGet(prev == null ? entryEdges : entryEdges - prev.edges.length / 3) > maxEdges)
+            evict();
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            if (edges.get() <= maxEdges)
+                return;
+            List<Map.Entry<Long, Entry>> sorted = new ArrayList<>(entries.entrySet());
+            sorted.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+            // we remove a bit more than necessary, such that we do not need to sort all entries for every put
+            long target = maxEdges - maxEdges / 10;
+            for (Map.Entry<Long, Entry> e : sorted) {
+                if (edges.get() <= target)
+                    break;
+                if (entries.remove(e.getKey(), e.getValue()))
+                    edges.addAndGet(-e.getValue().edges.length / 3);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getEdges() {
+        return edges.get();
+    }
+
+    public void clear() {
+        synchronized (evictionLock) {
+            entries.values().removeIf(entry -> {
+                edges.addAndGet(-entry.edges.length / 3);
+                return true;
+            });
+        }
+    }
+
+    private static class Entry {
+        final int[] edges;
+        volatile long lastUsed;
+
+        Entry(int[] edges, long lastUsed) {
+            this.edges = edges;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.storage.RoutingCHEdgeIteratorState;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.EdgeIteratorState;
@@ -18,15 +19,28 @@ import static com.graphhopper.util.EdgeIterator.NO_EDGE;
  * @see PrepareContractionHierarchies
  */
 public class ShortcutUnpacker {
+    // used as prevOrNextEdgeId while recording, so we can replace it with the actual value when reading the cache
+    private static final int PLACEHOLDER_EDGE = Integer.MIN_VALUE;
     private final RoutingCHGraph graph;
     private final Visitor visitor;
     private final boolean edgeBased;
+    private final ShortcutUnpackCache cache;
+    private Visitor currentVisitor;
     private boolean reverseOrder;
 
     public ShortcutUnpacker(RoutingCHGraph graph, Visitor visitor, boolean edgeBased) {
+        this(graph, visitor, edgeBased, null);
+    }
+
+    /**
+     * @param cache if not null the original edges of shortcuts are read from and stored in this cache
+     */
+    public ShortcutUnpacker(RoutingCHGraph graph, Visitor visitor, boolean edgeBased, ShortcutUnpackCache cache) {
         this.graph = graph;
         this.visitor = visitor;
+        this.currentVisitor = visitor;
         this.edgeBased = edgeBased;
+        this.cache = cache;
     }
 
     /**
@@ -49,12 +63,45 @@ public class ShortcutUnpacker {
         if (edge == null) {
             throw new IllegalArgumentException("Edge with id: " + edgeId + " does not exist or does not touch node " + adjNode);
         }
-        expandEdge(edge, reverse, prevOrNextEdgeId);
+        if (cache == null || !edge.isShortcut()) {
+            expandEdge(edge, reverse, prevOrNextEdgeId);
+            return;
+        }
+        long key = ShortcutUnpackCache.createKey(edgeId, adjNode, reverse);
+        int[] entry = cache.get(key);
+        if (entry == null) {
+            entry = recordOriginalEdges(edge, reverse);
+            cache.put(key, entry);
+        }
+        visitCachedEdges(entry, reverse, prevOrNextEdgeId);
+    }
+
+    private int[] recordOriginalEdges(RoutingCHEdgeIteratorState edge, boolean reverse) {
+        IntArrayList entry = new IntArrayList();
+        boolean tmpReverseOrder = reverseOrder;
+        reverseOrder = false;
+        currentVisitor = (origEdge, r, prevOrNextEdgeId) -> entry.add(origEdge.getEdge(), origEdge.getAdjNode(), prevOrNextEdgeId);
+        try {
+            expandEdge(edge, reverse, PLACEHOLDER_EDGE);
+        } finally {
+            currentVisitor = visitor;
+            reverseOrder = tmpReverseOrder;
+        }
+        return entry.toArray();
+    }
+
+    private void visitCachedEdges(int[] entry, boolean reverse, int prevOrNextEdgeId) {
+        int edges = entry.length / 3;
+        for (int i = 0; i < edges; i++) {
+            int pos = 3 * (reverseOrder ? edges - 1 - i : i);
+            int prevOrNext = entry[pos + 2] == PLACEHOLDER_EDGE ? prevOrNextEdgeId : entry[pos + 2];
+            visitor.visit(graph.getBaseGraph().getEdgeIteratorState(entry[pos], entry[pos + 1]), reverse, prevOrNext);
+        }
     }
 
     private void expandEdge(RoutingCHEdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
         if (!edge.isShortcut()) {
-            visitor.visit(graph.getBaseGraph().getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode()), reverse, prevOrNextEdgeId);
+            currentVisitor.visit(graph.getBaseGraph().getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode()), reverse, prevOrNextEdgeId);
             return;
         }
         if (edgeBased) {
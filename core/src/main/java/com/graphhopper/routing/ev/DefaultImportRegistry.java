@@ -210,10 +210,8 @@ public class DefaultImportRegistry implements ImportRegistry {
                     (lookup, props) -> new FerrySpeedCalculator(
                             lookup.getDecimalEncodedValue(FerrySpeed.KEY)));
         else if (Curvature.KEY.equals(name))
-            return ImportUnit.create(name, props -> Curvature.create(),
-                    (lookup, props) -> new CurvatureCalculator(
-                            lookup.getDecimalEncodedValue(Curvature.KEY))
-            );
+            // calculated after the import from the edge geometry, see GraphHopper#addEdgeAttributeCalculators
+            return ImportUnit.create(name, props -> Curvature.create(), null);
         else if (AverageSlope.KEY.equals(name))
             return ImportUnit.create(name, props -> AverageSlope.create(), null, "slope_calculator");
         else if (MaxSlope.KEY.equals(name))
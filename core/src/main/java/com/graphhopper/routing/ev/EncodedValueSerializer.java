@@ -24,6 +24,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
 
 public class EncodedValueSerializer {
     private final static ObjectMapper MAPPER = new ObjectMapper();
@@ -43,6 +46,20 @@ public class EncodedValueSerializer {
         }
     }
 
+    /**
+     * Serializes only the bit layout of the specified encoded value, i.e. without the state that is collected while
+     * values are set, like the maximum value or the strings of a {@link StringEncodedValue}.
+     */
+    public static String serializeEncodedValueLayout(EncodedValue encodedValue) {
+        try {
+            ObjectNode tree = MAPPER.valueToTree(encodedValue);
+            tree.remove(Arrays.asList("max_value", "values", "index_map"));
+            return MAPPER.writeValueAsString(tree);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize encoded value: " + encodedValue + ", error: " + e.getMessage());
+        }
+    }
+
     public static EncodedValue deserializeEncodedValue(String serializedEncodedValue) {
         try {
             JsonNode jsonNode = MAPPER.readTree(serializedEncodedValue);
@@ -58,6 +58,8 @@ public class LMPreparationHandler {
     private int minNodes = -1;
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
+    private int landmarkThreads = 1;
+    private int weightBits = 16;
     private boolean logDetails = false;
     private AreaIndex<SplitArea> areaIndex;
 
@@ -73,8 +75,10 @@ public class LMPreparationHandler {
 
         setPreparationThreads(ghConfig.getInt(Parameters.Landmark.PREPARE + "threads", getPreparationThreads()));
         setLMProfiles(ghConfig.getLMProfiles());
+        setLandmarkThreads(ghConfig.getInt(Landmark.PREPARE + "landmark_threads", landmarkThreads));
 
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
+        weightBits = ghConfig.getInt(Landmark.PREPARE + "weight_bits", weightBits);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
 
@@ -116,6 +120,27 @@ public class LMPreparationHandler {
         this.preparationThreads = preparationThreads;
     }
 
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
+    /**
+     * This method changes the number of threads used to calculate the landmark weights within a single LM profile.
+     * Default is 1. The total number of threads is this number times the preparation threads. Make sure that you
+     * have enough memory when increasing this number!
+     */
+    public void setLandmarkThreads(int landmarkThreads) {
+        this.landmarkThreads = landmarkThreads;
+    }
+
+    /**
+     * @see LandmarkStorage#setWeightBits(int)
+     */
+    public LMPreparationHandler setWeightBits(int weightBits) {
+        this.weightBits = weightBits;
+        return this;
+    }
+
     public LMPreparationHandler setLMProfiles(LMProfile... lmProfiles) {
         return setLMProfiles(Arrays.asList(lmProfiles));
     }
@@ -222,8 +247,10 @@ public class LMPreparationHandler {
 
             PrepareLandmarks prepareLandmarks = new PrepareLandmarks(graph.getDirectory(), graph, encodedValueLookup,
                     lmConfig, landmarkCount).
+                    setWeightBits(weightBits).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setThreads(landmarkThreads).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 prepareLandmarks.setMinimumNodes(minNodes);
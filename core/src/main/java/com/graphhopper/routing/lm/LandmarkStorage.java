@@ -75,7 +75,11 @@ public class LandmarkStorage {
     private long LM_ROW_LENGTH;
     private int landmarks;
     private final int FROM_OFFSET;
-    private final int TO_OFFSET;
+    private int TO_OFFSET;
+    // every weight is stored as unsigned value with weightBits bits, see setWeightBits
+    private int weightBits = 16;
+    private int weightInfinity = SHORT_INFINITY;
+    private int weightMax = SHORT_MAX;
     private final DataAccess landmarkWeightDA;
     // every subnetwork has its own landmark mapping but the count of landmarks is always the same
     private final List<int[]> landmarkIDs;
@@ -94,6 +98,7 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private int threads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -135,10 +140,9 @@ public class LandmarkStorage {
         this.landmarkWeightDA = dir.create("landmarks_" + lmConfig.getName());
 
         this.landmarks = landmarks;
-        // one short per landmark and two directions => 2*2 byte
-        this.LM_ROW_LENGTH = landmarks * 4;
         this.FROM_OFFSET = 0;
-        this.TO_OFFSET = 2;
+        // one short per landmark and two directions => 2*2 byte
+        initWeightLayout(16);
         this.landmarkIDs = new ArrayList<>();
         this.subnetworkStorage = new SubnetworkStorage(dir.create("landmarks_subnetwork_" + lmConfig.getName()));
     }
@@ -155,13 +159,52 @@ public class LandmarkStorage {
      */
     public LandmarkStorage setMaximumWeight(double maxWeight) {
         if (maxWeight > 0) {
-            this.factor = maxWeight / PRECISION;
+            this.factor = maxWeight / getPrecision();
             if (Double.isInfinite(factor) || Double.isNaN(factor))
                 throw new IllegalStateException("Illegal factor " + factor + " calculated from maximum weight " + maxWeight);
         }
         return this;
     }
 
+    /**
+     * Specify the number of bits used to store a single weight. Supported are 16 (the default) and 24. With 24 bits
+     * the stored weights are more precise and saturate less often on large areas, which gives a better approximation
+     * for long routes, but the landmark storage needs 50% more space.
+     */
+    public LandmarkStorage setWeightBits(int weightBits) {
+        if (weightBits != 16 && weightBits != 24)
+            throw new IllegalArgumentException("weight bits must be 16 or 24 but was " + weightBits);
+        if (isInitialized())
+            throw new IllegalStateException("Cannot change weight bits after the landmark storage was initialized");
+        long oldPrecision = getPrecision();
+        initWeightLayout(weightBits);
+        // keep the maximum weight that was already specified
+        if (factor > 0)
+            factor = factor * oldPrecision / getPrecision();
+        return this;
+    }
+
+    public int getWeightBits() {
+        return weightBits;
+    }
+
+    private void initWeightLayout(int weightBits) {
+        this.weightBits = weightBits;
+        this.weightInfinity = (int) ((1L << weightBits) - 1);
+        this.weightMax = weightInfinity - 1;
+        // one weight per landmark and two directions
+        this.LM_ROW_LENGTH = (long) landmarks * 2 * getWeightBytes();
+        this.TO_OFFSET = getWeightBytes();
+    }
+
+    private int getWeightBytes() {
+        return weightBits / 8;
+    }
+
+    private long getPrecision() {
+        return 1L << weightBits;
+    }
+
     /**
      * By default do not log many details.
      */
@@ -169,6 +212,18 @@ public class LandmarkStorage {
         this.logDetails = logDetails;
     }
 
+    /**
+     * This method changes the number of threads used to calculate the weights of the landmarks within one
+     * subnetwork. Default is 1. Every thread needs its own shortest path tree, so make sure that you have
+     * enough memory when increasing this number.
+     */
+    public LandmarkStorage setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -230,7 +285,7 @@ public class LandmarkStorage {
         if (isInitialized())
             throw new IllegalStateException("Initialize the landmark storage only once!");
 
-        // fill 'from' and 'to' weights with maximum value
+        // fill 'from' and 'to' weights with maximum value, i.e. all bits set, which works for 16 and 24 bits
         long maxBytes = (long) graph.getNodes() * LM_ROW_LENGTH;
         this.landmarkWeightDA.create(2000);
         this.landmarkWeightDA.ensureCapacity(maxBytes);
@@ -285,12 +340,22 @@ public class LandmarkStorage {
             // suboptimal routes as there will be too big rounding errors. But picking it too small is bad for performance
             // e.g. for Germany at least 1500km is very important otherwise speed is at least twice as slow e.g. for 1000km
             double maxWeight = estimateMaxWeight(graphComponents.getComponents(), accessFilter);
+            // with more bits we can afford a generous maximum weight to avoid maxed out weights on larger areas
+            // and still get a much better precision than with 16 bits
+            if (weightBits > 16)
+                maxWeight *= 4;
             setMaximumWeight(maxWeight);
             additionalInfo = ", maxWeight:" + maxWeight + " from quick estimation";
         }
 
+        // The factor is stored with a limited precision. With 24 bits it is so small that this rounding would make the
+        // loaded weights inconsistent, so we round up before writing any weight.
+        if (weightBits > 16 && factor > 0)
+            factor = Math.ceil(factor * DOUBLE_MLTPL) / DOUBLE_MLTPL;
+
         if (logDetails)
-            LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
+            LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor
+                    + ", weight bits:" + weightBits + additionalInfo);
 
         int nodes = 0;
         for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
@@ -339,6 +404,7 @@ public class LandmarkStorage {
         if (factor * DOUBLE_MLTPL > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("landmark weight factor cannot be bigger than Integer.MAX_VALUE " + factor * DOUBLE_MLTPL);
         landmarkWeightDA.setHeader(3 * 4, (int) Math.round(factor * DOUBLE_MLTPL));
+        landmarkWeightDA.setHeader(4 * 4, weightBits);
 
         // serialize fast byte[] into DataAccess
         subnetworkStorage.create(graph.getNodes());
@@ -445,42 +511,53 @@ public class LandmarkStorage {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
-
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+        // the trees of the first landmark also set the subnetwork id of all explored nodes, which can fail
+        LandmarkExplorer explorer = exploreLandmark(0, tmpLandmarkNodeIds[0], accessFilter, false);
+        if (explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
+        explorer = exploreLandmark(0, tmpLandmarkNodeIds[0], accessFilter, true);
+        if (explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
 
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        // the trees of the other landmarks are independent of each other and every tree writes only into its own
+        // landmark slot of each row, so we can calculate them concurrently
+        List<Runnable> runnables = new ArrayList<>(2 * tmpLandmarkNodeIds.length);
+        for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+            final int idx = lmIdx;
+            final int lmNodeId = tmpLandmarkNodeIds[lmIdx];
+            runnables.add(() -> exploreLandmark(idx, lmNodeId, accessFilter, false));
+            runnables.add(() -> {
+                exploreLandmark(idx, lmNodeId, accessFilter, true);
+                if (logDetails && idx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * idx / tmpLandmarkNodeIds.length) + "%");
+            });
         }
+        if (threads > 1)
+            GHUtility.runConcurrently(runnables.stream(), threads);
+        else
+            runnables.forEach(Runnable::run);
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
         landmarkIDs.add(tmpLandmarkNodeIds);
         return true;
     }
 
+    /**
+     * Runs the 'from' (or 'to' if reverse is true) search for the specified landmark and stores the resulting weights.
+     * This method can be called concurrently for different landmarks.
+     */
+    private LandmarkExplorer exploreLandmark(int lmIdx, int lmNodeId, EdgeFilter accessFilter, boolean reverse) {
+        if (Thread.currentThread().isInterrupted())
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, reverse);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, reverse ? TO_OFFSET : FROM_OFFSET);
+        return explorer;
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -523,13 +600,12 @@ public class LandmarkStorage {
      * a node ID but the internal index of the landmark array.
      */
     int getFromWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4L + FROM_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
+        int res = getWeight(getWeightPointer(node, landmarkIndex, FROM_OFFSET));
+        if (res == weightInfinity)
             // TODO can happen if endstanding oneway
             // we should set a 'from' value to SHORT_MAX if the 'to' value was already set to find real bugs
             // and what to return? Integer.MAX_VALUE i.e. convert to Double.pos_infinity upstream?
-            return SHORT_MAX;
+            return weightMax;
         // throw new IllegalStateException("Do not call getFromWeight for wrong landmark[" + landmarkIndex + "]=" + landmarkIDs[landmarkIndex] + " and node " + node);
         // TODO if(res == MAX) fallback to beeline approximation!?
 
@@ -540,14 +616,30 @@ public class LandmarkStorage {
      * @return the weight from the specified node to the landmark (specified *as index*)
      */
     int getToWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + TO_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
-            return SHORT_MAX;
+        int res = getWeight(getWeightPointer(node, landmarkIndex, TO_OFFSET));
+        if (res == weightInfinity)
+            return weightMax;
 
         return res;
     }
 
+    private long getWeightPointer(int node, int landmarkIndex, int offset) {
+        return (long) node * LM_ROW_LENGTH + (long) landmarkIndex * 2 * getWeightBytes() + offset;
+    }
+
+    private int getWeight(long pointer) {
+        int res = landmarkWeightDA.getShort(pointer) & 0x0000FFFF;
+        if (weightBits > 16)
+            res |= (landmarkWeightDA.getByte(pointer + 2) & 0xFF) << 16;
+        return res;
+    }
+
+    private void setWeightValue(long pointer, int value) {
+        landmarkWeightDA.setShort(pointer, (short) value);
+        if (weightBits > 16)
+            landmarkWeightDA.setByte(pointer + 2, (byte) (value >>> 16));
+    }
+
     /**
      * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
      */
@@ -556,17 +648,17 @@ public class LandmarkStorage {
         if (tmpVal > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + factor);
 
-        if (tmpVal >= SHORT_MAX) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_MAX);
+        if (tmpVal >= weightMax) {
+            setWeightValue(pointer, weightMax);
             return false;
         } else {
-            landmarkWeightDA.setShort(pointer, (short) tmpVal);
+            setWeightValue(pointer, (int) tmpVal);
             return true;
         }
     }
 
     boolean isInfinity(long pointer) {
-        return ((int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
+        return getWeight(pointer) == weightInfinity;
     }
 
     // From all available landmarks pick just a few active ones
@@ -689,7 +781,9 @@ public class LandmarkStorage {
             landmarks = landmarkWeightDA.getHeader(1 * 4);
             int subnetworks = landmarkWeightDA.getHeader(2 * 4);
             factor = landmarkWeightDA.getHeader(3 * 4) / DOUBLE_MLTPL;
-            LM_ROW_LENGTH = landmarks * 4;
+            // older landmark files do not contain the weight bits and use 16 bits
+            int storedWeightBits = landmarkWeightDA.getHeader(4 * 4);
+            initWeightLayout(storedWeightBits == 0 ? 16 : storedWeightBits);
             long maxBytes = LM_ROW_LENGTH * nodes;
             long bytePos = maxBytes;
 
@@ -858,7 +952,7 @@ public class LandmarkStorage {
             return failed.get();
         }
 
-        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final long rowSize, final int offset) {
+        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final int offset) {
             IntObjectMap<SPTEntry> map = reverse ? bestWeightMapTo : bestWeightMapFrom;
             final AtomicInteger maxedout = new AtomicInteger(0);
             final Map.Entry<Double, Double> finalMaxWeight = new MapEntry<>(0d, 0d);
@@ -866,7 +960,7 @@ public class LandmarkStorage {
             map.forEach(new IntObjectProcedure<SPTEntry>() {
                 @Override
                 public void apply(int nodeId, SPTEntry b) {
-                    if (!lms.setWeight(nodeId * rowSize + lmIdx * 4 + offset, b.weight)) {
+                    if (!lms.setWeight(lms.getWeightPointer(nodeId, lmIdx, offset), b.weight)) {
                         maxedout.incrementAndGet();
                         finalMaxWeight.setValue(Math.max(b.weight, finalMaxWeight.getValue()));
                     }
@@ -876,7 +970,8 @@ public class LandmarkStorage {
             if ((double) maxedout.get() / map.size() > 0.1) {
                 LOGGER.warn("landmark " + lmIdx + " (" + nodeAccess.getLat(lmNodeId) + "," + nodeAccess.getLon(lmNodeId) + "): " +
                         "too many weights were maxed out (" + maxedout.get() + "/" + map.size() + "). Use a bigger factor than " + lms.factor
-                        + ". For example use maximum_lm_weight: " + finalMaxWeight.getValue() * 1.2 + " in your LM profile definition");
+                        + ". For example use maximum_lm_weight: " + finalMaxWeight.getValue() * 1.2 + " in your LM profile definition"
+                        + (lms.weightBits > 16 ? "" : " or use prepare.lm.weight_bits: 24"));
             }
         }
     }
@@ -74,6 +74,14 @@ public class PrepareLandmarks {
         return this;
     }
 
+    /**
+     * @see LandmarkStorage#setWeightBits(int)
+     */
+    public PrepareLandmarks setWeightBits(int weightBits) {
+        lms.setWeightBits(weightBits);
+        return this;
+    }
+
     /**
      * @see LandmarkStorage#setLMSelectionWeighting(Weighting)
      */
@@ -91,6 +99,14 @@ public class PrepareLandmarks {
         lms.setMinimumNodes(nodes);
     }
 
+    /**
+     * @see LandmarkStorage#setThreads(int)
+     */
+    public PrepareLandmarks setThreads(int threads) {
+        lms.setThreads(threads);
+        return this;
+    }
+
     public PrepareLandmarks setLogDetails(boolean logDetails) {
         lms.setLogDetails(logDetails);
         return this;
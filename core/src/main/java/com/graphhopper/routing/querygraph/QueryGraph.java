@@ -57,6 +57,7 @@ public class QueryGraph implements Graph {
     private final TurnCostStorage turnCostStorage;
     private final NodeAccess nodeAccess;
     private final QueryOverlay queryOverlay;
+    private final EdgeExplorer mainExplorer;
 
     // Use LinkedHashSet for predictable iteration order.
     private final Set<VirtualEdgeIteratorState> unfavoredEdges = new LinkedHashSet<>(5);
@@ -86,9 +87,36 @@ public class QueryGraph implements Graph {
 
         // build data structures holding the virtual edges at all real/virtual nodes that are modified compared to the
         // mainGraph.
-        final EdgeExplorer mainExplorer = baseGraph.createEdgeExplorer();
-        virtualEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(mainExplorer);
-        virtualEdgesAtVirtualNodes = buildVirtualEdgesAtVirtualNodes();
+        mainExplorer = baseGraph.createEdgeExplorer();
+        virtualEdgesAtRealNodes = new GHIntObjectHashMap<>(queryOverlay.getEdgeChangesAtRealNodes().size());
+        virtualEdgesAtVirtualNodes = new ArrayList<>(queryOverlay.getVirtualNodes().size());
+        buildVirtualEdgesAtRealNodes();
+        buildVirtualEdgesAtVirtualNodes();
+    }
+
+    /**
+     * @return true if this QueryGraph was created for the specified graph and the graph was not changed since then
+     */
+    boolean canReset(BaseGraph graph) {
+        return baseGraph == graph && baseNodes == graph.getNodes() && baseEdges == graph.getEdges();
+    }
+
+    /**
+     * Changes this QueryGraph such that it contains the virtual nodes and edges for the given snaps instead of the
+     * previous ones. This reuses the internal data structures and avoids some allocations compared to creating a new
+     * QueryGraph. The virtual edges, explorers and weightings obtained from this QueryGraph before must no longer be
+     * used.
+     */
+    public QueryGraph reset(List<Snap> snaps) {
+        if (!canReset(baseGraph))
+            throw new IllegalStateException("Cannot reset QueryGraph, because the graph was changed");
+        unfavoredEdges.clear();
+        QueryOverlayBuilder.rebuild(baseGraph, snaps, queryOverlay);
+        virtualEdgesAtRealNodes.clear();
+        virtualEdgesAtVirtualNodes.clear();
+        buildVirtualEdgesAtRealNodes();
+        buildVirtualEdgesAtVirtualNodes();
+        return this;
     }
 
     public QueryOverlay getQueryOverlay() {
@@ -232,9 +260,7 @@ public class QueryGraph implements Graph {
         };
     }
 
-    private IntObjectMap<List<EdgeIteratorState>> buildVirtualEdgesAtRealNodes(final EdgeExplorer mainExplorer) {
-        final IntObjectMap<List<EdgeIteratorState>> virtualEdgesAtRealNodes =
-                new GHIntObjectHashMap<>(queryOverlay.getEdgeChangesAtRealNodes().size());
+    private void buildVirtualEdgesAtRealNodes() {
         queryOverlay.getEdgeChangesAtRealNodes().forEach(new IntObjectProcedure<QueryOverlay.EdgeChanges>() {
             @Override
             public void apply(int node, QueryOverlay.EdgeChanges edgeChanges) {
@@ -248,11 +274,9 @@ public class QueryGraph implements Graph {
                 virtualEdgesAtRealNodes.put(node, virtualEdges);
             }
         });
-        return virtualEdgesAtRealNodes;
     }
 
-    private List<List<EdgeIteratorState>> buildVirtualEdgesAtVirtualNodes() {
-        final List<List<EdgeIteratorState>> virtualEdgesAtVirtualNodes = new ArrayList<>();
+    private void buildVirtualEdgesAtVirtualNodes() {
         for (int i = 0; i < queryOverlay.getVirtualNodes().size(); i++) {
             List<EdgeIteratorState> virtualEdges = Arrays.<EdgeIteratorState>asList(
                     queryOverlay.getVirtualEdge(i * 4 + SNAP_BASE),
@@ -260,7 +284,6 @@ public class QueryGraph implements Graph {
             );
             virtualEdgesAtVirtualNodes.add(virtualEdges);
         }
-        return virtualEdgesAtVirtualNodes;
     }
 
     @Override
@@ -48,6 +48,13 @@ class QueryOverlay {
         edgeChangesAtRealNodes = new GHIntObjectHashMap<>(numVirtualNodes * 3);
     }
 
+    void clear() {
+        virtualNodes.clear();
+        virtualEdges.clear();
+        closestEdges.clear();
+        edgeChangesAtRealNodes.clear();
+    }
+
     int getNumVirtualEdges() {
         return virtualEdges.size();
     }
@@ -43,7 +43,16 @@ class QueryOverlayBuilder {
     }
 
     public static QueryOverlay build(int firstVirtualNodeId, int firstVirtualEdgeId, boolean is3D, List<Snap> snaps) {
-        return new QueryOverlayBuilder(firstVirtualNodeId, firstVirtualEdgeId, is3D).build(snaps);
+        return new QueryOverlayBuilder(firstVirtualNodeId, firstVirtualEdgeId, is3D).build(new QueryOverlay(snaps.size(), is3D), snaps);
+    }
+
+    /**
+     * Same as {@link #build(Graph, List)}, but reuses the data structures of the given overlay, which must have
+     * been created for the same graph
+     */
+    public static QueryOverlay rebuild(Graph graph, List<Snap> snaps, QueryOverlay queryOverlay) {
+        queryOverlay.clear();
+        return new QueryOverlayBuilder(graph.getNodes(), graph.getEdges(), graph.getNodeAccess().is3D()).build(queryOverlay, snaps);
     }
 
     private QueryOverlayBuilder(int firstVirtualNodeId, int firstVirtualEdgeId, boolean is3D) {
@@ -52,8 +61,8 @@ class QueryOverlayBuilder {
         this.is3D = is3D;
     }
 
-    private QueryOverlay build(List<Snap> resList) {
-        queryOverlay = new QueryOverlay(resList.size(), is3D);
+    private QueryOverlay build(QueryOverlay queryOverlay, List<Snap> resList) {
+        this.queryOverlay = queryOverlay;
         buildVirtualEdges(resList);
         buildEdgeChangesAtRealNodes();
         return queryOverlay;
@@ -224,7 +233,6 @@ class QueryOverlayBuilder {
         // basePoints must have at least the size of 2 to make sure fetchWayGeometry(FetchMode.ALL) returns at least 2
         assert basePoints.size() >= 2 : "basePoints must have at least two points";
 
-        PointList baseReversePoints = basePoints.clone(true);
         double baseDistance = DistancePlaneProjection.DIST_PLANE.calcDistance(basePoints);
         int virtEdgeId = firstVirtualEdgeId + queryOverlay.getNumVirtualEdges() / 2;
 
@@ -234,7 +242,7 @@ class QueryOverlayBuilder {
         VirtualEdgeIteratorState baseEdge = new VirtualEdgeIteratorState(origEdgeKey, GHUtility.createEdgeKey(virtEdgeId, false),
                 prevNodeId, nodeId, baseDistance, closestEdge.getFlags(), keyValues, basePoints, reverse);
         VirtualEdgeIteratorState baseReverseEdge = new VirtualEdgeIteratorState(origRevEdgeKey, GHUtility.createEdgeKey(virtEdgeId, true),
-                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), keyValues, baseReversePoints, !reverse);
+                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), keyValues, null, !reverse);
 
         baseEdge.setReverseEdge(baseReverseEdge);
         baseReverseEdge.setReverseEdge(baseEdge);
@@ -21,6 +21,7 @@ package com.graphhopper.routing.querygraph;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.procedures.IntObjectProcedure;
+import com.graphhopper.routing.ch.ShortcutUnpackCache;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeIteratorState;
@@ -154,6 +155,12 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         return weighting;
     }
 
+    @Override
+    public ShortcutUnpackCache getShortcutUnpackCache() {
+        // virtual edges are never shortcuts, so the shortcuts can be unpacked like for the underlying graph
+        return routingCHGraph.getShortcutUnpackCache();
+    }
+
     @Override
     public void close() {
         routingCHGraph.close();
@@ -0,0 +1,57 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.querygraph;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.Snap;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps one QueryGraph per thread that is reset for the next QueryGraph of the same thread, see
+ * {@link QueryGraph#reset(List)}. Unlike with a static ThreadLocal the QueryGraphs can be released via
+ * {@link #clear()} when the graph is closed, and the QueryGraphs of terminated threads are garbage collected.
+ */
+public class ReusableQueryGraphs {
+    private final Map<Thread, QueryGraph> queryGraphs = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Same as {@link QueryGraph#create(BaseGraph, List)}, but reuses the QueryGraph returned by the previous call of
+     * this method in the same thread if it was created for the same graph. So the QueryGraph and all objects obtained
+     * from it must no longer be used when this method is called again in the same thread.
+     */
+    public QueryGraph create(BaseGraph graph, List<Snap> snaps) {
+        Thread thread = Thread.currentThread();
+        QueryGraph queryGraph = queryGraphs.get(thread);
+        if (queryGraph != null && queryGraph.canReset(graph))
+            return queryGraph.reset(snaps);
+        queryGraph = QueryGraph.create(graph, snaps);
+        queryGraphs.put(thread, queryGraph);
+        return queryGraph;
+    }
+
+    /**
+     * Releases the QueryGraphs of all threads
+     */
+    public void clear() {
+        queryGraphs.clear();
+    }
+}
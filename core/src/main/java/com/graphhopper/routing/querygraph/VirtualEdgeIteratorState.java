@@ -36,7 +36,7 @@ import static com.graphhopper.util.Parameters.Details.STREET_NAME;
  * even gets removed.
  */
 public class VirtualEdgeIteratorState implements EdgeIteratorState {
-    private final PointList pointList;
+    private PointList pointList;
     private final int edgeKey;
     private final int baseNode;
     private final int adjNode;
@@ -50,6 +50,11 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
     private EdgeIteratorState reverseEdge;
     private final boolean reverse;
 
+    /**
+     * @param pointList the geometry of this edge including the base and adjacent node. It can be null if the reverse
+     *                  edge is set and has a geometry. In this case the geometry is created from the geometry of the
+     *                  reverse edge when it is needed.
+     */
     public VirtualEdgeIteratorState(int originalEdgeKey, int edgeKey, int baseNode, int adjNode, double distance,
                                     IntsRef edgeFlags, Map<String, KVStorage.KValue> keyValues, PointList pointList, boolean reverse) {
         this.originalEdgeKey = originalEdgeKey;
@@ -101,6 +106,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public PointList fetchWayGeometry(FetchMode mode) {
+        PointList pointList = getPointList();
         if (pointList.isEmpty())
             return PointList.EMPTY;
         // due to API we need to create a new instance per call!
@@ -125,6 +131,12 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         throw new UnsupportedOperationException("Illegal mode:" + mode);
     }
 
+    private PointList getPointList() {
+        if (pointList == null)
+            pointList = ((VirtualEdgeIteratorState) reverseEdge).getPointList().clone(true);
+        return pointList;
+    }
+
     @Override
     public EdgeIteratorState setWayGeometry(PointList list) {
         throw new UnsupportedOperationException("Not supported for virtual edge. Set when creating it.");
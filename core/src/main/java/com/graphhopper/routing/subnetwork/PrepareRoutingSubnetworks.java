@@ -20,11 +20,17 @@ package com.graphhopper.routing.subnetwork;
 import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.BitSetIterator;
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntCollection;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.StopWatch;
@@ -32,7 +38,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -58,6 +63,9 @@ import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
  * We always run an edge-based connected component search, because this way we retrieve the edges (not the nodes) that
  * belong to each component and can include turn restrictions as well. Node-based component search is faster, but since
  * the subnetwork search goes relatively fast anyway using it has no real benefit.
+ * <p>
+ * Since only the accessibility of edges and turns matters for the component search, jobs whose weightings block
+ * exactly the same edges and turns share a single component search, see {@link #setShareComponents(boolean)}.
  *
  * @author Peter Karich
  * @author easbar
@@ -68,6 +76,7 @@ public class PrepareRoutingSubnetworks {
     private final List<PrepareJob> prepareJobs;
     private int minNetworkSize = 200;
     private int threads = 1;
+    private boolean shareComponents = false;
 
     public PrepareRoutingSubnetworks(BaseGraph graph, List<PrepareJob> prepareJobs) {
         this.graph = graph;
@@ -88,6 +97,18 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * If enabled, jobs with identical accessibility are detected and the component search is done only once for them.
+     * Two jobs have identical accessibility if their weightings return an infinite weight for the same edges (in both
+     * directions) and for the same entries of the turn cost storage. This requires that the weightings return an
+     * infinite turn weight only for turns that are stored in the turn cost storage (like turn restrictions), which is
+     * the case for the DefaultTurnCostProvider with finite u-turn costs.
+     */
+    public PrepareRoutingSubnetworks setShareComponents(boolean shareComponents) {
+        this.shareComponents = shareComponents;
+        return this;
+    }
+
     /**
      * Finds and marks all subnetworks according to {@link #setMinNetworkSize(int)}
      *
@@ -101,13 +122,23 @@ public class PrepareRoutingSubnetworks {
         StopWatch sw = new StopWatch().start();
         logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", threads: " + threads + ", nodes: " +
                 Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
-        AtomicInteger total = new AtomicInteger(0);
-        List<BitSet> flags = Stream.generate(() -> new BitSet(graph.getEdges())).limit(prepareJobs.size()).collect(Collectors.toList());
-        Stream<Runnable> runnables = IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
+        int[] sharedJobs = shareComponents ? findJobsWithIdenticalAccess() : IntStream.range(0, prepareJobs.size()).toArray();
+        int[] markedEdges = new int[prepareJobs.size()];
+        List<BitSet> flags = IntStream.range(0, prepareJobs.size())
+                .mapToObj(i -> sharedJobs[i] == i ? new BitSet(graph.getEdges()) : null).collect(Collectors.toList());
+        Stream<Runnable> runnables = IntStream.range(0, prepareJobs.size()).filter(i -> sharedJobs[i] == i).mapToObj(i -> () -> {
             PrepareJob job = prepareJobs.get(i);
-            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i)));
+            markedEdges[i] = setSubnetworks(job.weighting, getJobName(job), flags.get(i));
         });
         GHUtility.runConcurrently(runnables, threads);
+        int total = 0;
+        for (int i = 0; i < prepareJobs.size(); i++) {
+            if (sharedJobs[i] != i) {
+                flags.set(i, flags.get(sharedJobs[i]));
+                markedEdges[i] = markedEdges[sharedJobs[i]];
+            }
+            total += markedEdges[i];
+        }
         AllEdgesIterator iter = graph.getAllEdges();
         while (iter.next()) {
             for (int i = 0; i < prepareJobs.size(); i++) {
@@ -116,7 +147,158 @@ public class PrepareRoutingSubnetworks {
             }
         }
         logger.info("Finished finding and marking subnetworks for " + prepareJobs.size() + " jobs, took: " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
-        return total.get();
+        return total;
+    }
+
+    /**
+     * Updates the subnetwork flags of the given edges and of the edges adjacent to them, e.g. after they were added to
+     * the graph or their access changed. Unlike {@link #doWork()} this does not search the components of the whole
+     * graph. Instead, an edge is kept in the network if one can reach at least 2*{@link #setMinNetworkSize(int)}
+     * directed edges from it and it can be reached from as many directed edges. Otherwise, all the edges that were
+     * explored from it are marked as subnetworks. The flags of other edges are only ever set, never cleared, so an
+     * island that gets connected to the network stays a subnetwork until {@link #doWork()} runs again.
+     *
+     * @return the total number of marked edges
+     */
+    public int updateSubnetworks(IntCollection changedEdges) {
+        if (minNetworkSize <= 0)
+            return 0;
+        // removing an edge can disconnect its neighbors, so we check them as well
+        IntHashSet edges = new IntHashSet();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (IntCursor cursor : changedEdges) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+            edges.add(cursor.value);
+            for (int node : new int[]{edge.getBaseNode(), edge.getAdjNode()}) {
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next())
+                    edges.add(iter.getEdge());
+            }
+        }
+        int total = 0;
+        for (PrepareJob job : prepareJobs) {
+            BitSet subnetworkFlags = new BitSet(graph.getEdges());
+            int markedEdges = 0;
+            for (IntCursor cursor : edges) {
+                for (int edgeKey : new int[]{2 * cursor.value, 2 * cursor.value + 1}) {
+                    if (subnetworkFlags.get(cursor.value)
+                            || !Double.isFinite(job.weighting.calcEdgeWeight(graph.getEdgeIteratorStateForKey(edgeKey), false)))
+                        continue;
+                    IntArrayList explored = new IntArrayList();
+                    if (!reachesMinNetworkSize(job.weighting, edgeKey, false, explored)
+                            || !reachesMinNetworkSize(job.weighting, edgeKey, true, explored))
+                        for (IntCursor key : explored)
+                            markedEdges += setSubnetworkEdge(key.value, job.weighting, subnetworkFlags);
+                }
+            }
+            for (IntCursor cursor : edges)
+                graph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE).set(job.subnetworkEnc, subnetworkFlags.get(cursor.value));
+            BitSetIterator iter = subnetworkFlags.iterator();
+            for (int edge = iter.nextSetBit(); edge >= 0; edge = iter.nextSetBit())
+                graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).set(job.subnetworkEnc, true);
+            logger.info(getJobName(job) + " - Updated the subnetworks of " + edges.size() + " edges, marked edges: " + markedEdges);
+            total += markedEdges;
+        }
+        return total;
+    }
+
+    /**
+     * Explores the edge keys that can be reached from the given edge key (or that can reach it if reverse is true)
+     * until 2*{@link #minNetworkSize} edge keys were found. All explored edge keys are added to the given list.
+     */
+    private boolean reachesMinNetworkSize(Weighting weighting, int startKey, boolean reverse, IntArrayList explored) {
+        int minNetworkSizeEdgeKeys = 2 * minNetworkSize;
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        IntHashSet visited = new IntHashSet();
+        IntArrayList queue = new IntArrayList();
+        visited.add(startKey);
+        queue.add(startKey);
+        for (int i = 0; i < queue.size(); i++) {
+            if (visited.size() >= minNetworkSizeEdgeKeys)
+                return true;
+            EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(queue.get(i));
+            EdgeIterator iter = explorer.setBaseNode(reverse ? edge.getBaseNode() : edge.getAdjNode());
+            while (iter.next()) {
+                if (!Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, edge.getEdge())))
+                    continue;
+                int edgeKey = reverse ? iter.getReverseEdgeKey() : iter.getEdgeKey();
+                if (visited.add(edgeKey))
+                    queue.add(edgeKey);
+            }
+        }
+        explored.addAll(queue);
+        return visited.size() >= minNetworkSizeEdgeKeys;
+    }
+
+    private static String getJobName(PrepareJob job) {
+        return job.subnetworkEnc.getName().replaceAll("_subnetwork", "");
+    }
+
+    /**
+     * @return for every job the index of the first job with identical accessibility, which is the job itself if
+     * there is no such job before it
+     */
+    private int[] findJobsWithIdenticalAccess() {
+        StopWatch sw = new StopWatch().start();
+        long[] hashes = new long[prepareJobs.size()];
+        GHUtility.runConcurrently(IntStream.range(0, prepareJobs.size()).mapToObj(i -> () ->
+                hashes[i] = calcAccessHash(prepareJobs.get(i).weighting)), threads);
+        int[] sharedJobs = new int[prepareJobs.size()];
+        int shared = 0;
+        for (int i = 0; i < prepareJobs.size(); i++) {
+            sharedJobs[i] = i;
+            for (int j = 0; j < i; j++) {
+                if (sharedJobs[j] == j && hashes[j] == hashes[i]
+                        && hasIdenticalAccess(prepareJobs.get(j).weighting, prepareJobs.get(i).weighting)) {
+                    logger.info(getJobName(prepareJobs.get(i)) + " - Uses the subnetworks of " + getJobName(prepareJobs.get(j))
+                            + " as both have identical access");
+                    sharedJobs[i] = j;
+                    shared++;
+                    break;
+                }
+            }
+        }
+        logger.info("Found " + shared + " jobs with identical access, took: " + sw.stop().getSeconds() + "s");
+        return sharedJobs;
+    }
+
+    private long calcAccessHash(Weighting weighting) {
+        long hash = 1;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            hash = 31 * hash + (Double.isFinite(weighting.calcEdgeWeight(iter, false)) ? 1 : 0);
+            hash = 31 * hash + (Double.isFinite(weighting.calcEdgeWeight(iter, true)) ? 1 : 0);
+        }
+        if (weighting.hasTurnCosts() && graph.getTurnCostStorage() != null) {
+            TurnCostStorage.Iterator tcIter = graph.getTurnCostStorage().getAllTurnCosts();
+            while (tcIter.next()) {
+                if (isBlockedTurn(weighting, tcIter))
+                    hash = 31 * hash + tcIter.getFromEdge() * 17L + tcIter.getToEdge();
+            }
+        }
+        return hash;
+    }
+
+    private boolean hasIdenticalAccess(Weighting weighting, Weighting other) {
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (Double.isFinite(weighting.calcEdgeWeight(iter, false)) != Double.isFinite(other.calcEdgeWeight(iter, false))
+                    || Double.isFinite(weighting.calcEdgeWeight(iter, true)) != Double.isFinite(other.calcEdgeWeight(iter, true)))
+                return false;
+        }
+        if (graph.getTurnCostStorage() == null)
+            return true;
+        TurnCostStorage.Iterator tcIter = graph.getTurnCostStorage().getAllTurnCosts();
+        while (tcIter.next()) {
+            if (isBlockedTurn(weighting, tcIter) != isBlockedTurn(other, tcIter))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlockedTurn(Weighting weighting, TurnCostStorage.Iterator tcIter) {
+        return weighting.hasTurnCosts()
+                && !Double.isFinite(weighting.calcTurnWeight(tcIter.getFromEdge(), tcIter.getViaNode(), tcIter.getToEdge()));
     }
 
     private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags) {
@@ -23,17 +23,28 @@ import org.locationtech.jts.geom.prep.PreparedGeometry;
 import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.index.strtree.STRtree;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.stream.Collectors;
 
+/**
+ * Finds the areas that contain a point. The queries are thread-safe: the STRtree is only read after it was built, the
+ * PreparedGeometry of JTS is thread-safe and the cells of the optional raster are stored atomically.
+ */
 public class AreaIndex<T extends AreaIndex.Area> {
 
     public interface Area {
         List<Polygon> getBorders();
     }
 
+    private static final int MAX_RASTER_CELLS = 50_000_000;
+    private static final int CELL_UNKNOWN = 0;
+    private static final int CELL_BORDER = -1;
     private final GeometryFactory gf;
     private final STRtree index;
+    private final Envelope bounds = new Envelope();
+    private Raster<T> raster;
 
     public AreaIndex(List<T> areas) {
         gf = new GeometryFactory();
@@ -43,12 +54,70 @@ public class AreaIndex<T extends AreaIndex.Area> {
             for (Polygon border : area.getBorders()) {
                 IndexedCustomArea<T> indexedCustomArea = new IndexedCustomArea<>(area, pgf.create(border));
                 index.insert(border.getEnvelopeInternal(), indexedCustomArea);
+                bounds.expandToInclude(border.getEnvelopeInternal());
             }
         }
         index.build();
     }
 
+    /**
+     * Enables a raster over all areas that answers most queries without polygon tests. For every cell that is either
+     * completely inside or completely outside each area border we store the query result, and only for cells that
+     * intersect a border we still do the polygon tests. The cells are calculated on their first query.
+     *
+     * @param cellSize the width and height of the raster cells in degrees
+     */
+    public AreaIndex<T> setRasterCellSize(double cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        if (bounds.isNull())
+            return this;
+        int columns = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+        int rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+        if ((long) columns * rows > MAX_RASTER_CELLS)
+            throw new IllegalArgumentException("Too many raster cells for the areas: " + columns + "x" + rows + ", use a larger cell size than " + cellSize);
+        raster = new Raster<>(cellSize, columns, rows);
+        return this;
+    }
+
     public List<T> query(double lat, double lon) {
+        if (raster == null)
+            return queryPolygons(lat, lon);
+        if (!bounds.contains(lon, lat))
+            return Collections.emptyList();
+
+        int column = Math.min(raster.columns - 1, (int) ((lon - bounds.getMinX()) / raster.cellSize));
+        int row = Math.min(raster.rows - 1, (int) ((lat - bounds.getMinY()) / raster.cellSize));
+        int cellIndex = row * raster.columns + column;
+        int cell = raster.cells.get(cellIndex);
+        if (cell == CELL_UNKNOWN) {
+            // concurrent queries might calculate the same cell, but the result is the same
+            cell = calcCell(column, row);
+            raster.cells.set(cellIndex, cell);
+        }
+        return cell == CELL_BORDER ? queryPolygons(lat, lon) : raster.results.get(cell - 1);
+    }
+
+    private int calcCell(int column, int row) {
+        // make the cell a bit larger to be safe against rounding errors when calculating the cell of a point
+        double eps = raster.cellSize * 1e-6;
+        double minLon = bounds.getMinX() + column * raster.cellSize - eps;
+        double minLat = bounds.getMinY() + row * raster.cellSize - eps;
+        Envelope cellEnv = new Envelope(minLon, minLon + raster.cellSize + 2 * eps, minLat, minLat + raster.cellSize + 2 * eps);
+        Geometry cellGeometry = gf.toGeometry(cellEnv);
+        @SuppressWarnings("unchecked")
+        List<IndexedCustomArea<T>> candidates = index.query(cellEnv);
+        List<T> result = new ArrayList<>();
+        for (IndexedCustomArea<T> candidate : candidates) {
+            if (candidate.preparedGeometry.contains(cellGeometry))
+                result.add(candidate.area);
+            else if (candidate.preparedGeometry.intersects(cellGeometry))
+                return CELL_BORDER;
+        }
+        return raster.getResultId(result);
+    }
+
+    private List<T> queryPolygons(double lat, double lon) {
         Envelope searchEnv = new Envelope(lon, lon, lat, lat);
         @SuppressWarnings("unchecked")
         List<IndexedCustomArea<T>> result = index.query(searchEnv);
@@ -59,6 +128,31 @@ public class AreaIndex<T extends AreaIndex.Area> {
                 .collect(Collectors.toList());
     }
 
+    private static class Raster<T> {
+        final double cellSize;
+        final int columns;
+        final int rows;
+        // 0 means the cell was not calculated yet, -1 that it intersects a border, otherwise the result ID + 1
+        final AtomicIntegerArray cells;
+        // many cells have the same result, so we store every distinct result only once
+        final List<List<T>> results = new CopyOnWriteArrayList<>();
+        final Map<List<T>, Integer> resultIds = new HashMap<>();
+
+        Raster(double cellSize, int columns, int rows) {
+            this.cellSize = cellSize;
+            this.columns = columns;
+            this.rows = rows;
+            this.cells = new AtomicIntegerArray(columns * rows);
+        }
+
+        synchronized int getResultId(List<T> result) {
+            return resultIds.computeIfAbsent(result, r -> {
+                results.add(Collections.unmodifiableList(r));
+                return results.size();
+            });
+        }
+    }
+
     private static class IndexedCustomArea<T extends Area> {
         final T area;
         final PreparedGeometry preparedGeometry;
@@ -1,14 +1,18 @@
 package com.graphhopper.routing.util;
 
-import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.EdgeIntAccess;
-import com.graphhopper.routing.util.parsers.TagParser;
-import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
 import com.graphhopper.util.PointList;
 
-public class CurvatureCalculator implements TagParser {
+/**
+ * Calculates the curvature from the geometry of the edge only, so it runs after the import as part of the
+ * {@link EdgeAttributePass}.
+ */
+public class CurvatureCalculator implements EdgeAttributePass.Calculator<Void> {
 
     private final DecimalEncodedValue curvatureEnc;
 
@@ -17,18 +21,23 @@ public class CurvatureCalculator implements TagParser {
     }
 
     @Override
-    public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
-        PointList pointList = way.getTag("point_list", null);
-        Double edgeDistance = way.getTag("edge_distance", null);
-        if (pointList != null && edgeDistance != null && !pointList.isEmpty()) {
-            double beeline = DistanceCalcEarth.DIST_EARTH.calcDist(pointList.getLat(0), pointList.getLon(0),
-                    pointList.getLat(pointList.size() - 1), pointList.getLon(pointList.size() - 1));
-            // For now keep the formula simple. Maybe later use quadratic value as it might improve the "resolution"
-            double curvature = beeline / edgeDistance;
-            curvatureEnc.setDecimal(false, edgeId, edgeIntAccess, Math.max(curvatureEnc.getMinStorableDecimal(), Math.min(curvatureEnc.getMaxStorableDecimal(),
-                    curvature)));
-        } else {
-            curvatureEnc.setDecimal(false, edgeId, edgeIntAccess, 1.0);
-        }
+    public Void createState(BaseGraph graph) {
+        return null;
+    }
+
+    @Override
+    public void calculate(Void state, EdgeIteratorState edge, EdgeIntAccess edgeIntAccess) {
+        PointList pointList = edge.fetchWayGeometry(FetchMode.TOWER_ONLY);
+        double beeline = DistanceCalcEarth.DIST_EARTH.calcDist(pointList.getLat(0), pointList.getLon(0),
+                pointList.getLat(pointList.size() - 1), pointList.getLon(pointList.size() - 1));
+        // For now keep the formula simple. Maybe later use quadratic value as it might improve the "resolution"
+        double curvature = beeline / edge.getDistance();
+        curvatureEnc.setDecimal(false, edge.getEdge(), edgeIntAccess, Math.max(curvatureEnc.getMinStorableDecimal(), Math.min(curvatureEnc.getMaxStorableDecimal(),
+                curvature)));
+    }
+
+    @Override
+    public String getName() {
+        return "curvature_calculator";
     }
 }
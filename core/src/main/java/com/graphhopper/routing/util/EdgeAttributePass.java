@@ -0,0 +1,146 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.carrotsearch.hppc.IntCollection;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the registered {@link Calculator}s over all edges of the graph after the import. The edges are split into
+ * batches of consecutive edge IDs and the batches are processed in parallel. Every batch creates its own state for each
+ * calculator, e.g. an EdgeExplorer, so the calculators do not need to be thread-safe. The calculators must only write
+ * the attributes of the edge they are called for. Every edge has its own range in the edge storage, so the batches
+ * write disjoint ranges. Calculators of the same pass must not read attributes of other edges that another calculator
+ * of this pass writes.
+ */
+public class EdgeAttributePass {
+    private static final Logger logger = LoggerFactory.getLogger(EdgeAttributePass.class);
+    private final BaseGraph graph;
+    private final List<Calculator<?>> calculators = new ArrayList<>();
+    private int threads = 1;
+    private int batchSize = 100_000;
+
+    public EdgeAttributePass(BaseGraph graph) {
+        this.graph = graph;
+    }
+
+    public EdgeAttributePass add(Calculator<?> calculator) {
+        calculators.add(calculator);
+        return this;
+    }
+
+    public EdgeAttributePass setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param batchSize the number of consecutive edges that are processed by one worker at a time
+     */
+    public EdgeAttributePass setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return calculators.isEmpty();
+    }
+
+    public void run() {
+        if (calculators.isEmpty())
+            return;
+        String names = calculators.stream().map(Calculator::getName).collect(Collectors.joining(", "));
+        logger.info("Calculating edge attributes: {}, edges: {}, threads: {}", names, graph.getEdges(), threads);
+        StopWatch sw = StopWatch.started();
+        int edges = graph.getEdges();
+        int batches = (int) ((edges + (long) batchSize - 1) / batchSize);
+        GHUtility.runConcurrently(IntStream.range(0, batches).mapToObj(batch -> () -> {
+            EdgeIntAccess edgeIntAccess = graph.getEdgeAccess();
+            List<EdgeHandler> handlers = new ArrayList<>(calculators.size());
+            for (Calculator<?> calculator : calculators)
+                handlers.add(createHandler(calculator, edgeIntAccess));
+            int end = (int) Math.min(edges, (long) (batch + 1) * batchSize);
+            for (int edge = batch * batchSize; edge < end; edge++) {
+                EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                for (EdgeHandler handler : handlers)
+                    handler.handle(edgeState);
+            }
+        }), threads);
+        logger.info("Finished calculating edge attributes: {}, took: {}", names, sw.stop().getTimeString());
+    }
+
+    /**
+     * Runs the calculators only for the given edges, e.g. for the edges whose geometry changed. This uses a single
+     * thread.
+     */
+    public void run(IntCollection edges) {
+        if (calculators.isEmpty() || edges.isEmpty())
+            return;
+        EdgeIntAccess edgeIntAccess = graph.getEdgeAccess();
+        List<EdgeHandler> handlers = new ArrayList<>(calculators.size());
+        for (Calculator<?> calculator : calculators)
+            handlers.add(createHandler(calculator, edgeIntAccess));
+        for (IntCursor cursor : edges) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+            for (EdgeHandler handler : handlers)
+                handler.handle(edgeState);
+        }
+    }
+
+    private <T> EdgeHandler createHandler(Calculator<T> calculator, EdgeIntAccess edgeIntAccess) {
+        T state = calculator.createState(graph);
+        return edge -> calculator.calculate(state, edge, edgeIntAccess);
+    }
+
+    private interface EdgeHandler {
+        void handle(EdgeIteratorState edge);
+    }
+
+    public interface Calculator<T> {
+        /**
+         * @return the state used for one batch of edges, e.g. an EdgeExplorer or a buffer. Can be null.
+         */
+        T createState(BaseGraph graph);
+
+        /**
+         * Calculates the attributes of the given edge. Only the attributes of this edge must be written, either via the
+         * edge or via the given edgeIntAccess and edge.getEdge().
+         */
+        void calculate(T state, EdgeIteratorState edge, EdgeIntAccess edgeIntAccess);
+
+        default String getName() {
+            return getClass().getSimpleName();
+        }
+    }
+}
@@ -197,6 +197,14 @@ public class EncodingManager implements EncodedValueLookup {
         }
     }
 
+    /**
+     * @return the bit layout of all encoded values, i.e. two encoding managers with the same layout can read and
+     * write the same edge flags
+     */
+    public String toEncodedValuesLayoutAsString() {
+        return encodedValueMap.values().stream().map(EncodedValueSerializer::serializeEncodedValueLayout).collect(Collectors.joining(","));
+    }
+
     @Override
     public String toString() {
         return String.join(",", getVehicles());
@@ -6,6 +6,7 @@ import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.parsers.DefaultMaxSpeedParser;
 import com.graphhopper.routing.util.parsers.OSMMaxSpeedParser;
 import com.graphhopper.routing.util.parsers.TagParser;
+import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.Graph;
@@ -143,34 +144,65 @@ public class MaxSpeedCalculator {
 
         StopWatch sw = new StopWatch().start();
         AllEdgesIterator iter = graph.getAllEdges();
-        while (iter.next()) {
-            double fwdMaxSpeedPureOSM = iter.get(maxSpeedEnc);
-            double bwdMaxSpeedPureOSM = iter.getReverse(maxSpeedEnc);
-
-            // skip speeds-library if max_speed is known for both directions
-            if (fwdMaxSpeedPureOSM != MaxSpeed.MAXSPEED_MISSING
-                    && bwdMaxSpeedPureOSM != MaxSpeed.MAXSPEED_MISSING) continue;
-
-            double maxSpeed = isUrbanDensityFun.apply(iter)
-                    ? urbanMaxSpeedEnc.getDecimal(false, iter.getEdge(), internalMaxSpeedStorage)
-                    : ruralMaxSpeedEnc.getDecimal(false, iter.getEdge(), internalMaxSpeedStorage);
-            if (maxSpeed != MaxSpeed.MAXSPEED_MISSING) {
-                if (maxSpeed == 0) {
-                    // TODO fix properly: RestrictionSetter adds artificial edges for which
-                    //  we didn't set the speed in DefaultMaxSpeedParser, #2914
-                    iter.set(maxSpeedEnc, MaxSpeed.MAXSPEED_MISSING, MaxSpeed.MAXSPEED_MISSING);
-                } else {
-                    iter.set(maxSpeedEnc,
-                            fwdMaxSpeedPureOSM == MaxSpeed.MAXSPEED_MISSING ? maxSpeed : fwdMaxSpeedPureOSM,
-                            bwdMaxSpeedPureOSM == MaxSpeed.MAXSPEED_MISSING ? maxSpeed : bwdMaxSpeedPureOSM);
-                    iter.set(maxSpeedEstEnc, true);
-                }
-            }
-        }
+        while (iter.next())
+            fillMaxSpeed(iter, maxSpeedEnc, maxSpeedEstEnc, isUrbanDensityFun);
 
         LoggerFactory.getLogger(getClass()).info("max_speed_calculator took: " + sw.stop().getSeconds());
     }
 
+    /**
+     * @return a calculator that does the same as {@link #fillMaxSpeed(Graph, EncodingManager)}, but can be run in
+     * parallel together with other calculators, see {@link EdgeAttributePass}
+     */
+    public EdgeAttributePass.Calculator<Void> createEdgeAttributeCalculator(EncodingManager em) {
+        DecimalEncodedValue maxSpeedEnc = em.getDecimalEncodedValue(MaxSpeed.KEY);
+        BooleanEncodedValue maxSpeedEstEnc = em.getBooleanEncodedValue(MaxSpeedEstimated.KEY);
+        EnumEncodedValue<UrbanDensity> udEnc = em.getEnumEncodedValue(UrbanDensity.KEY, UrbanDensity.class);
+        Function<EdgeIteratorState, Boolean> isUrbanDensityFun = edge -> edge.get(udEnc) != UrbanDensity.RURAL;
+        return new EdgeAttributePass.Calculator<Void>() {
+            @Override
+            public Void createState(BaseGraph graph) {
+                return null;
+            }
+
+            @Override
+            public void calculate(Void state, EdgeIteratorState edge, EdgeIntAccess edgeIntAccess) {
+                fillMaxSpeed(edge, maxSpeedEnc, maxSpeedEstEnc, isUrbanDensityFun);
+            }
+
+            @Override
+            public String getName() {
+                return "max_speed_calculator";
+            }
+        };
+    }
+
+    private void fillMaxSpeed(EdgeIteratorState edge, DecimalEncodedValue maxSpeedEnc, BooleanEncodedValue maxSpeedEstEnc,
+                              Function<EdgeIteratorState, Boolean> isUrbanDensityFun) {
+        double fwdMaxSpeedPureOSM = edge.get(maxSpeedEnc);
+        double bwdMaxSpeedPureOSM = edge.getReverse(maxSpeedEnc);
+
+        // skip speeds-library if max_speed is known for both directions
+        if (fwdMaxSpeedPureOSM != MaxSpeed.MAXSPEED_MISSING
+                && bwdMaxSpeedPureOSM != MaxSpeed.MAXSPEED_MISSING) return;
+
+        double maxSpeed = isUrbanDensityFun.apply(edge)
+                ? urbanMaxSpeedEnc.getDecimal(false, edge.getEdge(), internalMaxSpeedStorage)
+                : ruralMaxSpeedEnc.getDecimal(false, edge.getEdge(), internalMaxSpeedStorage);
+        if (maxSpeed != MaxSpeed.MAXSPEED_MISSING) {
+            if (maxSpeed == 0) {
+                // TODO fix properly: RestrictionSetter adds artificial edges for which
+                //  we didn't set the speed in DefaultMaxSpeedParser, #2914
+                edge.set(maxSpeedEnc, MaxSpeed.MAXSPEED_MISSING, MaxSpeed.MAXSPEED_MISSING);
+            } else {
+                edge.set(maxSpeedEnc,
+                        fwdMaxSpeedPureOSM == MaxSpeed.MAXSPEED_MISSING ? maxSpeed : fwdMaxSpeedPureOSM,
+                        bwdMaxSpeedPureOSM == MaxSpeed.MAXSPEED_MISSING ? maxSpeed : bwdMaxSpeedPureOSM);
+                edge.set(maxSpeedEstEnc, true);
+            }
+        }
+    }
+
     public void close() {
         dataAccess.close();
     }
@@ -26,10 +26,12 @@ import com.graphhopper.routing.ev.EdgeIntAccess;
 import com.graphhopper.routing.util.parsers.RelationTagParser;
 import com.graphhopper.routing.util.parsers.TagParser;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.util.ImportMetrics;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public class OSMParsers {
     private final List<String> ignoredHighways;
@@ -37,6 +39,8 @@ public class OSMParsers {
     private final List<RelationTagParser> relationTagParsers;
     private final List<RestrictionTagParser> restrictionTagParsers;
     private final EncodedValue.InitializerConfig relConfig = new EncodedValue.InitializerConfig();
+    // the time spent in every way tag parser, only used if the import metrics are enabled
+    private ImportMetrics.Counter[] wayTagParserCounters;
 
     public OSMParsers() {
         this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
@@ -70,6 +74,33 @@ public class OSMParsers {
         return this;
     }
 
+    /**
+     * Enables counting the calls and the time of every way tag parser. Call this after all parsers were added.
+     */
+    public OSMParsers setImportMetrics(ImportMetrics importMetrics) {
+        // the index keeps the counters of several parsers of the same class apart, e.g. the access parsers of
+        // different vehicles, and it keeps the sorted counters in the order of the parsers
+        wayTagParserCounters = importMetrics.isEnabled()
+                ? IntStream.range(0, wayTagParsers.size()).mapToObj(i -> importMetrics.getCounter(
+                String.format("tag_parser.%03d.%s", i, wayTagParsers.get(i).getClass().getSimpleName()))).toArray(ImportMetrics.Counter[]::new)
+                : null;
+        return this;
+    }
+
+    /**
+     * @return the way and relation tag parsers that are not thread-safe, see {@link TagParser#isThreadSafe()}
+     */
+    public List<TagParser> getNonThreadSafeTagParsers() {
+        List<TagParser> result = new ArrayList<>();
+        for (RelationTagParser relParser : relationTagParsers)
+            if (!relParser.isThreadSafe())
+                result.add(relParser);
+        for (TagParser parser : wayTagParsers)
+            if (!parser.isThreadSafe())
+                result.add(parser);
+        return result;
+    }
+
     public boolean acceptWay(ReaderWay way) {
         String highway = way.getTag("highway");
         if (highway != null)
@@ -97,8 +128,25 @@ public class OSMParsers {
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         for (RelationTagParser relParser : relationTagParsers)
             relParser.handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
-        for (TagParser parser : wayTagParsers)
-            parser.handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
+        if (wayTagParserCounters == null) {
+            for (TagParser parser : wayTagParsers)
+                parser.handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
+        } else {
+            for (int i = 0; i < wayTagParsers.size(); i++) {
+                long start = System.nanoTime();
+                wayTagParsers.get(i).handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
+                wayTagParserCounters[i].add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Restores the relation flags from the values the relation tag parsers stored for the given edge
+     */
+    public IntsRef restoreRelationFlags(int edgeId, EdgeIntAccess edgeIntAccess, IntsRef relFlags) {
+        for (RelationTagParser relParser : relationTagParsers)
+            relParser.restoreRelationFlags(relFlags, edgeId, edgeIntAccess);
+        return relFlags;
     }
 
     public IntsRef createRelationFlags() {
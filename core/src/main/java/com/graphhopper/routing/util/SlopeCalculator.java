@@ -19,6 +19,11 @@ public class SlopeCalculator implements TagParser {
         this.averageSlopeEnc = averageEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         PointList pointList = way.getTag("point_list", null);
@@ -24,7 +24,8 @@ import com.graphhopper.routing.ev.Toll;
 import com.graphhopper.routing.util.TransportationMode;
 
 /**
- * GraphHopper uses country rules to adjust the routing behavior based on the country an edge is located in
+ * GraphHopper uses country rules to adjust the routing behavior based on the country an edge is located in. A country
+ * rule is shared by all ways of its country, which might be parsed by several threads, so it must not keep any state.
  */
 public interface CountryRule {
     default RoadAccess getAccess(ReaderWay readerWay, TransportationMode transportationMode, RoadAccess currentRoadAccess) {
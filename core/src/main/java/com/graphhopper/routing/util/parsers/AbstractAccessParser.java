@@ -83,6 +83,11 @@ public abstract class AbstractAccessParser implements TagParser {
         }
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         handleWayTags(edgeId, edgeIntAccess, way);
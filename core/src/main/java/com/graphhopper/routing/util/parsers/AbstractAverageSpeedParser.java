@@ -32,6 +32,11 @@ public abstract class AbstractAverageSpeedParser implements TagParser {
         return avgSpeedEnc.getName();
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         handleWayTags(edgeId, edgeIntAccess, way);
@@ -103,6 +103,11 @@ public abstract class BikeCommonAccessParser extends AbstractAccessParser implem
         return WayAccess.WAY;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way) {
         WayAccess access = getAccess(way);
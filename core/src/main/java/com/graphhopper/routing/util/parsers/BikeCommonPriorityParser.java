@@ -81,6 +81,11 @@ public abstract class BikeCommonPriorityParser implements TagParser {
         avoidSpeedLimit = 71;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         String highwayValue = way.getTag("highway");
@@ -126,6 +126,11 @@ public class CarAccessParser extends AbstractAccessParser implements TagParser {
         return WayAccess.WAY;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way) {
         WayAccess access = getAccess(way);
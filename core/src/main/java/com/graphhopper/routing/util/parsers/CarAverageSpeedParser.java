@@ -119,6 +119,11 @@ public class CarAverageSpeedParser extends AbstractAverageSpeedParser implements
         return speed;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way) {
         if (FerrySpeedCalculator.isFerry(way)) {
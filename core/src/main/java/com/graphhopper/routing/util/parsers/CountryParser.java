@@ -30,6 +30,11 @@ public class CountryParser implements TagParser {
         this.countryEnc = countryEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         Country country = way.getTag("country", Country.MISSING);
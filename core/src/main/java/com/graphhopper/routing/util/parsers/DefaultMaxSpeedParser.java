@@ -29,6 +29,11 @@ public class DefaultMaxSpeedParser implements TagParser {
         this.externalAccess = externalAccess;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess _ignoreAccess, ReaderWay way, IntsRef relationFlags) {
         if (externalAccess == null)
@@ -45,33 +50,39 @@ public class DefaultMaxSpeedParser implements TagParser {
                 if (country == Country.GBR) tags.put("lit", "yes");
 
                 // with computeIfAbsent we calculate the expensive hashCode of the key only once
-                Result result = cache.computeIfAbsent(tags, (key) -> {
-                    Result internRes = new Result();
-                    LegalDefaultSpeeds.Result tmpResult = speeds.getSpeedLimits(code,
-                            tags, Collections.emptyList(), (name, eval) -> eval.invoke() || "rural".equals(name));
-                    if (tmpResult != null) {
-                        internRes.rural = parseInt(tmpResult.getTags().get("maxspeed"));
-                        if (internRes.rural == null && "130".equals(tmpResult.getTags().get("maxspeed:advisory")))
-                            internRes.rural = (int) MAXSPEED_150;
-                    }
-
-                    tmpResult = speeds.getSpeedLimits(code,
-                            tags, Collections.emptyList(), (name, eval) -> eval.invoke() || "urban".equals(name));
-                    if (tmpResult != null) {
-                        internRes.urban = parseInt(tmpResult.getTags().get("maxspeed"));
-                        if (internRes.urban == null && "130".equals(tmpResult.getTags().get("maxspeed:advisory")))
-                            internRes.urban = (int) MAXSPEED_150;
-                    }
-                    return internRes;
-                });
+                // the cache is synchronized, because the tags of different ways can be parsed in parallel
+                Result result;
+                synchronized (cache) {
+                    result = cache.computeIfAbsent(tags, (key) -> {
+                        Result internRes = new Result();
+                        LegalDefaultSpeeds.Result tmpResult = speeds.getSpeedLimits(code,
+                                tags, Collections.emptyList(), (name, eval) -> eval.invoke() || "rural".equals(name));
+                        if (tmpResult != null) {
+                            internRes.rural = parseInt(tmpResult.getTags().get("maxspeed"));
+                            if (internRes.rural == null && "130".equals(tmpResult.getTags().get("maxspeed:advisory")))
+                                internRes.rural = (int) MAXSPEED_150;
+                        }
+
+                        tmpResult = speeds.getSpeedLimits(code,
+                                tags, Collections.emptyList(), (name, eval) -> eval.invoke() || "urban".equals(name));
+                        if (tmpResult != null) {
+                            internRes.urban = parseInt(tmpResult.getTags().get("maxspeed"));
+                            if (internRes.urban == null && "130".equals(tmpResult.getTags().get("maxspeed:advisory")))
+                                internRes.urban = (int) MAXSPEED_150;
+                        }
+                        return internRes;
+                    });
+                }
 
                 ruralSpeedInt = result.rural;
                 urbanSpeedInt = result.urban;
             }
         }
 
-        urbanMaxSpeedEnc.setDecimal(false, edgeId, externalAccess, urbanSpeedInt == null ? MAXSPEED_MISSING : urbanSpeedInt);
-        ruralMaxSpeedEnc.setDecimal(false, edgeId, externalAccess, ruralSpeedInt == null ? MAXSPEED_MISSING : ruralSpeedInt);
+        synchronized (externalAccess) {
+            urbanMaxSpeedEnc.setDecimal(false, edgeId, externalAccess, urbanSpeedInt == null ? MAXSPEED_MISSING : urbanSpeedInt);
+            ruralMaxSpeedEnc.setDecimal(false, edgeId, externalAccess, ruralSpeedInt == null ? MAXSPEED_MISSING : ruralSpeedInt);
+        }
     }
 
     private Map<String, String> filter(Map<String, Object> tags) {
@@ -144,6 +144,11 @@ public class FootAccessParser extends AbstractAccessParser implements TagParser
         return WayAccess.WAY;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way) {
         WayAccess access = getAccess(way);
@@ -29,6 +29,11 @@ public class FootAverageSpeedParser extends AbstractAverageSpeedParser implement
         routeMap.put(LOCAL, UNCHANGED.getValue());
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way) {
         String highwayValue = way.getTag("highway");
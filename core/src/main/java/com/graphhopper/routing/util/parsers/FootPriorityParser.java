@@ -62,6 +62,11 @@ public class FootPriorityParser implements TagParser {
         routeMap.put(LOCAL, UNCHANGED.getValue());
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         String highwayValue = way.getTag("highway");
@@ -22,6 +22,11 @@ public class MaxWeightExceptParser implements TagParser {
         this.mweEnc = mweEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         // tagging like maxweight:conditional=no/none @ destination/delivery/forestry/service
         String condValue = way.getTag("maxweight:conditional", "");
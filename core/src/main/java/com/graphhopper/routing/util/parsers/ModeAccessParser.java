@@ -45,6 +45,11 @@ public class ModeAccessParser implements TagParser {
         this.skipEmergency = skipEmergency;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         String highwayValue = way.getTag("highway");
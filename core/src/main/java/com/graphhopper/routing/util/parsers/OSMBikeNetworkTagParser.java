@@ -47,6 +47,11 @@ public class OSMBikeNetworkTagParser implements RelationTagParser {
         }
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         // just copy value into different bit range
@@ -55,6 +60,12 @@ public class OSMBikeNetworkTagParser implements RelationTagParser {
         bikeRouteEnc.setEnum(false, edgeId, edgeIntAccess, routeNetwork);
     }
 
+    @Override
+    public void restoreRelationFlags(IntsRef relFlags, int edgeId, EdgeIntAccess edgeIntAccess) {
+        RouteNetwork routeNetwork = bikeRouteEnc.getEnum(false, edgeId, edgeIntAccess);
+        transformerRouteRelEnc.setEnum(false, -1, new IntsRefEdgeIntAccess(relFlags), routeNetwork);
+    }
+
     public EnumEncodedValue<RouteNetwork> getTransformerRouteRelEnc() {
         return transformerRouteRelEnc;
     }
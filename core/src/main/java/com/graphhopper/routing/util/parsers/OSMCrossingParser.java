@@ -20,6 +20,11 @@ public class OSMCrossingParser implements TagParser {
         this.crossingEnc = crossingEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         List<Map<String, Object>> nodeTags = readerWay.getTag("node_tags", null);
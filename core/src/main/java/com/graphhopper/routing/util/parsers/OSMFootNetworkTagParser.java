@@ -56,6 +56,11 @@ public class OSMFootNetworkTagParser implements RelationTagParser {
         }
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         // just copy value into different bit range
@@ -63,4 +68,10 @@ public class OSMFootNetworkTagParser implements RelationTagParser {
         RouteNetwork footNetwork = transformerRouteRelEnc.getEnum(false, -1, relIntAccess);
         footRouteEnc.setEnum(false, edgeId, edgeIntAccess, footNetwork);
     }
+
+    @Override
+    public void restoreRelationFlags(IntsRef relFlags, int edgeId, EdgeIntAccess edgeIntAccess) {
+        RouteNetwork routeNetwork = footRouteEnc.getEnum(false, edgeId, edgeIntAccess);
+        transformerRouteRelEnc.setEnum(false, -1, new IntsRefEdgeIntAccess(relFlags), routeNetwork);
+    }
 }
@@ -34,6 +34,11 @@ public class OSMFootwayParser implements TagParser {
         this.footwayEnc = footwayEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         String footway = way.getTag("footway");
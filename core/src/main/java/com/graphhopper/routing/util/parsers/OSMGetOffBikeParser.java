@@ -29,6 +29,11 @@ public class OSMGetOffBikeParser implements TagParser {
         this.bikeAccessEnc = bikeAccessEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         String highway = way.getTag("highway");
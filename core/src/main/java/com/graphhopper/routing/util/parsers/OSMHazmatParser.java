@@ -14,6 +14,11 @@ public class OSMHazmatParser implements TagParser {
         this.hazEnc = hazEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         if (readerWay.hasTag("hazmat", "no"))
@@ -15,6 +15,11 @@ public class OSMHazmatWaterParser implements TagParser {
         this.hazWaterEnc = hazWaterEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         if (readerWay.hasTag("hazmat:water", "no")) {
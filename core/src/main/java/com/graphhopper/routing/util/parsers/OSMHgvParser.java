@@ -16,6 +16,11 @@ public class OSMHgvParser implements TagParser {
         this.hgvEnc = hgvEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         String value = way.getTag("hgv:conditional", "");
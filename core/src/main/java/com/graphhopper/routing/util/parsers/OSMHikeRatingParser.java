@@ -35,6 +35,11 @@ public class OSMHikeRatingParser implements TagParser {
         this.sacScaleEnc = sacScaleEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         String scale = readerWay.getTag("sac_scale");
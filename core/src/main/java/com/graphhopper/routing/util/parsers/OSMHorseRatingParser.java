@@ -35,6 +35,11 @@ public class OSMHorseRatingParser implements TagParser {
         this.horseScale = horseScale;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         String scale = readerWay.getTag("horse_scale");
@@ -33,6 +33,11 @@ public class OSMLanesParser implements TagParser {
         this.lanesEnc = lanesEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         int laneCount = 1;
@@ -36,6 +36,11 @@ public class OSMMtbRatingParser implements TagParser {
         this.mtbRatingEnc = mtbRatingEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         String scale = readerWay.getTag("mtb:scale");
@@ -42,6 +42,11 @@ public class OSMRoadAccessParser<T extends Enum> implements TagParser {
         this.countryHook = countryHook;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         T accessValue = null;
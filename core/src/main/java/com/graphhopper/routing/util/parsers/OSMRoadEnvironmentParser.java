@@ -38,6 +38,11 @@ public class OSMRoadEnvironmentParser implements TagParser {
         this.roadEnvEnc = roadEnvEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         RoadEnvironment roadEnvironment = OTHER;
@@ -56,6 +56,11 @@ public class OSMTemporalAccessParser implements TagParser {
         this.parser = DateRangeParser.createInstance(dateRangeParserDate);
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         // TODO for now the node tag overhead is not worth the effort due to very few data points
@@ -35,6 +35,11 @@ public class OSMTollParser implements TagParser {
         this.tollEnc = tollEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay readerWay, IntsRef relationFlags) {
         Toll toll;
@@ -30,6 +30,11 @@ public class OSMWayIDParser implements TagParser {
         this.osmWayIdEnc = osmWayIdEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         if (way.getId() > osmWayIdEnc.getMaxStorableInt())
@@ -18,6 +18,7 @@
 package com.graphhopper.routing.util.parsers;
 
 import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.routing.ev.EdgeIntAccess;
 import com.graphhopper.storage.IntsRef;
 
 /**
@@ -32,4 +33,11 @@ public interface RelationTagParser extends TagParser {
      * In the pre-parsing step this method will be called to determine the useful relation tags.
      */
     void handleRelationTags(IntsRef relFlags, ReaderRelation relation);
+
+    /**
+     * Reverses {@link #handleWayTags}, i.e. writes the relation flags that lead to the values stored for the given edge.
+     * This is used to update an edge without reading all relations again.
+     */
+    default void restoreRelationFlags(IntsRef relFlags, int edgeId, EdgeIntAccess edgeIntAccess) {
+    }
 }
@@ -30,6 +30,11 @@ public class StateParser implements TagParser {
         this.stateEnc = stateEnc;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
         State country = way.getTag("country_state", State.MISSING);
@@ -28,4 +28,13 @@ import com.graphhopper.storage.IntsRef;
 public interface TagParser {
 
     void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags);
+
+    /**
+     * @return true if handleWayTags can be called for different ways and edges at the same time. The tags of the OSM
+     * ways are only parsed with multiple threads if all tag parsers return true, see
+     * {@link com.graphhopper.routing.OSMReaderConfig#setTagParsingThreads(int)}
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * This weighting reads the edge weights and times from an {@link EdgeWeightCache} instead of calculating them via the
+ * wrapped weighting. Edges that are not part of the cache (virtual edges, which can be unfavored per request) and the
+ * turn costs are still calculated by the wrapped weighting.
+ */
+public class CachedWeighting extends AbstractAdjustedWeighting {
+    private final EdgeWeightCache cache;
+
+    public CachedWeighting(Weighting superWeighting, EdgeWeightCache cache) {
+        super(superWeighting);
+        this.cache = cache;
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        if (edgeState.getEdge() >= cache.getEdges())
+            return superWeighting.calcEdgeWeight(edgeState, reverse);
+        return cache.getWeight(reverse ? edgeState.getReverseEdgeKey() : edgeState.getEdgeKey());
+    }
+
+    @Override
+    public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse) {
+        if (edgeState.getEdge() >= cache.getEdges())
+            return superWeighting.calcEdgeMillis(edgeState, reverse);
+        long millis = cache.getMillis(reverse ? edgeState.getReverseEdgeKey() : edgeState.getEdgeKey());
+        return millis < 0 ? superWeighting.calcEdgeMillis(edgeState, reverse) : millis;
+    }
+
+    @Override
+    public String getName() {
+        return superWeighting.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "cached|" + superWeighting.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This class stores the weight and the time of every edge key for a weighting that does not change from request to
+ * request. Reading these values is much faster than evaluating e.g. the speed and priority expressions of a
+ * CustomWeighting. The weights are stored as floats that are rounded up so that they never underestimate the original
+ * weights (which is important for the landmark approximation).
+ *
+ * @see CachedWeighting
+ */
+public class EdgeWeightCache {
+    private static final int UNKNOWN_MILLIS = -1;
+    private static final int EDGES_PER_TASK = 100_000;
+    private final int edges;
+    private final float[] weights;
+    private final int[] millis;
+
+    private EdgeWeightCache(int edges) {
+        this.edges = edges;
+        this.weights = new float[2 * edges];
+        this.millis = new int[2 * edges];
+    }
+
+    /**
+     * Calculates the weights and times of all edges of the specified graph using the given number of threads.
+     */
+    public static EdgeWeightCache create(BaseGraph graph, Weighting weighting, int threads) {
+        EdgeWeightCache cache = new EdgeWeightCache(graph.getEdges());
+        Stream<Runnable> runnables = IntStream.range(0, (cache.edges + EDGES_PER_TASK - 1) / EDGES_PER_TASK).mapToObj(task -> () -> {
+            int to = Math.min(cache.edges, (task + 1) * EDGES_PER_TASK);
+            for (int edge = task * EDGES_PER_TASK; edge < to; edge++) {
+                // the edge state is in storage direction and its edge key is even
+                EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                cache.set(edgeState.getEdgeKey(), weighting.calcEdgeWeight(edgeState, false), weighting, edgeState, false);
+                cache.set(edgeState.getReverseEdgeKey(), weighting.calcEdgeWeight(edgeState, true), weighting, edgeState, true);
+            }
+        });
+        GHUtility.runConcurrently(runnables, threads);
+        return cache;
+    }
+
+    private void set(int edgeKey, double weight, Weighting weighting, EdgeIteratorState edgeState, boolean reverse) {
+        float floatWeight = (float) weight;
+        if (floatWeight < weight)
+            floatWeight = Math.nextUp(floatWeight);
+        weights[edgeKey] = floatWeight;
+        if (Double.isInfinite(weight)) {
+            millis[edgeKey] = UNKNOWN_MILLIS;
+        } else {
+            long edgeMillis = weighting.calcEdgeMillis(edgeState, reverse);
+            millis[edgeKey] = edgeMillis >= 0 && edgeMillis < Integer.MAX_VALUE ? (int) edgeMillis : UNKNOWN_MILLIS;
+        }
+    }
+
+    /**
+     * @return the number of edges for which this cache contains values. Edges with a larger id (like virtual edges)
+     * are not cached.
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    public double getWeight(int edgeKey) {
+        return weights[edgeKey];
+    }
+
+    /**
+     * @return the time in milliseconds or a negative value if the time is not cached for the specified edge key
+     */
+    public long getMillis(int edgeKey) {
+        return millis[edgeKey];
+    }
+
+    public long getCapacity() {
+        return 8L * weights.length;
+    }
+}
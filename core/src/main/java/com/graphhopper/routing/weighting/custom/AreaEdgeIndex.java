@@ -0,0 +1,164 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.coll.GHTBitSet;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.Polygon;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Finds the edges that are in the areas of custom models, so that in_area expressions can be answered with a lookup
+ * in a bit set instead of an intersection test with the edge geometry for every weight calculation. The candidate
+ * edges are found via the location index and then tested like in
+ * {@link CustomWeightingHelper#in(Polygon, EdgeIteratorState)}. The bit sets are cached per area geometry, because
+ * the same areas are usually used by many requests. The cache is bounded by the estimated memory of the bit sets: an
+ * area with many edges needs one bit per edge of the graph, i.e. roughly 60MB for a planet-wide graph. If the bit set
+ * of an area does not fit into the cache no bit set is returned and the edge geometries are tested instead.
+ */
+public class AreaEdgeIndex {
+    // marks the areas whose bit set is too large for the cache, so that it is not calculated again for every request
+    private static final GHBitSet NOT_CACHEABLE = new GHTBitSet(0);
+    private final BaseGraph graph;
+    private final LocationIndex locationIndex;
+    private final long maxBytes;
+    private final LinkedHashMap<Geometry, GHBitSet> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Geometry, FutureTask<GHBitSet>> calculations = new ConcurrentHashMap<>();
+    private long bytes;
+
+    /**
+     * @param locationIndex must contain all edges of the graph
+     * @param maxBytes      the maximum estimated memory of the bit sets that are kept for the areas
+     */
+    public AreaEdgeIndex(BaseGraph graph, LocationIndex locationIndex, long maxBytes) {
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the ids of the edges that are in the specified area, or null if the bit set for this area would be too
+     * large for the cache. This does not include virtual edges.
+     */
+    public GHBitSet findEdges(Polygon polygon) {
+        // JTS geometries are equal if their coordinates are equal
+        Geometry geometry = polygon.prepPolygon.getGeometry();
+        synchronized (cache) {
+            GHBitSet edges = cache.get(geometry);
+            if (edges != null)
+                return edges == NOT_CACHEABLE ? null : edges;
+        }
+        // if another thread calculates the edges of the same area already we wait for its result
+        FutureTask<GHBitSet> task = new FutureTask<>(() -> calcAndCacheEdges(polygon, geometry));
+        FutureTask<GHBitSet> running = calculations.putIfAbsent(geometry, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                calculations.remove(geometry, task);
+            }
+        }
+        try {
+            GHBitSet edges = running.get();
+            return edges == NOT_CACHEABLE ? null : edges;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException("Cannot find the edges of the area", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the edges of the area", ex);
+        }
+    }
+
+    /**
+     * @return the estimated memory of the bit sets in the cache
+     */
+    public long getCachedBytes() {
+        synchronized (cache) {
+            return bytes;
+        }
+    }
+
+    private GHBitSet calcAndCacheEdges(Polygon polygon, Geometry geometry) {
+        synchronized (cache) {
+            // the calculation of another thread might have finished in the meantime
+            GHBitSet edges = cache.get(geometry);
+            if (edges != null)
+                return edges;
+        }
+        IntArrayList edgesInArea = new IntArrayList();
+        locationIndex.query(polygon.getBounds(), edge -> {
+            if (CustomWeightingHelper.in(polygon, graph.getEdgeIteratorState(edge, Integer.MIN_VALUE)))
+                edgesInArea.add(edge);
+        });
+        // a bit set for all edges would be too large for a small area in a large graph
+        boolean sparse = edgesInArea.size() * 64L < graph.getEdges();
+        GHBitSet edges;
+        if (getBytes(sparse, edgesInArea.size()) > maxBytes) {
+            edges = NOT_CACHEABLE;
+        } else {
+            edges = sparse ? new GHTBitSet(edgesInArea.size()) : new GHBitSetImpl(graph.getEdges());
+            for (IntCursor cursor : edgesInArea)
+                edges.add(cursor.value);
+        }
+        synchronized (cache) {
+            // the marker is not cached at all if even the geometry is too large
+            long edgesBytes = getBytes(geometry, edges);
+            if (edgesBytes <= maxBytes && !cache.containsKey(geometry)) {
+                cache.put(geometry, edges);
+                bytes += edgesBytes;
+                Iterator<Map.Entry<Geometry, GHBitSet>> iter = cache.entrySet().iterator();
+                while (bytes > maxBytes) {
+                    Map.Entry<Geometry, GHBitSet> entry = iter.next();
+                    bytes -= getBytes(entry.getKey(), entry.getValue());
+                    iter.remove();
+                }
+            }
+        }
+        return edges;
+    }
+
+    private long getBytes(Geometry geometry, GHBitSet edges) {
+        if (edges == NOT_CACHEABLE)
+            // the marker keeps the geometry in memory, which needs 16 bytes per coordinate
+            return 16L * geometry.getNumPoints();
+        return edges instanceof GHBitSetImpl
+                ? ((GHBitSetImpl) edges).size() / 8
+                : getBytes(true, edges.getCardinality());
+    }
+
+    private long getBytes(boolean sparse, int cardinality) {
+        // a BitSet needs one bit per edge and the hash set about 8 bytes per entry because of its load factor
+        return sparse ? 8L * cardinality : graph.getEdges() / 8;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.ev.EncodedValueSerializer;
+import com.graphhopper.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Stores the classes that {@link CustomModelParser} compiles for custom models in a directory, so that they do not
+ * need to be compiled again after a restart. Every class is stored in a file that is named after a hash of the custom
+ * model and of the encoded values, because the generated code depends on the names and types of the encoded values.
+ * The GraphHopper version is part of this hash too, so the stored classes of an older version are just not used. To
+ * bound the size of the directory the least recently used files above a maximum count are deleted when the recent
+ * classes are loaded, which includes the files of other versions or encoded values.
+ * <p>
+ * The directory must only be writable by GraphHopper, because the stored classes are loaded without further checks.
+ */
+public class CustomModelClassStore {
+    private static final Logger logger = LoggerFactory.getLogger(CustomModelClassStore.class);
+    private static final int MAGIC = 0x47484343;
+    private static final String FILE_SUFFIX = ".class.bin";
+    private final File directory;
+    private final EncodedValueLookup lookup;
+    private final String layoutKey;
+    private final int maxFiles;
+
+    /**
+     * @param lookup   the encoded values for which the classes are usually stored and loaded
+     * @param maxFiles the maximum number of files that are kept in the directory, see {@link #loadRecent}
+     */
+    public CustomModelClassStore(File directory, EncodedValueLookup lookup, int maxFiles) {
+        if (maxFiles <= 0)
+            throw new IllegalArgumentException("The maximum number of custom model class files must be positive: " + maxFiles);
+        if (!directory.exists() && !directory.mkdirs())
+            throw new IllegalArgumentException("Cannot create directory for custom model classes: " + directory);
+        if (!directory.isDirectory())
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        this.directory = directory;
+        this.lookup = lookup;
+        this.layoutKey = createLayoutKey(lookup);
+        this.maxFiles = maxFiles;
+    }
+
+    static String createLayoutKey(EncodedValueLookup lookup) {
+        StringBuilder sb = new StringBuilder(Constants.VERSION);
+        if (Constants.GIT_INFO != null)
+            sb.append('|').append(Constants.GIT_INFO.getCommitHash());
+        for (EncodedValue ev : lookup.getEncodedValues())
+            sb.append('|').append(ev.getClass().getName()).append(':').append(EncodedValueSerializer.serializeEncodedValue(ev));
+        return hash(sb.toString());
+    }
+
+    private static String hash(String str) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(str.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private String getLayoutKey(EncodedValueLookup lookup) {
+        return lookup == this.lookup ? layoutKey : createLayoutKey(lookup);
+    }
+
+    private File getFile(String model, String layoutKey) {
+        return new File(directory, hash(layoutKey + "|" + model) + FILE_SUFFIX);
+    }
+
+    /**
+     * @param model the string of the custom model, see {@link com.graphhopper.util.CustomModel#toString()}
+     * @return the stored class for the specified custom model or null if there is none
+     */
+    public Class<?> load(String model, EncodedValueLookup lookup) {
+        String layoutKey = getLayoutKey(lookup);
+        File file = getFile(model, layoutKey);
+        if (!file.exists())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // we compare the full model to be safe against hash collisions
+            if (!layoutKey.equals(readLayoutKey(in)) || !model.equals(readString(in)))
+                return null;
+            Class<?> clazz = readClass(in);
+            // the modification time tells us which classes were used recently, see loadRecent
+            file.setLastModified(System.currentTimeMillis());
+            return clazz;
+        } catch (Exception ex) {
+            logger.warn("Cannot load custom model class from " + file + ", it will be compiled again: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return up to limit of the most recently used classes that were stored for the specified encoded values, with
+     * the string of the custom model as key. The least recently used files above the maximum count are deleted.
+     */
+    public Map<String, Class<?>> loadRecent(EncodedValueLookup lookup, int limit) {
+        String layoutKey = getLayoutKey(lookup);
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null)
+            return Collections.emptyMap();
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = maxFiles; i < files.length; i++) {
+            if (!files[i].delete())
+                logger.warn("Cannot delete old custom model class file " + files[i]);
+        }
+        Map<String, Class<?>> classes = new LinkedHashMap<>();
+        for (File file : Arrays.copyOf(files, Math.min(maxFiles, files.length))) {
+            if (classes.size() >= limit)
+                break;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (!layoutKey.equals(readLayoutKey(in)))
+                    continue;
+                String model = readString(in);
+                classes.put(model, readClass(in));
+            } catch (Exception ex) {
+                logger.warn("Cannot load custom model class from " + file + ": " + ex.getMessage());
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Stores the bytecode of a class that was compiled for the specified custom model. Errors are only logged, because
+     * the class can be compiled again.
+     *
+     * @param className the name of the class that is created for the custom model
+     * @param bytecodes the bytecode of all compiled classes, including the one with the specified name
+     */
+    public void store(String model, EncodedValueLookup lookup, String className, Map<String, byte[]> bytecodes) {
+        String layoutKey = getLayoutKey(lookup);
+        File file = getFile(model, layoutKey);
+        try {
+            // write to a temporary file first, so that other processes never read incomplete files
+            File tmpFile = File.createTempFile("custom_model", ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(layoutKey);
+                writeString(out, model);
+                out.writeUTF(className);
+                out.writeInt(bytecodes.size());
+                for (Map.Entry<String, byte[]> entry : bytecodes.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            logger.warn("Cannot store custom model class in " + file + ": " + ex.getMessage());
+        }
+    }
+
+    private static String readLayoutKey(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a custom model class file");
+        return in.readUTF();
+    }
+
+    private static Class<?> readClass(DataInputStream in) throws IOException, ClassNotFoundException {
+        String className = in.readUTF();
+        int count = in.readInt();
+        Map<String, byte[]> bytecodes = new HashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            bytecodes.put(name, bytes);
+        }
+        return new BytecodeClassLoader(bytecodes).loadClass(className);
+    }
+
+    // the custom model can be longer than the 64KB that writeUTF supports, e.g. if it contains large areas
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class BytecodeClassLoader extends ClassLoader {
+        private final Map<String, byte[]> bytecodes;
+
+        BytecodeClassLoader(Map<String, byte[]> bytecodes) {
+            super(CustomWeightingHelper.class.getClassLoader());
+            this.bytecodes = bytecodes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = bytecodes.get(name);
+            if (bytes == null)
+                throw new ClassNotFoundException(name);
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
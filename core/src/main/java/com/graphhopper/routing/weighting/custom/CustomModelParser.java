@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.weighting.custom;
 
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.json.Statement;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.weighting.TurnCostProvider;
@@ -28,6 +29,7 @@ import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.io.Readers;
 import org.codehaus.janino.Scanner;
 import org.codehaus.janino.*;
+import org.codehaus.janino.util.ClassFile;
 import org.codehaus.janino.util.DeepCopier;
 import org.locationtech.jts.geom.Polygonal;
 import org.locationtech.jts.geom.prep.PreparedPolygon;
@@ -35,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.graphhopper.json.Statement.Keyword.IF;
@@ -42,6 +45,8 @@ import static com.graphhopper.json.Statement.Keyword.IF;
 public class CustomModelParser {
     private static final AtomicLong longVal = new AtomicLong(1);
     static final String IN_AREA_PREFIX = "in_";
+    // the field for the edges of the area in_xy is edges_in_xy, which cannot collide with the other fields
+    static final String AREA_EDGES_PREFIX = "edges_";
     static final String BACKWARD_PREFIX = "backward_";
     private static final boolean JANINO_DEBUG = Boolean.getBoolean(Scanner.SYSTEM_PROPERTY_SOURCE_DEBUGGING_ENABLE);
     private static final String SCRIPT_FILE_DIR = System.getProperty(Scanner.SYSTEM_PROPERTY_SOURCE_DEBUGGING_DIR, "./src/main/java/com/graphhopper/routing/weighting/custom");
@@ -63,26 +68,82 @@ public class CustomModelParser {
     // TODO perf compare with ConcurrentHashMap, but I guess, if there is a difference at all, it is not big for small maps
     private static final Map<String, Class<?>> INTERNAL_CACHE = Collections.synchronizedMap(new HashMap<>());
 
+    // Concurrent requests with the same custom model wait for the same compilation instead of compiling it again.
+    private static final Map<String, FutureTask<Class<?>>> COMPILATIONS = new ConcurrentHashMap<>();
+    private static volatile CustomModelClassStore classStore;
+    // The custom models that are interpreted until their classes are compiled in the background.
+    private static final Set<String> BACKGROUND_COMPILATIONS = ConcurrentHashMap.newKeySet();
+    private static volatile Executor compileExecutor;
+
     private CustomModelParser() {
         // utility class
     }
 
+    /**
+     * Sets the store in which the compiled classes are kept across restarts. Use null to disable it.
+     */
+    public static void setClassStore(CustomModelClassStore store) {
+        classStore = store;
+    }
+
+    /**
+     * Sets the executor that compiles the classes for new custom models in the background. Until a class is compiled
+     * the custom model is interpreted, which avoids the compilation time for the first request with a custom model,
+     * but it is slower for long routes. Use null to compile the classes in the requests. The compilations that were
+     * scheduled on the previous executor are forgotten, because it might have been shut down before running them.
+     */
+    public static void setCompileExecutor(Executor executor) {
+        compileExecutor = executor;
+        BACKGROUND_COMPILATIONS.clear();
+    }
+
+    /**
+     * Fills the cache with the most recently used classes of the class store, so that they do not need to be compiled
+     * for the first requests after a restart.
+     *
+     * @return the number of loaded classes
+     */
+    public static int loadStoredClasses(EncodedValueLookup lookup) {
+        CustomModelClassStore store = classStore;
+        if (store == null || CACHE_SIZE <= 0)
+            return 0;
+        List<Map.Entry<String, Class<?>>> classes = new ArrayList<>(store.loadRecent(lookup, CACHE_SIZE).entrySet());
+        // put the most recently used class last, because it should be the last one that is removed from the cache
+        Collections.reverse(classes);
+        for (Map.Entry<String, Class<?>> entry : classes)
+            CACHE.putIfAbsent(entry.getKey(), entry.getValue());
+        return classes.size();
+    }
+
     /**
      * This method creates a weighting from a CustomModel that must limit the speed. Either as an
      * unconditional statement <code>{ "if": "true", "limit_to": "car_average_speed" }<code/> or as
      * an if-elseif-else group.
      */
     public static CustomWeighting createWeighting(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
+        return createWeighting(lookup, turnCostProvider, customModel, null);
+    }
+
+    /**
+     * @param areaEdgeIndex is used to look up the edges in the areas of the custom model, can be null
+     */
+    public static CustomWeighting createWeighting(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel,
+                                                  AreaEdgeIndex areaEdgeIndex) {
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
-        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup);
+        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, areaEdgeIndex);
         return new CustomWeighting(turnCostProvider, parameters);
     }
 
     public static CustomWeighting2 createWeighting2(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
+        return createWeighting2(lookup, turnCostProvider, customModel, null);
+    }
+
+    public static CustomWeighting2 createWeighting2(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel,
+                                                    AreaEdgeIndex areaEdgeIndex) {
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
-        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup);
+        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, areaEdgeIndex);
         return new CustomWeighting2(turnCostProvider, parameters);
     }
 
@@ -91,28 +152,28 @@ public class CustomModelParser {
      * and returns an instance.
      */
     public static CustomWeighting.Parameters createWeightingParameters(CustomModel customModel, EncodedValueLookup lookup) {
+        return createWeightingParameters(customModel, lookup, null);
+    }
+
+    public static CustomWeighting.Parameters createWeightingParameters(CustomModel customModel, EncodedValueLookup lookup,
+                                                                       AreaEdgeIndex areaEdgeIndex) {
         String key = customModel.toString();
-        Class<?> clazz = customModel.isInternal() ? INTERNAL_CACHE.get(key) : null;
-        if (CACHE_SIZE > 0 && clazz == null)
-            clazz = CACHE.get(key);
+        Class<?> clazz = getCachedClazz(key, customModel.isInternal());
+        CustomWeightingHelper prio = null;
         if (clazz == null) {
-            clazz = createClazz(customModel, lookup);
-            if (customModel.isInternal()) {
-                INTERNAL_CACHE.put(key, clazz);
-                if (INTERNAL_CACHE.size() > 100) {
-                    CACHE.putAll(INTERNAL_CACHE);
-                    INTERNAL_CACHE.clear();
-                    LoggerFactory.getLogger(CustomModelParser.class).warn("Internal cache must stay small but was "
-                            + INTERNAL_CACHE.size() + ". Cleared it. Misuse of CustomModel::internal?");
-                }
-            } else if (CACHE_SIZE > 0) {
-                CACHE.put(key, clazz);
-            }
+            Executor executor = compileExecutor;
+            // the internal models are used for the preparations and all requests of a profile, so they are always compiled
+            if (executor != null && !customModel.isInternal() && CACHE_SIZE > 0)
+                prio = createInterpretedHelper(key, customModel, lookup, executor);
+            if (prio == null)
+                clazz = createClazzOnce(key, customModel, lookup);
         }
 
         try {
             // The class does not need to be thread-safe as we create an instance per request
-            CustomWeightingHelper prio = (CustomWeightingHelper) clazz.getDeclaredConstructor().newInstance();
+            if (prio == null)
+                prio = (CustomWeightingHelper) clazz.getDeclaredConstructor().newInstance();
+            prio.setAreaEdgeIndex(areaEdgeIndex);
             prio.init(customModel, lookup, CustomModel.getAreasAsMap(customModel.getAreas()));
             return new CustomWeighting.Parameters(
                     prio::getSpeed, prio::calcMaxSpeed,
@@ -124,6 +185,98 @@ public class CustomModelParser {
         }
     }
 
+    private static Class<?> getCachedClazz(String key, boolean internal) {
+        Class<?> clazz = internal ? INTERNAL_CACHE.get(key) : null;
+        if (CACHE_SIZE > 0 && clazz == null)
+            clazz = CACHE.get(key);
+        return clazz;
+    }
+
+    private static void putCachedClazz(String key, boolean internal, Class<?> clazz) {
+        if (internal) {
+            INTERNAL_CACHE.put(key, clazz);
+            if (INTERNAL_CACHE.size() > 100) {
+                CACHE.putAll(INTERNAL_CACHE);
+                INTERNAL_CACHE.clear();
+                LoggerFactory.getLogger(CustomModelParser.class).warn("Internal cache must stay small but was "
+                        + INTERNAL_CACHE.size() + ". Cleared it. Misuse of CustomModel::internal?");
+            }
+        } else if (CACHE_SIZE > 0) {
+            CACHE.put(key, clazz);
+        }
+    }
+
+    /**
+     * Creates the class for the specified custom model, unless another thread does this already. In this case we wait
+     * for the result of the other thread.
+     */
+    private static Class<?> createClazzOnce(String key, CustomModel customModel, EncodedValueLookup lookup) {
+        FutureTask<Class<?>> task = new FutureTask<>(() -> {
+            Class<?> clazz = loadOrCreateClazz(key, customModel, lookup);
+            // put the class into the cache before the task is removed, so that no other thread compiles it again
+            putCachedClazz(key, customModel.isInternal(), clazz);
+            return clazz;
+        });
+        FutureTask<Class<?>> running = COMPILATIONS.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                COMPILATIONS.remove(key, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new IllegalArgumentException("Cannot compile expression: " + ex.getCause().getMessage(), ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the compilation of the custom model", ex);
+        }
+    }
+
+    /**
+     * @return a helper that interprets the custom model or null if the custom model has to be compiled right away.
+     * Then the class for the custom model is compiled in the background.
+     */
+    private static CustomWeightingHelper createInterpretedHelper(String key, CustomModel customModel, EncodedValueLookup lookup,
+                                                                 Executor executor) {
+        // the interpreter does not check everything, so we throw the same exception as if we compiled the class
+        try {
+            createCompilationUnit(0, customModel, lookup);
+        } catch (Exception ex) {
+            throw createCompileException(ex);
+        }
+        InterpretedCustomWeightingHelper helper = InterpretedCustomWeightingHelper.create(customModel, lookup);
+        if (helper == null)
+            return null;
+        if (BACKGROUND_COMPILATIONS.add(key)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        createClazzOnce(key, customModel, lookup);
+                    } catch (Exception ex) {
+                        LoggerFactory.getLogger(CustomModelParser.class).warn("Cannot compile custom model in the background: " + ex.getMessage());
+                    } finally {
+                        BACKGROUND_COMPILATIONS.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                BACKGROUND_COMPILATIONS.remove(key);
+            }
+        }
+        return helper;
+    }
+
+    private static Class<?> loadOrCreateClazz(String key, CustomModel customModel, EncodedValueLookup lookup) {
+        CustomModelClassStore store = classStore;
+        Class<?> clazz = store == null ? null : store.load(key, lookup);
+        return clazz == null ? createClazz(key, customModel, lookup, store) : clazz;
+    }
+
     /**
      * This method does the following:
      * <ul>
@@ -135,44 +288,65 @@ public class CustomModelParser {
      * </li>
      * <li>3. create class template as String, inject the created statements and create the Class
      * </li>
+     * <li>4. put the bytecode of the Class into the specified store (if not null)
+     * </li>
      * </ul>
      */
-    private static Class<?> createClazz(CustomModel customModel, EncodedValueLookup lookup) {
+    private static Class<?> createClazz(String key, CustomModel customModel, EncodedValueLookup lookup, CustomModelClassStore store) {
         try {
-            Set<String> priorityVariables = ValueExpressionVisitor.findVariables(customModel.getPriority(), lookup);
-            List<Java.BlockStatement> priorityStatements = createGetPriorityStatements(priorityVariables, customModel, lookup);
-
-            if (customModel.getSpeed().isEmpty())
-                throw new IllegalArgumentException("At least one initial statement under 'speed' is required.");
-
-            List<Statement> firstGroup = splitIntoGroup(customModel.getSpeed()).get(0);
-            if (firstGroup.size() > 1) {
-                Statement lastSt = firstGroup.get(firstGroup.size() - 1);
-                if (lastSt.operation() != Statement.Op.LIMIT || lastSt.keyword() != Statement.Keyword.ELSE)
-                    throw new IllegalArgumentException("The first group needs to end with an 'else' (or contain a single unconditional 'if' statement).");
-            } else {
-                Statement firstSt = firstGroup.get(0);
-                if (!"true".equals(firstSt.condition()) || firstSt.operation() != Statement.Op.LIMIT || firstSt.keyword() != Statement.Keyword.IF)
-                    throw new IllegalArgumentException("The first group needs to contain a single unconditional 'if' statement (or end with an 'else').");
-            }
-
-            Set<String> speedVariables = ValueExpressionVisitor.findVariables(customModel.getSpeed(), lookup);
-            List<Java.BlockStatement> speedStatements = createGetSpeedStatements(speedVariables, customModel, lookup);
-
             // Create different class name, which is required only for debugging.
             // TODO does it improve performance too? I.e. it could be that the JIT is confused if different classes
             //  have the same name and it mixes performance stats. See https://github.com/janino-compiler/janino/issues/137
             long counter = longVal.incrementAndGet();
-            String classTemplate = createClassTemplate(counter, priorityVariables, speedVariables, lookup, CustomModel.getAreasAsMap(customModel.getAreas()));
-            Java.CompilationUnit cu = (Java.CompilationUnit) new Parser(new Scanner("source", new StringReader(classTemplate))).
-                    parseAbstractCompilationUnit();
-            cu = injectStatements(priorityStatements, speedStatements, cu);
+            Java.CompilationUnit cu = createCompilationUnit(counter, customModel, lookup);
             SimpleCompiler sc = createCompiler(counter, cu);
-            return sc.getClassLoader().loadClass("com.graphhopper.routing.weighting.custom.JaninoCustomWeightingHelperSubclass" + counter);
+            String className = "com.graphhopper.routing.weighting.custom.JaninoCustomWeightingHelperSubclass" + counter;
+            Class<?> clazz = sc.getClassLoader().loadClass(className);
+            if (store != null) {
+                Map<String, byte[]> bytecodes = new HashMap<>();
+                for (ClassFile classFile : sc.getClassFiles())
+                    bytecodes.put(classFile.getThisClassName(), classFile.toByteArray());
+                store.store(key, lookup, className, bytecodes);
+            }
+            return clazz;
         } catch (Exception ex) {
-            String errString = "Cannot compile expression";
-            throw new IllegalArgumentException(errString + ": " + ex.getMessage(), ex);
+            throw createCompileException(ex);
+        }
+    }
+
+    private static IllegalArgumentException createCompileException(Exception ex) {
+        String errString = "Cannot compile expression";
+        return new IllegalArgumentException(errString + ": " + ex.getMessage(), ex);
+    }
+
+    /**
+     * Parses and checks the expressions of the custom model and creates the source of the class, see createClazz.
+     */
+    private static Java.CompilationUnit createCompilationUnit(long counter, CustomModel customModel, EncodedValueLookup lookup) throws Exception {
+        Set<String> priorityVariables = ValueExpressionVisitor.findVariables(customModel.getPriority(), lookup);
+        List<Java.BlockStatement> priorityStatements = createGetPriorityStatements(priorityVariables, customModel, lookup);
+
+        if (customModel.getSpeed().isEmpty())
+            throw new IllegalArgumentException("At least one initial statement under 'speed' is required.");
+
+        List<Statement> firstGroup = splitIntoGroup(customModel.getSpeed()).get(0);
+        if (firstGroup.size() > 1) {
+            Statement lastSt = firstGroup.get(firstGroup.size() - 1);
+            if (lastSt.operation() != Statement.Op.LIMIT || lastSt.keyword() != Statement.Keyword.ELSE)
+                throw new IllegalArgumentException("The first group needs to end with an 'else' (or contain a single unconditional 'if' statement).");
+        } else {
+            Statement firstSt = firstGroup.get(0);
+            if (!"true".equals(firstSt.condition()) || firstSt.operation() != Statement.Op.LIMIT || firstSt.keyword() != Statement.Keyword.IF)
+                throw new IllegalArgumentException("The first group needs to contain a single unconditional 'if' statement (or end with an 'else').");
         }
+
+        Set<String> speedVariables = ValueExpressionVisitor.findVariables(customModel.getSpeed(), lookup);
+        List<Java.BlockStatement> speedStatements = createGetSpeedStatements(speedVariables, customModel, lookup);
+
+        String classTemplate = createClassTemplate(counter, priorityVariables, speedVariables, lookup, CustomModel.getAreasAsMap(customModel.getAreas()));
+        Java.CompilationUnit cu = (Java.CompilationUnit) new Parser(new Scanner("source", new StringReader(classTemplate))).
+                parseAbstractCompilationUnit();
+        return injectStatements(priorityStatements, speedStatements, cu);
     }
 
     public static List<String> findVariablesForEncodedValuesString(CustomModel model, NameValidator nameValidator, ClassHelper classHelper) {
@@ -350,6 +524,7 @@ public class CustomModelParser {
                     importSourceCode.append("import " + Polygonal.class.getName() + ";\n");
                     importSourceCode.append("import " + JsonFeature.class.getName() + ";\n");
                     importSourceCode.append("import " + Polygon.class.getName() + ";\n");
+                    importSourceCode.append("import " + GHBitSet.class.getName() + ";\n");
                     includedAreaImports = true;
                 }
 
@@ -368,6 +543,8 @@ public class CustomModelParser {
                 classSourceCode.append("protected " + Polygon.class.getSimpleName() + " " + arg + ";\n");
                 initSourceCode.append("JsonFeature feature_" + id + " = (JsonFeature) areas.get(\"" + id + "\");\n");
                 initSourceCode.append("this." + arg + " = new Polygon(new PreparedPolygon((Polygonal) feature_" + id + ".getGeometry()));\n");
+                classSourceCode.append("protected " + GHBitSet.class.getSimpleName() + " " + AREA_EDGES_PREFIX + arg + ";\n");
+                initSourceCode.append("this." + AREA_EDGES_PREFIX + arg + " = findAreaEdges(this." + arg + ");\n");
             } else {
                 if (!arg.startsWith(IN_AREA_PREFIX))
                     throw new IllegalArgumentException("Variable not supported: " + arg);
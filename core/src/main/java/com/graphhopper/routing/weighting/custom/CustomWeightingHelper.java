@@ -17,9 +17,11 @@
  */
 package com.graphhopper.routing.weighting.custom;
 
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.json.MinMax;
 import com.graphhopper.json.Statement;
 import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.Polygon;
@@ -37,10 +39,22 @@ public class CustomWeightingHelper {
 
     protected EncodedValueLookup lookup;
     protected CustomModel customModel;
+    protected AreaEdgeIndex areaEdgeIndex;
 
     protected CustomWeightingHelper() {
     }
 
+    /**
+     * Must be called before init to look up the edges of the areas, can be null to test the edge geometries instead.
+     */
+    public void setAreaEdgeIndex(AreaEdgeIndex areaEdgeIndex) {
+        this.areaEdgeIndex = areaEdgeIndex;
+    }
+
+    protected final GHBitSet findAreaEdges(Polygon p) {
+        return areaEdgeIndex == null ? null : areaEdgeIndex.findEdges(p);
+    }
+
     public void init(CustomModel customModel, EncodedValueLookup lookup, Map<String, JsonFeature> areas) {
         this.lookup = lookup;
         this.customModel = customModel;
@@ -98,6 +112,16 @@ public class CustomWeightingHelper {
             return false;
         if (p.isRectangle() && polyBBOX.contains(edgeBBox))
             return true;
-        return p.intersects(edge.fetchWayGeometry(FetchMode.ALL).makeImmutable()); // TODO PERF: cache bbox and edge wayGeometry for multiple area
+        return p.intersects(edge.fetchWayGeometry(FetchMode.ALL).makeImmutable());
+    }
+
+    /**
+     * @param areaEdges the edges in the area, see {@link AreaEdgeIndex}, or null if they are not known
+     */
+    public static boolean in(Polygon p, GHBitSet areaEdges, EdgeIteratorState edge) {
+        // a virtual edge is only a part of its original edge, so we have to test its geometry
+        if (areaEdges == null || edge instanceof VirtualEdgeIteratorState)
+            return in(p, edge);
+        return areaEdges.contains(edge.getEdge());
     }
 }
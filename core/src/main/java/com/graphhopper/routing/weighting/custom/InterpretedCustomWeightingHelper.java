@@ -0,0 +1,458 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.json.Statement;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.JsonFeature;
+import com.graphhopper.util.shapes.Polygon;
+import org.codehaus.janino.Java;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.TokenType;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.prep.PreparedPolygon;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.graphhopper.routing.weighting.custom.CustomModelParser.BACKWARD_PREFIX;
+import static com.graphhopper.routing.weighting.custom.CustomModelParser.IN_AREA_PREFIX;
+
+/**
+ * Evaluates the statements of a custom model without compiling them. This is slower than the class that
+ * {@link CustomModelParser} compiles for a custom model, but it is available immediately, so it can be used while the
+ * class is compiled in the background.
+ * <p>
+ * The expressions are parsed with Janino like for the compilation and converted into a tree of nodes, where the type of
+ * every node is checked like the Java compiler would do it. Only the expressions that the ConditionalExpressionVisitor
+ * and the ValueExpressionVisitor accept are supported, except for a few rarely used methods. For other expressions
+ * {@link #create} returns null and the class has to be compiled. Note that the custom model must be validated before,
+ * e.g. the names of the areas and the first statement for the speed are not checked here.
+ */
+final class InterpretedCustomWeightingHelper extends CustomWeightingHelper {
+    private final Action speedAction;
+    private final Action priorityAction;
+    private final List<String> areaIds = new ArrayList<>();
+    private Polygon[] areas;
+    private GHBitSet[] areaEdges;
+
+    private InterpretedCustomWeightingHelper(CustomModel customModel, EncodedValueLookup lookup) {
+        speedAction = createBlock(customModel.getSpeed(), lookup);
+        priorityAction = createBlock(customModel.getPriority(), lookup);
+    }
+
+    /**
+     * @return the helper for the specified custom model or null if the custom model contains an expression that is
+     * not supported. The helper must be initialized like the compiled helpers.
+     */
+    static InterpretedCustomWeightingHelper create(CustomModel customModel, EncodedValueLookup lookup) {
+        try {
+            return new InterpretedCustomWeightingHelper(customModel, lookup);
+        } catch (UnsupportedOperationException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public void init(CustomModel customModel, EncodedValueLookup lookup, Map<String, JsonFeature> areas) {
+        super.init(customModel, lookup, areas);
+        this.areas = new Polygon[areaIds.size()];
+        this.areaEdges = new GHBitSet[areaIds.size()];
+        for (int i = 0; i < areaIds.size(); i++) {
+            JsonFeature feature = areas.get(areaIds.get(i));
+            this.areas[i] = new Polygon(new PreparedPolygon((Polygonal) feature.getGeometry()));
+            this.areaEdges[i] = findAreaEdges(this.areas[i]);
+        }
+    }
+
+    @Override
+    public double getSpeed(EdgeIteratorState edge, boolean reverse) {
+        return speedAction.apply(GLOBAL_MAX_SPEED, edge, reverse);
+    }
+
+    @Override
+    public double getPriority(EdgeIteratorState edge, boolean reverse) {
+        return priorityAction.apply(GLOBAL_PRIORITY, edge, reverse);
+    }
+
+    private interface Action {
+        double apply(double value, EdgeIteratorState edge, boolean reverse);
+    }
+
+    private interface BooleanNode {
+        boolean eval(EdgeIteratorState edge, boolean reverse);
+    }
+
+    private interface NumberNode {
+        double eval(EdgeIteratorState edge, boolean reverse);
+    }
+
+    private interface EnumNode {
+        Enum<?> eval(EdgeIteratorState edge, boolean reverse);
+    }
+
+    private enum Type {
+        BOOLEAN, INT, DOUBLE, ENUM
+    }
+
+    /**
+     * A node of an expression. int values are stored as double too, which is exact.
+     */
+    private static final class Expr {
+        final Type type;
+        final Object node;
+        final Class<?> enumType;
+
+        Expr(Type type, Object node, Class<?> enumType) {
+            this.type = type;
+            this.node = node;
+            this.enumType = enumType;
+        }
+
+        static Expr ofBoolean(BooleanNode node) {
+            return new Expr(Type.BOOLEAN, node, null);
+        }
+
+        static Expr ofNumber(Type type, NumberNode node) {
+            return new Expr(type, node, null);
+        }
+
+        boolean isNumber() {
+            return type == Type.INT || type == Type.DOUBLE;
+        }
+
+        BooleanNode asBoolean() {
+            if (type != Type.BOOLEAN)
+                throw new UnsupportedOperationException("boolean expected but was " + type);
+            return (BooleanNode) node;
+        }
+
+        NumberNode asNumber() {
+            if (!isNumber())
+                throw new UnsupportedOperationException("number expected but was " + type);
+            return (NumberNode) node;
+        }
+    }
+
+    private Action createBlock(List<Statement> statements, EncodedValueLookup lookup) {
+        List<Action> groups = new ArrayList<>();
+        for (List<Statement> group : CustomModelParser.splitIntoGroup(statements))
+            groups.add(createGroup(group, lookup));
+        Action[] array = groups.toArray(new Action[0]);
+        return (value, edge, reverse) -> {
+            for (Action action : array)
+                value = action.apply(value, edge, reverse);
+            return value;
+        };
+    }
+
+    /**
+     * @param group an 'if' statement followed by 'else_if' and 'else' statements
+     */
+    private Action createGroup(List<Statement> group, EncodedValueLookup lookup) {
+        // the condition of an 'else' statement is null
+        BooleanNode[] conditions = new BooleanNode[group.size()];
+        Action[] actions = new Action[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            Statement statement = group.get(i);
+            if (statement.keyword() != Statement.Keyword.ELSE)
+                conditions[i] = create(parse(statement.condition()), lookup).asBoolean();
+            actions[i] = createAction(statement, lookup);
+        }
+        return (value, edge, reverse) -> {
+            for (int i = 0; i < conditions.length; i++) {
+                if (conditions[i] == null || conditions[i].eval(edge, reverse))
+                    return actions[i].apply(value, edge, reverse);
+            }
+            return value;
+        };
+    }
+
+    private Action createAction(Statement statement, EncodedValueLookup lookup) {
+        if (statement.isBlock())
+            return createBlock(statement.doBlock(), lookup);
+        NumberNode node = create(parse(statement.value()), lookup).asNumber();
+        switch (statement.operation()) {
+            case MULTIPLY:
+                return (value, edge, reverse) -> value * node.eval(edge, reverse);
+            case LIMIT:
+                return (value, edge, reverse) -> Math.min(value, node.eval(edge, reverse));
+            default:
+                throw new UnsupportedOperationException("operation " + statement.operation());
+        }
+    }
+
+    private static Java.Rvalue parse(String expression) {
+        try {
+            Parser parser = new Parser(new Scanner("interpreter", new StringReader(expression)));
+            Java.Rvalue rvalue = parser.parseConditionalExpression().toRvalueOrCompileException();
+            if (parser.peek().type != TokenType.END_OF_INPUT)
+                throw new UnsupportedOperationException("expression is not simple: " + expression);
+            return rvalue;
+        } catch (Exception ex) {
+            throw new UnsupportedOperationException("cannot parse " + expression, ex);
+        }
+    }
+
+    private Expr create(Java.Rvalue rv, EncodedValueLookup lookup) {
+        if (rv instanceof Java.ParenthesizedExpression)
+            return create(((Java.ParenthesizedExpression) rv).value, lookup);
+        if (rv instanceof Java.AmbiguousName)
+            return createVariable(getName(rv), lookup);
+        if (rv instanceof Java.Literal)
+            return createLiteral((Java.Literal) rv);
+        if (rv instanceof Java.UnaryOperation)
+            return createUnaryOperation((Java.UnaryOperation) rv, lookup);
+        if (rv instanceof Java.MethodInvocation)
+            return createMethodInvocation((Java.MethodInvocation) rv, lookup);
+        if (rv instanceof Java.BinaryOperation)
+            return createBinaryOperation((Java.BinaryOperation) rv, lookup);
+        throw new UnsupportedOperationException("unsupported expression " + rv);
+    }
+
+    /**
+     * @return the name if the specified expression is a single identifier, otherwise null
+     */
+    private static String getName(Java.Atom atom) {
+        if (atom instanceof Java.AmbiguousName && ((Java.AmbiguousName) atom).n == 1)
+            return ((Java.AmbiguousName) atom).identifiers[0];
+        return null;
+    }
+
+    private static boolean isConstantName(String name) {
+        return name != null && name.toUpperCase(Locale.ROOT).equals(name);
+    }
+
+    private Expr createVariable(String name, EncodedValueLookup lookup) {
+        if (name == null)
+            throw new UnsupportedOperationException("only single identifiers are supported");
+        if (name.startsWith(IN_AREA_PREFIX)) {
+            int index = areaIds.indexOf(name.substring(IN_AREA_PREFIX.length()));
+            if (index < 0) {
+                index = areaIds.size();
+                areaIds.add(name.substring(IN_AREA_PREFIX.length()));
+            }
+            int areaIndex = index;
+            return Expr.ofBoolean((edge, reverse) -> CustomWeightingHelper.in(areas[areaIndex], areaEdges[areaIndex], edge));
+        }
+        boolean backward = false;
+        if (!lookup.hasEncodedValue(name) && name.startsWith(BACKWARD_PREFIX)) {
+            name = name.substring(BACKWARD_PREFIX.length());
+            backward = true;
+        }
+        if (!lookup.hasEncodedValue(name))
+            throw new UnsupportedOperationException("unknown variable " + name);
+        EncodedValue enc = lookup.getEncodedValue(name, EncodedValue.class);
+        // the order is the same as in CustomModelParser.getReturnType
+        if (enc instanceof EnumEncodedValue) {
+            EnumEncodedValue<?> enumEnc = (EnumEncodedValue<?>) enc;
+            EnumNode node = backward
+                    ? (edge, reverse) -> reverse ? edge.get(enumEnc) : edge.getReverse(enumEnc)
+                    : (edge, reverse) -> reverse ? edge.getReverse(enumEnc) : edge.get(enumEnc);
+            return new Expr(Type.ENUM, node, enumEnc.getEnumType());
+        } else if (enc instanceof StringEncodedValue) {
+            // like for the compiled class we use the index of the string
+            return createIntVariable((IntEncodedValue) enc, backward);
+        } else if (enc instanceof DecimalEncodedValue) {
+            DecimalEncodedValue decimalEnc = (DecimalEncodedValue) enc;
+            return Expr.ofNumber(Type.DOUBLE, backward
+                    ? (edge, reverse) -> reverse ? edge.get(decimalEnc) : edge.getReverse(decimalEnc)
+                    : (edge, reverse) -> reverse ? edge.getReverse(decimalEnc) : edge.get(decimalEnc));
+        } else if (enc instanceof BooleanEncodedValue) {
+            BooleanEncodedValue booleanEnc = (BooleanEncodedValue) enc;
+            return Expr.ofBoolean(backward
+                    ? (edge, reverse) -> reverse ? edge.get(booleanEnc) : edge.getReverse(booleanEnc)
+                    : (edge, reverse) -> reverse ? edge.getReverse(booleanEnc) : edge.get(booleanEnc));
+        } else if (enc instanceof IntEncodedValue) {
+            return createIntVariable((IntEncodedValue) enc, backward);
+        }
+        throw new UnsupportedOperationException("unsupported encoded value " + enc.getClass());
+    }
+
+    private static Expr createIntVariable(IntEncodedValue intEnc, boolean backward) {
+        return Expr.ofNumber(Type.INT, backward
+                ? (edge, reverse) -> reverse ? edge.get(intEnc) : edge.getReverse(intEnc)
+                : (edge, reverse) -> reverse ? edge.getReverse(intEnc) : edge.get(intEnc));
+    }
+
+    private static Expr createLiteral(Java.Literal literal) {
+        String value = literal.value.replace("_", "");
+        if (literal instanceof Java.BooleanLiteral) {
+            boolean b = Boolean.parseBoolean(value);
+            return Expr.ofBoolean((edge, reverse) -> b);
+        }
+        try {
+            if (literal instanceof Java.IntegerLiteral) {
+                // Integer.decode handles hexadecimal and octal numbers like Java, but not long values
+                double d = Integer.decode(value);
+                return Expr.ofNumber(Type.INT, (edge, reverse) -> d);
+            }
+            if (literal instanceof Java.FloatingPointLiteral) {
+                char last = Character.toLowerCase(value.charAt(value.length() - 1));
+                if (last == 'f')
+                    throw new UnsupportedOperationException("float is not supported: " + value);
+                double d = Double.parseDouble(last == 'd' ? value.substring(0, value.length() - 1) : value);
+                return Expr.ofNumber(Type.DOUBLE, (edge, reverse) -> d);
+            }
+        } catch (NumberFormatException ex) {
+            throw new UnsupportedOperationException("unsupported number " + value);
+        }
+        throw new UnsupportedOperationException("unsupported literal " + value);
+    }
+
+    private Expr createUnaryOperation(Java.UnaryOperation uo, EncodedValueLookup lookup) {
+        Expr operand = create(uo.operand, lookup);
+        if (uo.operator.equals("!")) {
+            BooleanNode node = operand.asBoolean();
+            return Expr.ofBoolean((edge, reverse) -> !node.eval(edge, reverse));
+        } else if (uo.operator.equals("-")) {
+            NumberNode node = operand.asNumber();
+            // -Integer.MIN_VALUE overflows for int like in Java
+            return Expr.ofNumber(operand.type, operand.type == Type.INT
+                    ? (edge, reverse) -> -(int) node.eval(edge, reverse)
+                    : (edge, reverse) -> -node.eval(edge, reverse));
+        }
+        throw new UnsupportedOperationException("unsupported operator " + uo.operator);
+    }
+
+    private Expr createMethodInvocation(Java.MethodInvocation mi, EncodedValueLookup lookup) {
+        if (!(mi.target instanceof Java.AmbiguousName))
+            throw new UnsupportedOperationException("unsupported method target " + mi.target);
+        String target = ((Java.AmbiguousName) mi.target).identifiers[0];
+        if (((Java.AmbiguousName) mi.target).n != 1)
+            throw new UnsupportedOperationException("unsupported method target " + mi.target);
+        if (target.equals("Math") && mi.arguments.length == 1) {
+            Expr argument = create(mi.arguments[0], lookup);
+            NumberNode node = argument.asNumber();
+            if (mi.methodName.equals("sqrt"))
+                return Expr.ofNumber(Type.DOUBLE, (edge, reverse) -> Math.sqrt(node.eval(edge, reverse)));
+            if (mi.methodName.equals("abs"))
+                return Expr.ofNumber(argument.type, argument.type == Type.INT
+                        ? (edge, reverse) -> Math.abs((int) node.eval(edge, reverse))
+                        : (edge, reverse) -> Math.abs(node.eval(edge, reverse)));
+        } else if (target.equals("edge") && mi.arguments.length == 0) {
+            if (mi.methodName.equals("getDistance"))
+                return Expr.ofNumber(Type.DOUBLE, (edge, reverse) -> edge.getDistance());
+        } else if (mi.arguments.length == 0 && lookup.hasEncodedValue(target)) {
+            Expr variable = createVariable(target, lookup);
+            if (variable.type == Type.ENUM) {
+                EnumNode node = (EnumNode) variable.node;
+                if (mi.methodName.equals("ordinal"))
+                    return Expr.ofNumber(Type.INT, (edge, reverse) -> node.eval(edge, reverse).ordinal());
+                if (mi.methodName.equals("isRightHandTraffic") && variable.enumType == Country.class)
+                    return Expr.ofBoolean((edge, reverse) -> ((Country) node.eval(edge, reverse)).isRightHandTraffic());
+            }
+        }
+        throw new UnsupportedOperationException("unsupported method " + target + "." + mi.methodName);
+    }
+
+    private Expr createBinaryOperation(Java.BinaryOperation binOp, EncodedValueLookup lookup) {
+        String op = binOp.operator;
+        if (op.equals("==") || op.equals("!=")) {
+            boolean equals = op.equals("==");
+            // e.g. road_class == PRIMARY, see ConditionalExpressionVisitor
+            String rhsName = getName(binOp.rhs);
+            if (getName(binOp.lhs) != null && isConstantName(rhsName)) {
+                Expr lhs = create(binOp.lhs, lookup);
+                if (lhs.type != Type.ENUM)
+                    throw new UnsupportedOperationException(binOp.lhs + " is not an enum");
+                Enum<?> constant = findConstant(lhs.enumType, rhsName);
+                EnumNode node = (EnumNode) lhs.node;
+                return Expr.ofBoolean((edge, reverse) -> (node.eval(edge, reverse) == constant) == equals);
+            }
+            Expr lhs = create(binOp.lhs, lookup), rhs = create(binOp.rhs, lookup);
+            if (lhs.type == Type.BOOLEAN && rhs.type == Type.BOOLEAN) {
+                BooleanNode l = lhs.asBoolean(), r = rhs.asBoolean();
+                return Expr.ofBoolean((edge, reverse) -> (l.eval(edge, reverse) == r.eval(edge, reverse)) == equals);
+            } else if (lhs.isNumber() && rhs.isNumber()) {
+                NumberNode l = lhs.asNumber(), r = rhs.asNumber();
+                // != must be true for NaN
+                return Expr.ofBoolean(equals
+                        ? (edge, reverse) -> l.eval(edge, reverse) == r.eval(edge, reverse)
+                        : (edge, reverse) -> l.eval(edge, reverse) != r.eval(edge, reverse));
+            } else if (lhs.type == Type.ENUM && rhs.type == Type.ENUM && lhs.enumType == rhs.enumType) {
+                EnumNode l = (EnumNode) lhs.node, r = (EnumNode) rhs.node;
+                return Expr.ofBoolean((edge, reverse) -> (l.eval(edge, reverse) == r.eval(edge, reverse)) == equals);
+            }
+            throw new UnsupportedOperationException("cannot compare " + lhs.type + " and " + rhs.type);
+        }
+
+        Expr lhs = create(binOp.lhs, lookup), rhs = create(binOp.rhs, lookup);
+        switch (op) {
+            case "&&": {
+                BooleanNode l = lhs.asBoolean(), r = rhs.asBoolean();
+                return Expr.ofBoolean((edge, reverse) -> l.eval(edge, reverse) && r.eval(edge, reverse));
+            }
+            case "||": {
+                BooleanNode l = lhs.asBoolean(), r = rhs.asBoolean();
+                return Expr.ofBoolean((edge, reverse) -> l.eval(edge, reverse) || r.eval(edge, reverse));
+            }
+        }
+        NumberNode l = lhs.asNumber(), r = rhs.asNumber();
+        switch (op) {
+            case "<":
+                return Expr.ofBoolean((edge, reverse) -> l.eval(edge, reverse) < r.eval(edge, reverse));
+            case "<=":
+                return Expr.ofBoolean((edge, reverse) -> l.eval(edge, reverse) <= r.eval(edge, reverse));
+            case ">":
+                return Expr.ofBoolean((edge, reverse) -> l.eval(edge, reverse) > r.eval(edge, reverse));
+            case ">=":
+                return Expr.ofBoolean((edge, reverse) -> l.eval(edge, reverse) >= r.eval(edge, reverse));
+        }
+        if (lhs.type == Type.INT && rhs.type == Type.INT) {
+            // int arithmetic like in Java, i.e. with overflow and integer division
+            switch (op) {
+                case "+":
+                    return Expr.ofNumber(Type.INT, (edge, reverse) -> (int) l.eval(edge, reverse) + (int) r.eval(edge, reverse));
+                case "-":
+                    return Expr.ofNumber(Type.INT, (edge, reverse) -> (int) l.eval(edge, reverse) - (int) r.eval(edge, reverse));
+                case "*":
+                    return Expr.ofNumber(Type.INT, (edge, reverse) -> (int) l.eval(edge, reverse) * (int) r.eval(edge, reverse));
+                case "/":
+                    return Expr.ofNumber(Type.INT, (edge, reverse) -> (int) l.eval(edge, reverse) / (int) r.eval(edge, reverse));
+            }
+        } else {
+            switch (op) {
+                case "+":
+                    return Expr.ofNumber(Type.DOUBLE, (edge, reverse) -> l.eval(edge, reverse) + r.eval(edge, reverse));
+                case "-":
+                    return Expr.ofNumber(Type.DOUBLE, (edge, reverse) -> l.eval(edge, reverse) - r.eval(edge, reverse));
+                case "*":
+                    return Expr.ofNumber(Type.DOUBLE, (edge, reverse) -> l.eval(edge, reverse) * r.eval(edge, reverse));
+                case "/":
+                    return Expr.ofNumber(Type.DOUBLE, (edge, reverse) -> l.eval(edge, reverse) / r.eval(edge, reverse));
+            }
+        }
+        throw new UnsupportedOperationException("unsupported operator " + op);
+    }
+
+    private static Enum<?> findConstant(Class<?> enumType, String name) {
+        for (Object constant : enumType.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equals(name))
+                return (Enum<?>) constant;
+        }
+        throw new UnsupportedOperationException(name + " is not a constant of " + enumType.getSimpleName());
+    }
+}
@@ -485,6 +485,13 @@ public class BaseGraph implements Graph, Closeable {
         return store;
     }
 
+    /**
+     * @return an empty {@link IntsRef} with the size of the flags of one edge, see {@link EdgeIteratorState#setFlags}
+     */
+    public IntsRef createEdgeFlags() {
+        return store.createEdgeFlags();
+    }
+
     private void setWayGeometryAtGeoRef(PointList pillarNodes, long edgePointer, boolean reverse, long geoRef) {
         byte[] wayGeometryBytes = createWayGeometryBytes(pillarNodes, reverse);
         wayGeometry.ensureCapacity(geoRef + wayGeometryBytes.length);
@@ -524,6 +531,54 @@ public class BaseGraph implements Graph, Closeable {
         return (wayGeometry.getByte(geoRef + 2) & 0xFF << 16) | wayGeometry.getShort(geoRef);
     }
 
+    /**
+     * Creates a reader for the pillar nodes of the edges of this graph. The reader can be used for many edges and each
+     * thread needs its own reader.
+     */
+    public PillarReader createPillarReader() {
+        return new PillarReader();
+    }
+
+    /**
+     * Reads the coordinates of the pillar nodes of an edge directly from the geometry storage and in storage direction.
+     * Unlike fetchWayGeometry this creates no PointList, which matters if the geometry of many edges is read only
+     * once, like for the candidate edges of the location index.
+     */
+    public class PillarReader {
+        private final int bytesPerPillar = 8 + eleBytesPerCoord;
+        private long pointer;
+        private int count;
+
+        private PillarReader() {
+        }
+
+        /**
+         * @return the number of pillar nodes of the specified edge
+         */
+        public int setEdge(int edge) {
+            long geoRef = store.getGeoRef(store.toEdgePointer(edge));
+            if (geoRef > 0) {
+                count = getPillarCount(geoRef);
+                pointer = geoRef + 3L;
+            } else {
+                count = 0;
+            }
+            return count;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getLat(int index) {
+            return Helper.intToDegree(wayGeometry.getInt(pointer + (long) index * bytesPerPillar));
+        }
+
+        public double getLon(int index) {
+            return Helper.intToDegree(wayGeometry.getInt(pointer + (long) index * bytesPerPillar + 4));
+        }
+    }
+
     private PointList fetchWayGeometry_(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
         if (mode == FetchMode.TOWER_ONLY) {
             // no reverse handling required as adjNode and baseNode is already properly switched
@@ -18,6 +18,7 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.routing.ch.ShortcutUnpackCache;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.weighting.Weighting;
 
@@ -59,6 +60,11 @@ public interface RoutingCHGraph {
 
     Weighting getWeighting();
 
+    /**
+     * @return the cache that shall be used to unpack the shortcuts of this graph or null if there is none
+     */
+    ShortcutUnpackCache getShortcutUnpackCache();
+
     // todo: would like to get rid of this
     void close();
 }
@@ -18,12 +18,14 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.routing.ch.ShortcutUnpackCache;
 import com.graphhopper.routing.weighting.Weighting;
 
 public class RoutingCHGraphImpl implements RoutingCHGraph {
     private final BaseGraph baseGraph;
     private final CHStorage chStorage;
     private final Weighting weighting;
+    private ShortcutUnpackCache shortcutUnpackCache;
 
     public static RoutingCHGraph fromGraph(BaseGraph baseGraph, CHStorage chStorage, CHConfig chConfig) {
         return new RoutingCHGraphImpl(baseGraph, chStorage, chConfig.getWeighting());
@@ -87,6 +89,16 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
         return weighting;
     }
 
+    @Override
+    public ShortcutUnpackCache getShortcutUnpackCache() {
+        return shortcutUnpackCache;
+    }
+
+    public RoutingCHGraphImpl setShortcutUnpackCache(ShortcutUnpackCache shortcutUnpackCache) {
+        this.shortcutUnpackCache = shortcutUnpackCache;
+        return this;
+    }
+
     @Override
     public boolean hasTurnCosts() {
         return weighting.hasTurnCosts();
@@ -101,6 +101,38 @@ public class InMemConstructionIndex {
         }
     }
 
+    /**
+     * Appends the entries of the given index to the entries of this index. If the other index was created for higher
+     * values (e.g. edge IDs) the result is the same as if all values were added to this index.
+     */
+    void merge(InMemConstructionIndex other) {
+        merge(root, other.root);
+    }
+
+    private static void merge(InMemTreeEntry target, InMemTreeEntry source) {
+        for (int i = 0; i < source.subEntries.length; i++) {
+            InMemEntry sourceEntry = source.subEntries[i];
+            if (sourceEntry == null)
+                continue;
+            InMemEntry targetEntry = target.subEntries[i];
+            if (targetEntry == null)
+                target.subEntries[i] = sourceEntry;
+            else if (targetEntry.isLeaf())
+                mergeLeaf((InMemLeafEntry) targetEntry, (InMemLeafEntry) sourceEntry);
+            else
+                merge((InMemTreeEntry) targetEntry, (InMemTreeEntry) sourceEntry);
+        }
+    }
+
+    private static void mergeLeaf(InMemLeafEntry target, InMemLeafEntry source) {
+        for (int i = 0; i < source.size(); i++) {
+            int value = source.get(i);
+            // like in put we avoid consecutive duplicates
+            if (target.isEmpty() || target.get(target.size() - 1) != value)
+                target.add(value);
+        }
+    }
+
     void put(long key, int value) {
         put(key << (64 - keyAlgo.getBits()), root, 0, value);
     }
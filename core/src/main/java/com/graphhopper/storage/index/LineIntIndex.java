@@ -20,6 +20,7 @@ package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.LongObjectMap;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.DataAccess;
@@ -34,6 +35,7 @@ import java.util.function.IntConsumer;
 public class LineIntIndex {
     // do not start with 0 as a positive value means leaf and a negative means "entry with subentries"
     static final int START_POINTER = 1;
+    static final int MAX_CACHED_CELLS = 4096;
 
     final DataAccess dataAccess;
     private final BBox bounds;
@@ -41,6 +43,8 @@ public class LineIntIndex {
     private int size;
     private int leafs;
     private int checksum;
+    // the first unused int, new leafs and tree entries are appended here
+    private int endPointer;
     private IndexStructureInfo indexStructureInfo;
     private int[] entries;
     private byte[] shifts;
@@ -66,6 +70,10 @@ public class LineIntIndex {
         GHUtility.checkDAVersion("location_index", Constants.VERSION_LOCATION_IDX, dataAccess.getHeader(0));
         checksum = dataAccess.getHeader(1 * 4);
         minResolutionInMeter = dataAccess.getHeader(2 * 4);
+        endPointer = dataAccess.getHeader(3 * 4);
+        // files created before the end pointer was stored are filled up to their capacity at most
+        if (endPointer <= 0)
+            endPointer = (int) (dataAccess.getCapacity() / 4);
         indexStructureInfo = IndexStructureInfo.create(bounds, minResolutionInMeter);
         keyAlgo = indexStructureInfo.getKeyAlgo();
         entries = indexStructureInfo.getEntries();
@@ -81,7 +89,7 @@ public class LineIntIndex {
         shifts = indexStructureInfo.getShifts();
         dataAccess.create(64 * 1024);
         try {
-            store(inMem.root, START_POINTER);
+            endPointer = store(inMem.root, START_POINTER);
         } catch (Exception ex) {
             throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
         }
@@ -132,6 +140,106 @@ public class LineIntIndex {
         return intPointer;
     }
 
+    /**
+     * Adds the entries of the given index to the stored cells, e.g. for edges that were added to the graph after the
+     * index was stored. The merged leafs and the new tree entries are appended at the end, the space of the replaced
+     * leafs is not reused.
+     */
+    public void add(InMemConstructionIndex inMem) {
+        if (!initialized)
+            throw new IllegalStateException("Call store or loadExisting before adding entries");
+        add(inMem.root, START_POINTER);
+    }
+
+    private void add(InMemConstructionIndex.InMemTreeEntry treeEntry, int intPointer) {
+        for (int subCounter = 0; subCounter < treeEntry.subEntries.length; subCounter++) {
+            InMemConstructionIndex.InMemEntry subEntry = treeEntry.subEntries[subCounter];
+            if (subEntry == null)
+                continue;
+            long pointer = (long) (intPointer + subCounter) * 4;
+            int subIntPointer = dataAccess.getInt(pointer);
+            if (subEntry.isLeaf()) {
+                IntArrayList newEntries = ((InMemConstructionIndex.InMemLeafEntry) subEntry).getResults();
+                if (newEntries.isEmpty())
+                    continue;
+                IntArrayList leafEntries = new IntArrayList();
+                if (subIntPointer > 0)
+                    fillLeaf(subIntPointer, leafEntries::add);
+                int oldSize = leafEntries.size();
+                for (int index = 0; index < newEntries.size(); index++) {
+                    if (!leafEntries.contains(newEntries.get(index)))
+                        leafEntries.add(newEntries.get(index));
+                }
+                if (leafEntries.size() == oldSize)
+                    continue;
+                if (oldSize == 0)
+                    leafs++;
+                size += leafEntries.size() - oldSize;
+                dataAccess.setInt(pointer, appendLeaf(leafEntries));
+            } else {
+                InMemConstructionIndex.InMemTreeEntry subTreeEntry = (InMemConstructionIndex.InMemTreeEntry) subEntry;
+                if (subIntPointer <= 0) {
+                    subIntPointer = endPointer;
+                    endPointer += subTreeEntry.subEntries.length;
+                    dataAccess.ensureCapacity((long) endPointer * 4);
+                    for (int index = subIntPointer; index < endPointer; index++) {
+                        dataAccess.setInt((long) index * 4, 0);
+                    }
+                    dataAccess.setInt(pointer, subIntPointer);
+                }
+                add(subTreeEntry, subIntPointer);
+            }
+        }
+    }
+
+    private int appendLeaf(IntArrayList leafEntries) {
+        int intPointer = endPointer;
+        dataAccess.ensureCapacity((long) (intPointer + leafEntries.size() + 1) * 4);
+        if (leafEntries.size() == 1) {
+            dataAccess.setInt((long) intPointer * 4, -leafEntries.get(0) - 1);
+            endPointer = intPointer + 1;
+        } else {
+            endPointer = intPointer + 1;
+            for (int index = 0; index < leafEntries.size(); index++, endPointer++) {
+                dataAccess.setInt((long) endPointer * 4, leafEntries.get(index));
+            }
+            dataAccess.setInt((long) intPointer * 4, endPointer);
+        }
+        return intPointer;
+    }
+
+    private void fillLeaf(int intPointer, IntConsumer consumer) {
+        int data = dataAccess.getInt((long) intPointer * 4);
+        if (data < 0) {
+            // single data entries (less disc space)
+            consumer.accept(-(data + 1));
+        } else {
+            // "data" is index of last data item
+            for (int leafIndex = intPointer + 1; leafIndex < data; leafIndex++) {
+                consumer.accept(dataAccess.getInt((long) leafIndex * 4));
+            }
+        }
+    }
+
+    private void fillIDs(long keyPart, IntConsumer consumer, LongObjectMap<int[]> cellCache) {
+        if (cellCache == null) {
+            fillIDs(keyPart, consumer);
+            return;
+        }
+        int[] edgeIds = cellCache.get(keyPart);
+        if (edgeIds == null) {
+            IntArrayList list = new IntArrayList();
+            fillIDs(keyPart, list::add);
+            edgeIds = list.toArray();
+            if (cellCache.size() >= MAX_CACHED_CELLS)
+                cellCache.clear();
+            cellCache.put(keyPart, edgeIds);
+        }
+        for (int edgeId : edgeIds) {
+            consumer.accept(edgeId);
+        }
+    }
+
     private void fillIDs(long keyPart, IntConsumer consumer) {
         int intPointer = START_POINTER;
         for (int depth = 0; depth < entries.length; depth++) {
@@ -144,18 +252,7 @@ public class LineIntIndex {
             keyPart = keyPart << shifts[depth];
             intPointer = nextIntPointer;
         }
-        int data = dataAccess.getInt((long) intPointer * 4);
-        if (data < 0) {
-            // single data entries (less disc space)
-            int edgeId = -(data + 1);
-            consumer.accept(edgeId);
-        } else {
-            // "data" is index of last data item
-            for (int leafIndex = intPointer + 1; leafIndex < data; leafIndex++) {
-                int edgeId = dataAccess.getInt((long) leafIndex * 4);
-                consumer.accept(edgeId);
-            }
-        }
+        fillLeaf(intPointer, consumer);
     }
 
     public void query(BBox queryShape, final LocationIndex.Visitor function) {
@@ -240,6 +337,16 @@ public class LineIntIndex {
      * <p>
      */
     public void findEdgeIdsInNeighborhood(double queryLat, double queryLon, int iteration, IntConsumer foundEntries) {
+        findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, foundEntries, null);
+    }
+
+    /**
+     * Same as {@link #findEdgeIdsInNeighborhood(double, double, int, IntConsumer)} but the edge ids of every visited
+     * cell are kept in the given cellCache, which avoids walking the tree again for neighboring query points. The cache
+     * is cleared if it exceeds {@link #MAX_CACHED_CELLS} cells. It must not be shared between threads.
+     */
+    public void findEdgeIdsInNeighborhood(double queryLat, double queryLon, int iteration, IntConsumer foundEntries,
+                                          LongObjectMap<int[]> cellCache) {
         int x = keyAlgo.x(queryLon);
         int y = keyAlgo.y(queryLat);
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
@@ -248,11 +355,11 @@ public class LineIntIndex {
             int subqueryXB = x + iteration;
             if (subqueryXA >= 0 && subqueryY >= 0 && subqueryXA < indexStructureInfo.getParts() && subqueryY < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryXA, subqueryY) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                fillIDs(keyPart, foundEntries, cellCache);
             }
             if (iteration > 0 && subqueryXB >= 0 && subqueryY >= 0 && subqueryXB < indexStructureInfo.getParts() && subqueryY < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryXB, subqueryY) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                fillIDs(keyPart, foundEntries, cellCache);
             }
         }
 
@@ -262,11 +369,11 @@ public class LineIntIndex {
             int subqueryYB = y + iteration;
             if (subqueryX >= 0 && subqueryYA >= 0 && subqueryX < indexStructureInfo.getParts() && subqueryYA < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryX, subqueryYA) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                fillIDs(keyPart, foundEntries, cellCache);
             }
             if (subqueryX >= 0 && subqueryYB >= 0 && subqueryX < indexStructureInfo.getParts() && subqueryYB < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryX, subqueryYB) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                fillIDs(keyPart, foundEntries, cellCache);
             }
         }
     }
@@ -287,6 +394,7 @@ public class LineIntIndex {
         dataAccess.setHeader(0, Constants.VERSION_LOCATION_IDX);
         dataAccess.setHeader(1 * 4, checksum);
         dataAccess.setHeader(2 * 4, minResolutionInMeter);
+        dataAccess.setHeader(3 * 4, endPointer);
 
         // saving space not necessary: dataAccess.trimTo((lastPointer + 1) * 4);
         dataAccess.flush();
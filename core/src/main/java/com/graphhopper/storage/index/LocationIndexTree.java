@@ -17,18 +17,30 @@
  */
 package com.graphhopper.storage.index;
 
+import com.carrotsearch.hppc.IntCollection;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.LongObjectMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -54,10 +66,13 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 public class LocationIndexTree implements LocationIndex {
     private final Directory directory;
     private final Graph graph;
+    // used to read the pillar nodes without creating a PointList, null if the graph is no BaseGraph
+    private final BaseGraph baseGraph;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final NodeAccess nodeAccess;
     private int maxRegionSearch = 4;
     private int minResolutionInMeter = 300;
+    private int prepareThreads = 1;
     private boolean initialized = false;
 
     LineIntIndex lineIntIndex;
@@ -73,7 +88,16 @@ public class LocationIndexTree implements LocationIndex {
      * @param g the graph for which this index should do the lookup based on latitude,longitude.
      */
     public LocationIndexTree(Graph g, Directory dir) {
+        this(g, dir, "location_index");
+    }
+
+    /**
+     * @param name the name of the underlying storage, which is required if more than one index is stored in the
+     *             same directory
+     */
+    public LocationIndexTree(Graph g, Directory dir, String name) {
         this.graph = g;
+        this.baseGraph = g instanceof BaseGraph ? (BaseGraph) g : null;
         this.nodeAccess = g.getNodeAccess();
         this.directory = dir;
 
@@ -87,7 +111,7 @@ public class LocationIndexTree implements LocationIndex {
         if (!bounds.isValid())
             bounds = new BBox(-10.0, 10.0, -10.0, 10.0);
 
-        lineIntIndex = new LineIntIndex(bounds, directory, "location_index");
+        lineIntIndex = new LineIntIndex(bounds, directory, name);
     }
 
     public int getMinResolutionInMeter() {
@@ -119,6 +143,18 @@ public class LocationIndexTree implements LocationIndex {
     }
 
 
+    /**
+     * Sets the number of threads used to create the index in {@link #prepareIndex()}. Every thread adds the edges of a
+     * range of edge IDs to its own in-memory index and these are merged afterwards. The result does not depend on the
+     * number of threads.
+     */
+    public LocationIndexTree setPrepareThreads(int prepareThreads) {
+        if (prepareThreads < 1)
+            throw new IllegalArgumentException("prepareThreads must be at least 1 but was " + prepareThreads);
+        this.prepareThreads = prepareThreads;
+        return this;
+    }
+
     public LocationIndex setResolution(int minResolutionInMeter) {
         if (minResolutionInMeter <= 0)
             throw new IllegalStateException("Negative precision is not allowed!");
@@ -171,7 +207,8 @@ public class LocationIndexTree implements LocationIndex {
         lineIntIndex.setChecksum(checksum());
         flush();
         logger.info("location index created in " + sw.stop().getSeconds()
-                + "s, size:" + Helper.nf(lineIntIndex.getSize())
+                + "s, threads:" + prepareThreads
+                + ", size:" + Helper.nf(lineIntIndex.getSize())
                 + ", leafs:" + Helper.nf(lineIntIndex.getLeafs())
                 + ", precision:" + minResolutionInMeter
                 + ", depth:" + indexStructureInfo.getEntries().length
@@ -182,33 +219,34 @@ public class LocationIndexTree implements LocationIndex {
         return this;
     }
 
+    /**
+     * Adds the given edges to the cells they cross, e.g. after they were added to the graph or their geometry changed.
+     * The edges are not removed from the cells they crossed before, which only makes queries there a bit slower. All
+     * nodes of the edges must be within the bounds the index was created for.
+     */
+    public void addEdges(IntCollection edges) {
+        if (indexStructureInfo == null)
+            throw new IllegalStateException("Call prepareIndex or loadExisting before adding edges");
+        InMemConstructionIndex inMem = new InMemConstructionIndex(indexStructureInfo);
+        for (IntCursor cursor : edges) {
+            addEdge(inMem, graph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE));
+        }
+        lineIntIndex.add(inMem);
+        lineIntIndex.setChecksum(checksum());
+    }
+
     InMemConstructionIndex prepareInMemConstructionIndex(BBox bounds, EdgeFilter edgeFilter) {
         indexStructureInfo = IndexStructureInfo.create(bounds, minResolutionInMeter);
+        if (prepareThreads > 1 && graph.getEdges() > prepareThreads)
+            return prepareInMemConstructionIndexConcurrently(edgeFilter);
+
         InMemConstructionIndex inMem = new InMemConstructionIndex(indexStructureInfo);
         AllEdgesIterator allIter = graph.getAllEdges();
         try {
             while (allIter.next()) {
                 if (!edgeFilter.accept(allIter))
                     continue;
-                int edge = allIter.getEdge();
-                int nodeA = allIter.getBaseNode();
-                int nodeB = allIter.getAdjNode();
-                double lat1 = nodeAccess.getLat(nodeA);
-                double lon1 = nodeAccess.getLon(nodeA);
-                double lat2;
-                double lon2;
-                PointList points = allIter.fetchWayGeometry(FetchMode.PILLAR_ONLY);
-                int len = points.size();
-                for (int i = 0; i < len; i++) {
-                    lat2 = points.getLat(i);
-                    lon2 = points.getLon(i);
-                    inMem.addToAllTilesOnLine(edge, lat1, lon1, lat2, lon2);
-                    lat1 = lat2;
-                    lon1 = lon2;
-                }
-                lat2 = nodeAccess.getLat(nodeB);
-                lon2 = nodeAccess.getLon(nodeB);
-                inMem.addToAllTilesOnLine(edge, lat1, lon1, lat2, lon2);
+                addEdge(inMem, allIter);
             }
         } catch (Exception ex1) {
             logger.error("Problem! base:" + allIter.getBaseNode() + ", adj:" + allIter.getAdjNode()
@@ -217,6 +255,50 @@ public class LocationIndexTree implements LocationIndex {
         return inMem;
     }
 
+    private InMemConstructionIndex prepareInMemConstructionIndexConcurrently(EdgeFilter edgeFilter) {
+        int edges = graph.getEdges();
+        InMemConstructionIndex[] inMems = new InMemConstructionIndex[prepareThreads];
+        GHUtility.runConcurrently(IntStream.range(0, prepareThreads).mapToObj(thread -> () -> {
+            InMemConstructionIndex inMem = new InMemConstructionIndex(indexStructureInfo);
+            int from = (int) ((long) edges * thread / prepareThreads);
+            int to = (int) ((long) edges * (thread + 1) / prepareThreads);
+            for (int edge = from; edge < to; edge++) {
+                EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                if (edgeFilter.accept(edgeState))
+                    addEdge(inMem, edgeState);
+            }
+            inMems[thread] = inMem;
+        }), prepareThreads);
+        // every thread added increasing edge IDs, so we get the same index as with a single thread
+        for (int i = 1; i < inMems.length; i++) {
+            inMems[0].merge(inMems[i]);
+            inMems[i] = null;
+        }
+        return inMems[0];
+    }
+
+    private void addEdge(InMemConstructionIndex inMem, EdgeIteratorState edgeState) {
+        int edge = edgeState.getEdge();
+        int nodeA = edgeState.getBaseNode();
+        int nodeB = edgeState.getAdjNode();
+        double lat1 = nodeAccess.getLat(nodeA);
+        double lon1 = nodeAccess.getLon(nodeA);
+        double lat2;
+        double lon2;
+        PointList points = edgeState.fetchWayGeometry(FetchMode.PILLAR_ONLY);
+        int len = points.size();
+        for (int i = 0; i < len; i++) {
+            lat2 = points.getLat(i);
+            lon2 = points.getLon(i);
+            inMem.addToAllTilesOnLine(edge, lat1, lon1, lat2, lon2);
+            lat1 = lat2;
+            lon1 = lon2;
+        }
+        lat2 = nodeAccess.getLat(nodeB);
+        lon2 = nodeAccess.getLon(nodeB);
+        inMem.addToAllTilesOnLine(edge, lat1, lon1, lat2, lon2);
+    }
+
     int checksum() {
         return graph.getNodes() ^ graph.getAllEdges().length();
     }
@@ -274,13 +356,113 @@ public class LocationIndexTree implements LocationIndex {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
-        final Snap closestMatch = new Snap(queryLat, queryLon);
+        return findClosest(queryLat, queryLon, edgeFilter, new IntHashSet(), null);
+    }
+
+    /**
+     * Snaps all points and returns the Snaps in the order of the specified points. The points are processed in the
+     * order of their spatial key (a space-filling curve), so consecutive points are usually close to each other and
+     * the edge ids of the visited cells can be reused instead of walking the tree again for every point.
+     */
+    @Override
+    public List<Snap> findClosest(List<GHPoint> points, EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+        SpatialKeyAlgo keyAlgo = indexStructureInfo.getKeyAlgo();
+        long[] keys = new long[points.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyAlgo.encodeLatLon(points.get(i).lat, points.get(i).lon);
+        }
+        int[] order = IndirectSort.mergesort(0, keys.length, (a, b) -> Long.compare(keys[a], keys[b]));
+        Snap[] snaps = new Snap[keys.length];
+        IntHashSet seenEdges = new IntHashSet();
+        LongObjectMap<int[]> cellCache = new LongObjectHashMap<>();
+        for (int i : order) {
+            seenEdges.clear();
+            snaps[i] = findClosest(points.get(i).lat, points.get(i).lon, edgeFilter, seenEdges, cellCache);
+        }
+        return Arrays.asList(snaps);
+    }
+
+    /**
+     * Finds the edges accepted by the edgeFilter that are closest to the query point. Every edge results in (at most)
+     * one Snap, which is the closest point of this edge.
+     *
+     * @param radius   the maximum distance in meters between the query point and a snapped point
+     * @param maxSnaps the maximum number of returned Snaps
+     * @return the Snaps within the radius, ordered by increasing distance. If there are more than maxSnaps of them
+     * only the closest maxSnaps Snaps are returned.
+     */
+    public List<Snap> findClosestEdges(final double queryLat, final double queryLon, double radius, int maxSnaps,
+                                       final EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (radius < 0)
+            throw new IllegalArgumentException("radius must not be negative but was " + radius);
+        if (maxSnaps < 1)
+            throw new IllegalArgumentException("maxSnaps must be at least 1 but was " + maxSnaps);
+
+        final double normedRadius = DIST_PLANE.calcNormalizedDist(radius);
+        List<Snap> snaps = new ArrayList<>();
         IntHashSet seenEdges = new IntHashSet();
+        StoredGeometry geometry = createStoredGeometry();
+        // the square of tiles we search grows by one tile per iteration until it covers the whole index
+        for (int iteration = 0; iteration < indexStructureInfo.getParts(); iteration++) {
+            lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
+                if (!seenEdges.add(edgeId))
+                    return;
+                EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+                if (!edgeFilter.accept(edgeIteratorState))
+                    return;
+                Snap snap = new Snap(queryLat, queryLon);
+                traverseEdge(queryLat, queryLon, edgeIteratorState, geometry, normedRadius, (node, normedDist, wayIndex, pos) -> {
+                    if (normedDist < snap.getQueryDistance()) {
+                        snap.setQueryDistance(normedDist);
+                        snap.setClosestNode(node);
+                        snap.setWayIndex(wayIndex);
+                        snap.setSnappedPosition(pos);
+                    }
+                });
+                if (snap.isValid() && snap.getQueryDistance() <= normedRadius) {
+                    snap.setClosestEdge(edgeIteratorState.detach(false));
+                    snaps.add(snap);
+                }
+            });
+            // all edges closer than rMin were already found, so we can stop if rMin covers the radius or if
+            // there are already maxSnaps Snaps within rMin
+            double rMin = calculateRMin(queryLat, queryLon, iteration);
+            if (rMin >= radius)
+                break;
+            if (snaps.size() >= maxSnaps) {
+                snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+                if (DIST_PLANE.calcDenormalizedDist(snaps.get(maxSnaps - 1).getQueryDistance()) < rMin)
+                    break;
+            }
+        }
+
+        snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+        List<Snap> result = snaps.size() > maxSnaps ? new ArrayList<>(snaps.subList(0, maxSnaps)) : snaps;
+        for (Snap snap : result) {
+            snap.calcSnappedPoint(DIST_PLANE);
+            snap.setQueryDistance(DIST_PLANE.calcDist(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon, queryLat, queryLon));
+        }
+        return result;
+    }
+
+    private Snap findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter,
+                             IntHashSet seenEdges, LongObjectMap<int[]> cellCache) {
+        final Snap closestMatch = new Snap(queryLat, queryLon);
+        final StoredGeometry geometry = createStoredGeometry();
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
+                // check seenEdges first to avoid creating an EdgeIteratorState for edges we already visited
+                if (!seenEdges.add(edgeId))
+                    return;
                 EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
-                if (seenEdges.add(edgeId) && edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
-                    traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
+                if (edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
+                    // edges that are farther away than the closest match so far cannot change the result
+                    traverseEdge(queryLat, queryLon, edgeIteratorState, geometry, closestMatch.getQueryDistance(), (node, normedDist, wayIndex, pos) -> {
                         if (normedDist < closestMatch.getQueryDistance()) {
                             closestMatch.setQueryDistance(normedDist);
                             closestMatch.setClosestNode(node);
@@ -290,7 +472,7 @@ public class LocationIndexTree implements LocationIndex {
                         }
                     });
                 }
-            });
+            }, cellCache);
             if (closestMatch.isValid()) {
                 // Check if we can stop...
                 double rMin = calculateRMin(queryLat, queryLon, iteration);
@@ -318,18 +500,42 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     public void traverseEdge(double queryLat, double queryLon, EdgeIteratorState currEdge, EdgeCheck edgeCheck) {
+        traverseEdge(queryLat, queryLon, currEdge, null, Double.MAX_VALUE, edgeCheck);
+    }
+
+    private StoredGeometry createStoredGeometry() {
+        return baseGraph == null ? null : new StoredGeometry(baseGraph.createPillarReader());
+    }
+
+    /**
+     * @param storedGeometry reads the pillar nodes from the graph if the edge is in storage direction, if null they are
+     *                       fetched from the edge
+     * @param maxNormedDist  the edge is skipped if its bounding box is farther away than this normalized distance
+     */
+    private void traverseEdge(double queryLat, double queryLon, EdgeIteratorState currEdge, StoredGeometry storedGeometry,
+                              double maxNormedDist, EdgeCheck edgeCheck) {
         int baseNode = currEdge.getBaseNode();
         double baseLat = nodeAccess.getLat(baseNode);
         double baseLon = nodeAccess.getLon(baseNode);
-        double baseDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, baseLat, baseLon);
 
         int adjNode = currEdge.getAdjNode();
         double adjLat = nodeAccess.getLat(adjNode);
         double adjLon = nodeAccess.getLon(adjNode);
-        double adjDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, adjLat, adjLon);
 
-        PointList pointList = currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+        // the pillar nodes and the adj node
+        final Geometry pointList;
+        if (storedGeometry != null && currEdge.getEdgeKey() % 2 == 0 && currEdge.getEdge() < baseGraph.getEdges()) {
+            storedGeometry.setEdge(currEdge.getEdge(), adjLat, adjLon);
+            pointList = storedGeometry;
+        } else {
+            pointList = new PointListGeometry(currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ));
+        }
         final int len = pointList.size();
+        if (maxNormedDist < Double.MAX_VALUE && isFartherAway(queryLat, queryLon, baseLat, baseLon, pointList, maxNormedDist))
+            return;
+
+        double baseDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, baseLat, baseLon);
+        double adjDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, adjLat, adjLon);
 
         int closestTowerNode;
         double closestDist;
@@ -375,4 +581,98 @@ public class LocationIndexTree implements LocationIndex {
         }
     }
 
+    /**
+     * @return true if the distance between the query point and the bounding box of the edge is larger than the specified
+     * normalized distance. The bounding box distance is a lower bound for the distances calculated in traverseEdge.
+     */
+    private static boolean isFartherAway(double queryLat, double queryLon, double baseLat, double baseLon, Geometry pointList,
+                                         double normedDist) {
+        double minLat = baseLat, maxLat = baseLat, minLon = baseLon, maxLon = baseLon;
+        for (int i = 0; i < pointList.size(); i++) {
+            double lat = pointList.getLat(i), lon = pointList.getLon(i);
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+        }
+        double dLat = Math.toRadians(Math.max(0, Math.max(minLat - queryLat, queryLat - maxLat)));
+        // we use 0.999 to be on the safe side regarding rounding errors
+        if (dLat * dLat * 0.999 > normedDist)
+            return true;
+        double dLon = Math.toRadians(Math.max(0, Math.max(minLon - queryLon, queryLon - maxLon)));
+        if (dLon == 0)
+            return false;
+        // the longitude difference is scaled by the cosine of a latitude between the query point and the edge, so the
+        // largest absolute latitude gives a lower bound
+        double maxAbsLat = Math.max(Math.abs(queryLat), Math.max(Math.abs(minLat), Math.abs(maxLat)));
+        double left = Math.cos(Math.toRadians(maxAbsLat)) * dLon;
+        return (dLat * dLat + left * left) * 0.999 > normedDist;
+    }
+
+    private interface Geometry {
+        int size();
+
+        double getLat(int index);
+
+        double getLon(int index);
+    }
+
+    private static class PointListGeometry implements Geometry {
+        private final PointList pointList;
+
+        PointListGeometry(PointList pointList) {
+            this.pointList = pointList;
+        }
+
+        @Override
+        public int size() {
+            return pointList.size();
+        }
+
+        @Override
+        public double getLat(int index) {
+            return pointList.getLat(index);
+        }
+
+        @Override
+        public double getLon(int index) {
+            return pointList.getLon(index);
+        }
+    }
+
+    /**
+     * The pillar nodes of an edge in storage direction, read directly from the graph, followed by its adj node.
+     */
+    private static class StoredGeometry implements Geometry {
+        private final BaseGraph.PillarReader reader;
+        private int pillars;
+        private double adjLat;
+        private double adjLon;
+
+        StoredGeometry(BaseGraph.PillarReader reader) {
+            this.reader = reader;
+        }
+
+        void setEdge(int edge, double adjLat, double adjLon) {
+            pillars = reader.setEdge(edge);
+            this.adjLat = adjLat;
+            this.adjLon = adjLon;
+        }
+
+        @Override
+        public int size() {
+            return pillars + 1;
+        }
+
+        @Override
+        public double getLat(int index) {
+            return index < pillars ? reader.getLat(index) : adjLat;
+        }
+
+        @Override
+        public double getLon(int index) {
+            return index < pillars ? reader.getLon(index) : adjLon;
+        }
+    }
+
 }
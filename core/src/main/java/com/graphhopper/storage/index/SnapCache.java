@@ -0,0 +1,213 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.shapes.GHPoint3D;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+
+/**
+ * Caches the results of {@link LocationIndex#findClosest(double, double, EdgeFilter)} for coordinates that are
+ * queried again and again, like depots or popular places. The coordinates are rounded to 1e-6 degrees (roughly 0.1m)
+ * and a Snap found for one coordinate is used for all coordinates that are rounded to the same key. Every edge filter
+ * needs a key that identifies which edges it accepts, because the filters are usually created for every request.
+ * <p>
+ * Only the closest edge, the way index and the snapped point are stored, so every lookup returns a new Snap that can be
+ * modified like the Snaps of the location index (e.g. by the QueryGraph). The number of entries is limited: there are
+ * two generations of at most maxSize/2 entries each, entries that are read from the old generation are moved to the new
+ * one and the old generation is dropped once the new one is full. The cache must be cleared when the graph changes.
+ */
+public class SnapCache {
+    private static final double PRECISION = 1e6;
+    private final BaseGraph graph;
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile Map<Key, Entry> current = new ConcurrentHashMap<>();
+    private volatile Map<Key, Entry> previous = new ConcurrentHashMap<>();
+
+    public SnapCache(BaseGraph graph, int maxSize) {
+        if (maxSize < 2)
+            throw new IllegalArgumentException("The snap cache needs a size of at least 2, but was " + maxSize);
+        this.graph = graph;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param filterKey identifies the edges accepted by the filter, e.g. the name of the profile
+     * @return a location index that uses this cache for all lookups with exactly the specified edge filter instance
+     * and that forwards all other calls to the specified index. Closing it does nothing, because the specified index
+     * is owned by the caller.
+     */
+    public LocationIndex wrap(LocationIndex index, String filterKey, EdgeFilter filter) {
+        return new LocationIndex() {
+            @Override
+            public Snap findClosest(double lat, double lon, EdgeFilter edgeFilter) {
+                return edgeFilter == filter
+                        ? SnapCache.this.findClosest(index, filterKey, lat, lon, filter)
+                        : index.findClosest(lat, lon, edgeFilter);
+            }
+
+            @Override
+            public void query(TileFilter tileFilter, Visitor function) {
+                index.query(tileFilter, function);
+            }
+
+            @Override
+            public void close() {
+                // the wrapped index is closed by its owner
+            }
+        };
+    }
+
+    public Snap findClosest(LocationIndex index, String filterKey, double lat, double lon, EdgeFilter filter) {
+        Key key = new Key(filterKey, lat, lon);
+        Entry entry = current.get(key);
+        if (entry == null) {
+            entry = previous.get(key);
+            if (entry != null)
+                put(key, entry);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry.createSnap(graph, lat, lon);
+        }
+        misses.increment();
+        Snap snap = index.findClosest(lat, lon, filter);
+        put(key, new Entry(snap));
+        return snap;
+    }
+
+    private void put(Key key, Entry entry) {
+        Map<Key, Entry> map = current;
+        map.put(key, entry);
+        if (map.size() >= maxSize / 2)
+            startNewGeneration(map);
+    }
+
+    private synchronized void startNewGeneration(Map<Key, Entry> full) {
+        // another thread might have started a new generation already
+        if (current != full)
+            return;
+        previous = full;
+        current = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Removes all entries, this must be called when the graph or the location index changes.
+     */
+    public synchronized void clear() {
+        previous = new ConcurrentHashMap<>();
+        current = new ConcurrentHashMap<>();
+    }
+
+    public int getSize() {
+        return current.size() + previous.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHits(), total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "size: " + getSize() + ", hits: " + getHits() + ", misses: " + getMisses() + ", hit rate: " + (float) getHitRate();
+    }
+
+    private static class Key {
+        final String filterKey;
+        final int lat;
+        final int lon;
+
+        Key(String filterKey, double lat, double lon) {
+            this.filterKey = filterKey;
+            this.lat = (int) Math.round(lat * PRECISION);
+            this.lon = (int) Math.round(lon * PRECISION);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return lat == key.lat && lon == key.lon && filterKey.equals(key.filterKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filterKey, lat, lon);
+        }
+    }
+
+    private static class Entry {
+        final int edgeKey;
+        final int wayIndex;
+        final int closestNode;
+        final Snap.Position position;
+        final double snappedLat;
+        final double snappedLon;
+        final double snappedEle;
+
+        Entry(Snap snap) {
+            if (snap.isValid()) {
+                edgeKey = snap.getClosestEdge().getEdgeKey();
+                wayIndex = snap.getWayIndex();
+                closestNode = snap.getClosestNode();
+                position = snap.getSnappedPosition();
+                snappedLat = snap.getSnappedPoint().lat;
+                snappedLon = snap.getSnappedPoint().lon;
+                snappedEle = snap.getSnappedPoint().ele;
+            } else {
+                edgeKey = -1;
+                wayIndex = -1;
+                closestNode = Snap.INVALID_NODE;
+                position = null;
+                snappedLat = snappedLon = snappedEle = Double.NaN;
+            }
+        }
+
+        Snap createSnap(BaseGraph graph, double lat, double lon) {
+            Snap snap = new Snap(lat, lon);
+            if (edgeKey < 0)
+                return snap;
+            snap.setClosestEdge(graph.getEdgeIteratorStateForKey(edgeKey));
+            snap.setWayIndex(wayIndex);
+            snap.setClosestNode(closestNode);
+            snap.setSnappedPosition(position);
+            snap.setSnappedPoint(new GHPoint3D(snappedLat, snappedLon, snappedEle));
+            snap.setQueryDistance(DIST_PLANE.calcDist(snappedLat, snappedLon, lat, lon));
+            return snap;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Collects timings and memory usage of the import. Every stage (e.g. reading the OSM file, the CH preparation) records
+ * its wall time, the CPU time of the whole process, the bytes allocated by the thread that runs the stage and the peak
+ * heap usage. Additionally, named counters collect the number of calls and the cumulative time of frequently called
+ * parts like the single tag parsers. The counters are thread-safe. Use {@link #NOOP} to disable the metrics, in which
+ * case the hot paths should not even measure the time, see {@link #isEnabled()}.
+ */
+public class ImportMetrics {
+    public static final ImportMetrics NOOP = new ImportMetrics(false);
+    private static final Stage NOOP_STAGE = () -> {
+    };
+    private static final Counter NOOP_COUNTER = new Counter();
+    private final boolean enabled;
+    private final List<Map<String, Object>> stages = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ImportMetrics() {
+        this(true);
+    }
+
+    private ImportMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Measures the given stage like {@link #startStage(String)} while the runnable is executed.
+     */
+    public void runStage(String name, Runnable runnable) {
+        Stage stage = startStage(name);
+        try {
+            runnable.run();
+        } finally {
+            stage.close();
+        }
+    }
+
+    /**
+     * Starts measuring the given stage, call {@link Stage#close()} when it is finished. Stages should not overlap,
+     * because the CPU time and the peak heap usage are measured for the whole process.
+     */
+    public Stage startStage(String name) {
+        if (!enabled)
+            return NOOP_STAGE;
+        long wallStart = System.nanoTime();
+        long cpuStart = getProcessCpuTime();
+        long allocatedStart = getThreadAllocatedBytes();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP).collect(Collectors.toList());
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        return () -> {
+            Map<String, Object> stage = new LinkedHashMap<>();
+            stage.put("name", name);
+            stage.put("wall_ms", (System.nanoTime() - wallStart) / 1_000_000);
+            long cpuEnd = getProcessCpuTime();
+            stage.put("cpu_ms", cpuStart < 0 || cpuEnd < 0 ? -1 : (cpuEnd - cpuStart) / 1_000_000);
+            long allocatedEnd = getThreadAllocatedBytes();
+            stage.put("thread_allocated_mb", allocatedStart < 0 || allocatedEnd < 0 ? -1 : (allocatedEnd - allocatedStart) / Helper.MB);
+            stage.put("peak_heap_mb", heapPools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum() / Helper.MB);
+            stages.add(stage);
+        };
+    }
+
+    /**
+     * @return the counter with the given name, which is created if it does not exist yet
+     */
+    public Counter getCounter(String name) {
+        if (!enabled)
+            return NOOP_COUNTER;
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public List<Map<String, Object>> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    public Map<String, Map<String, Object>> getCounters() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        counters.forEach((name, counter) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", counter.count.sum());
+            values.put("total_ms", counter.nanos.sum() / 1_000_000);
+            values.put("amount", counter.amount.sum());
+            result.put(name, values);
+        });
+        return result;
+    }
+
+    /**
+     * Writes the stages and counters as JSON to the given file
+     */
+    public void write(File file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("stages", getStages());
+        json.put("counters", getCounters());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, json);
+    }
+
+    private static long getProcessCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        return -1;
+    }
+
+    private static long getThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled())
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    public interface Stage extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Counts calls and their cumulative time. The amount can be used for anything else that should be summed up,
+     * e.g. the number of decoded bytes.
+     */
+    public static class Counter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder amount = new LongAdder();
+
+        public void add(long nanos) {
+            count.increment();
+            this.nanos.add(nanos);
+        }
+
+        public void add(long nanos, long amount) {
+            add(nanos);
+            this.amount.add(amount);
+        }
+    }
+}
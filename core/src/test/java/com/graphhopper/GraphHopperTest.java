@@ -194,6 +194,77 @@ public class GraphHopperTest {
         assertEquals(131, res.getPoints().size());
     }
 
+    @Test
+    public void testWeightCache() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car")).
+                setWeightCacheProfiles(List.of(profile)).
+                setStoreOnFlush(true).
+                importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(3587, rsp.getBest().getDistance(), 1);
+
+        // a custom model in the request must not use the cached weights
+        req.setCustomModel(new CustomModel().addToSpeed(If("true", MULTIPLY, "0.5")));
+        GHResponse customRsp = hopper.route(req);
+        assertFalse(customRsp.hasErrors(), customRsp.getErrors().toString());
+        assertEquals(2 * rsp.getBest().getTime(), customRsp.getBest().getTime(), 1000);
+    }
+
+    @Test
+    public void testProfileLocationIndex() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, foot_access, foot_priority, foot_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.accessSpeedAndPriority("foot")).
+                setIndexProfiles(List.of("car")).
+                setStoreOnFlush(true).
+                importOrLoad();
+        assertNotSame(hopper.getLocationIndex(), hopper.getLocationIndex("car"));
+        assertSame(hopper.getLocationIndex(), hopper.getLocationIndex("foot"));
+
+        Weighting weighting = hopper.createWeighting(hopper.getProfile("car"), new PMap());
+        EdgeFilter snapFilter = new DefaultSnapFilter(weighting, hopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key("car")));
+        // the closest edge accessible by car is found with both indexes
+        Snap expected = hopper.getLocationIndex().findClosest(43.735, 7.4215, snapFilter);
+        Snap snap = hopper.getLocationIndex("car").findClosest(43.735, 7.4215, snapFilter);
+        assertTrue(snap.isValid());
+        assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-6);
+        // the index contains only edges that are accessible by car
+        AtomicInteger edges = new AtomicInteger();
+        hopper.getLocationIndex("car").query(hopper.getBaseGraph().getBounds(), edgeId -> {
+            edges.incrementAndGet();
+            assertTrue(snapFilter.accept(hopper.getBaseGraph().getEdgeIteratorState(edgeId, Integer.MIN_VALUE)));
+        });
+        assertTrue(edges.get() > 0);
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car");
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        hopper.close();
+
+        // the profile index is loaded from disk
+        GraphHopper loaded = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setEncodedValuesString("car_access, car_average_speed, foot_access, foot_priority, foot_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.accessSpeedAndPriority("foot")).
+                setIndexProfiles(List.of("car")).
+                setAllowWrites(false);
+        assertTrue(loaded.load());
+        GHResponse loadedRsp = loaded.route(req);
+        assertFalse(loadedRsp.hasErrors(), loadedRsp.getErrors().toString());
+        assertEquals(rsp.getBest().getDistance(), loadedRsp.getBest().getDistance(), 1.e-6);
+        loaded.close();
+    }
+
     @Test
     public void withoutInstructions() {
         final String profile = "profile";
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.procedures.LongLongProcedure;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedLongLongMapTest {
+
+    @Test
+    void putAndGet() {
+        SortedLongLongMap map = new SortedLongLongMap(new RAMDirectory(), "test", 4, -1);
+        assertEquals(-1, map.get(5));
+        assertEquals(-1, map.put(5, 10));
+        assertEquals(-1, map.put(7, 14));
+        assertEquals(10, map.get(5));
+        assertEquals(14, map.get(7));
+        assertEquals(-1, map.get(6));
+        assertEquals(-1, map.get(8));
+        // update in place
+        assertEquals(10, map.put(5, 11));
+        assertEquals(11, map.get(5));
+        // keys that are not in ascending order
+        assertEquals(-1, map.put(3, 6));
+        assertEquals(-1, map.put(6, 12));
+        assertEquals(6, map.get(3));
+        assertEquals(12, map.get(6));
+        assertEquals(4, map.getSize());
+        assertThrows(IllegalArgumentException.class, () -> map.put(8, -1));
+        assertThrows(IllegalArgumentException.class, () -> map.put(8, 1L << 40));
+    }
+
+    @Test
+    void largeKeyDifferences() {
+        SortedLongLongMap map = new SortedLongLongMap(new RAMDirectory(), "test", 8, -1);
+        long[] keys = {-Long.MAX_VALUE, -5, 0, 1L << 33, (1L << 33) + 1, Long.MAX_VALUE};
+        for (int i = 0; i < keys.length; i++)
+            map.put(keys[i], (1L << 40) + i);
+        for (int i = 0; i < keys.length; i++)
+            assertEquals((1L << 40) + i, map.get(keys[i]));
+        assertEquals(-1, map.get(1));
+        assertEquals(-1, map.get((1L << 33) + 2));
+    }
+
+    @Test
+    void random() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        SortedLongLongMap map = new SortedLongLongMap(new RAMDirectory(), "test", 8, -1);
+        GHLongLongHashMap expected = new GHLongLongHashMap();
+        long key = rnd.nextInt(1000);
+        for (int i = 0; i < 10_000; i++) {
+            // mostly ascending keys with a few gaps, duplicates and keys in the wrong order
+            long k = rnd.nextInt(20) == 0 ? rnd.nextInt(100_000) : (key += rnd.nextInt(10));
+            long value = rnd.nextInt(1_000_000);
+            assertEquals(expected.getOrDefault(k, -1), map.put(k, value), "seed: " + seed);
+            expected.put(k, value);
+        }
+        assertEquals(expected.size(), map.getSize(), "seed: " + seed);
+        for (long k = 0; k < key + 10; k++)
+            assertEquals(expected.getOrDefault(k, -1), map.get(k), "seed: " + seed);
+
+        // the keys that were not added in ascending order are merged into the DataAccess
+        map.optimize();
+        assertEquals(expected.size(), map.getSize(), "seed: " + seed);
+        for (long k = 0; k < key + 10; k++)
+            assertEquals(expected.getOrDefault(k, -1), map.get(k), "seed: " + seed);
+        // updates and appends still work after the merge
+        assertEquals(expected.getOrDefault(5, -1), map.put(5, 42));
+        assertEquals(42, map.get(5));
+        assertEquals(-1, map.put(key + 100, 43));
+        assertEquals(43, map.get(key + 100));
+    }
+
+    @Test
+    void unsortedKeys() {
+        SortedLongLongMap map = new SortedLongLongMap(new RAMDirectory(), "test", 8, -1);
+        Random rnd = new Random(0);
+        GHLongLongHashMap expected = new GHLongLongHashMap();
+        for (int i = 0; i < 10_000; i++) {
+            long k = rnd.nextLong() >> 1;
+            expected.put(k, i);
+            map.put(k, i);
+        }
+        map.optimize();
+        assertEquals(expected.size(), map.getSize());
+        expected.forEach((LongLongProcedure) (k, v) -> assertEquals(v, map.get(k)));
+        assertEquals(-1, map.get(rnd.nextLong()));
+    }
+}
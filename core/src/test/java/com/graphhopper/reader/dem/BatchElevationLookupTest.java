@@ -0,0 +1,74 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchElevationLookupTest {
+
+    @Test
+    public void testFill() {
+        Random rand = new Random(42);
+        int count = 1000;
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        double[] eles = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = -60 + rand.nextDouble() * 120;
+            lons[i] = -180 + rand.nextDouble() * 360;
+        }
+        BatchElevationLookup.Points points = new BatchElevationLookup.Points() {
+            @Override
+            public double getLat(long index) {
+                return lats[(int) index];
+            }
+
+            @Override
+            public double getLon(long index) {
+                return lons[(int) index];
+            }
+
+            @Override
+            public void setEle(long index, double ele) {
+                eles[(int) index] = ele;
+            }
+        };
+        // use a chunk size that does not divide the count
+        new BatchElevationLookup((lat, lon) -> lat * 10 + lon, 3, 300).fill(points, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(lats[i] * 10 + lons[i], eles[i], 1.e-9);
+        }
+    }
+
+    @Test
+    public void testCalcCell() {
+        // points in the same 1x1 degree tile are sorted next to each other
+        int cell = BatchElevationLookup.calcCell(49.1, 11.1);
+        assertEquals(cell, BatchElevationLookup.calcCell(49.1001, 11.1001));
+        assertTrue(Math.abs(BatchElevationLookup.calcCell(49.9, 11.9) - cell) < 64 * 64);
+        assertTrue(Math.abs(BatchElevationLookup.calcCell(50.1, 11.1) - cell) >= 64 * 64);
+        // the poles and the antimeridian are valid
+        assertTrue(BatchElevationLookup.calcCell(90, 180) > BatchElevationLookup.calcCell(-90, -180));
+        assertEquals(0, BatchElevationLookup.calcCell(-90, -180));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeightTileCacheTest {
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        SRTMProvider provider = new SRTMProvider();
+        provider.setRawTiles(true).setMaxCachedTiles(2);
+        HeightTileCache<Integer> cache = new HeightTileCache<>(provider);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1, key -> createTile(loads));
+        cache.get(2, key -> createTile(loads));
+        // 1 is now used more recently than 2, so 2 is evicted
+        cache.get(1, key -> createTile(loads));
+        cache.get(3, key -> createTile(loads));
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.size());
+
+        cache.get(1, key -> createTile(loads));
+        assertEquals(3, loads.get());
+        cache.get(2, key -> createTile(loads));
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.size());
+
+        // missing tiles are cached as well
+        AtomicInteger missingLoads = new AtomicInteger();
+        assertNull(cache.get(4, key -> {
+            missingLoads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get(4, key -> {
+            missingLoads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, missingLoads.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testLoadEachTileOnce() {
+        SRTMProvider provider = new SRTMProvider();
+        HeightTileCache<Integer> cache = new HeightTileCache<>(provider);
+        AtomicInteger loads = new AtomicInteger();
+        GHUtility.runConcurrently(IntStream.range(0, 100).mapToObj(i -> () -> {
+            HeightTile tile = cache.get(i % 4, key -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return createTile(loads);
+            });
+            assertNotNull(tile);
+        }), 8);
+        assertEquals(4, loads.get());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testDoNotCacheFailures() {
+        SRTMProvider provider = new SRTMProvider();
+        HeightTileCache<Integer> cache = new HeightTileCache<>(provider);
+        assertThrows(IllegalStateException.class, () -> cache.get(1, key -> {
+            throw new IllegalStateException("download failed");
+        }));
+        assertEquals(0, cache.size());
+        AtomicInteger loads = new AtomicInteger();
+        assertNotNull(cache.get(1, key -> createTile(loads)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testLimitRequiresRawTiles() {
+        SRTMProvider provider = new SRTMProvider();
+        provider.setMaxCachedTiles(2);
+        HeightTileCache<Integer> cache = new HeightTileCache<>(provider);
+        assertThrows(IllegalStateException.class, () -> cache.get(1, key -> createTile(new AtomicInteger())));
+    }
+
+    private static HeightTile createTile(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new HeightTile(0, 0, 10, 10, 1e7, 1, 1);
+    }
+}
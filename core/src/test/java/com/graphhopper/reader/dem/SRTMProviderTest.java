@@ -22,9 +22,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Peter Karich
@@ -99,6 +101,22 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testGetHeightRawTiles() {
+        instance = new SRTMProvider("./files/");
+        instance.setRawTiles(true).setMaxCachedTiles(1);
+        try {
+            assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+            assertTrue(instance.getRawTileFile("dem" + instance.calcIntKey(49.968651, 11.574869)).exists());
+            assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+            // the first tile was evicted and is now mapped again from its raw file
+            assertEquals(330, instance.getEle(49.958233, 11.558647), 1e-1);
+        } finally {
+            for (File file : new File("./files/").listFiles((dir, name) -> name.endsWith(".raw")))
+                file.delete();
+        }
+    }
+
     @Disabled
     @Test
     public void testGetEle() {
@@ -23,12 +23,18 @@ import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.routing.TestProfiles;
-import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
@@ -37,6 +43,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -153,6 +162,286 @@ public class GraphHopperOSMTest {
         gh.close();
     }
 
+    @Test
+    public void testParallelTagParsing() {
+        GraphHopper gh = createMonacoHopper(ghLoc, 1, false);
+        GraphHopper ghParallel = createMonacoHopper(ghLoc + "_parallel", 4, false);
+        try {
+            assertSameGraph(gh.getBaseGraph(), ghParallel.getBaseGraph());
+        } finally {
+            gh.close();
+            ghParallel.close();
+            Helper.removeDir(new File(ghLoc + "_parallel"));
+        }
+    }
+
+    @Test
+    public void testSinglePass() {
+        GraphHopper gh = createMonacoHopper(ghLoc, 1, false);
+        GraphHopper ghSinglePass = createMonacoHopper(ghLoc + "_single_pass", 1, true);
+        try {
+            assertSameGraph(gh.getBaseGraph(), ghSinglePass.getBaseGraph());
+            assertEquals(gh.getProperties().get("datareader.data.date"), ghSinglePass.getProperties().get("datareader.data.date"));
+        } finally {
+            gh.close();
+            ghSinglePass.close();
+            Helper.removeDir(new File(ghLoc + "_single_pass"));
+        }
+    }
+
+    @Test
+    public void testApplyOSMChanges() throws Exception {
+        GraphHopper gh = createHopperForChanges();
+        gh.importOrLoad();
+        EncodingManager em = gh.getEncodingManager();
+        IntEncodedValue osmWayIdEnc = em.getIntEncodedValue(OSMWayID.KEY);
+        BooleanEncodedValue accessEnc = em.getBooleanEncodedValue(VehicleAccess.key("car"));
+        EnumEncodedValue<RoadClass> roadClassEnc = em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        // the crossings are derived from node tags and must be kept, so we modify a way with a crossing
+        EnumEncodedValue<Crossing> crossingEnc = em.getEnumEncodedValue(Crossing.KEY, Crossing.class);
+        int modifiedWay = -1;
+        int deletedWay = -1;
+        AllEdgesIterator iter = gh.getBaseGraph().getAllEdges();
+        while (iter.next())
+            if (modifiedWay < 0 && iter.get(accessEnc) && iter.get(roadClassEnc) != RoadClass.PRIMARY && iter.get(crossingEnc) != Crossing.MISSING)
+                modifiedWay = iter.get(osmWayIdEnc);
+        assertTrue(modifiedWay >= 0);
+        Map<Integer, Crossing> crossings = new HashMap<>();
+        iter = gh.getBaseGraph().getAllEdges();
+        while (iter.next()) {
+            crossings.put(iter.getEdge(), iter.get(crossingEnc));
+            if (deletedWay < 0 && iter.get(accessEnc) && iter.get(roadClassEnc) != RoadClass.PRIMARY && iter.get(osmWayIdEnc) != modifiedWay)
+                deletedWay = iter.get(osmWayIdEnc);
+        }
+        String nodes = Arrays.stream(readWay(modifiedWay).getNodes().toArray()).mapToObj(n -> "<nd ref=\"" + n + "\"/>").collect(Collectors.joining());
+
+        File changeFile = new File(ghLoc, "changes.osc");
+        Files.write(changeFile.toPath(), ("<osmChange version=\"0.6\">" +
+                "<modify><way id=\"" + modifiedWay + "\" version=\"2\">" + nodes +
+                "<tag k=\"highway\" v=\"primary\"/><tag k=\"name\" v=\"Changed Street\"/></way></modify>" +
+                "<delete><way id=\"" + deletedWay + "\" version=\"2\"/></delete>" +
+                // new ways that are not added to the graph are ignored
+                "<create><way id=\"999999999\" version=\"1\"><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"building\" v=\"yes\"/></way>" +
+                // ways with unknown nodes cannot be added, they are skipped and the other changes are still applied
+                "<way id=\"999999998\" version=\"1\"><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"highway\" v=\"primary\"/></way></create>" +
+                "</osmChange>").getBytes(StandardCharsets.UTF_8));
+        gh.applyOSMChanges(changeFile.getPath());
+        assertChanges(gh, modifiedWay, deletedWay);
+        iter = gh.getBaseGraph().getAllEdges();
+        while (iter.next()) {
+            assertNotEquals(999999998, iter.get(osmWayIdEnc));
+            if (iter.get(osmWayIdEnc) == modifiedWay)
+                assertEquals(crossings.get(iter.getEdge()), iter.get(crossingEnc));
+        }
+        gh.close();
+
+        // the changes and the index of the ways are stored
+        GraphHopper loaded = createHopperForChanges();
+        assertTrue(loaded.load());
+        assertChanges(loaded, modifiedWay, deletedWay);
+        Files.write(changeFile.toPath(), ("<osmChange version=\"0.6\">" +
+                "<modify><way id=\"" + modifiedWay + "\" version=\"3\">" + nodes +
+                "<tag k=\"highway\" v=\"primary\"/><tag k=\"name\" v=\"Changed Again\"/></way></modify>" +
+                "</osmChange>").getBytes(StandardCharsets.UTF_8));
+        loaded.applyOSMChanges(changeFile.getPath());
+        iter = loaded.getBaseGraph().getAllEdges();
+        while (iter.next())
+            if (iter.get(osmWayIdEnc) == modifiedWay)
+                assertEquals("Changed Again", iter.getName());
+        loaded.close();
+    }
+
+    @Test
+    public void testApplyOSMChangesWithNewWaysAndMovedNodes() throws Exception {
+        GraphHopper gh = createHopperForChanges();
+        gh.importOrLoad();
+        EncodingManager em = gh.getEncodingManager();
+        IntEncodedValue osmWayIdEnc = em.getIntEncodedValue(OSMWayID.KEY);
+        BooleanEncodedValue accessEnc = em.getBooleanEncodedValue(VehicleAccess.key("car"));
+        BooleanEncodedValue subnetworkEnc = em.getBooleanEncodedValue(Subnetwork.key("car"));
+        int modifiedWay = -1;
+        AllEdgesIterator iter = gh.getBaseGraph().getAllEdges();
+        while (iter.next())
+            if (modifiedWay < 0 && iter.get(accessEnc) && !iter.get(subnetworkEnc) && iter.fetchWayGeometry(FetchMode.PILLAR_ONLY).size() >= 3)
+                modifiedWay = iter.get(osmWayIdEnc);
+        assertTrue(modifiedWay >= 0);
+        ReaderWay way = readWay(modifiedWay);
+        String nodes = Arrays.stream(way.getNodes().toArray()).mapToObj(n -> "<nd ref=\"" + n + "\"/>").collect(Collectors.joining());
+        String tags = way.getTags().entrySet().stream().map(e -> "<tag k=\"" + e.getKey() + "\" v=\"" +
+                e.getValue().toString().replace("&", "&amp;").replace("\"", "&quot;") + "\"/>").collect(Collectors.joining());
+        ReaderNode first = readNode(way.getNodes().get(0));
+        ReaderNode moved = readNode(way.getNodes().get(1));
+        ReaderNode junction = readNode(way.getNodes().get(3));
+        GHPoint movedPoint = new GHPoint(moved.getLat() + 0.0001, moved.getLon() + 0.0001);
+        GHPoint newPoint = new GHPoint(first.getLat() + 0.0005, first.getLon() + 0.0005);
+        GHPoint junctionPoint = new GHPoint(junction.getLat() + 0.0004, junction.getLon());
+
+        // the moved node is part of a way that is in the change file, the new ways start at existing nodes
+        File changeFile = new File(ghLoc, "changes.osc");
+        Files.write(changeFile.toPath(), ("<osmChange version=\"0.6\">" +
+                "<modify><node id=\"" + moved.getId() + "\" version=\"2\" lat=\"" + movedPoint.lat + "\" lon=\"" + movedPoint.lon + "\"/>" +
+                "<way id=\"" + modifiedWay + "\" version=\"2\">" + nodes + tags + "</way></modify>" +
+                "<create><node id=\"99999999999\" version=\"1\" lat=\"" + newPoint.lat + "\" lon=\"" + newPoint.lon + "\"/>" +
+                "<way id=\"999999999\" version=\"1\"><nd ref=\"" + first.getId() + "\"/><nd ref=\"99999999999\"/><tag k=\"highway\" v=\"residential\"/></way>" +
+                // this way connects to an inner node of the modified way, which is split there
+                "<node id=\"99999999997\" version=\"1\" lat=\"" + junctionPoint.lat + "\" lon=\"" + junctionPoint.lon + "\"/>" +
+                "<way id=\"999999997\" version=\"1\"><nd ref=\"" + junction.getId() + "\"/><nd ref=\"99999999997\"/><tag k=\"highway\" v=\"residential\"/></way>" +
+                "</create></osmChange>").getBytes(StandardCharsets.UTF_8));
+        int edges = gh.getBaseGraph().getEdges();
+        gh.applyOSMChanges(changeFile.getPath());
+        assertTrue(gh.getBaseGraph().getEdges() > edges);
+        assertNewWaysAndMovedNodes(gh, modifiedWay, movedPoint, newPoint, junctionPoint);
+        gh.close();
+
+        // the index of the OSM nodes is stored, so the new way can be extended after loading the graph
+        GraphHopper loaded = createHopperForChanges();
+        assertTrue(loaded.load());
+        assertNewWaysAndMovedNodes(loaded, modifiedWay, movedPoint, newPoint, junctionPoint);
+        GHPoint extendedPoint = new GHPoint(newPoint.lat + 0.0003, newPoint.lon);
+        Files.write(changeFile.toPath(), ("<osmChange version=\"0.6\">" +
+                "<create><node id=\"99999999998\" version=\"1\" lat=\"" + extendedPoint.lat + "\" lon=\"" + extendedPoint.lon + "\"/></create>" +
+                "<modify><way id=\"999999999\" version=\"2\"><nd ref=\"" + first.getId() + "\"/><nd ref=\"99999999999\"/><nd ref=\"99999999998\"/>" +
+                "<tag k=\"highway\" v=\"residential\"/></way></modify>" +
+                "</osmChange>").getBytes(StandardCharsets.UTF_8));
+        loaded.applyOSMChanges(changeFile.getPath());
+        Snap snap = loaded.getLocationIndex().findClosest(extendedPoint.lat, extendedPoint.lon, EdgeFilter.ALL_EDGES);
+        assertEquals(999999999, snap.getClosestEdge().get(osmWayIdEnc));
+        assertEquals(0, snap.getQueryDistance(), 1);
+        GHResponse rsp = loaded.route(new GHRequest(first.getLat(), first.getLon(), extendedPoint.lat, extendedPoint.lon).setProfile("car"));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        loaded.close();
+    }
+
+    private static void assertNewWaysAndMovedNodes(GraphHopper gh, int modifiedWay, GHPoint movedPoint, GHPoint newPoint, GHPoint junctionPoint) {
+        EncodingManager em = gh.getEncodingManager();
+        IntEncodedValue osmWayIdEnc = em.getIntEncodedValue(OSMWayID.KEY);
+        BooleanEncodedValue accessEnc = em.getBooleanEncodedValue(VehicleAccess.key("car"));
+        BooleanEncodedValue subnetworkEnc = em.getBooleanEncodedValue(Subnetwork.key("car"));
+        boolean foundMovedNode = false;
+        int newEdges = 0;
+        AllEdgesIterator iter = gh.getBaseGraph().getAllEdges();
+        while (iter.next()) {
+            if (iter.get(osmWayIdEnc) == modifiedWay) {
+                PointList points = iter.fetchWayGeometry(FetchMode.ALL);
+                for (int i = 0; i < points.size(); i++)
+                    foundMovedNode |= Math.abs(points.getLat(i) - movedPoint.lat) < 1e-6 && Math.abs(points.getLon(i) - movedPoint.lon) < 1e-6;
+            } else if (iter.get(osmWayIdEnc) == 999999999) {
+                newEdges++;
+                assertTrue(iter.get(accessEnc));
+                assertFalse(iter.get(subnetworkEnc));
+                assertTrue(iter.getDistance() > 0);
+            }
+        }
+        assertTrue(foundMovedNode);
+        assertEquals(1, newEdges);
+        Snap snap = gh.getLocationIndex().findClosest(newPoint.lat, newPoint.lon, EdgeFilter.ALL_EDGES);
+        assertEquals(999999999, snap.getClosestEdge().get(osmWayIdEnc));
+        assertEquals(0, snap.getQueryDistance(), 1);
+        GHResponse rsp = gh.route(new GHRequest(newPoint.lat, newPoint.lon, junctionPoint.lat, junctionPoint.lon).setProfile("car"));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+    }
+
+    private static ReaderWay readWay(long osmWayId) throws Exception {
+        try (OSMInput input = new OSMInputFile(new File("../core/files/monaco.osm.gz")).open()) {
+            ReaderElement element;
+            while ((element = input.getNext()) != null)
+                if (element.getType() == ReaderElement.Type.WAY && element.getId() == osmWayId)
+                    return (ReaderWay) element;
+        }
+        throw new IllegalArgumentException("Cannot find OSM way " + osmWayId);
+    }
+
+    private static ReaderNode readNode(long osmNodeId) throws Exception {
+        try (OSMInput input = new OSMInputFile(new File("../core/files/monaco.osm.gz")).open()) {
+            ReaderElement element;
+            while ((element = input.getNext()) != null)
+                if (element.getType() == ReaderElement.Type.NODE && element.getId() == osmNodeId)
+                    return (ReaderNode) element;
+        }
+        throw new IllegalArgumentException("Cannot find OSM node " + osmNodeId);
+    }
+
+    @Test
+    public void testImportMetrics() throws IOException {
+        GraphHopper gh = new GraphHopper().
+                setProfiles(TestProfiles.accessAndSpeed("car")).
+                setStoreOnFlush(true).
+                setEncodedValuesString("car_access, car_average_speed").
+                setImportMetricsEnabled(true).
+                setGraphHopperLocation(ghLoc).
+                setOSMFile(testOsm);
+        gh.importOrLoad();
+        List<String> stages = gh.getImportMetrics().getStages().stream().map(s -> (String) s.get("name")).collect(Collectors.toList());
+        assertEquals(Arrays.asList("import_osm", "post_import_osm", "subnetworks", "location_index", "weight_caches"), stages);
+        Map<String, Map<String, Object>> counters = gh.getImportMetrics().getCounters();
+        List<String> accessParserCounters = counters.keySet().stream().filter(k -> k.startsWith("tag_parser.") && k.endsWith(".CarAccessParser")).collect(Collectors.toList());
+        assertEquals(1, accessParserCounters.size(), counters.keySet().toString());
+        assertTrue((Long) counters.get(accessParserCounters.get(0)).get("count") > 0);
+        assertTrue(counters.containsKey("way_segment_parser.pass1"), counters.keySet().toString());
+        String json = new String(Files.readAllBytes(new File(ghLoc, "import_metrics.json").toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"import_osm\""), json);
+        gh.close();
+    }
+
+    private static GraphHopper createHopperForChanges() {
+        return new GraphHopper().
+                setEncodedValuesString("car_access, car_average_speed, road_class, crossing, osm_way_id").
+                setProfiles(TestProfiles.accessAndSpeed("car")).
+                setStoreOnFlush(true).
+                setGraphHopperLocation(ghLoc).
+                setOSMFile("../core/files/monaco.osm.gz");
+    }
+
+    private static void assertChanges(GraphHopper gh, int modifiedWay, int deletedWay) {
+        EncodingManager em = gh.getEncodingManager();
+        IntEncodedValue osmWayIdEnc = em.getIntEncodedValue(OSMWayID.KEY);
+        BooleanEncodedValue accessEnc = em.getBooleanEncodedValue(VehicleAccess.key("car"));
+        EnumEncodedValue<RoadClass> roadClassEnc = em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        int modifiedEdges = 0;
+        AllEdgesIterator iter = gh.getBaseGraph().getAllEdges();
+        while (iter.next()) {
+            // the flags of the deleted way are cleared, including its OSM way ID
+            assertNotEquals(deletedWay, iter.get(osmWayIdEnc));
+            if (iter.get(osmWayIdEnc) == modifiedWay) {
+                modifiedEdges++;
+                assertEquals(RoadClass.PRIMARY, iter.get(roadClassEnc));
+                assertTrue(iter.get(accessEnc));
+                assertEquals("Changed Street", iter.getName());
+            }
+        }
+        assertTrue(modifiedEdges > 0);
+    }
+
+    private static void assertSameGraph(BaseGraph graph, BaseGraph other) {
+        assertEquals(graph.getNodes(), other.getNodes());
+        assertEquals(graph.getEdges(), other.getEdges());
+        for (int node = 0; node < graph.getNodes(); node++) {
+            assertEquals(graph.getNodeAccess().getLat(node), other.getNodeAccess().getLat(node), "lat of node " + node);
+            assertEquals(graph.getNodeAccess().getLon(node), other.getNodeAccess().getLon(node), "lon of node " + node);
+        }
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState otherEdgeState = other.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(edgeState.getBaseNode(), otherEdgeState.getBaseNode());
+            assertEquals(edgeState.getAdjNode(), otherEdgeState.getAdjNode());
+            assertEquals(edgeState.getDistance(), otherEdgeState.getDistance());
+            assertArrayEquals(edgeState.getFlags().ints, otherEdgeState.getFlags().ints, "flags of edge " + edge);
+            assertEquals(edgeState.getKeyValues(), otherEdgeState.getKeyValues());
+            assertEquals(edgeState.fetchWayGeometry(FetchMode.ALL), otherEdgeState.fetchWayGeometry(FetchMode.ALL));
+        }
+    }
+
+    private static GraphHopper createMonacoHopper(String location, int tagParsingThreads, boolean singlePass) {
+        GraphHopper gh = new GraphHopper().
+                setEncodedValuesString("car_access, car_average_speed, road_class, max_speed, surface").
+                setProfiles(TestProfiles.accessAndSpeed("car")).
+                setStoreOnFlush(false).
+                setGraphHopperLocation(location).
+                setOSMFile("../core/files/monaco.osm.gz");
+        gh.getReaderConfig().setTagParsingThreads(tagParsingThreads).setSinglePass(singlePass);
+        return gh.importOrLoad();
+    }
+
     @Test
     public void testQueryLocationIndexWithBBox() {
         final GraphHopper gh = new GraphHopper().
@@ -49,7 +49,9 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.graphhopper.routing.util.TransportationMode.CAR;
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -984,6 +986,22 @@ public class OSMReaderTest {
         assertEquals(Country.BGR, iter.get(countryEnc));
     }
 
+    @Test
+    public void testTagParsersThatAreNotThreadSafe() throws IOException {
+        EncodingManager em = EncodingManager.start().add(VehicleAccess.create("car")).build();
+        Set<Thread> threads = new HashSet<>();
+        OSMParsers osmParsers = new OSMParsers()
+                // a lambda does not declare to be thread-safe, so the tags must be parsed with a single thread
+                .addWayTagParser((edgeId, edgeIntAccess, way, relationFlags) -> threads.add(Thread.currentThread()));
+        assertEquals(1, osmParsers.getNonThreadSafeTagParsers().size());
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        OSMReader reader = new OSMReader(graph, osmParsers, new OSMReaderConfig().setTagParsingThreads(4));
+        reader.setFile(new File(getClass().getResource(file1).getFile()));
+        reader.readGraph();
+        assertTrue(graph.getEdges() > 0);
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
     @Test
     public void testFixWayName() {
         assertEquals("B8, B12", OSMReader.fixWayName("B8;B12"));
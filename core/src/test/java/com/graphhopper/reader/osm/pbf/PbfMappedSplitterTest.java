@@ -0,0 +1,55 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.osm.pbf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PbfMappedSplitterTest {
+
+    @Test
+    void sameBlobsAsStreamSplitter() throws IOException {
+        File file = new File("./files/andorra.osm.pbf");
+        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(new FileInputStream(file)));
+        PbfMappedSplitter mappedSplitter = new PbfMappedSplitter(file);
+        int blobs = 0;
+        try {
+            while (streamSplitter.hasNext()) {
+                assertTrue(mappedSplitter.hasNext());
+                PbfRawBlob expected = streamSplitter.next();
+                PbfRawBlob blob = mappedSplitter.next();
+                assertEquals(expected.getType(), blob.getType());
+                assertEquals(expected.getData(), blob.getData());
+                blobs++;
+            }
+            assertFalse(mappedSplitter.hasNext());
+        } finally {
+            streamSplitter.release();
+            mappedSplitter.release();
+        }
+        // the header and at least one data blob
+        assertTrue(blobs > 1, "blobs: " + blobs);
+    }
+}
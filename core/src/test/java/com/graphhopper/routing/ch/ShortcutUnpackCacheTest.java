@@ -0,0 +1,76 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortcutUnpackCacheTest {
+
+    @Test
+    public void removeLeastRecentlyUsed() {
+        ShortcutUnpackCache cache = new ShortcutUnpackCache(5);
+        long key1 = ShortcutUnpackCache.createKey(10, 1, false);
+        long key2 = ShortcutUnpackCache.createKey(10, 1, true);
+        long key3 = ShortcutUnpackCache.createKey(11, 1, false);
+        cache.put(key1, new int[]{0, 1, -1, 1, 2, -1});
+        cache.put(key2, new int[]{0, 1, -1, 1, 2, -1});
+        assertEquals(4, cache.getEdges());
+        // accessing the first entry makes the second one the least recently used
+        assertNotNull(cache.get(key1));
+        cache.put(key3, new int[]{3, 4, -1, 4, 5, -1});
+        assertEquals(2, cache.size());
+        assertEquals(4, cache.getEdges());
+        assertNotNull(cache.get(key1));
+        assertNull(cache.get(key2));
+        assertNotNull(cache.get(key3));
+
+        // entries larger than the capacity are not stored at all
+        cache.put(ShortcutUnpackCache.createKey(12, 1, false), new int[18]);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void concurrentAccess() {
+        ShortcutUnpackCache cache = new ShortcutUnpackCache(1000);
+        GHUtility.runConcurrently(IntStream.range(0, 8).mapToObj(t -> () -> {
+            Random random = new Random(t);
+            for (int i = 0; i < 10_000; i++) {
+                long key = ShortcutUnpackCache.createKey(random.nextInt(500), 0, false);
+                int[] entry = cache.get(key);
+                if (entry == null)
+                    cache.put(key, new int[3 * (1 + random.nextInt(10))]);
+            }
+        }), 8);
+        assertTrue(cache.getEdges() <= 1000, "edges: " + cache.getEdges());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEdges());
+    }
+
+    @Test
+    public void keysAreUnique() {
+        assertNotEquals(ShortcutUnpackCache.createKey(Integer.MAX_VALUE, 0, false), ShortcutUnpackCache.createKey(0, Integer.MAX_VALUE, false));
+        assertNotEquals(ShortcutUnpackCache.createKey(Integer.MAX_VALUE, Integer.MAX_VALUE, false), ShortcutUnpackCache.createKey(Integer.MAX_VALUE, Integer.MAX_VALUE, true));
+    }
+}
@@ -30,6 +30,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,6 +38,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.*;
@@ -108,6 +110,30 @@ public class LandmarkStorageTest {
         assertEquals(65534, lms.getFromWeight(0, 0));
     }
 
+    @Test
+    public void testSetGetWeight24Bits() {
+        graph.edge(0, 1).set(speedEnc, 60, 60).setDistance(40.1);
+        LandmarkStorage lms = new LandmarkStorage(graph, encodingManager, new RAMDirectory(),
+                new LMConfig("c1", new SpeedWeighting(speedEnc)), 4).
+                setWeightBits(24).
+                setMaximumWeight(LandmarkStorage.PRECISION);
+        assertEquals(24, lms.getWeightBits());
+        // the same maximum weight now has a 256 times finer precision
+        assertEquals(1 / 256.0, lms.getFactor(), 1e-9);
+        lms._getInternalDA().create(2000);
+        lms.setWeight(0, 65535);
+        assertEquals(65535 * 256, lms.getFromWeight(0, 0));
+        // the 'to' weight must not overlap the 'from' weight
+        lms.setWeight(3, 1000);
+        assertEquals(1000 * 256, lms.getToWeight(0, 0));
+        assertEquals(65535 * 256, lms.getFromWeight(0, 0));
+        // reached maximum value, use 2^24-2
+        lms.setWeight(0, 65536);
+        assertEquals((1 << 24) - 2, lms.getFromWeight(0, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> lms.setWeightBits(32));
+    }
+
     @Test
     public void testWithSubnetworks() {
         // 0-1-2..4-5->6
@@ -240,4 +266,32 @@ public class LandmarkStorageTest {
         storage.createLandmarks();
         assertEquals(3, storage.getSubnetworksWithLandmarks());
     }
+
+    @Test
+    public void testConcurrentLandmarkWeights() {
+        GHUtility.buildRandomGraph(graph, new Random(42), 200, 2.2, false, speedEnc, null, 0.8, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        subnetworkRemoval(weighting, 10);
+
+        LandmarkStorage sequential = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 8);
+        sequential.setMinimumNodes(10);
+        sequential.createLandmarks();
+
+        LandmarkStorage concurrent = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 8).
+                setThreads(4);
+        concurrent.setMinimumNodes(10);
+        concurrent.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), concurrent.getSubnetworksWithLandmarks());
+        assertTrue(sequential.getSubnetworksWithLandmarks() > 1);
+        for (int sn = 1; sn < sequential.getSubnetworksWithLandmarks(); sn++) {
+            assertArrayEquals(sequential.getLandmarks(sn), concurrent.getLandmarks(sn));
+        }
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals(sequential.getFromWeight(lmIdx, node), concurrent.getFromWeight(lmIdx, node));
+                assertEquals(sequential.getToWeight(lmIdx, node), concurrent.getToWeight(lmIdx, node));
+            }
+        }
+    }
 }
@@ -212,4 +212,36 @@ public class PrepareLandmarksTest {
 
         Helper.removeDir(new File(fileStr));
     }
+
+    @Test
+    public void testStoreAndLoad24Bits() {
+        graph.edge(0, 1).setDistance(80_000).set(speedEnc, 60);
+        graph.edge(1, 2).setDistance(80_000).set(speedEnc, 60);
+        String fileStr = "./target/tmp-lm-24";
+        Helper.removeDir(new File(fileStr));
+
+        Directory dir = new RAMDirectory(fileStr, true).create();
+        LMConfig lmConfig = new LMConfig("car", new SpeedWeighting(speedEnc));
+        PrepareLandmarks plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 2).setWeightBits(24);
+        plm.setMinimumNodes(2);
+        plm.doWork();
+
+        LandmarkStorage lms = plm.getLandmarkStorage();
+        double expectedFactor = lms.getFactor();
+        int fromWeight = lms.getFromWeight(0, 1);
+        int toWeight = lms.getToWeight(1, 1);
+        assertTrue(fromWeight > LandmarkStorage.SHORT_MAX, "weight should use more than 16 bits: " + fromWeight);
+        assertEquals(1333, Math.round(fromWeight * expectedFactor));
+
+        dir = new RAMDirectory(fileStr, true);
+        plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 2);
+        assertTrue(plm.loadExisting());
+        lms = plm.getLandmarkStorage();
+        assertEquals(24, lms.getWeightBits());
+        assertEquals(expectedFactor, lms.getFactor(), 1e-9);
+        assertEquals(fromWeight, lms.getFromWeight(0, 1));
+        assertEquals(toWeight, lms.getToWeight(1, 1));
+
+        Helper.removeDir(new File(fileStr));
+    }
 }
@@ -233,6 +233,42 @@ public class QueryGraphTest {
         assertNull(GHUtility.getEdge(queryGraph, 3, 1));
     }
 
+    @Test
+    public void testReset() {
+        initGraph(g);
+        EdgeIterator iter = g.createEdgeExplorer().setBaseNode(1);
+        iter.next();
+        QueryGraph queryGraph = lookup(createLocationResult(1.5, 2, iter, 0, EDGE));
+        assertEquals(4, queryGraph.getNodes());
+        queryGraph.unfavorVirtualEdge(GHUtility.getEdge(queryGraph, 3, 1).getEdge());
+        assertEquals(2, queryGraph.getUnfavoredVirtualEdges().size());
+
+        Snap res1 = createLocationResult(2, 1.7, iter, 1, PILLAR);
+        Snap res2 = createLocationResult(1.5, 2, iter, 0, EDGE);
+        assertSame(queryGraph, queryGraph.reset(Arrays.asList(res1, res2)));
+        assertEquals(5, queryGraph.getNodes());
+        assertEquals(0, queryGraph.getUnfavoredVirtualEdges().size());
+        assertEquals(3, res1.getClosestNode());
+        assertEquals(4, res2.getClosestNode());
+        assertEquals(3, getPoints(queryGraph, 3, 0).size());
+        assertEquals(3, getPoints(queryGraph, 0, 3).size());
+        assertEquals(new GHPoint(1.5, 1), getPoints(queryGraph, 0, 3).get(1));
+        assertEquals(new GHPoint(1.5, 1), getPoints(queryGraph, 3, 0).get(1));
+        assertEquals(2, getPoints(queryGraph, 3, 4).size());
+        assertEquals(2, getPoints(queryGraph, 4, 1).size());
+        assertNull(GHUtility.getEdge(queryGraph, 4, 0));
+        assertNull(GHUtility.getEdge(queryGraph, 3, 1));
+        assertEquals(GHUtility.asSet(3, 2), GHUtility.getNeighbors(queryGraph.createEdgeExplorer().setBaseNode(0)));
+
+        // the reusable QueryGraph is only reused for the same graph
+        ReusableQueryGraphs reusableQueryGraphs = new ReusableQueryGraphs();
+        QueryGraph reusable = reusableQueryGraphs.create(g, Collections.singletonList(createLocationResult(1.5, 2, iter, 0, EDGE)));
+        assertSame(reusable, reusableQueryGraphs.create(g, Collections.singletonList(createLocationResult(1.5, 2, iter, 0, EDGE))));
+        assertEquals(4, reusable.getNodes());
+        reusableQueryGraphs.clear();
+        assertNotSame(reusable, reusableQueryGraphs.create(g, Collections.singletonList(createLocationResult(1.5, 2, iter, 0, EDGE))));
+    }
+
     @Test
     public void testOneWay() {
         NodeAccess na = g.getNodeAccess();
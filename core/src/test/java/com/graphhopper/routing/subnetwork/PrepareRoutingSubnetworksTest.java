@@ -169,6 +169,63 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, subnetworkEnc));
     }
 
+    @Test
+    public void testPrepareSubnetworks_shareComponents() {
+        DecimalEncodedValue carSpeedEnc = new DecimalEncodedValueImpl("car_speed", 5, 5, true);
+        BooleanEncodedValue carSubnetworkEnc = Subnetwork.create("car");
+        DecimalEncodedValue truckSpeedEnc = new DecimalEncodedValueImpl("truck_speed", 5, 5, true);
+        BooleanEncodedValue truckSubnetworkEnc = Subnetwork.create("truck");
+        DecimalEncodedValue bikeSpeedEnc = new DecimalEncodedValueImpl("bike_speed", 4, 2, true);
+        BooleanEncodedValue bikeSubnetworkEnc = Subnetwork.create("bike");
+        EncodingManager em = EncodingManager.start()
+                .add(carSpeedEnc).add(carSubnetworkEnc)
+                .add(truckSpeedEnc).add(truckSubnetworkEnc)
+                .add(bikeSpeedEnc).add(bikeSubnetworkEnc)
+                .build();
+        BaseGraph g = createSubnetworkTestStorage(em, carSpeedEnc, bikeSpeedEnc);
+        // truck has different speeds than car, but the same access
+        AllEdgesIterator iter = g.getAllEdges();
+        while (iter.next())
+            if (iter.getEdge() != 0)
+                iter.set(truckSpeedEnc, 5, 5);
+        GHUtility.getEdge(g, 3, 4).set(bikeSpeedEnc, 5, 5);
+
+        PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, Arrays.asList(
+                createJob(carSubnetworkEnc, carSpeedEnc),
+                createJob(truckSubnetworkEnc, truckSpeedEnc),
+                createJob(bikeSubnetworkEnc, bikeSpeedEnc)
+        )).setShareComponents(true);
+        instance.setMinNetworkSize(5);
+        assertEquals(6, instance.doWork());
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, carSubnetworkEnc));
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, truckSubnetworkEnc));
+        assertEquals(IntArrayList.from(), getSubnetworkEdges(g, bikeSubnetworkEnc));
+    }
+
+    @Test
+    public void testPrepareSubnetworks_doNotShareComponentsWithDifferentTurnRestrictions() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        DecimalEncodedValue turnCostEnc = TurnCost.create("car", 1);
+        BooleanEncodedValue carSubnetworkEnc = Subnetwork.create("car");
+        BooleanEncodedValue bikeSubnetworkEnc = Subnetwork.create("bike");
+        EncodingManager em = EncodingManager.start().add(speedEnc).add(carSubnetworkEnc).add(bikeSubnetworkEnc)
+                .addTurnCostEncodedValue(turnCostEnc).build();
+
+        // the edges are the same for both jobs, but only the first one blocks the turns into the upper component
+        BaseGraph g = createSubnetworkTestStorage(em, speedEnc, null);
+        GHUtility.getEdge(g, 3, 4).set(speedEnc, 10, 10);
+        g.getTurnCostStorage().set(turnCostEnc, 0, 4, 7, Double.POSITIVE_INFINITY);
+        g.getTurnCostStorage().set(turnCostEnc, 0, 4, 9, Double.POSITIVE_INFINITY);
+        PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, Arrays.asList(
+                createJob(carSubnetworkEnc, speedEnc, turnCostEnc, g.getTurnCostStorage(), 0),
+                createJob(bikeSubnetworkEnc, speedEnc)
+        )).setShareComponents(true);
+        instance.setMinNetworkSize(4);
+        assertEquals(3, instance.doWork());
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, carSubnetworkEnc));
+        assertEquals(IntArrayList.from(), getSubnetworkEdges(g, bikeSubnetworkEnc));
+    }
+
     private BaseGraph createSubnetworkTestStorageWithOneWays(EncodingManager em, DecimalEncodedValue speedEnc) {
         BaseGraph g = new BaseGraph.Builder(em).create();
         // 0 - 1 - 2 - 3 - 4 <- 5 - 6
@@ -239,6 +296,31 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(IntArrayList.from(0, 1), getSubnetworkEdges(g, subnetworkEnc));
     }
 
+    @Test
+    public void testUpdateSubnetworks() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        BooleanEncodedValue subnetworkEnc = Subnetwork.create("car");
+        EncodingManager em = EncodingManager.start().add(speedEnc).add(subnetworkEnc).build();
+        BaseGraph g = createSubnetworkTestStorage(em, speedEnc, null);
+        // the middle edge is open, so there is no subnetwork
+        GHUtility.getEdge(g, 3, 4).set(speedEnc, 10, 10);
+        PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, Collections.singletonList(createJob(subnetworkEnc, speedEnc)));
+        instance.setMinNetworkSize(4);
+        assertEquals(0, instance.doWork());
+        assertEquals(IntArrayList.from(), getSubnetworkEdges(g, subnetworkEnc));
+
+        // blocking the middle edge turns the upper network into a subnetwork, which is found via the neighbours of the edge
+        GHUtility.getEdge(g, 3, 4).set(speedEnc, 0, 0);
+        assertEquals(3, instance.updateSubnetworks(IntArrayList.from(0)));
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, subnetworkEnc));
+
+        // a new edge attached to the main network is fine, but a new isolated edge is a subnetwork
+        g.edge(8, 9).setDistance(1).set(speedEnc, 10, 10);
+        g.edge(10, 11).setDistance(1).set(speedEnc, 10, 10);
+        assertEquals(1, instance.updateSubnetworks(IntArrayList.from(10, 11)));
+        assertEquals(IntArrayList.from(7, 8, 9, 11), getSubnetworkEdges(g, subnetworkEnc));
+    }
+
     private static IntArrayList getSubnetworkEdges(BaseGraph graph, BooleanEncodedValue subnetworkEnc) {
         IntArrayList result = new IntArrayList();
         AllEdgesIterator iter = graph.getAllEdges();
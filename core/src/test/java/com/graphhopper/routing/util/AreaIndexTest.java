@@ -144,6 +144,47 @@ class AreaIndexTest {
         assertEquals("NL", countryIndex.query(52.208451, 5.500524).get(0).getProperties().get(State.ISO_3166_2));
     }
 
+    @Test
+    public void testRaster() {
+        GeometryFactory gf = new GeometryFactory();
+        Polygon border1 = gf.createPolygon(new Coordinate[]{
+                new Coordinate(1, 1), new Coordinate(2, 1), new Coordinate(2, 2), new Coordinate(1, 2),
+                new Coordinate(1, 1)});
+        Polygon border2 = gf.createPolygon(new Coordinate[]{
+                new Coordinate(0.5, 1), new Coordinate(1.5, 1), new Coordinate(1.5, 2), new Coordinate(0.5, 2),
+                new Coordinate(0.5, 1)});
+        AreaIndex<CustomArea> index = new AreaIndex<>(Arrays.asList(
+                createCustomArea("1", border1),
+                createCustomArea("2", border2)
+        )).setRasterCellSize(0.1);
+        // outside of the raster
+        testQuery(index, 0, 0);
+        testQuery(index, 1.5, 2.5);
+        // cells completely inside
+        testQuery(index, 1.25, 1.25, "1", "2");
+        testQuery(index, 1.25, 1.25, "1", "2");
+        testQuery(index, 1.75, 0.75, "2");
+        testQuery(index, 1.75, 1.75, "1");
+        // at the borders
+        testQuery(index, 1.5, 1.0001, "1", "2");
+        testQuery(index, 1.5, 1.4999, "1", "2");
+        testQuery(index, 1.5, 1.51, "1");
+        testQuery(index, 2, 2, "1");
+    }
+
+    @Test
+    public void testRasterCountries() {
+        AreaIndex<CustomArea> index = createCountryIndex();
+        AreaIndex<CustomArea> rasterIndex = createCountryIndex().setRasterCellSize(0.5);
+        Random rand = new Random(123);
+        for (int i = 0; i < 10_000; i++) {
+            // central europe with many borders
+            double lat = 44 + rand.nextDouble() * 12;
+            double lon = 2 + rand.nextDouble() * 20;
+            assertEquals(index.query(lat, lon), rasterIndex.query(lat, lon), "wrong result for " + lat + "," + lon);
+        }
+    }
+
     private AreaIndex<CustomArea> createCountryIndex() {
         return new AreaIndex<>(readCountries());
     }
@@ -1,9 +1,11 @@
 package com.graphhopper.routing.util;
 
-import com.graphhopper.reader.ReaderWay;
-import com.graphhopper.routing.ev.ArrayEdgeIntAccess;
 import com.graphhopper.routing.ev.Curvature;
-import com.graphhopper.util.PointList;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -14,40 +16,15 @@ class CurvatureCalculatorTest {
 
     @Test
     public void testCurvature() {
-        CurvatureCalculator calculator = new CurvatureCalculator(em.getDecimalEncodedValue(Curvature.KEY));
-        ArrayEdgeIntAccess intAccess = ArrayEdgeIntAccess.createFromBytes(em.getBytesForFlags());
-        int edgeId = 0;
-        calculator.handleWayTags(edgeId, intAccess, getStraightWay(), null);
-        double valueStraight = em.getDecimalEncodedValue(Curvature.KEY).getDecimal(false, edgeId, intAccess);
-
-        intAccess = ArrayEdgeIntAccess.createFromBytes(em.getBytesForFlags());
-        calculator.handleWayTags(edgeId, intAccess, getCurvyWay(), null);
-        double valueCurvy = em.getDecimalEncodedValue(Curvature.KEY).getDecimal(false, edgeId, intAccess);
-
-        assertTrue(valueCurvy < valueStraight, "The bendiness of the straight road is smaller than the one of the curvy road");
-    }
-
-    private ReaderWay getStraightWay() {
-        ReaderWay way = new ReaderWay(1);
-        way.setTag("highway", "primary");
-        PointList pointList = new PointList();
-        pointList.add(50.9, 13.13);
-        pointList.add(50.899, 13.13);
-        way.setTag("point_list", pointList);
-        way.setTag("edge_distance", 100d);
-        return way;
+        DecimalEncodedValue curvatureEnc = em.getDecimalEncodedValue(Curvature.KEY);
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.9, 13.13);
+        na.setNode(1, 50.899, 13.13);
+        EdgeIteratorState straight = graph.edge(0, 1).setDistance(100);
+        EdgeIteratorState curvy = graph.edge(0, 1).setDistance(160).setWayGeometry(Helper.createPointList(50.899, 13.129));
+        new EdgeAttributePass(graph).add(new CurvatureCalculator(curvatureEnc)).run();
+
+        assertTrue(curvy.get(curvatureEnc) < straight.get(curvatureEnc), "The bendiness of the straight road is smaller than the one of the curvy road");
     }
-
-    private ReaderWay getCurvyWay() {
-        ReaderWay way = new ReaderWay(1);
-        way.setTag("highway", "primary");
-        PointList pointList = new PointList();
-        pointList.add(50.9, 13.13);
-        pointList.add(50.899, 13.129);
-        pointList.add(50.899, 13.13);
-        way.setTag("point_list", pointList);
-        way.setTag("edge_distance", 160d);
-        return way;
-    }
-
 }
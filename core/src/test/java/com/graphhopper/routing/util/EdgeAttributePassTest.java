@@ -0,0 +1,89 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EdgeAttributePassTest {
+
+    @Test
+    public void testRun() {
+        DecimalEncodedValue distEnc = new DecimalEncodedValueImpl("dist", 16, 1, false);
+        DecimalEncodedValue countEnc = new DecimalEncodedValueImpl("count", 16, 1, false);
+        EncodingManager em = EncodingManager.start().add(distEnc).add(countEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        for (int i = 0; i < 1000; i++)
+            graph.edge(i, i + 1).setDistance(i % 100);
+
+        AtomicInteger states = new AtomicInteger();
+        new EdgeAttributePass(graph).setThreads(4).setBatchSize(30)
+                .add(new EdgeAttributePass.Calculator<int[]>() {
+                    @Override
+                    public int[] createState(BaseGraph graph) {
+                        states.incrementAndGet();
+                        return new int[1];
+                    }
+
+                    @Override
+                    public void calculate(int[] state, EdgeIteratorState edge, EdgeIntAccess edgeIntAccess) {
+                        // the state is only used for a single batch of consecutive edges
+                        state[0]++;
+                        countEnc.setDecimal(false, edge.getEdge(), edgeIntAccess, state[0]);
+                    }
+                })
+                .add(new EdgeAttributePass.Calculator<Void>() {
+                    @Override
+                    public Void createState(BaseGraph graph) {
+                        return null;
+                    }
+
+                    @Override
+                    public void calculate(Void state, EdgeIteratorState edge, EdgeIntAccess edgeIntAccess) {
+                        edge.set(distEnc, edge.getDistance());
+                    }
+                })
+                .run();
+
+        // 1000 edges in batches of 30
+        assertEquals(34, states.get());
+        for (int i = 0; i < 1000; i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(i, Integer.MIN_VALUE);
+            assertEquals(i % 100, edge.get(distEnc));
+            assertEquals(i % 30 + 1, edge.get(countEnc));
+        }
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        BaseGraph graph = new BaseGraph.Builder(4).create();
+        assertThrows(IllegalArgumentException.class, () -> new EdgeAttributePass(graph).setThreads(0));
+        assertThrows(IllegalArgumentException.class, () -> new EdgeAttributePass(graph).setBatchSize(0));
+        // nothing happens without calculators
+        new EdgeAttributePass(graph).run();
+    }
+}
@@ -80,6 +80,20 @@ class MaxSpeedCalculatorTest {
         return edge;
     }
 
+    @Test
+    public void testEdgeAttributePass() {
+        ReaderWay way = new ReaderWay(0L);
+        way.setTag("country", Country.DEU);
+        way.setTag("highway", "primary");
+        EdgeIteratorState cityEdge = createEdge(way).set(urbanDensity, CITY);
+        EdgeIteratorState ruralEdge = createEdge(way).set(urbanDensity, RURAL);
+        new EdgeAttributePass(graph).setThreads(2).setBatchSize(1).add(calc.createEdgeAttributeCalculator(em)).run();
+        assertEquals(50, cityEdge.get(maxSpeedEnc), 1);
+        assertTrue(cityEdge.get(maxSpeedEstEnc));
+        assertEquals(100, ruralEdge.get(maxSpeedEnc), 1);
+        assertTrue(ruralEdge.get(maxSpeedEstEnc));
+    }
+
     @Test
     public void testCityGermany() {
         ReaderWay way = new ReaderWay(0L);
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachedWeightingTest {
+
+    @RepeatedTest(5)
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, speedEnc, null, 0.8, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        CachedWeighting cachedWeighting = new CachedWeighting(weighting, EdgeWeightCache.create(graph, weighting, 4));
+
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            for (boolean reverse : new boolean[]{false, true}) {
+                double weight = weighting.calcEdgeWeight(edgeState, reverse);
+                double cachedWeight = cachedWeighting.calcEdgeWeight(edgeState, reverse);
+                // the cached weight must never be smaller, otherwise the landmark approximation would be wrong
+                assertTrue(cachedWeight >= weight, "seed: " + seed);
+                assertEquals(weight, cachedWeight, 1.e-6 * weight, "seed: " + seed);
+                assertEquals(weighting.calcEdgeMillis(edgeState, reverse), cachedWeighting.calcEdgeMillis(edgeState, reverse), "seed: " + seed);
+            }
+        }
+
+        for (int i = 0; i < 20; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path path = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            Path cachedPath = new Dijkstra(graph, cachedWeighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            assertEquals(path.isFound(), cachedPath.isFound(), "seed: " + seed);
+            assertEquals(path.getWeight(), cachedPath.getWeight(), 1.e-6 * path.getWeight(), "seed: " + seed);
+        }
+    }
+
+    @Test
+    public void virtualEdgesAreNotCached() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        graph.getNodeAccess().setNode(0, 50.00, 10.00);
+        graph.getNodeAccess().setNode(1, 50.00, 10.01);
+        graph.edge(0, 1).setDistance(700).set(speedEnc, 50, 10);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        EdgeWeightCache cache = EdgeWeightCache.create(graph, weighting, 1);
+        assertEquals(1, cache.getEdges());
+
+        Snap snap = new Snap(50.001, 10.005);
+        snap.setClosestEdge(graph.getEdgeIteratorState(0, 1));
+        snap.setSnappedPosition(Snap.Position.EDGE);
+        snap.setWayIndex(0);
+        snap.setQueryDistance(10);
+        snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.singletonList(snap));
+        Weighting cachedWeighting = queryGraph.wrapWeighting(new CachedWeighting(weighting, cache));
+        Path path = new Dijkstra(queryGraph, cachedWeighting, TraversalMode.NODE_BASED).calcPath(0, 1);
+        assertEquals(3, path.calcNodes().size());
+        Path expected = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED).calcPath(0, 1);
+        assertEquals(expected.getWeight(), path.getWeight(), 1.e-6);
+        assertEquals(expected.getTime(), path.getTime());
+        path = new Dijkstra(queryGraph, cachedWeighting, TraversalMode.NODE_BASED).calcPath(1, 0);
+        expected = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED).calcPath(1, 0);
+        assertEquals(expected.getWeight(), path.getWeight(), 1.e-6);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.VehicleSpeed;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.JsonFeature;
+import com.graphhopper.util.JsonFeatureCollection;
+import com.graphhopper.util.shapes.Polygon;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.graphhopper.json.Statement.If;
+import static com.graphhopper.json.Statement.Op.LIMIT;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AreaEdgeIndexTest {
+
+    @Test
+    void edgesInArea() {
+        DecimalEncodedValue speedEnc = VehicleSpeed.create("car", 5, 5, false);
+        EncodingManager em = new EncodingManager.Builder().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        GHUtility.buildRandomGraph(graph, new Random(3), 500, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.setResolution(50);
+        locationIndex.prepareIndex();
+        AreaEdgeIndex areaEdgeIndex = new AreaEdgeIndex(graph, locationIndex, 1_000_000);
+
+        JsonFeature circle = GHUtility.createCircle("circle", 49.405, 9.705, 300);
+        Polygon polygon = Polygon.create((org.locationtech.jts.geom.Polygon) circle.getGeometry());
+        GHBitSet edges = areaEdgeIndex.findEdges(polygon);
+        int count = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            boolean inArea = CustomWeightingHelper.in(polygon, iter);
+            assertEquals(inArea, edges.contains(iter.getEdge()), "edge " + iter.getEdge());
+            if (inArea)
+                count++;
+        }
+        assertTrue(count > 10, "there should be some edges in the area, but there were only " + count);
+        // the edges are cached for equal geometries
+        Polygon samePolygon = Polygon.create((org.locationtech.jts.geom.Polygon) GHUtility.createCircle("other", 49.405, 9.705, 300).getGeometry());
+        assertSame(edges, areaEdgeIndex.findEdges(samePolygon));
+        assertTrue(areaEdgeIndex.getCachedBytes() > 0);
+        // bit sets that exceed the memory limit are not returned at all, the edge geometries are tested instead
+        AreaEdgeIndex smallIndex = new AreaEdgeIndex(graph, locationIndex, 8);
+        assertNull(smallIndex.findEdges(polygon));
+        assertNull(smallIndex.findEdges(samePolygon));
+        assertEquals(0, smallIndex.getCachedBytes());
+
+        CustomModel customModel = new CustomModel();
+        JsonFeatureCollection areas = new JsonFeatureCollection();
+        areas.getFeatures().add(circle);
+        customModel.setAreas(areas);
+        customModel.addToSpeed(If("true", LIMIT, speedEnc.getName()));
+        customModel.addToSpeed(If("in_circle", LIMIT, "20"));
+        CustomWeighting.EdgeToDoubleMapping expected = CustomModelParser.createWeightingParameters(customModel, em).getEdgeToSpeedMapping();
+        CustomWeighting.EdgeToDoubleMapping speed = CustomModelParser.createWeightingParameters(customModel, em, areaEdgeIndex).getEdgeToSpeedMapping();
+        CustomWeighting.EdgeToDoubleMapping speedWithoutBitSet = CustomModelParser.createWeightingParameters(customModel, em, smallIndex).getEdgeToSpeedMapping();
+        iter = graph.getAllEdges();
+        while (iter.next()) {
+            assertEquals(expected.get(iter, false), speed.get(iter, false), 1.e-6, "edge " + iter.getEdge());
+            assertEquals(expected.get(iter, false), speedWithoutBitSet.get(iter, false), 1.e-6, "edge " + iter.getEdge());
+        }
+    }
+}
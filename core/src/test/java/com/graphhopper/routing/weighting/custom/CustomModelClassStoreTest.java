@@ -0,0 +1,124 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.ev.VehicleSpeed;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.JsonFeatureCollection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.graphhopper.json.Statement.If;
+import static com.graphhopper.json.Statement.Op.LIMIT;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomModelClassStoreTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void storeAndLoad() throws Exception {
+        DecimalEncodedValue speedEnc = VehicleSpeed.create("car", 5, 5, false);
+        EncodingManager em = new EncodingManager.Builder().add(speedEnc).add(RoadClass.create()).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        EdgeIteratorState edge = graph.edge(0, 1).setDistance(100).set(speedEnc, 60)
+                .set(em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class), RoadClass.PRIMARY);
+
+        CustomModel customModel = new CustomModel();
+        customModel.addToSpeed(If("true", LIMIT, speedEnc.getName()));
+        customModel.addToSpeed(If("road_class == PRIMARY", MULTIPLY, "0.37"));
+
+        CustomModelClassStore store = new CustomModelClassStore(dir, em, 10);
+        CustomModelParser.setClassStore(store);
+        try {
+            assertEquals(0.37 * 60, CustomModelParser.createWeightingParameters(customModel, em).getEdgeToSpeedMapping().get(edge, false), 1.e-6);
+        } finally {
+            CustomModelParser.setClassStore(null);
+        }
+        assertEquals(1, dir.listFiles().length);
+
+        // a new store, like after a restart
+        store = new CustomModelClassStore(dir, em, 10);
+        Class<?> clazz = store.load(customModel.toString(), em);
+        assertNotNull(clazz);
+        CustomWeightingHelper helper = (CustomWeightingHelper) clazz.getDeclaredConstructor().newInstance();
+        helper.init(customModel, em, CustomModel.getAreasAsMap(new JsonFeatureCollection()));
+        assertEquals(0.37 * 60, helper.getSpeed(edge, false), 1.e-6);
+
+        Map<String, Class<?>> recent = store.loadRecent(em, 10);
+        assertEquals(1, recent.size());
+        assertTrue(recent.containsKey(customModel.toString()));
+
+        // the class must not be used for other models or other encoded values
+        CustomModel otherModel = new CustomModel(customModel);
+        otherModel.addToPriority(If("true", MULTIPLY, "0.5"));
+        assertNull(store.load(otherModel.toString(), em));
+        EncodingManager otherEm = new EncodingManager.Builder().add(VehicleSpeed.create("car", 5, 5, false)).build();
+        assertNull(store.load(customModel.toString(), otherEm));
+        assertTrue(store.loadRecent(otherEm, 10).isEmpty());
+    }
+
+    @Test
+    void deleteLeastRecentlyUsedFiles() throws Exception {
+        DecimalEncodedValue speedEnc = VehicleSpeed.create("car", 5, 5, false);
+        EncodingManager em = new EncodingManager.Builder().add(speedEnc).build();
+        CustomModelParser.setClassStore(new CustomModelClassStore(dir, em, 10));
+        List<CustomModel> customModels = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                CustomModel customModel = new CustomModel();
+                customModel.addToSpeed(If("true", LIMIT, speedEnc.getName()));
+                customModel.addToSpeed(If("true", MULTIPLY, "0.0" + (4713 + i)));
+                CustomModelParser.createWeightingParameters(customModel, em);
+                customModels.add(customModel);
+            }
+        } finally {
+            CustomModelParser.setClassStore(null);
+        }
+        // a file of another version or of other encoded values is deleted like all other files
+        EncodingManager otherEm = new EncodingManager.Builder().add(VehicleSpeed.create("car", 5, 5, false)).add(RoadClass.create()).build();
+        new CustomModelClassStore(dir, otherEm, 10).store("other", otherEm, "Other", Map.of("Other", new byte[0]));
+        File[] files = dir.listFiles();
+        assertEquals(4, files.length);
+        long time = System.currentTimeMillis() - 10_000;
+        for (File file : files)
+            assertTrue(file.setLastModified(time));
+        CustomModelClassStore store = new CustomModelClassStore(dir, em, 2);
+        // load touches the files, so these two were used most recently
+        assertNotNull(store.load(customModels.get(0).toString(), em));
+        assertNotNull(store.load(customModels.get(2).toString(), em));
+
+        Map<String, Class<?>> recent = store.loadRecent(em, 10);
+        assertEquals(Set.of(customModels.get(0).toString(), customModels.get(2).toString()), recent.keySet());
+        assertEquals(2, dir.listFiles().length);
+        assertNull(store.load(customModels.get(1).toString(), em));
+    }
+}
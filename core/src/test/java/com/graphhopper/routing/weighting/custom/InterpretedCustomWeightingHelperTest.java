@@ -0,0 +1,170 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.JsonFeatureCollection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.json.Statement.*;
+import static com.graphhopper.json.Statement.Op.LIMIT;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterpretedCustomWeightingHelperTest {
+    private BooleanEncodedValue accessEnc;
+    private DecimalEncodedValue speedEnc;
+    private EncodingManager em;
+    private BaseGraph graph;
+
+    @BeforeEach
+    void setup() {
+        accessEnc = VehicleAccess.create("car");
+        speedEnc = VehicleSpeed.create("car", 5, 5, true);
+        EnumEncodedValue<RoadClass> roadClassEnc = RoadClass.create();
+        EnumEncodedValue<RoadEnvironment> roadEnvironmentEnc = RoadEnvironment.create();
+        EnumEncodedValue<Country> countryEnc = Country.create();
+        DecimalEncodedValue maxSpeedEnc = MaxSpeed.create();
+        IntEncodedValue lanesEnc = Lanes.create();
+        em = new EncodingManager.Builder().add(accessEnc).add(speedEnc).add(roadClassEnc).add(roadEnvironmentEnc)
+                .add(countryEnc).add(maxSpeedEnc).add(lanesEnc).build();
+        graph = new BaseGraph.Builder(em).create();
+        Random random = new Random(42);
+        GHUtility.buildRandomGraph(graph, random, 200, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        Country[] countries = {Country.DEU, Country.GBR, Country.USA};
+        double[] maxSpeeds = {30, 50, 90, 130};
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            iter.set(accessEnc, random.nextBoolean(), random.nextBoolean());
+            iter.set(speedEnc, 5 * random.nextInt(25), 5 * random.nextInt(25));
+            iter.set(roadClassEnc, RoadClass.values()[random.nextInt(RoadClass.values().length)]);
+            iter.set(roadEnvironmentEnc, RoadEnvironment.values()[random.nextInt(RoadEnvironment.values().length)]);
+            iter.set(countryEnc, countries[random.nextInt(countries.length)]);
+            iter.set(maxSpeedEnc, maxSpeeds[random.nextInt(maxSpeeds.length)]);
+            iter.set(lanesEnc, random.nextInt(6));
+        }
+    }
+
+    @Test
+    void sameResultsAsCompiledClass() {
+        List<CustomModel> customModels = new ArrayList<>();
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(If("road_class == PRIMARY", MULTIPLY, "0.5"));
+        customModel.addToPriority(ElseIf("road_class == SECONDARY || road_class == TERTIARY", MULTIPLY, "0.7"));
+        customModel.addToPriority(Else(MULTIPLY, "0.9"));
+        customModel.addToPriority(If("road_environment != FERRY && !car_access", MULTIPLY, "0"));
+        customModel.addToSpeed(If("true", LIMIT, "car_average_speed"));
+        customModel.addToSpeed(If("max_speed < car_average_speed", LIMIT, "max_speed * 0.9"));
+        customModels.add(customModel);
+
+        customModel = new CustomModel();
+        customModel.addToPriority(If("(road_class == MOTORWAY || car_access == true) && car_average_speed > 50", MULTIPLY, "0.9"));
+        customModel.addToPriority(If("backward_car_average_speed >= 2 * car_average_speed - 10", MULTIPLY, "0.8"));
+        customModel.addToPriority(If("lanes / 2 == 1", MULTIPLY, "0.6"));
+        customModel.addToPriority(If("Math.abs(lanes - 3) < 2 && !backward_car_access", MULTIPLY, "0.4"));
+        customModel.addToSpeed(If("car_average_speed > 100", LIMIT, "100"));
+        customModel.addToSpeed(Else(LIMIT, "car_average_speed"));
+        customModel.addToSpeed(If("country.isRightHandTraffic()", MULTIPLY, "0.95"));
+        customModel.addToSpeed(If("road_class.ordinal() > 3", List.of(
+                If("Math.sqrt(max_speed) > 8", LIMIT, "70"),
+                Else(MULTIPLY, "0.5"))));
+        customModels.add(customModel);
+
+        customModel = new CustomModel();
+        JsonFeatureCollection areas = new JsonFeatureCollection();
+        areas.getFeatures().add(GHUtility.createCircle("circle", 49.405, 9.705, 1000));
+        customModel.setAreas(areas);
+        customModel.addToPriority(If("in_circle", MULTIPLY, "0.3"));
+        customModel.addToSpeed(If("true", LIMIT, "car_average_speed"));
+        customModel.addToSpeed(If("!in_circle && country == USA", LIMIT, "-(-40)"));
+        customModels.add(customModel);
+
+        for (CustomModel model : customModels) {
+            CustomWeighting.Parameters compiled = CustomModelParser.createWeightingParameters(model, em);
+            CustomWeightingHelper helper = InterpretedCustomWeightingHelper.create(model, em);
+            assertNotNull(helper, model.toString());
+            helper.init(model, em, CustomModel.getAreasAsMap(model.getAreas()));
+            assertEquals(compiled.getMaxSpeedCalc().calcMax(), helper.calcMaxSpeed(), 1.e-6);
+            assertEquals(compiled.getMaxPrioCalc().calcMax(), helper.calcMaxPriority(), 1.e-6);
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next()) {
+                for (boolean reverse : new boolean[]{false, true}) {
+                    assertEquals(compiled.getEdgeToSpeedMapping().get(iter, reverse), helper.getSpeed(iter, reverse), 1.e-6, model + ", edge " + iter.getEdge());
+                    assertEquals(compiled.getEdgeToPriorityMapping().get(iter, reverse), helper.getPriority(iter, reverse), 1.e-6, model + ", edge " + iter.getEdge());
+                }
+            }
+        }
+    }
+
+    @Test
+    void unsupportedExpressions() {
+        for (String condition : new String[]{"road_class < PRIMARY", "car_average_speed == PRIMARY", "road_class == car_access",
+                "car_access > 1", "lanes % 2 == 1", "edge.getName() == \"x\"", "car_average_speed > 10L"}) {
+            CustomModel customModel = new CustomModel();
+            customModel.addToPriority(If(condition, MULTIPLY, "0.5"));
+            customModel.addToSpeed(If("true", LIMIT, "100"));
+            assertNull(InterpretedCustomWeightingHelper.create(customModel, em), condition);
+        }
+    }
+
+    @Test
+    void compileInBackground() {
+        List<Runnable> tasks = new ArrayList<>();
+        CustomModelParser.setCompileExecutor(tasks::add);
+        try {
+            CustomModel customModel = new CustomModel();
+            customModel.addToSpeed(If("true", LIMIT, "car_average_speed"));
+            customModel.addToSpeed(If("road_class == RESIDENTIAL", MULTIPLY, "0.43"));
+            AllEdgesIterator iter = graph.getAllEdges();
+            iter.next();
+            double expected = iter.get(em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class)) == RoadClass.RESIDENTIAL
+                    ? 0.43 * iter.get(speedEnc) : iter.get(speedEnc);
+
+            CustomWeighting.Parameters parameters = CustomModelParser.createWeightingParameters(customModel, em);
+            assertEquals(expected, parameters.getEdgeToSpeedMapping().get(iter, false), 1.e-6);
+            assertEquals(1, tasks.size());
+            // the compilation is scheduled only once
+            CustomModelParser.createWeightingParameters(customModel, em);
+            assertEquals(1, tasks.size());
+            tasks.get(0).run();
+
+            // now the compiled class is used and there is nothing to compile
+            parameters = CustomModelParser.createWeightingParameters(customModel, em);
+            assertEquals(expected, parameters.getEdgeToSpeedMapping().get(iter, false), 1.e-6);
+            assertEquals(1, tasks.size());
+
+            // invalid custom models are still rejected right away
+            CustomModel invalid = new CustomModel();
+            invalid.addToSpeed(If("road_class == PRIMARY", LIMIT, "50"));
+            assertThrows(IllegalArgumentException.class, () -> CustomModelParser.createWeightingParameters(invalid, em));
+            assertEquals(1, tasks.size());
+        } finally {
+            CustomModelParser.setCompileExecutor(null);
+        }
+    }
+}
@@ -392,6 +392,36 @@ public class BaseGraphTest extends AbstractGraphStorageTester {
         assertTrue(e.getMessage().contains("This edge already has a way geometry so it cannot be changed to a bigger geometry"), e.getMessage());
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void pillarReader(boolean enabled3D) {
+        BaseGraph graph = createGHStorage(defaultGraphLoc, enabled3D);
+        EdgeIteratorState edge1 = graph.edge(0, 1).setWayGeometry(enabled3D
+                ? Helper.createPointList3D(1.5, 1, 10, 2, 3, 20, 2.5, 3.5, 30)
+                : Helper.createPointList(1.5, 1, 2, 3, 2.5, 3.5));
+        // the geometry is set in reverse direction, but the reader returns it in storage direction
+        EdgeIteratorState edge2 = graph.edge(1, 2);
+        graph.getEdgeIteratorState(edge2.getEdge(), 1).setWayGeometry(enabled3D
+                ? Helper.createPointList3D(4, 5, 10, 6, 7, 20)
+                : Helper.createPointList(4, 5, 6, 7));
+        EdgeIteratorState edge3 = graph.edge(2, 3);
+        EdgeIteratorState edge4 = graph.copyEdge(edge3.getEdge(), true);
+
+        BaseGraph.PillarReader reader = graph.createPillarReader();
+        for (EdgeIteratorState edge : new EdgeIteratorState[]{edge1, edge2, edge3, edge4}) {
+            PointList expected = graph.getEdgeIteratorState(edge.getEdge(), Integer.MIN_VALUE).fetchWayGeometry(PILLAR_ONLY);
+            assertEquals(expected.size(), reader.setEdge(edge.getEdge()));
+            assertEquals(expected.size(), reader.getCount());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getLat(i), reader.getLat(i), 1.e-6);
+                assertEquals(expected.getLon(i), reader.getLon(i), 1.e-6);
+            }
+        }
+        assertEquals(2, reader.setEdge(edge2.getEdge()));
+        assertEquals(6, reader.getLat(0), 1.e-6);
+        assertEquals(7, reader.getLon(0), 1.e-6);
+    }
+
     @Test
     public void testGeoRef() {
         BaseGraph graph = createGHStorage();
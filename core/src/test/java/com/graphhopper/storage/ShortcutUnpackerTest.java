@@ -3,6 +3,7 @@ package com.graphhopper.storage;
 import com.carrotsearch.hppc.DoubleArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ch.PrepareEncoder;
+import com.graphhopper.routing.ch.ShortcutUnpackCache;
 import com.graphhopper.routing.ch.ShortcutUnpacker;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
@@ -28,14 +29,16 @@ public class ShortcutUnpackerTest {
 
     private static final class Fixture {
         private final boolean edgeBased;
+        private final boolean cached;
         private final DecimalEncodedValue speedEnc;
         private final DecimalEncodedValue turnCostEnc;
         private final BaseGraph graph;
         private CHStorageBuilder chBuilder;
         private RoutingCHGraph routingCHGraph;
 
-        Fixture(boolean edgeBased) {
+        Fixture(boolean edgeBased, boolean cached) {
             this.edgeBased = edgeBased;
+            this.cached = cached;
             speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
             turnCostEnc = TurnCost.create("car", 10);
             EncodingManager encodingManager = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
@@ -44,7 +47,7 @@ public class ShortcutUnpackerTest {
 
         @Override
         public String toString() {
-            return "edge_based=" + edgeBased;
+            return "edge_based=" + edgeBased + ", cached=" + cached;
         }
 
         private void freeze() {
@@ -54,7 +57,11 @@ public class ShortcutUnpackerTest {
                     : new SpeedWeighting(speedEnc), edgeBased);
             CHStorage chStore = CHStorage.fromGraph(graph, chConfig);
             chBuilder = new CHStorageBuilder(chStore);
-            routingCHGraph = RoutingCHGraphImpl.fromGraph(graph, chStore, chConfig);
+            RoutingCHGraphImpl routingCHGraphImpl = new RoutingCHGraphImpl(graph, chStore, chConfig.getWeighting());
+            // the cache is shared by all unpackers, so unpacking the same shortcut twice reads the cached edges
+            if (cached)
+                routingCHGraphImpl.setShortcutUnpackCache(new ShortcutUnpackCache(1000));
+            routingCHGraph = routingCHGraphImpl;
         }
 
         private void setCHLevels(int... order) {
@@ -72,7 +79,7 @@ public class ShortcutUnpackerTest {
         }
 
         private ShortcutUnpacker createShortcutUnpacker(ShortcutUnpacker.Visitor visitor) {
-            return new ShortcutUnpacker(routingCHGraph, visitor, edgeBased);
+            return new ShortcutUnpacker(routingCHGraph, visitor, edgeBased, routingCHGraph.getShortcutUnpackCache());
         }
 
         private void setTurnCost(int fromEdge, int viaNode, int toEdge, double cost) {
@@ -95,8 +102,10 @@ public class ShortcutUnpackerTest {
         @Override
         public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
             return Stream.of(
-                    new Fixture(false),
-                    new Fixture(true)
+                    new Fixture(false, false),
+                    new Fixture(true, false),
+                    new Fixture(false, true),
+                    new Fixture(true, true)
             ).map(Arguments::of);
         }
     }
@@ -451,6 +451,31 @@ public class LocationIndexTreeTest {
         g.close();
     }
 
+    @Test
+    public void testAddEdges() {
+        BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+        EncodingManager em = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+        BaseGraph g = new BaseGraph.Builder(em).create();
+        initSimpleGraph(g);
+        AllEdgesIterator edge = g.getAllEdges();
+        while (edge.next())
+            GHUtility.setSpeed(60, 60, accessEnc, speedEnc, edge);
+        LocationIndexTree idx = (LocationIndexTree) createIndexNoPrepare(g, 500000).prepareIndex();
+        assertEquals(6, findClosestNode(idx, 5.5, -1.8));
+
+        // the new edge is only found after it was added to the index
+        g.getNodeAccess().setNode(7, 5.5, -1.8);
+        GHUtility.setSpeed(60, 60, accessEnc, speedEnc, g.edge(6, 7));
+        idx.addEdges(IntArrayList.from(7));
+        assertEquals(7, findClosestNode(idx, 5.5, -1.8));
+        assertEquals(7, findClosestEdge(idx, 5, -1.2));
+        // the existing edges are still found
+        assertEquals(3, findClosestEdge(idx, 5, 2));
+        assertEquals(1, findClosestEdge(idx, -1, -1));
+        g.close();
+    }
+
     @Test
     public void testSimpleGraph2() {
         BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
@@ -621,6 +646,138 @@ public class LocationIndexTreeTest {
         g.close();
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 8})
+    public void testPrepareConcurrently(int threads) {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 500, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+        LocationIndexTree concurrentIndex = createIndexNoPrepare(graph, 50).setPrepareThreads(threads);
+        concurrentIndex.prepareIndex();
+
+        assertEquals(index.lineIntIndex.getSize(), concurrentIndex.lineIntIndex.getSize());
+        assertEquals(index.lineIntIndex.getLeafs(), concurrentIndex.lineIntIndex.getLeafs());
+        BBox bounds = graph.getBounds();
+        IntArrayList edges = new IntArrayList();
+        index.query(bounds, edges::add);
+        IntArrayList concurrentEdges = new IntArrayList();
+        concurrentIndex.query(bounds, concurrentEdges::add);
+        assertEquals(edges, concurrentEdges);
+        assertEquals(graph.getEdges(), edges.size());
+        graph.close();
+    }
+
+    @Test
+    public void testFindClosestBatch() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            points.add(new GHPoint(49.399 + rnd.nextDouble() * 0.012, 9.699 + rnd.nextDouble() * 0.012));
+        }
+        // out of bounds
+        points.add(new GHPoint(10, 10));
+        List<Snap> snaps = index.findClosest(points, EdgeFilter.ALL_EDGES);
+        assertEquals(points.size(), snaps.size());
+        for (int i = 0; i < points.size(); i++) {
+            Snap expected = index.findClosest(points.get(i).lat, points.get(i).lon, EdgeFilter.ALL_EDGES);
+            Snap snap = snaps.get(i);
+            assertEquals(expected.isValid(), snap.isValid(), "point " + i);
+            if (!expected.isValid())
+                continue;
+            assertEquals(expected.getClosestEdge().getEdge(), snap.getClosestEdge().getEdge(), "point " + i);
+            assertEquals(expected.getSnappedPoint(), snap.getSnappedPoint(), "point " + i);
+            assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-6, "point " + i);
+        }
+        graph.close();
+    }
+
+    @Test
+    public void testFindClosestEdges() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(7);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+
+        for (int i = 0; i < 100; i++) {
+            double lat = 49.4 + rnd.nextDouble() * 0.01;
+            double lon = 9.7 + rnd.nextDouble() * 0.01;
+            // brute force: the distances of all edges sorted
+            List<Double> expected = new ArrayList<>();
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next()) {
+                Snap snap = new Snap(lat, lon);
+                index.traverseEdge(lat, lon, iter, (node, normedDist, wayIndex, pos) -> {
+                    if (normedDist < snap.getQueryDistance())
+                        snap.setQueryDistance(normedDist);
+                });
+                expected.add(DistancePlaneProjection.DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance()));
+            }
+            Collections.sort(expected);
+
+            List<Snap> closest = index.findClosestEdges(lat, lon, Double.MAX_VALUE, 5, EdgeFilter.ALL_EDGES);
+            assertEquals(5, closest.size());
+            for (int j = 0; j < closest.size(); j++) {
+                assertEquals(expected.get(j), closest.get(j).getQueryDistance(), 0.01, "point " + i + ", snap " + j);
+            }
+            assertEquals(index.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getQueryDistance(), closest.get(0).getQueryDistance(), 0.01);
+
+            List<Snap> withinRadius = index.findClosestEdges(lat, lon, 100, Integer.MAX_VALUE, EdgeFilter.ALL_EDGES);
+            assertEquals(expected.stream().filter(d -> d <= 100).count(), withinRadius.size(), "point " + i);
+            for (int j = 0; j < withinRadius.size(); j++) {
+                assertEquals(expected.get(j), withinRadius.get(j).getQueryDistance(), 0.01, "point " + i + ", snap " + j);
+            }
+        }
+        graph.close();
+    }
+
+    @Test
+    public void testFindClosestWithPillarNodes() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(11);
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        NodeAccess na = graph.getNodeAccess();
+        AllEdgesIterator edges = graph.getAllEdges();
+        while (edges.next()) {
+            // a few pillar nodes around the straight line between the tower nodes
+            PointList pillars = new PointList();
+            int count = rnd.nextInt(4);
+            for (int i = 1; i <= count; i++) {
+                double f = (double) i / (count + 1);
+                pillars.add(na.getLat(edges.getBaseNode()) * (1 - f) + na.getLat(edges.getAdjNode()) * f + (rnd.nextDouble() - 0.5) * 1e-3,
+                        na.getLon(edges.getBaseNode()) * (1 - f) + na.getLon(edges.getAdjNode()) * f + (rnd.nextDouble() - 0.5) * 1e-3);
+            }
+            edges.setWayGeometry(pillars);
+        }
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+
+        for (int i = 0; i < 100; i++) {
+            double lat = 49.4 + rnd.nextDouble() * 0.01;
+            double lon = 9.7 + rnd.nextDouble() * 0.01;
+            // brute force using the pillar nodes fetched from the edges
+            double expected = Double.MAX_VALUE;
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next()) {
+                Snap snap = new Snap(lat, lon);
+                index.traverseEdge(lat, lon, iter, (node, normedDist, wayIndex, pos) -> {
+                    if (normedDist < snap.getQueryDistance())
+                        snap.setQueryDistance(normedDist);
+                });
+                expected = Math.min(expected, DistancePlaneProjection.DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance()));
+            }
+            assertEquals(expected, index.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getQueryDistance(), 0.01, "point " + i);
+            assertEquals(expected, index.findClosestEdges(lat, lon, 500, 1, EdgeFilter.ALL_EDGES).get(0).getQueryDistance(), 0.01, "point " + i);
+        }
+        graph.close();
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = {true, false})
     public void closeToTowerNode(boolean snapAtBase) {
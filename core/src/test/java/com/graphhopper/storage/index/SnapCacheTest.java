@@ -0,0 +1,114 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapCacheTest {
+
+    private static BaseGraph createGraph() {
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.000, 10.000);
+        na.setNode(1, 50.000, 10.010);
+        na.setNode(2, 50.010, 10.010);
+        graph.edge(0, 1);
+        graph.edge(1, 2);
+        return graph;
+    }
+
+    @Test
+    void hitsReturnNewSnaps() {
+        BaseGraph graph = createGraph();
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        SnapCache cache = new SnapCache(graph, 100);
+        EdgeFilter filter = EdgeFilter.ALL_EDGES;
+        LocationIndex cachedIndex = cache.wrap(index, "all", filter);
+
+        Snap expected = index.findClosest(50.001, 10.005, filter);
+        Snap first = cachedIndex.findClosest(50.001, 10.005, filter);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // the QueryGraph modifies the closest node, this must not change the cached snap
+        first.setClosestNode(42);
+        Snap second = cachedIndex.findClosest(50.001, 10.005, filter);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertNotSame(first, second);
+        assertEquals(expected.getClosestEdge().getEdgeKey(), second.getClosestEdge().getEdgeKey());
+        assertEquals(expected.getClosestNode(), second.getClosestNode());
+        assertEquals(expected.getWayIndex(), second.getWayIndex());
+        assertEquals(expected.getSnappedPosition(), second.getSnappedPosition());
+        assertEquals(expected.getSnappedPoint(), second.getSnappedPoint());
+        assertEquals(expected.getQueryDistance(), second.getQueryDistance(), 1.e-6);
+
+        // coordinates that are rounded to the same key use the same snap, but the query point is the requested one
+        Snap close = cachedIndex.findClosest(50.001_000_01, 10.005, filter);
+        assertEquals(2, cache.getHits());
+        assertEquals(50.001_000_01, close.getQueryPoint().lat, 1.e-10);
+        assertEquals(expected.getSnappedPoint(), close.getSnappedPoint());
+
+        // other filters and filter keys are not cached
+        cachedIndex.findClosest(50.001, 10.005, edge -> true);
+        cache.wrap(index, "other", filter).findClosest(50.001, 10.005, filter);
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 1.e-6);
+    }
+
+    @Test
+    void invalidSnapsAreCached() {
+        BaseGraph graph = createGraph();
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        SnapCache cache = new SnapCache(graph, 100);
+        EdgeFilter filter = edge -> false;
+        assertFalse(cache.findClosest(index, "none", 50.001, 10.005, filter).isValid());
+        assertFalse(cache.findClosest(index, "none", 50.001, 10.005, filter).isValid());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void sizeIsLimited() {
+        BaseGraph graph = createGraph();
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        SnapCache cache = new SnapCache(graph, 10);
+        for (int i = 0; i < 100; i++) {
+            cache.findClosest(index, "all", 50.0 + i * 1.e-4, 10.005, EdgeFilter.ALL_EDGES);
+            assertTrue(cache.getSize() <= 10, "size: " + cache.getSize());
+        }
+        // the recently used coordinates are still cached
+        cache.findClosest(index, "all", 50.0 + 99 * 1.e-4, 10.005, EdgeFilter.ALL_EDGES);
+        assertEquals(1, cache.getHits());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        cache.findClosest(index, "all", 50.0 + 99 * 1.e-4, 10.005, EdgeFilter.ALL_EDGES);
+        assertEquals(1, cache.getHits());
+    }
+}
@@ -45,8 +45,6 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
-
 /**
  * This class matches real world GPX entries to the digital road network stored
  * in GraphHopper. The Viterbi algorithm is used to compute the most likely
@@ -281,7 +279,9 @@ public class MapMatching {
         Envelope envelope = new Envelope(queryLon, queryLon, queryLat, queryLat);
         for (int i = 0; i < 50; i++) {
             envelope.expandBy(rLon, rLat);
-            List<Snap> snaps = findCandidateSnapsInBBox(queryLat, queryLon, BBox.fromEnvelope(envelope));
+            // the radius includes the corners of the envelope
+            double radius = 1.5 * (i + 1) * measurementErrorSigma;
+            List<Snap> snaps = findCandidateSnapsInBBox(queryLat, queryLon, BBox.fromEnvelope(envelope), radius);
             if (!snaps.isEmpty()) {
                 return snaps;
             }
@@ -289,35 +289,14 @@ public class MapMatching {
         return Collections.emptyList();
     }
 
-    private List<Snap> findCandidateSnapsInBBox(double queryLat, double queryLon, BBox queryShape) {
-        EdgeFilter edgeFilter = router.getSnapFilter();
+    private List<Snap> findCandidateSnapsInBBox(double queryLat, double queryLon, BBox queryShape, double radius) {
         List<Snap> snaps = new ArrayList<>();
-        IntHashSet seenEdges = new IntHashSet();
         IntHashSet seenNodes = new IntHashSet();
-        locationIndex.query(queryShape, edgeId -> {
-            EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(edgeId * 2);
-            if (seenEdges.add(edgeId) && edgeFilter.accept(edge)) {
-                Snap snap = new Snap(queryLat, queryLon);
-                locationIndex.traverseEdge(queryLat, queryLon, edge, (node, normedDist, wayIndex, pos) -> {
-                    if (normedDist < snap.getQueryDistance()) {
-                        snap.setQueryDistance(normedDist);
-                        snap.setClosestNode(node);
-                        snap.setWayIndex(wayIndex);
-                        snap.setSnappedPosition(pos);
-                    }
-                });
-                double dist = DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance());
-                snap.setClosestEdge(edge);
-                snap.setQueryDistance(dist);
-                if (snap.isValid() && (snap.getSnappedPosition() != Snap.Position.TOWER || seenNodes.add(snap.getClosestNode()))) {
-                    snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
-                    if (queryShape.contains(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon)) {
-                        snaps.add(snap);
-                    }
-                }
-            }
-        });
-        snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+        for (Snap snap : locationIndex.findClosestEdges(queryLat, queryLon, radius, Integer.MAX_VALUE, router.getSnapFilter())) {
+            if ((snap.getSnappedPosition() != Snap.Position.TOWER || seenNodes.add(snap.getClosestNode()))
+                    && queryShape.contains(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon))
+                snaps.add(snap);
+        }
         return snaps;
     }
 
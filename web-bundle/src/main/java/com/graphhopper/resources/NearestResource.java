@@ -19,6 +19,7 @@ package com.graphhopper.resources;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.index.LocationIndex;
@@ -32,7 +33,9 @@ import com.graphhopper.util.shapes.GHPoint3D;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.ws.rs.*;
+import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.core.MediaType;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -46,11 +49,13 @@ public class NearestResource {
     private final DistanceCalc calc = DistanceCalcEarth.DIST_EARTH;
     private final LocationIndex index;
     private final boolean hasElevation;
+    private final int maxPoints;
 
     @Inject
-    NearestResource(LocationIndex index, @Named("hasElevation") Boolean hasElevation) {
+    NearestResource(GraphHopperConfig config, LocationIndex index, @Named("hasElevation") Boolean hasElevation) {
         this.index = index;
         this.hasElevation = hasElevation;
+        this.maxPoints = config.getInt("index.nearest_max_points", 1000);
     }
 
     public static class Response {
@@ -65,16 +70,46 @@ public class NearestResource {
         }
     }
 
+    public static class BatchRequest {
+        // the points are expected in the [lon, lat] format like for POST /route
+        public List<GHPoint> points = new ArrayList<>();
+        public boolean elevation = false;
+    }
+
     @GET
     public Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
         Snap snap = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
         if (snap.isValid()) {
-            GHPoint3D snappedPoint = snap.getSnappedPoint();
-            double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
-            return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+            return createResponse(point, snap, elevation);
         } else {
             throw new MultiException(List.of(new PointNotFoundException("Point " + point + " is either out of bounds or cannot be found", 0)));
         }
     }
 
+    /**
+     * Snaps many points at once. The result contains one entry per point in the order of the request and null for
+     * points that cannot be found. The number of points is limited by index.nearest_max_points.
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public List<Response> doPost(@NotNull BatchRequest request) {
+        if (request.points == null || request.points.isEmpty())
+            throw new IllegalArgumentException("You have to specify at least one point");
+        if (request.points.size() > maxPoints)
+            throw new IllegalArgumentException("Too many points: " + request.points.size() + ", the maximum is " + maxPoints);
+        List<Snap> snaps = index.findClosest(request.points, EdgeFilter.ALL_EDGES);
+        List<Response> responses = new ArrayList<>(snaps.size());
+        for (int i = 0; i < snaps.size(); i++) {
+            Snap snap = snaps.get(i);
+            responses.add(snap.isValid() ? createResponse(request.points.get(i), snap, request.elevation) : null);
+        }
+        return responses;
+    }
+
+    private Response createResponse(GHPoint point, Snap snap, boolean elevation) {
+        GHPoint3D snappedPoint = snap.getSnappedPoint();
+        double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
+        return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+    }
+
 }
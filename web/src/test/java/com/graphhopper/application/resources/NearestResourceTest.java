@@ -17,6 +17,7 @@
  */
 package com.graphhopper.application.resources;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
@@ -30,11 +31,14 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Response;
+
 import java.io.File;
 import java.util.List;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author svantulden
@@ -50,6 +54,7 @@ public class NearestResourceTest {
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", dir).
                 putObject("import.osm.ignored_highways", "").
+                putObject("index.nearest_max_points", 3).
                 setProfiles(List.of(TestProfiles.constantSpeed("car")));
         return config;
     }
@@ -65,4 +70,24 @@ public class NearestResourceTest {
         NearestResource.Response json = clientTarget(app, "/nearest?point=42.554851,1.536198").request().get(NearestResource.Response.class);
         assertArrayEquals(new double[]{1.5363743623376815, 42.554839049600155}, json.coordinates, "nearest point");
     }
+
+    @Test
+    public void testBatchNearestQuery() {
+        String body = "{\"points\": [[1.536198, 42.554851], [10, 10], [1.536198, 42.554851]]}";
+        JsonNode json = clientTarget(app, "/nearest").request().post(Entity.json(body), JsonNode.class);
+        assertEquals(3, json.size());
+        assertEquals(1.5363743623376815, json.get(0).get("coordinates").get(0).asDouble(), 1.e-8);
+        assertEquals(42.554839049600155, json.get(0).get("coordinates").get(1).asDouble(), 1.e-8);
+        assertTrue(json.get(1).isNull(), "point out of bounds");
+        assertEquals(json.get(0), json.get(2));
+    }
+
+    @Test
+    public void testBatchNearestQueryWithTooManyPoints() {
+        String body = "{\"points\": [[1.536198, 42.554851], [1.536198, 42.554851], [1.536198, 42.554851], [1.536198, 42.554851]]}";
+        try (Response response = clientTarget(app, "/nearest").request().post(Entity.json(body))) {
+            assertEquals(400, response.getStatus());
+            assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Too many points: 4, the maximum is 3"));
+        }
+    }
 }